@@ -102,6 +102,43 @@ public class Constants {
   // Executors can use cpu load calculated from this period to take/skip polling turns
   public static final int DEFAULT_AZKABAN_POLLING_CRITERIA_CPU_LOAD_PERIOD_SEC = 60;
 
+  // Most executions an executor claims in one poll in Poll Dispatch model
+  public static final int DEFAULT_AZKABAN_POLLING_MAX_BATCH_SIZE = 10;
+
+  // How long an idle executor waits between polls at most, when it backs off on an empty queue.
+  // The same as the polling interval by default, i.e. no backoff.
+  public static final int DEFAULT_AZKABAN_POLLING_MAX_INTERVAL_MS =
+      DEFAULT_AZKABAN_POLLING_INTERVAL_MS;
+
+  // How many executors the web server nudges when it queues an execution
+  public static final int DEFAULT_AZKABAN_POLLING_NUDGE_MAX_EXECUTORS = 3;
+
+  // How many threads an executor unzips the files of a downloaded project with
+  public static final int DEFAULT_PROJECT_UNZIP_THREADS = 4;
+
+  // How many threads the web server parses the flows of all projects with at startup
+  public static final int DEFAULT_PROJECT_FLOWS_LOAD_THREADS = 8;
+
+  // How many flow nodes the web server keeps in memory at most when flows are loaded lazily
+  public static final long DEFAULT_PROJECT_FLOWS_CACHE_MAX_NODES = 1000000;
+
+  // How many flow deltas, or how long, an executor appends before compacting them into flow_data
+  public static final int DEFAULT_FLOW_DELTA_COMPACTION_MAX_DELTAS = 100;
+  public static final long DEFAULT_FLOW_DELTA_COMPACTION_INTERVAL_MS = 5 * 60 * 1000;
+
+  // How often the executor's write-behind stage flushes coalesced flow and job updates
+  public static final long DEFAULT_EXECUTOR_WRITE_BEHIND_FLUSH_INTERVAL_MS = 1000;
+
+  // How many events the executor's async event reporting stage queues, and delivers at once
+  public static final int DEFAULT_EVENT_REPORTING_ASYNC_QUEUE_SIZE = 10000;
+  public static final int DEFAULT_EVENT_REPORTING_ASYNC_BATCH_SIZE = 100;
+
+  // How often the web server refreshes its snapshot of active executions, how far back each
+  // incremental refresh looks before the newest update_time seen, and how often it reloads fully
+  public static final long DEFAULT_ACTIVE_EXECUTIONS_REFRESH_INTERVAL_MS = 1000;
+  public static final long DEFAULT_ACTIVE_EXECUTIONS_REFRESH_OVERLAP_MS = 30 * 1000;
+  public static final long DEFAULT_ACTIVE_EXECUTIONS_FULL_RELOAD_INTERVAL_MS = 5 * 60 * 1000;
+
   public static class ConfigurationKeys {
 
     // Configures Azkaban to use new polling model for dispatching
@@ -115,12 +152,28 @@ public class Constants {
         "azkaban.polling_criteria.max_cpu_utilization_pct";
     public static final String AZKABAN_POLLING_CRITERIA_CPU_LOAD_PERIOD_SEC =
         "azkaban.polling_criteria.cpu_load_period_sec";
+    public static final String AZKABAN_POLLING_MAX_BATCH_SIZE = "azkaban.polling.max_batch_size";
+    // Claims skip the rows locked by other executors. Requires MySQL 8.0 or later.
+    public static final String AZKABAN_POLLING_SKIP_LOCKED = "azkaban.polling.skip_locked";
+    public static final String AZKABAN_POLLING_MAX_INTERVAL_MS = "azkaban.polling.max_interval.ms";
+    // Web server nudges executors to poll when it queues an execution
+    public static final String AZKABAN_POLLING_NUDGE_ENABLED = "azkaban.polling.nudge.enabled";
+    public static final String AZKABAN_POLLING_NUDGE_MAX_EXECUTORS =
+        "azkaban.polling.nudge.max_executors";
 
     // Configures properties for Azkaban executor health check
     public static final String AZKABAN_EXECUTOR_HEALTHCHECK_INTERVAL_MIN = "azkaban.executor.healthcheck.interval.min";
     public static final String AZKABAN_EXECUTOR_MAX_FAILURE_COUNT = "azkaban.executor.max.failurecount";
     public static final String AZKABAN_ADMIN_ALERT_EMAIL = "azkaban.admin.alert.email";
 
+    // Configures the web server's cached snapshot of active executions
+    public static final String ACTIVE_EXECUTIONS_REFRESH_INTERVAL_MS =
+        "azkaban.active_executions.refresh.interval.ms";
+    public static final String ACTIVE_EXECUTIONS_REFRESH_OVERLAP_MS =
+        "azkaban.active_executions.refresh.overlap.ms";
+    public static final String ACTIVE_EXECUTIONS_FULL_RELOAD_INTERVAL_MS =
+        "azkaban.active_executions.full_reload.interval.ms";
+
     // Configures Azkaban Flow Version in project YAML file
     public static final String AZKABAN_FLOW_VERSION = "azkaban-flow-version";
 
@@ -194,6 +247,22 @@ public class Constants {
     // if not set or <= 0, then there's no restriction on running time.
     public static final String AZKABAN_MAX_FLOW_RUNNING_MINS = "azkaban.server.flow.max.running.minutes";
 
+    // Persist flow status changes as deltas of the changed nodes instead of rewriting the whole
+    // flow_data blob. Deltas are compacted into flow_data every N deltas or N ms, and on finish.
+    public static final String AZKABAN_FLOW_DELTA_PERSISTENCE_ENABLED =
+        "azkaban.server.flow.delta_persistence.enabled";
+    public static final String AZKABAN_FLOW_DELTA_COMPACTION_MAX_DELTAS =
+        "azkaban.server.flow.delta_persistence.compaction.max_deltas";
+    public static final String AZKABAN_FLOW_DELTA_COMPACTION_INTERVAL_MS =
+        "azkaban.server.flow.delta_persistence.compaction.interval_ms";
+
+    // Coalesce the executor's flow and job status updates and write them to the DB in JDBC
+    // batches on a deadline. Terminal statuses are still written before the runners move on.
+    public static final String AZKABAN_EXECUTOR_WRITE_BEHIND_ENABLED =
+        "azkaban.executor.write_behind.enabled";
+    public static final String AZKABAN_EXECUTOR_WRITE_BEHIND_FLUSH_INTERVAL_MS =
+        "azkaban.executor.write_behind.flush_interval_ms";
+
     public static final String AZKABAN_STORAGE_TYPE = "azkaban.storage.type";
     public static final String AZKABAN_STORAGE_LOCAL_BASEDIR = "azkaban.storage.local.basedir";
     public static final String HADOOP_CONF_DIR_PATH = "hadoop.conf.dir.path";
@@ -215,6 +284,18 @@ public class Constants {
     public static final String AZKABAN_EVENT_REPORTING_KAFKA_SCHEMA_REGISTRY_URL =
         "azkaban.event.reporting.kafka.schema.registry.url";
 
+    // Queue the events and report them in batches from a background thread, so that a slow event
+    // reporter doesn't hold up the flow and job threads. Events that don't fit into the queue are
+    // dropped, after waiting up to the full queue timeout for room if it's set.
+    public static final String AZKABAN_EVENT_REPORTING_ASYNC_ENABLED =
+        "azkaban.event.reporting.async.enabled";
+    public static final String AZKABAN_EVENT_REPORTING_ASYNC_QUEUE_SIZE =
+        "azkaban.event.reporting.async.queue_size";
+    public static final String AZKABAN_EVENT_REPORTING_ASYNC_BATCH_SIZE =
+        "azkaban.event.reporting.async.batch_size";
+    public static final String AZKABAN_EVENT_REPORTING_ASYNC_FULL_QUEUE_TIMEOUT_MS =
+        "azkaban.event.reporting.async.full_queue_timeout_ms";
+
     /*
      * The max number of artifacts retained per project.
      * Accepted Values:
@@ -271,6 +352,36 @@ public class Constants {
     public static final String PROJECT_CACHE_SIZE_PERCENTAGE = "azkaban"
         + ".project_cache_size_percentage_of_disk";
 
+    // number of threads an executor unzips the files of a downloaded project with
+    public static final String PROJECT_UNZIP_THREADS = "azkaban.project.unzip.threads";
+
+    // if true, an executor unzips a downloaded project as it's streamed from storage instead of
+    // storing the zip in a temp file first. Streamed zips are unzipped by one thread.
+    public static final String PROJECT_UNZIP_STREAMING = "azkaban.project.unzip.streaming";
+
+    // number of threads the web server parses the flows of all projects with at startup
+    public static final String PROJECT_FLOWS_LOAD_THREADS = "azkaban.project.flows.load_threads";
+
+    // if true, the web server loads the flows of a project on first access instead of loading
+    // the flows of all projects at startup, and keeps them in a cache bounded by
+    // PROJECT_FLOWS_CACHE_MAX_NODES
+    public static final String PROJECT_FLOWS_LAZY_LOAD = "azkaban.project.flows.lazy_load";
+
+    // total number of flow nodes of the projects whose flows are cached when loading lazily
+    public static final String PROJECT_FLOWS_CACHE_MAX_NODES = "azkaban.project.flows.cache"
+        + ".max_nodes";
+
+    // comma separated names of project directories, e.g. bundled virtualenvs, that are symlinked
+    // into execution dirs as a whole instead of being hard linked file by file. They must not be
+    // modified by jobs.
+    public static final String EXECUTION_DIR_SYMLINKED_DIR_NAMES = "azkaban.execution_dir"
+        + ".symlinked_dir_names";
+
+    // how often an executor checks the status of an upstream pipelined execution running on
+    // another executor. Only when it changed is the whole execution fetched.
+    public static final String PIPELINE_STATUS_CHECK_INTERVAL_MS = "azkaban.pipeline"
+        + ".status_check_interval_ms";
+
     // how many older versions of project files are kept in DB before deleting them
     public static final String PROJECT_VERSION_RETENTION = "project.version.retention";
 
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of a {@link Props} and all its parents in a single hash map.
+ *
+ * <p>{@link Props#get(Object)} walks the parent chain on every miss and {@link Props#getKeySet()}
+ * merges the key sets of all the parents on every call. A snapshot is built once, in one pass
+ * over the chain, and then answers lookups with one hash lookup. Numbers and booleans are parsed
+ * when the snapshot is built, so the accessors don't parse or box.
+ *
+ * <p>The accessors behave like the ones of Props, except that getBoolean(key, defaultValue) returns
+ * false for a key with a null value. Later changes to the props aren't seen. Thread safe.
+ *
+ * <p>Building a snapshot parses every value, so it only pays off when most keys are read, or read
+ * many times. JobRunner and FlowRunner read a handful of keys of each job's props once, which is
+ * cheaper straight from the Props, so they don't take snapshots.
+ */
+public final class FlattenedProps {
+
+  private final Map<String, Value> values;
+  private final Set<String> keySet;
+
+  private FlattenedProps(final Map<String, Value> values) {
+    this.values = values;
+    this.keySet = Collections.unmodifiableSet(values.keySet());
+  }
+
+  /**
+   * Flattens the props and all its parents. The values of children override the ones of their
+   * parents.
+   */
+  public static FlattenedProps of(final Props props) {
+    final List<Props> chain = new ArrayList<>();
+    int numKeys = 0;
+    for (Props p = props; p != null; p = p.getParent()) {
+      chain.add(p);
+      numKeys += p.localSize();
+    }
+
+    final Map<String, Value> values = new HashMap<>(numKeys * 4 / 3 + 1);
+    for (int i = chain.size() - 1; i >= 0; i--) {
+      final Props p = chain.get(i);
+      for (final String key : p.localKeySet()) {
+        values.put(key, new Value(p.get(key)));
+      }
+    }
+    return new FlattenedProps(values);
+  }
+
+  /**
+   * @return true if s is a decimal number of at most maxDigits ASCII digits, optionally signed,
+   * so that parsing it can't overflow
+   */
+  private static boolean isShortDecimal(final String s, final int maxDigits) {
+    final int start = !s.isEmpty() && (s.charAt(0) == '-' || s.charAt(0) == '+') ? 1 : 0;
+    final int numDigits = s.length() - start;
+    if (numDigits == 0 || numDigits > maxDigits) {
+      return false;
+    }
+    for (int i = start; i < s.length(); i++) {
+      final char c = s.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean containsKey(final String key) {
+    return this.values.containsKey(key);
+  }
+
+  public String get(final String key) {
+    final Value v = this.values.get(key);
+    return v == null ? null : v.string;
+  }
+
+  public String getString(final String key, final String defaultValue) {
+    final Value v = this.values.get(key);
+    return v == null ? defaultValue : v.string;
+  }
+
+  public String getString(final String key) {
+    return getValue(key).string;
+  }
+
+  /**
+   * @see Props#getBoolean(String, boolean)
+   */
+  public boolean getBoolean(final String key, final boolean defaultValue) {
+    final Value v = this.values.get(key);
+    return v == null ? defaultValue : v.isTrimmedTrue;
+  }
+
+  /**
+   * @see Props#getBoolean(String)
+   */
+  public boolean getBoolean(final String key) {
+    return getValue(key).isTrue;
+  }
+
+  /**
+   * @see Props#getLong(String, long)
+   */
+  public long getLong(final String key, final long defaultValue) {
+    final Value v = this.values.get(key);
+    return v == null ? defaultValue : v.getLong();
+  }
+
+  /**
+   * @see Props#getLong(String)
+   */
+  public long getLong(final String key) {
+    return getValue(key).getLong();
+  }
+
+  /**
+   * @see Props#getInt(String, int)
+   */
+  public int getInt(final String key, final int defaultValue) {
+    final Value v = this.values.get(key);
+    return v == null ? defaultValue : v.getInt();
+  }
+
+  /**
+   * @see Props#getInt(String)
+   */
+  public int getInt(final String key) {
+    return getValue(key).getInt();
+  }
+
+  /**
+   * @return the keys of the props and all its parents, unmodifiable
+   */
+  public Set<String> getKeySet() {
+    return this.keySet;
+  }
+
+  public int size() {
+    return this.values.size();
+  }
+
+  /**
+   * @return a new Props without parents holding all the values
+   */
+  public Props toProps() {
+    final Props props = new Props();
+    for (final Map.Entry<String, Value> entry : this.values.entrySet()) {
+      props.put(entry.getKey(), entry.getValue().string);
+    }
+    return props;
+  }
+
+  private Value getValue(final String key) {
+    final Value v = this.values.get(key);
+    if (v == null) {
+      throw new UndefinedPropertyException("Missing required property '" + key + "'");
+    }
+    return v;
+  }
+
+  @Override
+  public String toString() {
+    return toProps().toString();
+  }
+
+  /**
+   * A value, parsed as the accessors of Props would parse it. Numbers which can't be parsed
+   * without overflow checks are left to Long.parseLong and Integer.parseInt, so that they return
+   * or throw what Props would.
+   */
+  private static final class Value {
+
+    private final String string;
+    private final boolean isTrue;
+    private final boolean isTrimmedTrue;
+    private final boolean isLong;
+    private final long longValue;
+    private final boolean isInt;
+    private final int intValue;
+
+    private Value(final String string) {
+      this.string = string;
+      final String trimmed = string == null ? null : string.trim();
+      this.isTrue = "true".equalsIgnoreCase(string);
+      this.isTrimmedTrue = "true".equalsIgnoreCase(trimmed);
+      // Props.getLong doesn't trim, Props.getInt does
+      this.isLong = string != null && isShortDecimal(string, 18);
+      this.longValue = this.isLong ? Long.parseLong(string) : 0;
+      this.isInt = trimmed != null && isShortDecimal(trimmed, 9);
+      this.intValue = this.isInt ? Integer.parseInt(trimmed) : 0;
+    }
+
+    private long getLong() {
+      return this.isLong ? this.longValue : Long.parseLong(this.string);
+    }
+
+    private int getInt() {
+      return this.isInt ? this.intValue : Integer.parseInt(this.string.trim());
+    }
+  }
+}
@@ -16,10 +16,13 @@
 package azkaban.utils;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.MapDifference;
 import com.google.common.collect.Maps;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -44,6 +47,13 @@ public class PropsUtils {
   private static final Logger logger = Logger.getLogger(PropsUtils.class);
   private static final Pattern VARIABLE_REPLACEMENT_PATTERN = Pattern
       .compile("\\$\\{([a-zA-Z_.0-9]+)\\}");
+  private static final int EXPRESSION_CACHE_SIZE = 1024;
+  // Thread safe, shared so that its introspection cache is reused across resolutions
+  private static final JexlEngine JEXL = new JexlEngine();
+  // Parsed $(...) expressions. Only the parsed form is cached, they're evaluated on every use.
+  private static final Cache<String, Expression> EXPRESSION_CACHE = CacheBuilder.newBuilder()
+      .maximumSize(EXPRESSION_CACHE_SIZE)
+      .build();
 
   /**
    * Private constructor.
@@ -218,88 +228,142 @@ public class PropsUtils {
       return null;
     }
 
+    // Flattened once, instead of walking the parent chain for every reference. Only the raw
+    // strings are needed, so the values aren't parsed the way a FlattenedProps would.
+    final List<Props> chain = new ArrayList<>();
+    for (Props p = props; p != null; p = p.getParent()) {
+      chain.add(p);
+    }
+    final Map<String, String> values = new HashMap<>();
+    for (int i = chain.size() - 1; i >= 0; i--) {
+      final Props p = chain.get(i);
+      for (final String key : p.localKeySet()) {
+        values.put(key, p.get(key));
+      }
+    }
+
     final Props resolvedProps = new Props();
+    final VariableResolver resolver = new VariableResolver(values);
+    for (final String key : values.keySet()) {
+      resolvedProps.put(key, resolveVariableExpression(resolver.resolve(key)));
+    }
 
-    final LinkedHashSet<String> visitedVariables = new LinkedHashSet<>();
-    for (final String key : props.getKeySet()) {
-      String value = props.get(key);
-      if (value == null) {
-        logger.warn("Null value in props for key '" + key + "'. Replacing with empty string.");
-        value = "";
-      }
+    return resolvedProps;
+  }
 
-      visitedVariables.add(key);
-      final String replacedValue =
-          resolveVariableReplacement(value, props, visitedVariables);
-      visitedVariables.clear();
+  /**
+   * Substitutes the ${var} references of the values of a props in one pass over each value.
+   * Resolved variables are memoized, so a variable referenced by many props is resolved once.
+   */
+  private static class VariableResolver {
+
+    private final Map<String, String> values;
+    private final Map<String, String> resolved = new HashMap<>();
+    private final LinkedHashSet<String> visitedVariables = new LinkedHashSet<>();
 
-      resolvedProps.put(key, replacedValue);
+    private VariableResolver(final Map<String, String> values) {
+      this.values = values;
     }
 
-    for (final String key : resolvedProps.getKeySet()) {
-      final String value = resolvedProps.get(key);
-      final String expressedValue = resolveVariableExpression(value);
-      resolvedProps.put(key, expressedValue);
+    private static boolean isVariableNameChar(final char c) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+          || c == '_' || c == '.';
     }
 
-    return resolvedProps;
-  }
+    private String resolve(final String key) {
+      String replacedValue = this.resolved.get(key);
+      if (replacedValue != null) {
+        // Already resolved as a variable of another key
+        return replacedValue;
+      }
 
-  private static String resolveVariableReplacement(final String value, final Props props,
-      final LinkedHashSet<String> visitedVariables) {
-    final StringBuffer buffer = new StringBuffer();
-    int startIndex = 0;
+      final String value = this.values.get(key);
+      if (value == null) {
+        logger.warn("Null value in props for key '" + key + "'. Replacing with empty string.");
+        return "";
+      }
 
-    final Matcher matcher = VARIABLE_REPLACEMENT_PATTERN.matcher(value);
-    while (matcher.find(startIndex)) {
-      if (startIndex < matcher.start()) {
-        // Copy everything up front to the buffer
-        buffer.append(value.substring(startIndex, matcher.start()));
+      this.visitedVariables.add(key);
+      replacedValue = replaceVariables(value);
+      this.visitedVariables.clear();
+      this.resolved.put(key, replacedValue);
+      return replacedValue;
+    }
+
+    private String replaceVariables(final String value) {
+      int start = value.indexOf("${");
+      if (start == -1) {
+        return value;
+      }
+
+      final StringBuilder builder = new StringBuilder(value.length() + 16);
+      int copied = 0;
+      while (start != -1) {
+        int end = start + 2;
+        while (end < value.length() && isVariableNameChar(value.charAt(end))) {
+          end++;
+        }
+        if (end > start + 2 && end < value.length() && value.charAt(end) == '}') {
+          builder.append(value, copied, start);
+          builder.append(resolveVariable(value.substring(start + 2, end)));
+          copied = end + 1;
+          start = value.indexOf("${", copied);
+        } else {
+          // Not a variable, e.g. ${${var}}
+          start = value.indexOf("${", start + 1);
+        }
+      }
+      builder.append(value, copied, value.length());
+      return builder.toString();
+    }
+
+    private String resolveVariable(final String variable) {
+      String replacement = this.resolved.get(variable);
+      if (replacement != null) {
+        return replacement;
       }
 
-      final String subVariable = matcher.group(1);
       // Detected a cycle
-      if (visitedVariables.contains(subVariable)) {
+      if (this.visitedVariables.contains(variable)) {
         throw new IllegalArgumentException(String.format(
             "Circular variable substitution found: [%s] -> [%s]",
-            StringUtils.join(visitedVariables, "->"), subVariable));
-      } else {
-        // Add substitute variable and recurse.
-        final String replacement = props.get(subVariable);
-        visitedVariables.add(subVariable);
-
-        if (replacement == null) {
-          throw new UndefinedPropertyException(String.format(
-              "Could not find variable substitution for variable(s) [%s]",
-              StringUtils.join(visitedVariables, "->")));
-        }
-
-        buffer.append(resolveVariableReplacement(replacement, props,
-            visitedVariables));
-        visitedVariables.remove(subVariable);
+            StringUtils.join(this.visitedVariables, "->"), variable));
       }
 
-      startIndex = matcher.end();
-    }
+      // Add substitute variable and recurse.
+      final String value = this.values.get(variable);
+      this.visitedVariables.add(variable);
+      if (value == null) {
+        throw new UndefinedPropertyException(String.format(
+            "Could not find variable substitution for variable(s) [%s]",
+            StringUtils.join(this.visitedVariables, "->")));
+      }
 
-    if (startIndex < value.length()) {
-      buffer.append(value.substring(startIndex));
+      replacement = replaceVariables(value);
+      this.visitedVariables.remove(variable);
+      this.resolved.put(variable, replacement);
+      return replacement;
     }
-
-    return buffer.toString();
   }
 
   private static String resolveVariableExpression(final String value) {
-    final JexlEngine jexl = new JexlEngine();
-    return resolveVariableExpression(value, value.length(), jexl);
+    return resolveVariableExpression(value, value.length());
+  }
+
+  private static Expression getExpression(final String expression) {
+    Expression e = EXPRESSION_CACHE.getIfPresent(expression);
+    if (e == null) {
+      e = JEXL.createExpression(expression);
+      EXPRESSION_CACHE.put(expression, e);
+    }
+    return e;
   }
 
   /**
    * Function that looks for expressions to parse. It parses backwards to capture embedded
    * expressions
    */
-  private static String resolveVariableExpression(final String value, final int last,
-      final JexlEngine jexl) {
+  private static String resolveVariableExpression(final String value, final int last) {
     final int lastIndex = value.lastIndexOf("$(", last);
     if (lastIndex == -1) {
       return value;
@@ -328,8 +392,7 @@ public class PropsUtils {
     final String innerExpression = value.substring(lastIndex + 2, nextClosed);
     Object result = null;
     try {
-      final Expression e = jexl.createExpression(innerExpression);
-      result = e.evaluate(new MapContext());
+      result = getExpression(innerExpression).evaluate(new MapContext());
     } catch (final JexlException e) {
       throw new IllegalArgumentException("Expression " + value
           + " not well formed. " + e.getMessage(), e);
@@ -343,7 +406,7 @@ public class PropsUtils {
     final String newValue =
         value.substring(0, lastIndex) + result.toString()
             + value.substring(nextClosed + 1);
-    return resolveVariableExpression(newValue, lastIndex, jexl);
+    return resolveVariableExpression(newValue, lastIndex);
   }
 
   /**
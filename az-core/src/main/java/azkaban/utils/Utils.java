@@ -36,8 +36,12 @@ import java.util.Enumeration;
 import java.util.List;
 import java.util.Random;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
@@ -204,31 +208,104 @@ public class Utils {
     final Enumeration<?> entries = source.entries();
     while (entries.hasMoreElements()) {
       final ZipEntry entry = (ZipEntry) entries.nextElement();
-      final File newFile = new File(dest, entry.getName());
-      if (!newFile.getCanonicalPath().startsWith(dest.getCanonicalPath())) {
-        throw new IOException(
-            "Extracting zip entry would have resulted in a file outside the specified destination"
-                + " directory.");
+      final File newFile = getUnzippedFile(dest, entry);
+
+      if (entry.isDirectory()) {
+        newFile.mkdirs();
+      } else {
+        newFile.getParentFile().mkdirs();
+        unzipEntry(source, entry, newFile);
       }
+    }
+  }
 
+  /**
+   * Unzips the files of the zip in parallel. The directories are created first, then every file is
+   * inflated by a task of the executor. ZipFile only serializes the reads of the compressed bytes,
+   * so the inflating and writing of the entries run in parallel.
+   *
+   * @param executor runs the tasks, it's not shut down
+   */
+  public static void unzip(final ZipFile source, final File dest, final ExecutorService executor)
+      throws IOException {
+    final List<ZipEntry> fileEntries = new ArrayList<>();
+    final Enumeration<? extends ZipEntry> entries = source.entries();
+    while (entries.hasMoreElements()) {
+      final ZipEntry entry = entries.nextElement();
+      final File newFile = getUnzippedFile(dest, entry);
       if (entry.isDirectory()) {
         newFile.mkdirs();
       } else {
         newFile.getParentFile().mkdirs();
-        final InputStream src = source.getInputStream(entry);
-        try {
-          final OutputStream output =
-              new BufferedOutputStream(new FileOutputStream(newFile));
-          try {
-            IOUtils.copy(src, output);
-          } finally {
-            output.close();
-          }
-        } finally {
-          src.close();
+        fileEntries.add(entry);
+      }
+    }
+
+    final List<Future<?>> futures = new ArrayList<>(fileEntries.size());
+    try {
+      for (final ZipEntry entry : fileEntries) {
+        futures.add(executor.submit(() -> {
+          unzipEntry(source, entry, new File(dest, entry.getName()));
+          return null;
+        }));
+      }
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while unzipping " + source.getName(), e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to unzip " + source.getName(), e.getCause());
+    } finally {
+      for (final Future<?> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Unzips the zip as it's read from the stream, so that it doesn't have to be stored first. The
+   * stream is read to its end, past the end of the zip if needed, e.g. for a stream which verifies
+   * a hash at its end. It's not closed.
+   */
+  public static void unzip(final InputStream source, final File dest) throws IOException {
+    final ZipInputStream zipStream = new ZipInputStream(source);
+    ZipEntry entry;
+    while ((entry = zipStream.getNextEntry()) != null) {
+      final File newFile = getUnzippedFile(dest, entry);
+      if (entry.isDirectory()) {
+        newFile.mkdirs();
+      } else {
+        newFile.getParentFile().mkdirs();
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(newFile))) {
+          IOUtils.copy(zipStream, output);
         }
       }
     }
+    // The central directory isn't read by ZipInputStream
+    IOUtils.skip(source, Long.MAX_VALUE);
+  }
+
+  private static File getUnzippedFile(final File dest, final ZipEntry entry) throws IOException {
+    final File newFile = new File(dest, entry.getName());
+    if (!newFile.getCanonicalPath().startsWith(dest.getCanonicalPath())) {
+      throw new IOException(
+          "Extracting zip entry would have resulted in a file outside the specified destination"
+              + " directory.");
+    }
+    return newFile;
+  }
+
+  private static void unzipEntry(final ZipFile source, final ZipEntry entry, final File newFile)
+      throws IOException {
+    try (InputStream src = source.getInputStream(entry);
+        OutputStream output = new BufferedOutputStream(new FileOutputStream(newFile))) {
+      IOUtils.copy(src, output);
+    }
   }
 
   public static String flattenToString(final Collection<?> collection,
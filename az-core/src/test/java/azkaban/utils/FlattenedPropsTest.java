@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+public class FlattenedPropsTest {
+
+  private static Props createChain() {
+    final Props system = Props.of("a", "1", "b", " 42 ", "c", "true", "shared", "system");
+    final Props flow = new Props(system);
+    flow.put("shared", "flow");
+    final Props job = new Props(flow);
+    job.put("a", "-7");
+    job.put("big", "1234567890123456789");
+    job.put("outOfIntRange", "3000000000");
+    job.put("padded", " TRUE ");
+    return job;
+  }
+
+  @Test
+  public void testSameValuesAsProps() {
+    final Props props = createChain();
+    final FlattenedProps flattened = FlattenedProps.of(props);
+
+    assertThat(flattened.getKeySet()).isEqualTo(props.getKeySet());
+    assertThat(flattened.size()).isEqualTo(props.size());
+    for (final String key : props.getKeySet()) {
+      assertThat(flattened.get(key)).isEqualTo(props.get(key));
+    }
+    assertThat(flattened.getString("shared")).isEqualTo("flow");
+    assertThat(flattened.getLong("a")).isEqualTo(props.getLong("a"));
+    assertThat(flattened.getInt("b")).isEqualTo(props.getInt("b"));
+    assertThat(flattened.getLong("big")).isEqualTo(props.getLong("big"));
+    assertThat(flattened.getLong("outOfIntRange")).isEqualTo(3000000000L);
+    assertThat(flattened.getBoolean("c")).isTrue();
+    assertThat(flattened.getBoolean("padded", false)).isEqualTo(props.getBoolean("padded", false));
+    assertThat(flattened.getBoolean("padded")).isEqualTo(props.getBoolean("padded"));
+    assertThat(flattened.getInt("missing", 5)).isEqualTo(5);
+    assertThat(flattened.getString("missing", "default")).isEqualTo("default");
+    assertThat(flattened.toProps().getFlattened()).isEqualTo(props.getFlattened());
+  }
+
+  @Test
+  public void testSameErrorsAsProps() {
+    final FlattenedProps flattened = FlattenedProps.of(createChain());
+
+    assertThatThrownBy(() -> flattened.getInt("outOfIntRange"))
+        .isInstanceOf(NumberFormatException.class);
+    // getLong doesn't trim, like Props.getLong
+    assertThatThrownBy(() -> flattened.getLong("b")).isInstanceOf(NumberFormatException.class);
+    assertThatThrownBy(() -> flattened.getInt("missing"))
+        .isInstanceOf(UndefinedPropertyException.class);
+  }
+
+  @Test
+  public void testSnapshotIsNotChangedByProps() {
+    final Props props = createChain();
+    final FlattenedProps flattened = FlattenedProps.of(props);
+    props.put("a", "8");
+    props.put("new", "value");
+
+    assertThat(flattened.getInt("a")).isEqualTo(-7);
+    assertThat(flattened.containsKey("new")).isFalse();
+  }
+}
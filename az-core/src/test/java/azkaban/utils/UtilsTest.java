@@ -15,12 +15,19 @@
  */
 package azkaban.utils;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -61,6 +68,57 @@ public class UtilsTest {
     }
   }
 
+  @Test
+  public void testUnzipInParallel() throws Exception {
+    final File zipFile = File.createTempFile("myTest", ".zip");
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      try (final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+        out.putNextEntry(new ZipEntry("dir/"));
+        for (int i = 0; i < 20; i++) {
+          out.putNextEntry(new ZipEntry("dir/sub" + (i % 3) + "/file" + i + ".txt"));
+          out.write(("content " + i).getBytes(StandardCharsets.UTF_8));
+        }
+      }
+
+      final File dest = Utils.createTempDir();
+      try (final ZipFile source = new ZipFile(zipFile)) {
+        Utils.unzip(source, dest, executor);
+      }
+      for (int i = 0; i < 20; i++) {
+        final File file = new File(dest, "dir/sub" + (i % 3) + "/file" + i + ".txt");
+        assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+            .isEqualTo("content " + i);
+      }
+    } finally {
+      executor.shutdownNow();
+      zipFile.delete();
+    }
+  }
+
+  @Test
+  public void testUnzipStream() throws Exception {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final ZipOutputStream out = new ZipOutputStream(bytes)) {
+      out.putNextEntry(new ZipEntry("dir/"));
+      for (int i = 0; i < 5; i++) {
+        out.putNextEntry(new ZipEntry("dir/file" + i + ".txt"));
+        out.write(("content " + i).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    final File dest = Utils.createTempDir();
+    final ByteArrayInputStream source = new ByteArrayInputStream(bytes.toByteArray());
+    Utils.unzip(source, dest);
+    for (int i = 0; i < 5; i++) {
+      final File file = new File(dest, "dir/file" + i + ".txt");
+      assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+          .isEqualTo("content " + i);
+    }
+    // Read to the end, including the central directory
+    assertThat(source.read()).isEqualTo(-1);
+  }
+
   @Test
   public void testRunProcess() throws IOException, InterruptedException {
     ArrayList<String> result =
@@ -21,12 +21,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -47,31 +49,31 @@ import java.util.regex.Pattern;
  *  }
  * }
  *
+ * Every topic is indexed by an immutable {@link TopicIndex}, which also holds the compiled matchers
+ * of its rules. Writers copy the index of the topic they change and publish the copy, so readers
+ * on the consumer thread never take the lock and regexes are compiled once, when they are added.
  */
 public class KafkaDepInstanceCollection {
+  private final static Logger log = LoggerFactory.getLogger(KafkaDepInstanceCollection.class);
 
-  private final Map<String, Map<String, List<KafkaDependencyInstanceContext>>> topicEventMap;
+  // Replaced as a whole by writers, which are serialized by the collection's monitor
+  private volatile Map<String, TopicIndex> topicEventMap;
 
   public KafkaDepInstanceCollection() {
-    this.topicEventMap = new HashMap<>();
+    this.topicEventMap = Collections.emptyMap();
   }
 
   public synchronized void add(final KafkaDependencyInstanceContext dep) {
     final String topic = dep.getTopicName();
-    Map<String, List<KafkaDependencyInstanceContext>> eventMap = this.topicEventMap.get(topic);
-    List<KafkaDependencyInstanceContext> depList;
-    if (eventMap == null) {
-      eventMap = new HashMap<>();
-      depList = new LinkedList<>();
-    } else {
-      depList = eventMap.get(dep.getRegexMatch());
-      if (depList == null) {
-        depList = new LinkedList<>();
-      }
-    }
+    final TopicIndex index = this.topicEventMap.get(topic);
+    final Map<String, List<KafkaDependencyInstanceContext>> eventMap =
+        index == null ? new LinkedHashMap<>() : new LinkedHashMap<>(index.eventMap);
+    final List<KafkaDependencyInstanceContext> depList =
+        eventMap.containsKey(dep.getRegexMatch()) ? new ArrayList<>(eventMap.get(dep.getRegexMatch()))
+            : new ArrayList<>();
     depList.add(dep);
     eventMap.put(dep.getRegexMatch(), depList);
-    this.topicEventMap.put(topic, eventMap);
+    publish(topic, new TopicIndex(eventMap, index));
   }
 
   public boolean hasTopic(final String topic) {
@@ -82,7 +84,7 @@ public class KafkaDepInstanceCollection {
    * Get a list of topics.
    * @return List of String of topics
    */
-  public synchronized List<String> getTopicList() {
+  public List<String> getTopicList() {
     final List<String> res = new ArrayList<>(this.topicEventMap.keySet());
     return res;
   }
@@ -92,16 +94,14 @@ public class KafkaDepInstanceCollection {
    * @param payload and topic
    * @return regexs that meet the customized requirement
    */
-  public synchronized Set<String> regexInTopic(final String topic, final String payload) {
-    final Set<String> res = new HashSet<>();
-    final Map<String, List<KafkaDependencyInstanceContext>> eventMap = this.topicEventMap.get(topic);
-    if (eventMap == null) {
+  public Set<String> regexInTopic(final String topic, final String payload) {
+    final TopicIndex index = this.topicEventMap.get(topic);
+    if (index == null) {
       return Collections.emptySet();
     }
-
-    for (final Map.Entry<String, List<KafkaDependencyInstanceContext>> entry : eventMap.entrySet()) {
-      final RegexKafkaDependencyMatcher matcher = new RegexKafkaDependencyMatcher(Pattern.compile(entry.getKey()));
-      if (matcher.isMatch(payload)) {
+    final Set<String> res = new HashSet<>();
+    for (final Map.Entry<String, RegexKafkaDependencyMatcher> entry : index.regexMatchers.entrySet()) {
+      if (entry.getValue().isMatch(payload)) {
         res.add(entry.getKey());
       }
     }
@@ -109,58 +109,75 @@ public class KafkaDepInstanceCollection {
   }
 
   /**
-   * Returns dependencies with topic and dependency's event regular expression match
+   * Returns dependencies with topic and dependency's event regular expression match. The list is a
+   * snapshot, later changes to the collection are not reflected in it.
    */
-  public synchronized List<KafkaDependencyInstanceContext> getDepsByTopicAndEvent(final String topic,
+  public List<KafkaDependencyInstanceContext> getDepsByTopicAndEvent(final String topic,
       final String regex) {
-    final Map<String, List<KafkaDependencyInstanceContext>> regexMap = this.topicEventMap.get(topic);
-    if (regexMap != null) {
-      return regexMap.get(regex);
+    final TopicIndex index = this.topicEventMap.get(topic);
+    if (index != null) {
+      return index.eventMap.get(regex);
     }
     return Collections.emptyList();
   }
 
   public synchronized void remove(final KafkaDependencyInstanceContext dep) {
-    final Map<String, List<KafkaDependencyInstanceContext>> regexMap = this.topicEventMap.get(dep.getTopicName());
-    if (regexMap != null) {
-      final List<KafkaDependencyInstanceContext> deps = regexMap.get(dep.getRegexMatch());
+    final TopicIndex index = this.topicEventMap.get(dep.getTopicName());
+    if (index != null) {
+      final List<KafkaDependencyInstanceContext> deps = index.eventMap.get(dep.getRegexMatch());
       if (deps != null) {
-        final Iterator<KafkaDependencyInstanceContext> it = deps.iterator();
-        while (it.hasNext()) {
-          final KafkaDependencyInstanceContext curr = it.next();
-          if (curr == dep) {
-            it.remove();
+        final List<KafkaDependencyInstanceContext> remaining = new ArrayList<>(deps);
+        for (int i = 0; i < remaining.size(); i++) {
+          if (remaining.get(i) == dep) {
+            remaining.remove(i);
             break;
           }
         }
-        if (deps.isEmpty()) {
-          regexMap.remove(dep.getRegexMatch());
-        }
-        if (regexMap.isEmpty()) {
-          this.topicEventMap.remove(dep.getTopicName());
-        }
+        replaceDeps(dep.getTopicName(), index, dep.getRegexMatch(), remaining);
       }
     }
   }
 
+  /**
+   * Removes the dependencies of the topic and event.
+   * @return true if the set of topics didn't change
+   */
   public synchronized boolean removeList(final String topic, final String event,
       final List<KafkaDependencyInstanceContext> list) {
-    final List<String> ori = new ArrayList<>(this.topicEventMap.keySet());
-    final Map<String, List<KafkaDependencyInstanceContext>> eventMap = this.topicEventMap.get(topic);
-    if (eventMap != null) {
-      final List<KafkaDependencyInstanceContext> deps = eventMap.get(event);
+    final TopicIndex index = this.topicEventMap.get(topic);
+    if (index != null) {
+      final List<KafkaDependencyInstanceContext> deps = index.eventMap.get(event);
       if (deps != null) {
-        deps.removeAll(list);
-      }
-      if (deps.isEmpty()) {
-        eventMap.remove(event);
-      }
-      if (eventMap.isEmpty()) {
-        this.topicEventMap.remove(topic);
+        final List<KafkaDependencyInstanceContext> remaining = new ArrayList<>(deps);
+        remaining.removeAll(list);
+        replaceDeps(topic, index, event, remaining);
       }
     }
-    final List<String> res = new ArrayList<>(this.topicEventMap.keySet());
-    return res == ori;
+    return index == null || this.topicEventMap.containsKey(topic);
+  }
+
+  // Must be called with the monitor held
+  private void replaceDeps(final String topic, final TopicIndex index, final String regex,
+      final List<KafkaDependencyInstanceContext> deps) {
+    final Map<String, List<KafkaDependencyInstanceContext>> eventMap =
+        new LinkedHashMap<>(index.eventMap);
+    if (deps.isEmpty()) {
+      eventMap.remove(regex);
+    } else {
+      eventMap.put(regex, deps);
+    }
+    publish(topic, eventMap.isEmpty() ? null : new TopicIndex(eventMap, index));
+  }
+
+  // Must be called with the monitor held
+  private void publish(final String topic, final TopicIndex index) {
+    final Map<String, TopicIndex> topicEventMap = new HashMap<>(this.topicEventMap);
+    if (index == null) {
+      topicEventMap.remove(topic);
+    } else {
+      topicEventMap.put(topic, index);
+    }
+    this.topicEventMap = Collections.unmodifiableMap(topicEventMap);
   }
 
   @Override
@@ -168,4 +185,44 @@ public class KafkaDepInstanceCollection {
     final Joiner.MapJoiner mapJoiner = Joiner.on("\n").withKeyValueSeparator("=");
     return mapJoiner.join(this.topicEventMap);
   }
+
+  /**
+   * The rules of one topic with their dependencies and compiled matchers. Never modified once
+   * published.
+   */
+  private static class TopicIndex {
+    private final Map<String, List<KafkaDependencyInstanceContext>> eventMap;
+    private final Map<String, RegexKafkaDependencyMatcher> regexMatchers;
+
+    /**
+     * @param previous the index this one replaces, whose compiled matchers are reused
+     */
+    private TopicIndex(final Map<String, List<KafkaDependencyInstanceContext>> eventMap,
+        final TopicIndex previous) {
+      final Map<String, List<KafkaDependencyInstanceContext>> frozen = new LinkedHashMap<>();
+      final Map<String, RegexKafkaDependencyMatcher> regexMatchers = new LinkedHashMap<>();
+      for (final Map.Entry<String, List<KafkaDependencyInstanceContext>> entry : eventMap.entrySet()) {
+        final String regex = entry.getKey();
+        frozen.put(regex, Collections.unmodifiableList(entry.getValue()));
+        RegexKafkaDependencyMatcher regexMatcher =
+            previous == null ? null : previous.regexMatchers.get(regex);
+        if (regexMatcher == null) {
+          try {
+            regexMatcher = new RegexKafkaDependencyMatcher(Pattern.compile(regex));
+          } catch (final PatternSyntaxException ex) {
+            log.error("invalid regex " + regex + ", its dependencies will never be triggered", ex);
+            continue;
+          }
+        }
+        regexMatchers.put(regex, regexMatcher);
+      }
+      this.eventMap = Collections.unmodifiableMap(frozen);
+      this.regexMatchers = Collections.unmodifiableMap(regexMatchers);
+    }
+
+    @Override
+    public String toString() {
+      return this.eventMap.toString();
+    }
+  }
 }
@@ -26,6 +26,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.*;
@@ -128,4 +129,55 @@ public class KafkaDepInstanceCollectionTest {
     assertThat(testMap.getDepsByTopicAndEvent("AzTest_Topic3", ".*")).isEmpty();
     assertThat(testMap.hasTopic("AzTest_Topic3")).isFalse();
   }
+
+  @Test
+  public void testRegexInTopic() throws ParseException {
+    final KafkaDepInstanceCollection testMap = new KafkaDepInstanceCollection();
+    this.createContextListAndAddToCollection("2018-06-01 01:00:00", testMap);
+    testMap.add(createContext("AzTest_Topic1", "(a)\\1", 0, "dep5"));
+
+    assertThat(testMap.regexInTopic("AzTest_Topic1", "hadoop job")).containsExactly("hadoop.*");
+    assertThat(testMap.regexInTopic("AzTest_Topic1", "aa")).containsExactly("(a)\\1");
+    assertThat(testMap.regexInTopic("AzTest_Topic1", "spark job")).isEmpty();
+    assertThat(testMap.regexInTopic("AzTest_Topic3", "anything")).containsExactly(".*");
+    assertThat(testMap.regexInTopic("unknown", "anything")).isEmpty();
+  }
+
+  @Test
+  public void testGetDepsIsSnapshot() throws ParseException {
+    final KafkaDepInstanceCollection testMap = new KafkaDepInstanceCollection();
+    this.createContextListAndAddToCollection("2018-06-01 01:00:00", testMap);
+    final List<KafkaDependencyInstanceContext> deps =
+        testMap.getDepsByTopicAndEvent("AzTest_Topic1", "hadoop.*");
+    testMap.add(createContext("AzTest_Topic1", "hadoop.*", 0, "dep5"));
+
+    assertThat(deps).hasSize(1);
+    assertThat(testMap.getDepsByTopicAndEvent("AzTest_Topic1", "hadoop.*")).hasSize(2);
+  }
+
+  /**
+   * Measures how many records per second are matched against 1000 dependencies on one topic.
+   */
+  @Ignore("Benchmark")
+  @Test
+  public void benchmarkRegexInTopic() {
+    final KafkaDepInstanceCollection testMap = new KafkaDepInstanceCollection();
+    for (int i = 0; i < 1000; i++) {
+      testMap.add(createContext("AzTest_Topic1", "dataset_" + i + "_ready$", 0, "dep" + i));
+    }
+    final String[] payloads = new String[1000];
+    for (int i = 0; i < payloads.length; i++) {
+      payloads[i] = "{\"event\": \"dataset_" + (i * 7) + "_published\", \"host\": \"h" + i + "\"}";
+    }
+
+    final int records = 20000;
+    final long start = System.nanoTime();
+    int matched = 0;
+    for (int i = 0; i < records; i++) {
+      matched += testMap.regexInTopic("AzTest_Topic1", payloads[i % payloads.length]).size();
+    }
+    final long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1000000);
+    System.out.println(records + " records in " + elapsedMs + " ms, " + (records * 1000L / elapsedMs)
+        + " records/s, " + matched + " matches");
+  }
 }
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cached, versioned snapshot of the unfinished (queued and running) executions on the web server.
+ *
+ * <p>Only the metadata columns of execution_flows are read, never flow_data. The snapshot is
+ * refreshed every refresh interval with the rows whose update_time changed since the newest one
+ * seen, minus an overlap for rows committed out of order, e.g. by an executor's write-behind
+ * stage. It is reloaded fully every full reload interval, which also repairs anything an
+ * incremental refresh missed. Executions submitted or cancelled through this web server are
+ * applied right away, so that its own concurrency checks never miss them; changes made elsewhere
+ * show up within one refresh interval.
+ */
+@SuppressWarnings("FutureReturnValueIgnored")
+@Singleton
+public class ActiveExecutions {
+
+  private static final Logger logger = LoggerFactory.getLogger(ActiveExecutions.class);
+
+  private final ExecutorLoader executorLoader;
+  private final long refreshIntervalMs;
+  private final long refreshOverlapMs;
+  private final long fullReloadIntervalMs;
+  private final ScheduledExecutorService scheduler;
+  // Serializes refreshes and local changes, readers only read the volatile snapshot
+  private final Object updateLock = new Object();
+  private volatile Snapshot snapshot = null;
+  private long lastFullReloadTime = 0;
+  private long lastUpdateTime = 0;
+
+  @Inject
+  public ActiveExecutions(final Props azkProps, final ExecutorLoader executorLoader) {
+    this.executorLoader = executorLoader;
+    this.refreshIntervalMs = azkProps.getLong(
+        ConfigurationKeys.ACTIVE_EXECUTIONS_REFRESH_INTERVAL_MS,
+        Constants.DEFAULT_ACTIVE_EXECUTIONS_REFRESH_INTERVAL_MS);
+    this.refreshOverlapMs = azkProps.getLong(
+        ConfigurationKeys.ACTIVE_EXECUTIONS_REFRESH_OVERLAP_MS,
+        Constants.DEFAULT_ACTIVE_EXECUTIONS_REFRESH_OVERLAP_MS);
+    this.fullReloadIntervalMs = azkProps.getLong(
+        ConfigurationKeys.ACTIVE_EXECUTIONS_FULL_RELOAD_INTERVAL_MS,
+        Constants.DEFAULT_ACTIVE_EXECUTIONS_FULL_RELOAD_INTERVAL_MS);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  public void start() {
+    logger.info("Starting active executions refresher.");
+    this.scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0L, this.refreshIntervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  public void shutdown() {
+    this.scheduler.shutdownNow();
+  }
+
+  /**
+   * @return the current snapshot, loaded from the DB if it hasn't been yet
+   */
+  public Snapshot getSnapshot() throws ExecutorManagerException {
+    final Snapshot current = this.snapshot;
+    if (current != null) {
+      return current;
+    }
+    synchronized (this.updateLock) {
+      if (this.snapshot == null) {
+        reload();
+      }
+      return this.snapshot;
+    }
+  }
+
+  /**
+   * Applies the executions updated since the last refresh, or reloads all of them if the full
+   * reload interval has passed.
+   */
+  public void refresh() throws ExecutorManagerException {
+    synchronized (this.updateLock) {
+      if (this.snapshot == null
+          || System.currentTimeMillis() - this.lastFullReloadTime >= this.fullReloadIntervalMs) {
+        reload();
+        return;
+      }
+
+      final List<Pair<ExecutionReference, ExecutableFlow>> updated = this.executorLoader
+          .fetchFlowsMetadataUpdatedSince(this.lastUpdateTime - this.refreshOverlapMs);
+      if (updated.isEmpty()) {
+        return;
+      }
+
+      final Map<Integer, ActiveExecution> executions =
+          new HashMap<>(this.snapshot.executions);
+      boolean changed = false;
+      for (final Pair<ExecutionReference, ExecutableFlow> pair : updated) {
+        final ActiveExecution execution = new ActiveExecution(pair.getFirst(), pair.getSecond());
+        final ActiveExecution current = executions.get(execution.getExecId());
+        if (Status.isStatusFinished(execution.getStatus())) {
+          changed |= executions.remove(execution.getExecId()) != null;
+        } else if (current == null || (execution.getUpdateTime() >= current.getUpdateTime()
+            && !execution.equals(current))) {
+          executions.put(execution.getExecId(), execution);
+          changed = true;
+        }
+        advanceLastUpdateTime(execution.getUpdateTime());
+      }
+      if (changed) {
+        this.snapshot = new Snapshot(this.snapshot.version + 1, executions);
+      }
+    }
+  }
+
+  /**
+   * Records an execution that was just queued by this web server.
+   */
+  public void add(final ExecutableFlow flow) {
+    synchronized (this.updateLock) {
+      if (this.snapshot == null) {
+        // Picked up by the first load
+        return;
+      }
+      final Map<Integer, ActiveExecution> executions = new HashMap<>(this.snapshot.executions);
+      executions.put(flow.getExecutionId(), new ActiveExecution(
+          new ExecutionReference(flow.getExecutionId(), null), flow));
+      this.snapshot = new Snapshot(this.snapshot.version + 1, executions);
+    }
+  }
+
+  /**
+   * Drops an execution that was just finalized by this web server.
+   */
+  public void remove(final int execId) {
+    synchronized (this.updateLock) {
+      if (this.snapshot == null || !this.snapshot.executions.containsKey(execId)) {
+        return;
+      }
+      final Map<Integer, ActiveExecution> executions = new HashMap<>(this.snapshot.executions);
+      executions.remove(execId);
+      this.snapshot = new Snapshot(this.snapshot.version + 1, executions);
+    }
+  }
+
+  // Must be called with the update lock held
+  private void reload() throws ExecutorManagerException {
+    final long reloadTime = System.currentTimeMillis();
+    final Map<Integer, ActiveExecution> executions = new HashMap<>();
+    for (final Pair<ExecutionReference, ExecutableFlow> pair : this.executorLoader
+        .fetchUnfinishedFlowsMetadata().values()) {
+      final ActiveExecution execution = new ActiveExecution(pair.getFirst(), pair.getSecond());
+      executions.put(execution.getExecId(), execution);
+      advanceLastUpdateTime(execution.getUpdateTime());
+    }
+    // The rows updated during the reload are picked up by the next refresh through the overlap.
+    this.lastUpdateTime = Math.max(this.lastUpdateTime, reloadTime);
+    this.lastFullReloadTime = reloadTime;
+    final long version = this.snapshot == null ? 1 : this.snapshot.version + 1;
+    this.snapshot = new Snapshot(version, executions);
+  }
+
+  // Update times are written with the clocks of other hosts, so never move past our own clock
+  private void advanceLastUpdateTime(final long updateTime) {
+    this.lastUpdateTime = Math.max(this.lastUpdateTime,
+        Math.min(updateTime, System.currentTimeMillis()));
+  }
+
+  private void refreshQuietly() {
+    try {
+      refresh();
+    } catch (final Throwable t) {
+      logger.error("Failed to refresh active executions, will retry on next refresh.", t);
+    }
+  }
+
+  /**
+   * Immutable view of the unfinished executions, indexed by project and flow.
+   */
+  public static class Snapshot {
+
+    private final long version;
+    private final Map<Integer, ActiveExecution> executions;
+    private final Map<Pair<Integer, String>, List<Integer>> execIdsByFlow;
+    private final List<Integer> execIds;
+    private final List<Integer> queuedExecIds;
+
+    private Snapshot(final long version, final Map<Integer, ActiveExecution> executions) {
+      this.version = version;
+      this.executions = Collections.unmodifiableMap(executions);
+
+      final Map<Pair<Integer, String>, List<Integer>> execIdsByFlow = new HashMap<>();
+      final List<Integer> execIds = new ArrayList<>(executions.keySet());
+      final List<Integer> queuedExecIds = new ArrayList<>();
+      Collections.sort(execIds);
+      for (final Integer execId : execIds) {
+        final ActiveExecution execution = executions.get(execId);
+        execIdsByFlow.computeIfAbsent(
+            new Pair<>(execution.getProjectId(), execution.getFlowId()), k -> new ArrayList<>())
+            .add(execId);
+        if (execution.isQueued()) {
+          queuedExecIds.add(execId);
+        }
+      }
+      this.execIdsByFlow = execIdsByFlow;
+      this.execIds = Collections.unmodifiableList(execIds);
+      this.queuedExecIds = Collections.unmodifiableList(queuedExecIds);
+    }
+
+    /**
+     * @return a number that grows every time the set of executions or their state changes
+     */
+    public long getVersion() {
+      return this.version;
+    }
+
+    public Collection<ActiveExecution> getExecutions() {
+      return this.executions.values();
+    }
+
+    /**
+     * @return the ids of all unfinished executions, sorted
+     */
+    public List<Integer> getExecIds() {
+      return this.execIds;
+    }
+
+    /**
+     * @return the ids of the unfinished executions of the flow, sorted
+     */
+    public List<Integer> getExecIds(final int projectId, final String flowId) {
+      final List<Integer> ids = this.execIdsByFlow.get(new Pair<>(projectId, flowId));
+      return ids == null ? Collections.emptyList() : Collections.unmodifiableList(ids);
+    }
+
+    public boolean isFlowRunning(final int projectId, final String flowId) {
+      return this.execIdsByFlow.containsKey(new Pair<>(projectId, flowId));
+    }
+
+    /**
+     * @return the ids of the executions not dispatched to an executor yet, sorted
+     */
+    public List<Integer> getQueuedExecIds() {
+      return this.queuedExecIds;
+    }
+  }
+
+  /**
+   * The metadata of one unfinished execution.
+   */
+  public static class ActiveExecution {
+
+    private final int execId;
+    private final int projectId;
+    private final String flowId;
+    private final Status status;
+    private final Optional<Executor> executor;
+    private final long updateTime;
+
+    private ActiveExecution(final ExecutionReference ref, final ExecutableFlow flow) {
+      this.execId = flow.getExecutionId();
+      this.projectId = flow.getProjectId();
+      this.flowId = flow.getFlowId();
+      this.status = flow.getStatus();
+      this.executor = ref == null ? Optional.empty() : ref.getExecutor();
+      this.updateTime = flow.getUpdateTime();
+    }
+
+    public int getExecId() {
+      return this.execId;
+    }
+
+    public int getProjectId() {
+      return this.projectId;
+    }
+
+    public String getFlowId() {
+      return this.flowId;
+    }
+
+    public Status getStatus() {
+      return this.status;
+    }
+
+    public Optional<Executor> getExecutor() {
+      return this.executor;
+    }
+
+    public long getUpdateTime() {
+      return this.updateTime;
+    }
+
+    /**
+     * Same condition as the queued flows query: preparing and not assigned to an executor.
+     */
+    public boolean isQueued() {
+      return this.status == Status.PREPARING && !this.executor.isPresent();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final ActiveExecution that = (ActiveExecution) o;
+      return this.execId == that.execId && this.projectId == that.projectId
+          && this.updateTime == that.updateTime && this.status == that.status
+          && this.flowId.equals(that.flowId) && this.executor.equals(that.executor);
+    }
+
+    @Override
+    public int hashCode() {
+      return Integer.hashCode(this.execId);
+    }
+  }
+}
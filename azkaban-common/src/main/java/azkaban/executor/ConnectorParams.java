@@ -32,6 +32,12 @@ public interface ConnectorParams {
   public static final String RESUME_ACTION = "resume";
   public static final String PING_ACTION = "ping";
   public static final String LOG_ACTION = "log";
+  // Streams the bytes appended to a running flow's or job's log as plain text
+  public static final String LOG_TAIL_ACTION = "logtail";
+  // Sends a range of a running flow's or job's log as plain text rather than as JSON
+  public static final String LOG_STREAM_ACTION = "logstream";
+  // Tells an executor in the polling model that executions were queued, so it polls right away
+  public static final String POLL_ACTION = "poll";
   public static final String ATTACHMENTS_ACTION = "attachments";
   public static final String METADATA_ACTION = "metadata";
   public static final String RELOAD_JOBTYPE_PLUGINS_ACTION = "reloadJobTypePlugins";
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import java.util.Map;
+
+/**
+ * The state of an execution to write to the DB, captured by the thread that updates the flow: the
+ * columns of execution_flows and either the whole flow data or the nodes updated since a given
+ * time. It can be written later by another thread while the flow keeps changing.
+ */
+public class ExecutableFlowUpdate {
+
+  private final int executionId;
+  private final Status status;
+  private final long updateTime;
+  private final long startTime;
+  private final long endTime;
+  private final Map<String, Object> flowData;
+
+  private ExecutableFlowUpdate(final ExecutableFlow flow, final Map<String, Object> flowData) {
+    this.executionId = flow.getExecutionId();
+    this.status = flow.getStatus();
+    this.updateTime = flow.getUpdateTime();
+    this.startTime = flow.getStartTime();
+    this.endTime = flow.getEndTime();
+    this.flowData = flowData;
+  }
+
+  /**
+   * @return the full snapshot of the flow, see {@link ExecutableFlow#toObject()}
+   */
+  public static ExecutableFlowUpdate snapshot(final ExecutableFlow flow) {
+    return new ExecutableFlowUpdate(flow, flow.toObject());
+  }
+
+  /**
+   * @return the nodes of the flow updated after lastUpdateTime, see {@link
+   * ExecutableFlow#toUpdateObject(long)}
+   */
+  public static ExecutableFlowUpdate delta(final ExecutableFlow flow, final long lastUpdateTime) {
+    return new ExecutableFlowUpdate(flow, flow.toUpdateObject(lastUpdateTime));
+  }
+
+  public int getExecutionId() {
+    return this.executionId;
+  }
+
+  public Status getStatus() {
+    return this.status;
+  }
+
+  public long getUpdateTime() {
+    return this.updateTime;
+  }
+
+  public long getStartTime() {
+    return this.startTime;
+  }
+
+  public long getEndTime() {
+    return this.endTime;
+  }
+
+  public Map<String, Object> getFlowData() {
+    return this.flowData;
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.utils.Props;
+import azkaban.utils.PropsUtils;
+import java.util.Map;
+
+/**
+ * The state of a job attempt to write to execution_jobs, captured by the thread that updates the
+ * node so that it can be written later by another thread while the job keeps running.
+ */
+public class ExecutableNodeUpdate {
+
+  private final int executionId;
+  private final String flowPath;
+  private final String jobId;
+  private final int attempt;
+  private final Status status;
+  private final long startTime;
+  private final long endTime;
+  private final Map<String, Object> outputProps;
+
+  public ExecutableNodeUpdate(final ExecutableNode node) {
+    this.executionId = node.getExecutableFlow().getExecutionId();
+    this.flowPath = node.getParentFlow().getFlowPath();
+    this.jobId = node.getId();
+    this.attempt = node.getAttempt();
+    this.status = node.getStatus();
+    this.startTime = node.getStartTime();
+    this.endTime = node.getEndTime();
+    final Props props = node.getOutputProps();
+    this.outputProps = props == null ? null : PropsUtils.toHierarchicalMap(props);
+  }
+
+  public int getExecutionId() {
+    return this.executionId;
+  }
+
+  public String getFlowPath() {
+    return this.flowPath;
+  }
+
+  public String getJobId() {
+    return this.jobId;
+  }
+
+  public int getAttempt() {
+    return this.attempt;
+  }
+
+  public Status getStatus() {
+    return this.status;
+  }
+
+  public long getStartTime() {
+    return this.startTime;
+  }
+
+  public long getEndTime() {
+    return this.endTime;
+  }
+
+  /**
+   * @return the output props as a {@link PropsUtils#toHierarchicalMap(Props)}, or null
+   */
+  public Map<String, Object> getOutputProps() {
+    return this.outputProps;
+  }
+}
@@ -15,8 +15,10 @@
  */
 package azkaban.executor;
 
+import azkaban.Constants;
 import azkaban.Constants.ConfigurationKeys;
 import azkaban.event.EventHandler;
+import azkaban.executor.ActiveExecutions.ActiveExecution;
 import azkaban.flow.FlowUtils;
 import azkaban.metrics.CommonMetrics;
 import azkaban.project.Project;
@@ -25,6 +27,7 @@ import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.Thread.State;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -38,6 +41,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.lang.StringUtils;
@@ -58,24 +63,34 @@ public class ExecutionController extends EventHandler implements ExecutorManager
   private final ExecutorApiGateway apiGateway;
   private final AlerterHolder alerterHolder;
   private final ExecutorHealthChecker executorHealthChecker;
+  private final ActiveExecutions activeExecutions;
   private final int maxConcurrentRunsOneFlow;
   private final Map<Pair<String, String>, Integer> maxConcurrentRunsPerFlowMap;
   private final CommonMetrics commonMetrics;
   private final Props azkProps;
+  private final boolean nudgeEnabled;
+  private final int nudgeMaxExecutors;
+  // Sends the nudges, so that submissions don't wait for executors to answer
+  private final ExecutorService nudgeService;
 
   @Inject
   ExecutionController(final Props azkProps, final ExecutorLoader executorLoader,
       final CommonMetrics commonMetrics,
       final ExecutorApiGateway apiGateway, final AlerterHolder alerterHolder, final
-  ExecutorHealthChecker executorHealthChecker) {
+  ExecutorHealthChecker executorHealthChecker, final ActiveExecutions activeExecutions) {
     this.azkProps = azkProps;
     this.executorLoader = executorLoader;
     this.commonMetrics = commonMetrics;
     this.apiGateway = apiGateway;
     this.alerterHolder = alerterHolder;
     this.executorHealthChecker = executorHealthChecker;
+    this.activeExecutions = activeExecutions;
     this.maxConcurrentRunsOneFlow = ExecutorUtils.getMaxConcurrentRunsOneFlow(azkProps);
     this.maxConcurrentRunsPerFlowMap = ExecutorUtils.getMaxConcurentRunsPerFlowMap(azkProps);
+    this.nudgeEnabled = azkProps.getBoolean(ConfigurationKeys.AZKABAN_POLLING_NUDGE_ENABLED, false);
+    this.nudgeMaxExecutors = azkProps.getInt(ConfigurationKeys.AZKABAN_POLLING_NUDGE_MAX_EXECUTORS,
+        Constants.DEFAULT_AZKABAN_POLLING_NUDGE_MAX_EXECUTORS);
+    this.nudgeService = Executors.newSingleThreadExecutor();
   }
 
   @Override
@@ -145,11 +160,10 @@ public class ExecutionController extends EventHandler implements ExecutorManager
     final Set<String> ports = getPrimaryServerHosts();
     // include executor which were initially active and still has flows running
     try {
-      for (final Pair<ExecutionReference, ExecutableFlow> running : this.executorLoader
-          .fetchActiveFlows().values()) {
-        final ExecutionReference ref = running.getFirst();
-        if (ref.getExecutor().isPresent()) {
-          final Executor executor = ref.getExecutor().get();
+      for (final ActiveExecution running : this.activeExecutions.getSnapshot()
+          .getExecutions()) {
+        if (running.getExecutor().isPresent()) {
+          final Executor executor = running.getExecutor().get();
           ports.add(executor.getHost() + ":" + executor.getPort());
         }
       }
@@ -161,7 +175,7 @@ public class ExecutionController extends EventHandler implements ExecutorManager
 
   /**
    * Gets a list of all the unfinished (both dispatched and non-dispatched) executions for a
-   * given project and flow {@inheritDoc}.
+   * given project and flow from the active executions snapshot {@inheritDoc}.
    *
    * @see azkaban.executor.ExecutorManagerAdapter#getRunningFlows(int, java.lang.String)
    */
@@ -169,8 +183,7 @@ public class ExecutionController extends EventHandler implements ExecutorManager
   public List<Integer> getRunningFlows(final int projectId, final String flowId) {
     final List<Integer> executionIds = new ArrayList<>();
     try {
-      executionIds.addAll(getRunningFlowsHelper(projectId, flowId,
-          this.executorLoader.fetchUnfinishedFlows().values()));
+      executionIds.addAll(this.activeExecutions.getSnapshot().getExecIds(projectId, flowId));
     } catch (final ExecutorManagerException e) {
       logger.error("Failed to get running flows for project " + projectId + ", flow "
           + flowId, e);
@@ -178,25 +191,17 @@ public class ExecutionController extends EventHandler implements ExecutorManager
     return executionIds;
   }
 
-  /* Helper method for getRunningFlows */
-  private List<Integer> getRunningFlowsHelper(final int projectId, final String flowId,
-      final Collection<Pair<ExecutionReference, ExecutableFlow>> collection) {
-    final List<Integer> executionIds = new ArrayList<>();
-    for (final Pair<ExecutionReference, ExecutableFlow> ref : collection) {
-      if (ref.getSecond().getFlowId().equals(flowId)
-          && ref.getSecond().getProjectId() == projectId) {
-        executionIds.add(ref.getFirst().getExecId());
-      }
-    }
-    return executionIds;
-  }
-
+  /**
+   * Gets the metadata, without flow data, of all unfinished executions and their executors.
+   * {@inheritDoc}
+   */
   @Override
   public List<Pair<ExecutableFlow, Optional<Executor>>> getActiveFlowsWithExecutor()
       throws IOException {
     final List<Pair<ExecutableFlow, Optional<Executor>>> flows = new ArrayList<>();
     try {
-      getActiveFlowsWithExecutorHelper(flows, this.executorLoader.fetchUnfinishedFlows().values());
+      getActiveFlowsWithExecutorHelper(flows,
+          this.executorLoader.fetchUnfinishedFlowsMetadata().values());
     } catch (final ExecutorManagerException e) {
       logger.error("Failed to get active flows with executor.", e);
     }
@@ -214,16 +219,14 @@ public class ExecutionController extends EventHandler implements ExecutorManager
   }
 
   /**
-   * Checks whether the given flow has an active (running, non-dispatched) execution from
-   * database. {@inheritDoc}
+   * Checks whether the given flow has an active (running, non-dispatched) execution from the
+   * active executions snapshot. {@inheritDoc}
    */
   @Override
   public boolean isFlowRunning(final int projectId, final String flowId) {
     boolean isRunning = false;
     try {
-      isRunning = isFlowRunningHelper(projectId, flowId,
-          this.executorLoader.fetchUnfinishedFlows().values());
-
+      isRunning = this.activeExecutions.getSnapshot().isFlowRunning(projectId, flowId);
     } catch (final ExecutorManagerException e) {
       logger.error(
           "Failed to check if the flow is running for project " + projectId + ", flow " + flowId,
@@ -232,18 +235,6 @@ public class ExecutionController extends EventHandler implements ExecutorManager
     return isRunning;
   }
 
-  /* Search a running flow in a collection */
-  private boolean isFlowRunningHelper(final int projectId, final String flowId,
-      final Collection<Pair<ExecutionReference, ExecutableFlow>> collection) {
-    for (final Pair<ExecutionReference, ExecutableFlow> ref : collection) {
-      if (ref.getSecond().getProjectId() == projectId
-          && ref.getSecond().getFlowId().equals(flowId)) {
-        return true;
-      }
-    }
-    return false;
-  }
-
   /**
    * Fetch ExecutableFlow from database. {@inheritDoc}
    */
@@ -254,13 +245,14 @@ public class ExecutionController extends EventHandler implements ExecutorManager
   }
 
   /**
-   * Get all running (unfinished) flows from database. {@inheritDoc}
+   * Get the metadata, without flow data, of all running (unfinished) flows from database.
+   * {@inheritDoc}
    */
   @Override
   public List<ExecutableFlow> getRunningFlows() {
     final ArrayList<ExecutableFlow> flows = new ArrayList<>();
     try {
-      getFlowsHelper(flows, this.executorLoader.fetchUnfinishedFlows().values());
+      getFlowsHelper(flows, this.executorLoader.fetchUnfinishedFlowsMetadata().values());
     } catch (final ExecutorManagerException e) {
       logger.error("Failed to get running flows.", e);
     }
@@ -276,12 +268,28 @@ public class ExecutionController extends EventHandler implements ExecutorManager
   }
 
   /**
-   * Get execution ids of all running (unfinished) flows from database.
+   * Get the number of running (unfinished) flows from the active executions snapshot.
+   * {@inheritDoc}
+   */
+  @Override
+  public int getRunningFlowCount() {
+    int count = 0;
+    try {
+      count = this.activeExecutions.getSnapshot().getExecIds().size();
+    } catch (final ExecutorManagerException e) {
+      this.logger.error("Failed to get running flow count.", e);
+    }
+    return count;
+  }
+
+  /**
+   * Get execution ids of all running (unfinished) flows from the active executions snapshot, in
+   * sorted order.
    */
   public List<Integer> getRunningFlowIds() {
     final List<Integer> allIds = new ArrayList<>();
     try {
-      getExecutionIdsHelper(allIds, this.executorLoader.fetchUnfinishedFlows().values());
+      allIds.addAll(this.activeExecutions.getSnapshot().getExecIds());
     } catch (final ExecutorManagerException e) {
       this.logger.error("Failed to get running flow ids.", e);
     }
@@ -289,33 +297,27 @@ public class ExecutionController extends EventHandler implements ExecutorManager
   }
 
   /**
-   * Get execution ids of all non-dispatched flows from database.
+   * Get execution ids of all non-dispatched flows from the active executions snapshot, in sorted
+   * order.
    */
   public List<Integer> getQueuedFlowIds() {
     final List<Integer> allIds = new ArrayList<>();
     try {
-      getExecutionIdsHelper(allIds, this.executorLoader.fetchQueuedFlows());
+      allIds.addAll(this.activeExecutions.getSnapshot().getQueuedExecIds());
     } catch (final ExecutorManagerException e) {
       this.logger.error("Failed to get queued flow ids.", e);
     }
     return allIds;
   }
 
-  /* Helper method to get all execution ids from collection in sorted order. */
-  private void getExecutionIdsHelper(final List<Integer> allIds,
-      final Collection<Pair<ExecutionReference, ExecutableFlow>> collection) {
-    collection.stream().forEach(ref -> allIds.add(ref.getSecond().getExecutionId()));
-    Collections.sort(allIds);
-  }
-
   /**
-   * Get the number of non-dispatched flows from database. {@inheritDoc}
+   * Get the number of non-dispatched flows from the active executions snapshot. {@inheritDoc}
    */
   @Override
   public long getQueuedFlowSize() {
     long size = 0L;
     try {
-      size = this.executorLoader.fetchQueuedFlows().size();
+      size = this.activeExecutions.getSnapshot().getQueuedExecIds().size();
     } catch (final ExecutorManagerException e) {
       this.logger.error("Failed to get queued flow size.", e);
     }
@@ -361,6 +363,36 @@ public class ExecutionController extends EventHandler implements ExecutorManager
     return flows;
   }
 
+  @Override
+  public List<ExecutableFlowSummary> getExecutableFlowSummaries(final int skip, final int size)
+      throws ExecutorManagerException {
+    return this.executorLoader.fetchFlowHistorySummaries(skip, size);
+  }
+
+  @Override
+  public List<ExecutableFlowSummary> getExecutableFlowSummaries(final String flowIdContains,
+      final int skip, final int size) throws ExecutorManagerException {
+    return this.executorLoader.fetchFlowHistorySummaries(null, '%' + flowIdContains + '%', null,
+        0, -1, -1, skip, size);
+  }
+
+  @Override
+  public List<ExecutableFlowSummary> getExecutableFlowSummaries(final String projContain,
+      final String flowContain, final String userContain, final int status, final long begin,
+      final long end, final int skip, final int size) throws ExecutorManagerException {
+    return this.executorLoader.fetchFlowHistorySummaries(projContain, flowContain, userContain,
+        status, begin, end, skip, size);
+  }
+
+  @Override
+  public int getExecutableFlowSummaries(final int projectId, final String flowId, final int from,
+      final int length, final List<ExecutableFlowSummary> outputList)
+      throws ExecutorManagerException {
+    outputList.addAll(
+        this.executorLoader.fetchFlowHistorySummaries(projectId, flowId, from, length));
+    return this.executorLoader.fetchNumExecutableFlows(projectId, flowId);
+  }
+
   @Override
   public List<ExecutableJobInfo> getExecutableJobs(final Project project,
       final String jobId, final int skip, final int size) throws ExecutorManagerException {
@@ -427,6 +459,48 @@ public class ExecutionController extends EventHandler implements ExecutorManager
     }
   }
 
+  @Override
+  public int streamExecutionJobLog(final ExecutableFlow exFlow, final String jobId,
+      final int offset, final int length, final int attempt, final OutputStream out)
+      throws IOException, ExecutorManagerException {
+    final Pair<ExecutionReference, ExecutableFlow> pair =
+        this.executorLoader.fetchActiveFlowByExecId(exFlow.getExecutionId());
+    if (pair == null) {
+      return this.executorLoader.streamLogs(exFlow.getExecutionId(), jobId, attempt, offset,
+          length, out);
+    }
+
+    final Pair<String, String> typeParam = new Pair<>("type", "job");
+    final Pair<String, String> jobIdParam = new Pair<>("jobId", jobId);
+    final Pair<String, String> offsetParam = new Pair<>("offset", String.valueOf(offset));
+    final Pair<String, String> lengthParam = new Pair<>("length", String.valueOf(length));
+    final Pair<String, String> attemptParam = new Pair<>("attempt", String.valueOf(attempt));
+    return (int) this.apiGateway.streamWithReference(pair.getFirst(),
+        ConnectorParams.LOG_STREAM_ACTION, out, typeParam, jobIdParam, offsetParam, lengthParam,
+        attemptParam);
+  }
+
+  @Override
+  public void tailExecutionJobLog(final ExecutableFlow exFlow, final String jobId,
+      final int offset, final int attempt, final OutputStream out)
+      throws IOException, ExecutorManagerException {
+    final Pair<ExecutionReference, ExecutableFlow> pair =
+        this.executorLoader.fetchActiveFlowByExecId(exFlow.getExecutionId());
+    if (pair == null) {
+      // Nothing is appended to the log of a finished execution anymore.
+      this.executorLoader.streamLogs(exFlow.getExecutionId(), jobId, attempt, offset,
+          Integer.MAX_VALUE - offset, out);
+      return;
+    }
+
+    final Pair<String, String> typeParam = new Pair<>("type", "job");
+    final Pair<String, String> jobIdParam = new Pair<>("jobId", jobId);
+    final Pair<String, String> offsetParam = new Pair<>("offset", String.valueOf(offset));
+    final Pair<String, String> attemptParam = new Pair<>("attempt", String.valueOf(attempt));
+    this.apiGateway.streamWithReference(pair.getFirst(), ConnectorParams.LOG_TAIL_ACTION, out,
+        typeParam, jobIdParam, offsetParam, attemptParam);
+  }
+
   @Override
   public List<Object> getExecutionJobStats(final ExecutableFlow exFlow, final String jobId,
       final int attempt) throws ExecutorManagerException {
@@ -545,6 +619,7 @@ public class ExecutionController extends EventHandler implements ExecutorManager
           // Flow is still queued, need to finalize it and update the status in DB.
           ExecutionControllerUtils.finalizeFlow(this.executorLoader, this.alerterHolder, exFlow,
               "Cancelled before dispatching to executor", null);
+          this.activeExecutions.remove(exFlow.getExecutionId());
         }
       } else {
         throw new ExecutorManagerException("Execution "
@@ -664,6 +739,8 @@ public class ExecutionController extends EventHandler implements ExecutorManager
       exflow.setSubmitUser(userId);
       exflow.setStatus(Status.PREPARING);
       exflow.setSubmitTime(System.currentTimeMillis());
+      // The active executions snapshot is refreshed by update time
+      exflow.setUpdateTime(exflow.getSubmitTime());
 
       final List<Integer> running = getRunningFlows(projectId, flowId);
 
@@ -717,6 +794,9 @@ public class ExecutionController extends EventHandler implements ExecutorManager
       // The exflow id is set by the loader. So it's unavailable until after
       // this call.
       this.executorLoader.uploadExecutableFlow(exflow);
+      // Visible to the next submission's concurrency check without waiting for a refresh
+      this.activeExecutions.add(exflow);
+      nudgeExecutors(exflow);
 
       this.commonMetrics.markSubmitFlowSuccess();
       message += "Execution queued successfully with exec id " + exflow.getExecutionId();
@@ -724,6 +804,46 @@ public class ExecutionController extends EventHandler implements ExecutorManager
     }
   }
 
+  /**
+   * Asks the executors that can run the flow to poll right away instead of at their next polling
+   * interval. Best effort: an executor that misses the nudge still picks up the flow by polling.
+   */
+  @SuppressWarnings("FutureReturnValueIgnored")
+  private void nudgeExecutors(final ExecutableFlow exflow) {
+    if (!this.nudgeEnabled) {
+      return;
+    }
+    final String useExecutor =
+        exflow.getExecutionOptions().getFlowParameters().get(ExecutionOptions.USE_EXECUTOR);
+    this.nudgeService.submit(() -> {
+      try {
+        final List<Executor> candidates;
+        if (StringUtils.isNotEmpty(useExecutor)) {
+          final Executor executor = this.executorLoader
+              .fetchExecutor(Integer.parseInt(useExecutor));
+          candidates = executor == null ? Collections.emptyList()
+              : Collections.singletonList(executor);
+        } else {
+          // Any active executor can claim it. Nudging a few random ones spreads the load without
+          // every executor racing for the same row.
+          candidates = new ArrayList<>(this.executorLoader.fetchActiveExecutors());
+          Collections.shuffle(candidates);
+        }
+        for (final Executor executor : candidates.subList(0,
+            Math.min(candidates.size(), this.nudgeMaxExecutors))) {
+          try {
+            this.apiGateway.nudgeExecutor(executor);
+          } catch (final ExecutorManagerException e) {
+            logger.warn("Failed to nudge executor " + executor.getId() + " for execution "
+                + exflow.getExecutionId(), e);
+          }
+        }
+      } catch (final Exception e) {
+        logger.warn("Failed to nudge executors for execution " + exflow.getExecutionId(), e);
+      }
+    });
+  }
+
   @Override
   public Map<String, Object> callExecutorStats(final int executorId, final String action,
       final Pair<String, String>... params) throws IOException, ExecutorManagerException {
@@ -758,12 +878,15 @@ public class ExecutionController extends EventHandler implements ExecutorManager
 
   @Override
   public void start() {
+    this.activeExecutions.start();
     this.executorHealthChecker.start();
   }
 
   @Override
   public void shutdown() {
+    this.nudgeService.shutdownNow();
     this.executorHealthChecker.shutdown();
+    this.activeExecutions.shutdown();
   }
 
   @Override
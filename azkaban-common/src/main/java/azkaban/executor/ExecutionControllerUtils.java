@@ -90,6 +90,8 @@ public class ExecutionControllerUtils {
         flow.setEndTime(System.currentTimeMillis());
         executorLoader.updateExecutableFlow(dsFlow);
       }
+      // An executor that died before writing the final snapshot leaves deltas behind.
+      executorLoader.compactExecutableFlowDeltas(flow.getExecutionId());
     } catch (final ExecutorManagerException e) {
       // If failed due to azkaban internal error, do not alert user.
       alertUser = false;
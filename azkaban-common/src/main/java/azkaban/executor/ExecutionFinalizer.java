@@ -81,6 +81,8 @@ public class ExecutionFinalizer {
         flow.setEndTime(System.currentTimeMillis());
         this.executorLoader.updateExecutableFlow(dsFlow);
       }
+      // An executor that died before writing the final snapshot leaves deltas behind.
+      this.executorLoader.compactExecutableFlowDeltas(execId);
       this.executorLoader.removeActiveExecutableReference(execId);
 
       this.updaterStage.set("finalizing flow " + execId + " cleaning from memory");
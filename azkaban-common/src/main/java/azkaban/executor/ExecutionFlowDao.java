@@ -28,7 +28,10 @@ import java.sql.SQLException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.dbutils.ResultSetHandler;
@@ -39,6 +42,25 @@ import org.apache.log4j.Logger;
 public class ExecutionFlowDao {
 
   private static final Logger logger = Logger.getLogger(ExecutionFlowDao.class);
+  private static final int MAX_CLAIM_ATTEMPTS = 3;
+  private static final long CLAIM_RETRY_MAX_PAUSE_MS = 100;
+
+  // Full snapshot writes. The first one only matches flows without deltas, so that the deltas
+  // table is only touched for flows that have some to compact.
+  private static final String UPDATE_FLOW_DATA_WITHOUT_DELTAS = "UPDATE execution_flows "
+      + "SET status=?,update_time=?,start_time=?,end_time=?,enc_type=?,flow_data=? "
+      + "WHERE exec_id=? AND has_deltas=0";
+  private static final String UPDATE_FLOW_DATA_AND_CLEAR_DELTAS = "UPDATE execution_flows "
+      + "SET status=?,update_time=?,start_time=?,end_time=?,enc_type=?,flow_data=?,has_deltas=0 "
+      + "WHERE exec_id=?";
+  private static final String DELETE_FLOW_DELTAS =
+      "DELETE FROM execution_flow_deltas WHERE exec_id=?";
+  // Delta writes
+  private static final String UPDATE_FLOW_STATUS_WITH_DELTAS = "UPDATE execution_flows "
+      + "SET status=?,update_time=?,start_time=?,end_time=?,has_deltas=1 WHERE exec_id=?";
+  private static final String INSERT_FLOW_DELTA =
+      "INSERT INTO execution_flow_deltas (exec_id, update_time, enc_type, delta_data) "
+          + "values (?,?,?,?)";
   private final DatabaseOperator dbOperator;
 
   @Inject
@@ -90,8 +112,7 @@ public class ExecutionFlowDao {
   List<ExecutableFlow> fetchFlowHistory(final int skip, final int num)
       throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchExecutableFlows.FETCH_ALL_EXECUTABLE_FLOW_HISTORY,
-          new FetchExecutableFlows(), skip, num);
+      return queryFlows(FetchExecutableFlows.FETCH_ALL_EXECUTABLE_FLOW_HISTORY, skip, num);
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching flow History", e);
     }
@@ -101,13 +122,16 @@ public class ExecutionFlowDao {
       final int skip, final int num)
       throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_HISTORY,
-          new FetchExecutableFlows(), projectId, flowId, skip, num);
+      return queryFlows(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_HISTORY,
+          projectId, flowId, skip, num);
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching flow history", e);
     }
   }
 
+  /**
+   * Queued flows haven't started running, so they have no deltas to apply.
+   */
   public List<Pair<ExecutionReference, ExecutableFlow>> fetchQueuedFlows()
       throws ExecutorManagerException {
     try {
@@ -127,8 +151,8 @@ public class ExecutionFlowDao {
   public List<ExecutableFlow> fetchFlowHistory(final int projectId, final String flowId, final
   long startTime) throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_BY_START_TIME,
-          new FetchExecutableFlows(), projectId, flowId, startTime);
+      return queryFlows(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_BY_START_TIME,
+          projectId, flowId, startTime);
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching historic flows", e);
     }
@@ -138,13 +162,16 @@ public class ExecutionFlowDao {
       final int skip, final int num, final Status status)
       throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_BY_STATUS,
-          new FetchExecutableFlows(), projectId, flowId, status.getNumVal(), skip, num);
+      return queryFlows(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_BY_STATUS,
+          projectId, flowId, status.getNumVal(), skip, num);
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching active flows", e);
     }
   }
 
+  /**
+   * Finished flows have no deltas to apply, the final status is written as a full snapshot.
+   */
   List<ExecutableFlow> fetchRecentlyFinishedFlows(final Duration maxAge)
       throws ExecutorManagerException {
     try {
@@ -162,8 +189,69 @@ public class ExecutionFlowDao {
       final long startTime, final long endTime,
       final int skip, final int num)
       throws ExecutorManagerException {
-    String query = FetchExecutableFlows.FETCH_BASE_EXECUTABLE_FLOW_QUERY;
     final List<Object> params = new ArrayList<>();
+    final String query = buildFlowHistoryQuery(
+        FetchExecutableFlows.FETCH_BASE_EXECUTABLE_FLOW_QUERY, projContain, flowContains,
+        userNameContains, status, startTime, endTime, skip, num, params);
+
+    try {
+      return queryFlows(query, params.toArray());
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching active flows", e);
+    }
+  }
+
+  List<ExecutableFlowSummary> fetchFlowHistorySummaries(final int skip, final int num)
+      throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(
+          FetchExecutableFlowSummaries.FETCH_ALL_EXECUTABLE_FLOW_SUMMARIES,
+          new FetchExecutableFlowSummaries(), skip, num);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching flow history summaries", e);
+    }
+  }
+
+  List<ExecutableFlowSummary> fetchFlowHistorySummaries(final int projectId,
+      final String flowId, final int skip, final int num) throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(
+          FetchExecutableFlowSummaries.FETCH_EXECUTABLE_FLOW_SUMMARIES,
+          new FetchExecutableFlowSummaries(), projectId, flowId, skip, num);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching flow history summaries", e);
+    }
+  }
+
+  /**
+   * Same filters as {@link #fetchFlowHistory(String, String, String, int, long, long, int, int)},
+   * without reading the flow data.
+   */
+  List<ExecutableFlowSummary> fetchFlowHistorySummaries(final String projContain,
+      final String flowContains, final String userNameContains, final int status,
+      final long startTime, final long endTime, final int skip, final int num)
+      throws ExecutorManagerException {
+    final List<Object> params = new ArrayList<>();
+    final String query = buildFlowHistoryQuery(
+        FetchExecutableFlowSummaries.FETCH_BASE_EXECUTABLE_FLOW_SUMMARY_QUERY, projContain,
+        flowContains, userNameContains, status, startTime, endTime, skip, num, params);
+
+    try {
+      return this.dbOperator.query(query, new FetchExecutableFlowSummaries(), params.toArray());
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching flow history summaries", e);
+    }
+  }
+
+  /**
+   * Appends the history filters to the base query, which selects from execution_flows ef, and
+   * adds their values to params.
+   */
+  private static String buildFlowHistoryQuery(final String baseQuery, final String projContain,
+      final String flowContains, final String userNameContains, final int status,
+      final long startTime, final long endTime, final int skip, final int num,
+      final List<Object> params) {
+    String query = baseQuery;
 
     boolean first = true;
     if (projContain != null && !projContain.isEmpty()) {
@@ -234,11 +322,7 @@ public class ExecutionFlowDao {
       params.add(num);
     }
 
-    try {
-      return this.dbOperator.query(query, new FetchExecutableFlows(), params.toArray());
-    } catch (final SQLException e) {
-      throw new ExecutorManagerException("Error fetching active flows", e);
-    }
+    return query;
   }
 
   void updateExecutableFlow(final ExecutableFlow flow) throws ExecutorManagerException {
@@ -247,12 +331,180 @@ public class ExecutionFlowDao {
 
   private void updateExecutableFlow(final ExecutableFlow flow, final EncodingType encType)
       throws ExecutorManagerException {
-    final String UPDATE_EXECUTABLE_FLOW_DATA =
-        "UPDATE execution_flows "
-            + "SET status=?,update_time=?,start_time=?,end_time=?,enc_type=?,flow_data=? "
-            + "WHERE exec_id=?";
+    final Object[] params = {flow.getStatus().getNumVal(), flow.getUpdateTime(),
+        flow.getStartTime(), flow.getEndTime(), encType.getNumVal(),
+        encodeFlowData(flow.toObject(), encType), flow.getExecutionId()};
+
+    // Rewriting the snapshot compacts any deltas appended since the previous one. Flows without
+    // deltas, i.e. all of them unless delta persistence is enabled, are written in one statement.
+    final SQLTransaction<Integer> updateFlowData = transOperator -> {
+      final int updated = transOperator.update(UPDATE_FLOW_DATA_WITHOUT_DELTAS, params);
+      if (updated > 0) {
+        return updated;
+      }
+      transOperator.update(DELETE_FLOW_DELTAS, flow.getExecutionId());
+      return transOperator.update(UPDATE_FLOW_DATA_AND_CLEAR_DELTAS, params);
+    };
+
+    try {
+      this.dbOperator.transaction(updateFlowData);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error updating flow.", e);
+    }
+  }
+
+  /**
+   * Folds the deltas of an execution into its flow_data. A flow runner compacts its flow when the
+   * flow finishes, so this is only needed when its executor died before that. The flow data is only
+   * read if the execution has deltas.
+   *
+   * <p>Must only be called once the execution is finished or its executor is gone: a delta
+   * appended between the fetch and the rewrite would be lost.
+   *
+   * @return true if the execution had deltas
+   */
+  boolean compactExecutableFlowDeltas(final int execId) throws ExecutorManagerException {
+    try {
+      return compactFlowDeltas(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_WITH_DELTAS, execId) > 0;
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error compacting flow deltas of " + execId, e);
+    }
+  }
+
+  /**
+   * Compacts the deltas of all the finished executions that still have some, e.g. because their
+   * compaction failed when they were finalized.
+   *
+   * @return the number of executions compacted
+   */
+  int compactFinishedFlowDeltas() throws ExecutorManagerException {
+    final List<Object> finishedStatuses = new ArrayList<>();
+    for (final Status status : Status.values()) {
+      if (Status.isStatusFinished(status)) {
+        finishedStatuses.add(status.getNumVal());
+      }
+    }
+    try {
+      return compactFlowDeltas(String.format(
+          FetchExecutableFlows.FETCH_FINISHED_EXECUTABLE_FLOWS_WITH_DELTAS,
+          StringUtils.repeat("?", ",", finishedStatuses.size())), finishedStatuses.toArray());
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error compacting flow deltas of finished flows", e);
+    }
+  }
+
+  private int compactFlowDeltas(final String query, final Object... params)
+      throws SQLException, ExecutorManagerException {
+    // Fetched with their deltas applied, rewriting the snapshot deletes the deltas.
+    final List<ExecutableFlow> flows = queryFlows(query, params);
+    for (final ExecutableFlow flow : flows) {
+      updateExecutableFlow(flow);
+    }
+    return flows.size();
+  }
+
+  /**
+   * Persists only the nodes updated after {@code lastUpdateTime} by appending them to
+   * execution_flow_deltas instead of rewriting flow_data. The flow level columns are still
+   * updated in place so that queries filtering on status or time keep seeing the current state,
+   * and has_deltas is set so that fetches know to apply the deltas.
+   */
+  void updateExecutableFlowDelta(final ExecutableFlow flow, final long lastUpdateTime)
+      throws ExecutorManagerException {
+    final EncodingType encType = EncodingType.GZIP;
+    final byte[] data = encodeFlowData(flow.toUpdateObject(lastUpdateTime), encType);
+
+    final SQLTransaction<Integer> appendDelta = transOperator -> {
+      final int updated = transOperator.update(UPDATE_FLOW_STATUS_WITH_DELTAS,
+          flow.getStatus().getNumVal(), flow.getUpdateTime(), flow.getStartTime(),
+          flow.getEndTime(), flow.getExecutionId());
+      transOperator.update(INSERT_FLOW_DELTA, flow.getExecutionId(),
+          flow.getUpdateTime(), encType.getNumVal(), data);
+      return updated;
+    };
+
+    try {
+      this.dbOperator.transaction(appendDelta);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error appending flow delta.", e);
+    }
+  }
 
-    final String json = JSONUtils.toJSON(flow.toObject());
+  /**
+   * Writes the full snapshots of several flows and compacts their deltas in one transaction, using
+   * a single JDBC batch per statement.
+   */
+  void updateExecutableFlows(final List<ExecutableFlowUpdate> snapshots)
+      throws ExecutorManagerException {
+    final EncodingType encType = EncodingType.GZIP;
+    final Object[][] updateParams = new Object[snapshots.size()][];
+    for (int i = 0; i < snapshots.size(); i++) {
+      final ExecutableFlowUpdate snapshot = snapshots.get(i);
+      updateParams[i] = new Object[]{snapshot.getStatus().getNumVal(),
+          snapshot.getUpdateTime(), snapshot.getStartTime(), snapshot.getEndTime(),
+          encType.getNumVal(), encodeFlowData(snapshot.getFlowData(), encType),
+          snapshot.getExecutionId()};
+    }
+
+    // Same as updateExecutableFlow: only the flows the first batch didn't update have deltas.
+    final SQLTransaction<int[]> updateFlowData = transOperator -> {
+      final int[] updated = transOperator.batch(UPDATE_FLOW_DATA_WITHOUT_DELTAS, updateParams);
+      final List<Object[]> compactParams = new ArrayList<>();
+      final List<Object[]> deleteParams = new ArrayList<>();
+      for (int i = 0; i < updated.length; i++) {
+        // Drivers may not report the count of each statement, compact in doubt
+        if (updated[i] <= 0) {
+          compactParams.add(updateParams[i]);
+          deleteParams.add(new Object[]{snapshots.get(i).getExecutionId()});
+        }
+      }
+      if (!compactParams.isEmpty()) {
+        transOperator.batch(DELETE_FLOW_DELTAS, deleteParams.toArray(new Object[0][]));
+        transOperator.batch(UPDATE_FLOW_DATA_AND_CLEAR_DELTAS,
+            compactParams.toArray(new Object[0][]));
+      }
+      return updated;
+    };
+
+    try {
+      this.dbOperator.transaction(updateFlowData);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error updating flows.", e);
+    }
+  }
+
+  /**
+   * Batch variant of {@link #updateExecutableFlowDelta(ExecutableFlow, long)}.
+   */
+  void updateExecutableFlowDeltas(final List<ExecutableFlowUpdate> deltas)
+      throws ExecutorManagerException {
+    final EncodingType encType = EncodingType.GZIP;
+    final Object[][] updateParams = new Object[deltas.size()][];
+    final Object[][] insertParams = new Object[deltas.size()][];
+    for (int i = 0; i < deltas.size(); i++) {
+      final ExecutableFlowUpdate delta = deltas.get(i);
+      updateParams[i] = new Object[]{delta.getStatus().getNumVal(), delta.getUpdateTime(),
+          delta.getStartTime(), delta.getEndTime(), delta.getExecutionId()};
+      insertParams[i] = new Object[]{delta.getExecutionId(), delta.getUpdateTime(),
+          encType.getNumVal(), encodeFlowData(delta.getFlowData(), encType)};
+    }
+
+    final SQLTransaction<int[]> appendDeltas = transOperator -> {
+      final int[] updated = transOperator.batch(UPDATE_FLOW_STATUS_WITH_DELTAS, updateParams);
+      transOperator.batch(INSERT_FLOW_DELTA, insertParams);
+      return updated;
+    };
+
+    try {
+      this.dbOperator.transaction(appendDeltas);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error appending flow deltas.", e);
+    }
+  }
+
+  private static byte[] encodeFlowData(final Object flowObject, final EncodingType encType)
+      throws ExecutorManagerException {
+    final String json = JSONUtils.toJSON(flowObject);
     byte[] data = null;
     try {
       final byte[] stringData = json.getBytes("UTF-8");
@@ -264,31 +516,71 @@ public class ExecutionFlowDao {
     } catch (final IOException e) {
       throw new ExecutorManagerException("Error encoding the execution flow.");
     }
-
-    try {
-      this.dbOperator.update(UPDATE_EXECUTABLE_FLOW_DATA, flow.getStatus()
-          .getNumVal(), flow.getUpdateTime(), flow.getStartTime(), flow
-          .getEndTime(), encType.getNumVal(), data, flow.getExecutionId());
-    } catch (final SQLException e) {
-      throw new ExecutorManagerException("Error updating flow.", e);
-    }
+    return data;
   }
 
   public ExecutableFlow fetchExecutableFlow(final int execId) throws ExecutorManagerException {
-    final FetchExecutableFlows flowHandler = new FetchExecutableFlows();
     try {
-      final List<ExecutableFlow> properties = this.dbOperator
-          .query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW, flowHandler, execId);
+      final List<ExecutableFlow> properties =
+          queryFlows(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW, execId);
       if (properties.isEmpty()) {
         return null;
-      } else {
-        return properties.get(0);
       }
+      return properties.get(0);
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching flow id " + execId, e);
     }
   }
 
+  /**
+   * Runs a {@link FetchExecutableFlows} query and rebuilds the latest state of the flows that
+   * have deltas.
+   */
+  private List<ExecutableFlow> queryFlows(final String query, final Object... params)
+      throws SQLException {
+    final FetchExecutableFlows flowHandler = new FetchExecutableFlows();
+    final List<ExecutableFlow> flows = this.dbOperator.query(query, flowHandler, params);
+    applyFlowDeltas(this.dbOperator, flowHandler.getFlowsWithDeltas());
+    return flows;
+  }
+
+  /**
+   * Rebuilds the latest state of flows fetched with has_deltas set, by applying the deltas
+   * appended since their flow_data snapshot. The deltas of all the flows are read in one query.
+   */
+  static void applyFlowDeltas(final DatabaseOperator dbOperator,
+      final List<ExecutableFlow> flowsWithDeltas) throws SQLException {
+    if (flowsWithDeltas.isEmpty()) {
+      return;
+    }
+    final Map<Integer, ExecutableFlow> flows = new HashMap<>();
+    for (final ExecutableFlow flow : flowsWithDeltas) {
+      flows.put(flow.getExecutionId(), flow);
+    }
+    final List<Pair<Integer, Map<String, Object>>> deltas = dbOperator.query(
+        String.format(FetchExecutableFlowDeltas.FETCH_EXECUTABLE_FLOW_DELTAS,
+            StringUtils.repeat("?", ",", flows.size())),
+        new FetchExecutableFlowDeltas(), flows.keySet().toArray());
+    for (final Pair<Integer, Map<String, Object>> delta : deltas) {
+      flows.get(delta.getFirst()).applyUpdateObject(delta.getSecond());
+    }
+  }
+
+  /**
+   * Fetches the status and update time of an execution without reading its flow data or deltas.
+   */
+  public Pair<Status, Long> fetchExecutableFlowStatus(final int execId)
+      throws ExecutorManagerException {
+    try {
+      final List<Pair<Status, Long>> statuses = this.dbOperator.query(
+          FetchExecutableFlowStatus.FETCH_EXECUTABLE_FLOW_STATUS,
+          new FetchExecutableFlowStatus(), execId);
+      return statuses.isEmpty() ? null : statuses.get(0);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching status of flow id " + execId, e);
+    }
+  }
+
   /**
    * set executor id to null for the execution id
    */
@@ -336,6 +628,71 @@ public class ExecutionFlowDao {
     }
   }
 
+  /**
+   * Claims up to maxExecutions queued executions for the executor in one transaction, in the same
+   * order as {@link #selectAndUpdateExecution(int, boolean)}.
+   *
+   * <p>With skipLocked, rows locked by another executor's claim are skipped instead of waited
+   * for. It needs MySQL 8.0 or later. Claims that fail on a lock wait timeout or a deadlock are
+   * retried a few times after a short random pause.
+   *
+   * @return the ids of the claimed executions, empty if none are queued
+   */
+  public List<Integer> selectAndUpdateExecutions(final int executorId, final boolean isActive,
+      final int maxExecutions, final boolean skipLocked) throws ExecutorManagerException {
+    if (maxExecutions <= 0) {
+      return Collections.emptyList();
+    }
+    String selectExecutionsForUpdate = isActive ?
+        SelectFromExecutionFlows.SELECT_EXECUTIONS_FOR_UPDATE_ACTIVE :
+        SelectFromExecutionFlows.SELECT_EXECUTIONS_FOR_UPDATE_INACTIVE;
+    if (skipLocked) {
+      selectExecutionsForUpdate += " SKIP LOCKED";
+    }
+    final String selectQuery = selectExecutionsForUpdate;
+
+    final SQLTransaction<List<Integer>> selectAndUpdateExecutions = transOperator -> {
+      final List<Integer> execIds = transOperator.query(selectQuery,
+          new SelectFromExecutionFlows(), executorId, maxExecutions);
+      if (!execIds.isEmpty()) {
+        final Object[] params = new Object[execIds.size() + 2];
+        params[0] = executorId;
+        params[1] = System.currentTimeMillis();
+        for (int i = 0; i < execIds.size(); i++) {
+          params[i + 2] = execIds.get(i);
+        }
+        transOperator.update("UPDATE execution_flows SET executor_id = ?, update_time = ? "
+            + "WHERE exec_id IN (" + StringUtils.repeat("?", ",", execIds.size()) + ")", params);
+      }
+      return execIds;
+    };
+
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return this.dbOperator.transaction(selectAndUpdateExecutions);
+      } catch (final SQLException e) {
+        if (attempt >= MAX_CLAIM_ATTEMPTS || !isLockContention(e)) {
+          throw new ExecutorManagerException("Error selecting and updating executions with "
+              + "executor " + executorId, e);
+        }
+        logger.info("Lock contention while claiming executions with executor " + executorId
+            + ", retrying. " + e.getMessage());
+        try {
+          Thread.sleep(ThreadLocalRandom.current().nextLong(CLAIM_RETRY_MAX_PAUSE_MS) + 1);
+        } catch (final InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          throw new ExecutorManagerException("Interrupted while claiming executions", ie);
+        }
+      }
+    }
+  }
+
+  // Lock wait timeouts and deadlocks, in MySQL and H2
+  private static boolean isLockContention(final SQLException e) {
+    return "40001".equals(e.getSQLState()) || e.getErrorCode() == 1205
+        || e.getErrorCode() == 1213 || e.getErrorCode() == 50200;
+  }
+
   public static class SelectFromExecutionFlows implements
       ResultSetHandler<List<Integer>> {
 
@@ -351,6 +708,18 @@ public class ExecutionFlowDao {
     public static final String SELECT_EXECUTION_FOR_UPDATE_INACTIVE =
         String.format(SELECT_EXECUTION_FOR_UPDATE_FORMAT, "use_executor = ?");
 
+    private static final String SELECT_EXECUTIONS_FOR_UPDATE_FORMAT =
+        "SELECT exec_id from execution_flows WHERE status = " + Status.PREPARING.getNumVal()
+            + " and executor_id is NULL and flow_data is NOT NULL and %s"
+            + " ORDER BY flow_priority DESC, update_time ASC, exec_id ASC LIMIT ? FOR UPDATE";
+
+    public static final String SELECT_EXECUTIONS_FOR_UPDATE_ACTIVE =
+        String.format(SELECT_EXECUTIONS_FOR_UPDATE_FORMAT,
+            "(use_executor is NULL or use_executor = ?)");
+
+    public static final String SELECT_EXECUTIONS_FOR_UPDATE_INACTIVE =
+        String.format(SELECT_EXECUTIONS_FOR_UPDATE_FORMAT, "use_executor = ?");
+
     @Override
     public List<Integer> handle(final ResultSet rs) throws SQLException {
       if (!rs.next()) {
@@ -370,25 +739,40 @@ public class ExecutionFlowDao {
       ResultSetHandler<List<ExecutableFlow>> {
 
     static String FETCH_EXECUTABLE_FLOW_BY_START_TIME =
-        "SELECT ef.exec_id, ef.enc_type, ef.flow_data FROM execution_flows ef WHERE project_id=? "
-            + "AND flow_id=? AND start_time >= ? ORDER BY start_time DESC";
+        "SELECT ef.exec_id, ef.enc_type, ef.flow_data, ef.has_deltas FROM execution_flows ef "
+            + "WHERE project_id=? AND flow_id=? AND start_time >= ? ORDER BY start_time DESC";
     static String FETCH_BASE_EXECUTABLE_FLOW_QUERY =
-        "SELECT ef.exec_id, ef.enc_type, ef.flow_data FROM execution_flows ef";
+        "SELECT ef.exec_id, ef.enc_type, ef.flow_data, ef.has_deltas FROM execution_flows ef";
     static String FETCH_EXECUTABLE_FLOW =
-        "SELECT exec_id, enc_type, flow_data FROM execution_flows "
+        "SELECT exec_id, enc_type, flow_data, has_deltas FROM execution_flows "
             + "WHERE exec_id=?";
+    static String FETCH_EXECUTABLE_FLOW_WITH_DELTAS =
+        "SELECT exec_id, enc_type, flow_data, has_deltas FROM execution_flows "
+            + "WHERE exec_id=? AND has_deltas=1";
+    static String FETCH_FINISHED_EXECUTABLE_FLOWS_WITH_DELTAS =
+        "SELECT exec_id, enc_type, flow_data, has_deltas FROM execution_flows "
+            + "WHERE has_deltas=1 AND status IN (%s)";
     static String FETCH_ALL_EXECUTABLE_FLOW_HISTORY =
-        "SELECT exec_id, enc_type, flow_data FROM execution_flows "
+        "SELECT exec_id, enc_type, flow_data, has_deltas FROM execution_flows "
             + "ORDER BY exec_id DESC LIMIT ?, ?";
     static String FETCH_EXECUTABLE_FLOW_HISTORY =
-        "SELECT exec_id, enc_type, flow_data FROM execution_flows "
+        "SELECT exec_id, enc_type, flow_data, has_deltas FROM execution_flows "
             + "WHERE project_id=? AND flow_id=? "
             + "ORDER BY exec_id DESC LIMIT ?, ?";
     static String FETCH_EXECUTABLE_FLOW_BY_STATUS =
-        "SELECT exec_id, enc_type, flow_data FROM execution_flows "
+        "SELECT exec_id, enc_type, flow_data, has_deltas FROM execution_flows "
             + "WHERE project_id=? AND flow_id=? AND status=? "
             + "ORDER BY exec_id DESC LIMIT ?, ?";
 
+    private final List<ExecutableFlow> flowsWithDeltas = new ArrayList<>();
+
+    /**
+     * @return the fetched flows that have deltas to apply on top of their flow_data snapshot
+     */
+    List<ExecutableFlow> getFlowsWithDeltas() {
+      return this.flowsWithDeltas;
+    }
+
     @Override
     public List<ExecutableFlow> handle(final ResultSet rs) throws SQLException {
       if (!rs.next()) {
@@ -408,6 +792,9 @@ public class ExecutionFlowDao {
                 ExecutableFlow.createExecutableFlowFromObject(
                     GZIPUtils.transformBytesToObject(data, encType));
             execFlows.add(exFlow);
+            if (rs.getBoolean(4)) {
+              this.flowsWithDeltas.add(exFlow);
+            }
           } catch (final IOException e) {
             throw new SQLException("Error retrieving flow data " + id, e);
           }
@@ -418,6 +805,99 @@ public class ExecutionFlowDao {
     }
   }
 
+  /**
+   * JDBC ResultSetHandler to fetch the summaries of executions, without their flow data
+   */
+  public static class FetchExecutableFlowSummaries implements
+      ResultSetHandler<List<ExecutableFlowSummary>> {
+
+    private static final String SUMMARY_COLUMNS =
+        "ef.exec_id, ef.project_id, ef.version, ef.flow_id, ef.status, ef.submit_user, "
+            + "ef.submit_time, ef.start_time, ef.end_time, ef.update_time";
+    static String FETCH_BASE_EXECUTABLE_FLOW_SUMMARY_QUERY =
+        "SELECT " + SUMMARY_COLUMNS + " FROM execution_flows ef";
+    static String FETCH_ALL_EXECUTABLE_FLOW_SUMMARIES =
+        FETCH_BASE_EXECUTABLE_FLOW_SUMMARY_QUERY + " ORDER BY exec_id DESC LIMIT ?, ?";
+    static String FETCH_EXECUTABLE_FLOW_SUMMARIES =
+        FETCH_BASE_EXECUTABLE_FLOW_SUMMARY_QUERY + " WHERE project_id=? AND flow_id=? "
+            + "ORDER BY exec_id DESC LIMIT ?, ?";
+
+    @Override
+    public List<ExecutableFlowSummary> handle(final ResultSet rs) throws SQLException {
+      if (!rs.next()) {
+        return Collections.emptyList();
+      }
+
+      final List<ExecutableFlowSummary> summaries = new ArrayList<>();
+      do {
+        summaries.add(new ExecutableFlowSummary(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+            rs.getString(4), Status.fromInteger(rs.getInt(5)), rs.getString(6), rs.getLong(7),
+            rs.getLong(8), rs.getLong(9), rs.getLong(10)));
+      } while (rs.next());
+
+      return summaries;
+    }
+  }
+
+  /**
+   * JDBC ResultSetHandler to fetch the status and update time of an execution
+   */
+  private static class FetchExecutableFlowStatus implements
+      ResultSetHandler<List<Pair<Status, Long>>> {
+
+    private static final String FETCH_EXECUTABLE_FLOW_STATUS =
+        "SELECT status, update_time FROM execution_flows WHERE exec_id=?";
+
+    @Override
+    public List<Pair<Status, Long>> handle(final ResultSet rs) throws SQLException {
+      if (!rs.next()) {
+        return Collections.emptyList();
+      }
+      return Collections.singletonList(
+          new Pair<>(Status.fromInteger(rs.getInt(1)), rs.getLong(2)));
+    }
+  }
+
+  /**
+   * JDBC ResultSetHandler to fetch the flow deltas of executions, with their execution id, in the
+   * order they were written
+   */
+  private static class FetchExecutableFlowDeltas implements
+      ResultSetHandler<List<Pair<Integer, Map<String, Object>>>> {
+
+    private static final String FETCH_EXECUTABLE_FLOW_DELTAS =
+        "SELECT delta_id, exec_id, enc_type, delta_data FROM execution_flow_deltas "
+            + "WHERE exec_id IN (%s) ORDER BY delta_id ASC";
+
+    @Override
+    public List<Pair<Integer, Map<String, Object>>> handle(final ResultSet rs)
+        throws SQLException {
+      if (!rs.next()) {
+        return Collections.emptyList();
+      }
+
+      final List<Pair<Integer, Map<String, Object>>> deltas = new ArrayList<>();
+      do {
+        final long id = rs.getLong(1);
+        final int execId = rs.getInt(2);
+        final int encodingType = rs.getInt(3);
+        final byte[] data = rs.getBytes(4);
+
+        if (data != null) {
+          final EncodingType encType = EncodingType.fromInteger(encodingType);
+          try {
+            deltas.add(new Pair<>(execId,
+                (Map<String, Object>) GZIPUtils.transformBytesToObject(data, encType)));
+          } catch (final IOException e) {
+            throw new SQLException("Error retrieving flow delta " + id, e);
+          }
+        }
+      } while (rs.next());
+
+      return deltas;
+    }
+  }
+
   /**
    * JDBC ResultSetHandler to fetch queued executions
    */
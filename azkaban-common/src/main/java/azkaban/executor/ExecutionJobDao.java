@@ -103,6 +103,39 @@ public class ExecutionJobDao {
     }
   }
 
+  /**
+   * Updates several nodes with a single JDBC batch. Same statement as {@link
+   * #updateExecutableNode(ExecutableNode)}.
+   */
+  public void updateExecutableNodes(final List<ExecutableNodeUpdate> nodes)
+      throws ExecutorManagerException {
+    final String UPSERT_EXECUTION_NODE = "UPDATE execution_jobs "
+        + "SET start_time=?, end_time=?, status=?, output_params=? "
+        + "WHERE exec_id=? AND flow_id=? AND job_id=? AND attempt=?";
+
+    final Object[][] params = new Object[nodes.size()][];
+    for (int i = 0; i < nodes.size(); i++) {
+      final ExecutableNodeUpdate node = nodes.get(i);
+      byte[] outputParam = null;
+      if (node.getOutputProps() != null) {
+        try {
+          outputParam = GZIPUtils.gzipString(JSONUtils.toJSON(node.getOutputProps()), "UTF-8");
+        } catch (final IOException e) {
+          throw new ExecutorManagerException("Error encoding input params");
+        }
+      }
+      params[i] = new Object[]{node.getStartTime(), node.getEndTime(),
+          node.getStatus().getNumVal(), outputParam, node.getExecutionId(), node.getFlowPath(),
+          node.getJobId(), node.getAttempt()};
+    }
+
+    try {
+      this.dbOperator.batch(UPSERT_EXECUTION_NODE, params);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error updating " + nodes.size() + " jobs", e);
+    }
+  }
+
   public List<ExecutableJobInfo> fetchJobInfoAttempts(final int execId, final String jobId)
       throws ExecutorManagerException {
     try {
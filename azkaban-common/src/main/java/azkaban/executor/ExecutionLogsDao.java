@@ -29,10 +29,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.dbutils.ResultSetHandler;
@@ -45,6 +48,10 @@ import org.joda.time.DateTime;
 public class ExecutionLogsDao {
 
   private static final Logger logger = Logger.getLogger(ExecutionLogsDao.class);
+  // Logs are uploaded in chunks of this size, each compressed on its own. A chunk always starts
+  // at a multiple of the chunk size, so the chunks covering a byte range are found through the
+  // primary key without looking at the others.
+  private static final int LOG_CHUNK_SIZE = 50 * 1024;
   private final DatabaseOperator dbOperator;
   private final EncodingType defaultEncodingType = EncodingType.GZIP;
 
@@ -57,10 +64,40 @@ public class ExecutionLogsDao {
   LogData fetchLogs(final int execId, final String name, final int attempt,
       final int startByte,
       final int length) throws ExecutorManagerException {
-    final FetchLogsHandler handler = new FetchLogsHandler(startByte, length + startByte);
+    final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+    if (writeLogs(execId, name, attempt, startByte, length, byteStream) == null) {
+      return null;
+    }
+
+    final byte[] buffer = byteStream.toByteArray();
+    final Pair<Integer, Integer> result =
+        FileIOUtils.getUtf8Range(buffer, 0, buffer.length);
+
+    return new LogData(startByte + result.getFirst(), result.getSecond(),
+        new String(buffer, result.getFirst(), result.getSecond(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Writes the raw log bytes in [startByte, startByte + length) to the output stream, one chunk
+   * at a time. Unlike {@link #fetchLogs(int, String, int, int, int)} the range isn't adjusted to
+   * UTF-8 character boundaries.
+   *
+   * @return the number of bytes written
+   */
+  int streamLogs(final int execId, final String name, final int attempt, final int startByte,
+      final int length, final OutputStream out) throws ExecutorManagerException {
+    final Integer written = writeLogs(execId, name, attempt, startByte, length, out);
+    return written == null ? 0 : written;
+  }
+
+  private Integer writeLogs(final int execId, final String name, final int attempt,
+      final int startByte, final int length, final OutputStream out)
+      throws ExecutorManagerException {
+    final int endByte = startByte + length;
+    final WriteLogsHandler handler = new WriteLogsHandler(startByte, endByte, out);
     try {
-      return this.dbOperator.query(FetchLogsHandler.FETCH_LOGS, handler,
-          execId, name, attempt, startByte, startByte + length);
+      return this.dbOperator.query(WriteLogsHandler.FETCH_LOGS, handler,
+          execId, name, attempt, startByte - startByte % LOG_CHUNK_SIZE, endByte, startByte);
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching logs " + execId
           + " : " + name, e);
@@ -88,7 +125,7 @@ public class ExecutionLogsDao {
       throws SQLException {
     // 50K buffer... if logs are greater than this, we chunk.
     // However, we better prevent large log files from being uploaded somehow
-    final byte[] buffer = new byte[50 * 1024];
+    final byte[] buffer = new byte[LOG_CHUNK_SIZE];
     int pos = 0;
     int length = buffer.length;
     int startByte = 0;
@@ -170,63 +207,56 @@ public class ExecutionLogsDao {
             .getMillis());
   }
 
-  private static class FetchLogsHandler implements ResultSetHandler<LogData> {
+  /**
+   * Writes the requested part of each chunk to the output stream. Only the chunks overlapping the
+   * range are selected, and a chunk is decompressed only up to the last byte needed. Returns null
+   * if there is no chunk in the range.
+   */
+  private static class WriteLogsHandler implements ResultSetHandler<Integer> {
 
     private static final String FETCH_LOGS =
         "SELECT exec_id, name, attempt, enc_type, start_byte, end_byte, log "
             + "FROM execution_logs "
-            + "WHERE exec_id=? AND name=? AND attempt=? AND end_byte > ? "
-            + "AND start_byte <= ? ORDER BY start_byte";
+            + "WHERE exec_id=? AND name=? AND attempt=? AND start_byte >= ? "
+            + "AND start_byte < ? AND end_byte > ? ORDER BY start_byte";
 
     private final int startByte;
     private final int endByte;
+    private final OutputStream out;
 
-    FetchLogsHandler(final int startByte, final int endByte) {
+    WriteLogsHandler(final int startByte, final int endByte, final OutputStream out) {
       this.startByte = startByte;
       this.endByte = endByte;
+      this.out = out;
     }
 
     @Override
-    public LogData handle(final ResultSet rs) throws SQLException {
+    public Integer handle(final ResultSet rs) throws SQLException {
       if (!rs.next()) {
         return null;
       }
 
-      final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-
+      int written = 0;
       do {
-        // int execId = rs.getInt(1);
-        // String name = rs.getString(2);
-        final int attempt = rs.getInt(3);
         final EncodingType encType = EncodingType.fromInteger(rs.getInt(4));
         final int startByte = rs.getInt(5);
         final int endByte = rs.getInt(6);
 
-        final byte[] data = rs.getBytes(7);
-
-        final int offset =
-            this.startByte > startByte ? this.startByte - startByte : 0;
-        final int length =
-            this.endByte < endByte ? this.endByte - startByte - offset
-                : endByte - startByte - offset;
-        try {
-          byte[] buffer = data;
-          if (encType == EncodingType.GZIP) {
-            buffer = GZIPUtils.unGzipBytes(data);
-          }
+        final int offset = Math.max(this.startByte - startByte, 0);
+        final int length = Math.min(this.endByte, endByte) - startByte - offset;
+        if (length <= 0) {
+          continue;
+        }
 
-          byteStream.write(buffer, offset, length);
+        try (InputStream data = encType == EncodingType.GZIP
+            ? new GZIPInputStream(rs.getBinaryStream(7)) : rs.getBinaryStream(7)) {
+          written += (int) IOUtils.copyLarge(data, this.out, offset, length);
         } catch (final IOException e) {
           throw new SQLException(e);
         }
       } while (rs.next());
 
-      final byte[] buffer = byteStream.toByteArray();
-      final Pair<Integer, Integer> result =
-          FileIOUtils.getUtf8Range(buffer, 0, buffer.length);
-
-      return new LogData(this.startByte + result.getFirst(), result.getSecond(),
-          new String(buffer, result.getFirst(), result.getSecond(), StandardCharsets.UTF_8));
+      return written;
     }
   }
 }
@@ -20,6 +20,7 @@ import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
 import com.google.inject.Inject;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -51,6 +52,24 @@ public class ExecutorApiGateway {
         null, params);
   }
 
+  /**
+   * Calls an action of the executor that responds with a stream instead of JSON, and copies the
+   * response to the output stream as it arrives.
+   *
+   * @return the number of bytes copied
+   */
+  long streamWithReference(final ExecutionReference ref, final String action,
+      final OutputStream out, final Pair<String, String>... params) throws IOException {
+    final Executor executor = ref.getExecutor().get();
+    final List<Pair<String, String>> paramList = new ArrayList<>(Arrays.asList(params));
+    paramList.add(new Pair<>(ConnectorParams.ACTION_PARAM, action));
+    paramList.add(new Pair<>(ConnectorParams.EXECID_PARAM, String.valueOf(ref.getExecId())));
+
+    @SuppressWarnings("unchecked") final URI uri =
+        ExecutorApiClient.buildUri(executor.getHost(), executor.getPort(), "/executor", true);
+    return this.apiClient.httpPostStream(uri, paramList, out);
+  }
+
   Map<String, Object> callWithReferenceByUser(final ExecutionReference ref,
       final String action, final String user, final Pair<String, String>... params)
       throws ExecutorManagerException {
@@ -125,6 +144,14 @@ public class ExecutorApiGateway {
     return this.apiClient.httpPost(uri, paramList);
   }
 
+  /**
+   * Wakes up the polling service of the executor.
+   */
+  public void nudgeExecutor(final Executor executor) throws ExecutorManagerException {
+    callWithExecutionId(executor.getHost(), executor.getPort(), ConnectorParams.POLL_ACTION,
+        null, null);
+  }
+
   public Map<String, Object> updateExecutions(final Executor executor,
       final List<ExecutableFlow> executions) throws ExecutorManagerException {
     final List<Long> updateTimesList = new ArrayList<>();
@@ -21,6 +21,7 @@ import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import java.io.File;
+import java.io.OutputStream;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +34,15 @@ public interface ExecutorLoader {
   ExecutableFlow fetchExecutableFlow(int execId)
       throws ExecutorManagerException;
 
+  /**
+   * Fetch only the status and update time of an execution, without its flow data, e.g. to check
+   * whether it changed before fetching it with {@link #fetchExecutableFlow(int)}.
+   *
+   * @return the status and the update time, null if the execution doesn't exist
+   */
+  Pair<Status, Long> fetchExecutableFlowStatus(int execId)
+      throws ExecutorManagerException;
+
   List<ExecutableFlow> fetchRecentlyFinishedFlows(Duration maxAge)
       throws ExecutorManagerException;
 
@@ -45,6 +55,13 @@ public interface ExecutorLoader {
   Map<Integer, Pair<ExecutionReference, ExecutableFlow>> fetchUnfinishedFlowsMetadata()
       throws ExecutorManagerException;
 
+  /**
+   * Fetches the metadata, excluding flow data, of the flows in any status whose update time is at
+   * or after the given time.
+   */
+  List<Pair<ExecutionReference, ExecutableFlow>> fetchFlowsMetadataUpdatedSince(long updateTime)
+      throws ExecutorManagerException;
+
   Pair<ExecutionReference, ExecutableFlow> fetchActiveFlowByExecId(int execId)
       throws ExecutorManagerException;
 
@@ -64,6 +81,27 @@ public interface ExecutorLoader {
   List<ExecutableFlow> fetchFlowHistory(final int projectId, final String flowId,
       final long startTime) throws ExecutorManagerException;
 
+  /**
+   * Same as {@link #fetchFlowHistory(int, int)} without reading the flow data of the executions.
+   */
+  List<ExecutableFlowSummary> fetchFlowHistorySummaries(int skip, int num)
+      throws ExecutorManagerException;
+
+  /**
+   * Same as {@link #fetchFlowHistory(int, String, int, int)} without reading the flow data of
+   * the executions.
+   */
+  List<ExecutableFlowSummary> fetchFlowHistorySummaries(int projectId, String flowId,
+      int skip, int num) throws ExecutorManagerException;
+
+  /**
+   * Same as {@link #fetchFlowHistory(String, String, String, int, long, long, int, int)} without
+   * reading the flow data of the executions.
+   */
+  List<ExecutableFlowSummary> fetchFlowHistorySummaries(String projContain,
+      String flowContains, String userNameContains, int status, long startData,
+      long endData, int skip, int num) throws ExecutorManagerException;
+
   /**
    * <pre>
    * Fetch all executors from executors table
@@ -234,6 +272,15 @@ public interface ExecutorLoader {
   LogData fetchLogs(int execId, String name, int attempt, int startByte,
       int endByte) throws ExecutorManagerException;
 
+  /**
+   * Writes the raw bytes of a log range to the output stream without building the whole range
+   * in memory.
+   *
+   * @return the number of bytes written
+   */
+  int streamLogs(int execId, String name, int attempt, int startByte, int length,
+      OutputStream out) throws ExecutorManagerException;
+
   List<Object> fetchAttachments(int execId, String name, int attempt)
       throws ExecutorManagerException;
 
@@ -246,6 +293,43 @@ public interface ExecutorLoader {
   void updateExecutableFlow(ExecutableFlow flow)
       throws ExecutorManagerException;
 
+  /**
+   * Persist only the nodes of the flow updated after {@code lastUpdateTime}. The full flow is
+   * rebuilt by {@link #fetchExecutableFlow(int)} from the last snapshot written by {@link
+   * #updateExecutableFlow(ExecutableFlow)} plus the deltas appended since.
+   */
+  void updateExecutableFlowDelta(ExecutableFlow flow, long lastUpdateTime)
+      throws ExecutorManagerException;
+
+  /**
+   * Batch variant of {@link #updateExecutableFlow(ExecutableFlow)}, for snapshots captured with
+   * {@link ExecutableFlowUpdate#snapshot(ExecutableFlow)}.
+   */
+  void updateExecutableFlows(List<ExecutableFlowUpdate> snapshots)
+      throws ExecutorManagerException;
+
+  /**
+   * Batch variant of {@link #updateExecutableFlowDelta(ExecutableFlow, long)}, for deltas captured
+   * with {@link ExecutableFlowUpdate#delta(ExecutableFlow, long)}.
+   */
+  void updateExecutableFlowDeltas(List<ExecutableFlowUpdate> deltas)
+      throws ExecutorManagerException;
+
+  /**
+   * Rewrites the flow data of an execution that still has deltas, i.e. whose executor died before
+   * writing the final snapshot, and deletes its deltas.
+   *
+   * @return true if the execution had deltas
+   */
+  boolean compactExecutableFlowDeltas(int execId) throws ExecutorManagerException;
+
+  /**
+   * {@link #compactExecutableFlowDeltas(int)} for all the finished executions.
+   *
+   * @return the number of executions compacted
+   */
+  int compactFinishedFlowDeltas() throws ExecutorManagerException;
+
   void uploadExecutableNode(ExecutableNode node, Props inputParams)
       throws ExecutorManagerException;
 
@@ -261,6 +345,12 @@ public interface ExecutorLoader {
   void updateExecutableNode(ExecutableNode node)
       throws ExecutorManagerException;
 
+  /**
+   * Batch variant of {@link #updateExecutableNode(ExecutableNode)}.
+   */
+  void updateExecutableNodes(List<ExecutableNodeUpdate> nodes)
+      throws ExecutorManagerException;
+
   int fetchNumExecutableFlows(int projectId, String flowId)
       throws ExecutorManagerException;
 
@@ -286,4 +376,13 @@ public interface ExecutorLoader {
   int selectAndUpdateExecution(final int executorId, boolean isActive)
       throws ExecutorManagerException;
 
+  /**
+   * Claims up to maxExecutions queued executions for the executor in one transaction.
+   *
+   * @param skipLocked skip the rows locked by other executors, needs SKIP LOCKED in the DB
+   * @return the ids of the claimed executions, highest priority first
+   */
+  List<Integer> selectAndUpdateExecutions(final int executorId, boolean isActive,
+      int maxExecutions, boolean skipLocked) throws ExecutorManagerException;
+
 }
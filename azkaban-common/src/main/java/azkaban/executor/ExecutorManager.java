@@ -33,6 +33,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.Thread.State;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -517,6 +518,11 @@ public class ExecutorManager extends EventHandler implements
     return flows;
   }
 
+  @Override
+  public int getRunningFlowCount() {
+    return (int) this.queuedFlows.size() + this.runningExecutions.get().size();
+  }
+
   /*
    * Helper method to get all running flows from a Pair<ExecutionReference,
    * ExecutableFlow collection
@@ -605,6 +611,36 @@ public class ExecutorManager extends EventHandler implements
     return flows;
   }
 
+  @Override
+  public List<ExecutableFlowSummary> getExecutableFlowSummaries(final int skip, final int size)
+      throws ExecutorManagerException {
+    return this.executorLoader.fetchFlowHistorySummaries(skip, size);
+  }
+
+  @Override
+  public List<ExecutableFlowSummary> getExecutableFlowSummaries(final String flowIdContains,
+      final int skip, final int size) throws ExecutorManagerException {
+    return this.executorLoader.fetchFlowHistorySummaries(null, '%' + flowIdContains + '%', null,
+        0, -1, -1, skip, size);
+  }
+
+  @Override
+  public List<ExecutableFlowSummary> getExecutableFlowSummaries(final String projContain,
+      final String flowContain, final String userContain, final int status, final long begin,
+      final long end, final int skip, final int size) throws ExecutorManagerException {
+    return this.executorLoader.fetchFlowHistorySummaries(projContain, flowContain, userContain,
+        status, begin, end, skip, size);
+  }
+
+  @Override
+  public int getExecutableFlowSummaries(final int projectId, final String flowId, final int from,
+      final int length, final List<ExecutableFlowSummary> outputList)
+      throws ExecutorManagerException {
+    outputList.addAll(
+        this.executorLoader.fetchFlowHistorySummaries(projectId, flowId, from, length));
+    return this.executorLoader.fetchNumExecutableFlows(projectId, flowId);
+  }
+
   @Override
   public List<ExecutableJobInfo> getExecutableJobs(final Project project,
       final String jobId, final int skip, final int size) throws ExecutorManagerException {
@@ -671,6 +707,48 @@ public class ExecutorManager extends EventHandler implements
     }
   }
 
+  @Override
+  public int streamExecutionJobLog(final ExecutableFlow exFlow, final String jobId,
+      final int offset, final int length, final int attempt, final OutputStream out)
+      throws IOException, ExecutorManagerException {
+    final Pair<ExecutionReference, ExecutableFlow> pair =
+        this.runningExecutions.get().get(exFlow.getExecutionId());
+    if (pair == null) {
+      return this.executorLoader.streamLogs(exFlow.getExecutionId(), jobId, attempt, offset,
+          length, out);
+    }
+
+    final Pair<String, String> typeParam = new Pair<>("type", "job");
+    final Pair<String, String> jobIdParam = new Pair<>("jobId", jobId);
+    final Pair<String, String> offsetParam = new Pair<>("offset", String.valueOf(offset));
+    final Pair<String, String> lengthParam = new Pair<>("length", String.valueOf(length));
+    final Pair<String, String> attemptParam = new Pair<>("attempt", String.valueOf(attempt));
+    return (int) this.apiGateway.streamWithReference(pair.getFirst(),
+        ConnectorParams.LOG_STREAM_ACTION, out, typeParam, jobIdParam, offsetParam, lengthParam,
+        attemptParam);
+  }
+
+  @Override
+  public void tailExecutionJobLog(final ExecutableFlow exFlow, final String jobId,
+      final int offset, final int attempt, final OutputStream out)
+      throws IOException, ExecutorManagerException {
+    final Pair<ExecutionReference, ExecutableFlow> pair =
+        this.runningExecutions.get().get(exFlow.getExecutionId());
+    if (pair == null) {
+      // Nothing is appended to the log of a finished execution anymore.
+      this.executorLoader.streamLogs(exFlow.getExecutionId(), jobId, attempt, offset,
+          Integer.MAX_VALUE - offset, out);
+      return;
+    }
+
+    final Pair<String, String> typeParam = new Pair<>("type", "job");
+    final Pair<String, String> jobIdParam = new Pair<>("jobId", jobId);
+    final Pair<String, String> offsetParam = new Pair<>("offset", String.valueOf(offset));
+    final Pair<String, String> attemptParam = new Pair<>("attempt", String.valueOf(attempt));
+    this.apiGateway.streamWithReference(pair.getFirst(), ConnectorParams.LOG_TAIL_ACTION, out,
+        typeParam, jobIdParam, offsetParam, attemptParam);
+  }
+
   @Override
   public List<Object> getExecutionJobStats(final ExecutableFlow exFlow, final String jobId,
       final int attempt) throws ExecutorManagerException {
@@ -994,6 +1072,17 @@ public class ExecutorManager extends EventHandler implements
             + " seconds.");
   }
 
+  private void compactFinishedFlowDeltas() {
+    try {
+      final int count = this.executorLoader.compactFinishedFlowDeltas();
+      if (count > 0) {
+        logger.info("Compacted the flow deltas of " + count + " finished executions.");
+      }
+    } catch (final ExecutorManagerException e) {
+      logger.error("flow delta compaction failed. ", e);
+    }
+  }
+
   /**
    * Manage servlet call for stats servlet in Azkaban execution server {@inheritDoc}
    *
@@ -1138,6 +1227,7 @@ public class ExecutorManager extends EventHandler implements
             final long currentTime = System.currentTimeMillis();
             if (currentTime - CLEANER_THREAD_WAIT_INTERVAL_MS > this.lastLogCleanTime) {
               cleanExecutionLogs();
+              compactFinishedFlowDeltas();
               this.lastLogCleanTime = currentTime;
             }
 
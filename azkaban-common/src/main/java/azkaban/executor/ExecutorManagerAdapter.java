@@ -20,6 +20,7 @@ import azkaban.project.Project;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.Pair;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.Thread.State;
 import java.util.Collection;
 import java.util.List;
@@ -38,6 +39,11 @@ public interface ExecutorManagerAdapter {
 
   public List<ExecutableFlow> getRunningFlows();
 
+  /**
+   * @return the number of running and queued flows, without loading them
+   */
+  public int getRunningFlowCount();
+
   public long getQueuedFlowSize();
 
   /**
@@ -65,6 +71,30 @@ public interface ExecutorManagerAdapter {
       int length, List<ExecutableFlow> outputList)
       throws ExecutorManagerException;
 
+  /**
+   * Same as {@link #getExecutableFlows(int, int)}, for pages that only show the execution columns
+   * and not the nodes of the flows.
+   */
+  public List<ExecutableFlowSummary> getExecutableFlowSummaries(int skip, int size)
+      throws ExecutorManagerException;
+
+  public List<ExecutableFlowSummary> getExecutableFlowSummaries(String flowIdContains,
+      int skip, int size) throws ExecutorManagerException;
+
+  public List<ExecutableFlowSummary> getExecutableFlowSummaries(String projContain,
+      String flowContain, String userContain, int status, long begin, long end,
+      int skip, int size) throws ExecutorManagerException;
+
+  /**
+   * Same as {@link #getExecutableFlows(int, String, int, int, List)}, for pages that only show
+   * the execution columns and not the nodes of the flows.
+   *
+   * @return the total number of executions of the flow
+   */
+  public int getExecutableFlowSummaries(int projectId, String flowId, int from,
+      int length, List<ExecutableFlowSummary> outputList)
+      throws ExecutorManagerException;
+
   public List<ExecutableFlow> getExecutableFlows(int projectId, String flowId,
       int from, int length, Status status) throws ExecutorManagerException;
 
@@ -80,6 +110,24 @@ public interface ExecutorManagerAdapter {
   public LogData getExecutionJobLog(ExecutableFlow exFlow, String jobId,
       int offset, int length, int attempt) throws ExecutorManagerException;
 
+  /**
+   * Writes the raw bytes of a job log range to the output stream. Logs of running executions are
+   * transferred from the executor's log file, and logs of finished executions are streamed from
+   * the DB chunk by chunk, instead of being built into one {@link LogData}.
+   *
+   * @return the number of bytes written
+   */
+  public int streamExecutionJobLog(ExecutableFlow exFlow, String jobId, int offset, int length,
+      int attempt, OutputStream out) throws IOException, ExecutorManagerException;
+
+  /**
+   * Streams the bytes appended to a job log from the given offset as they are written, until the
+   * job finishes or the executor ends the tail. For a finished execution the rest of the log is
+   * sent right away.
+   */
+  public void tailExecutionJobLog(ExecutableFlow exFlow, String jobId, int offset, int attempt,
+      OutputStream out) throws IOException, ExecutorManagerException;
+
   public List<Object> getExecutionJobStats(ExecutableFlow exflow, String jobId,
       int attempt) throws ExecutorManagerException;
 
@@ -26,8 +26,10 @@ import com.google.common.annotations.VisibleForTesting;
 import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -47,7 +49,7 @@ public class FetchActiveFlowDao {
   }
 
   private static Pair<ExecutionReference, ExecutableFlow> getExecutableFlowHelper(
-      final ResultSet rs) throws SQLException {
+      final ResultSet rs, final List<ExecutableFlow> flowsWithDeltas) throws SQLException {
     final int id = rs.getInt("exec_id");
     final int encodingType = rs.getInt("enc_type");
     final byte[] data = rs.getBytes("flow_data");
@@ -65,6 +67,9 @@ public class FetchActiveFlowDao {
       } catch (final IOException e) {
         throw new SQLException("Error retrieving flow data " + id, e);
       }
+      if (rs.getBoolean("has_deltas")) {
+        flowsWithDeltas.add(exFlow);
+      }
       return getPairWithExecutorInfo(rs, exFlow);
     }
     return null;
@@ -99,6 +104,7 @@ public class FetchActiveFlowDao {
     exFlow.setSubmitTime(rs.getLong("submit_time"));
     exFlow.setStartTime(rs.getLong("start_time"));
     exFlow.setEndTime(rs.getLong("end_time"));
+    exFlow.setUpdateTime(rs.getLong("update_time"));
     exFlow.setSubmitUser(rs.getString("submit_user"));
     return getPairWithExecutorInfo(rs, exFlow);
   }
@@ -113,8 +119,11 @@ public class FetchActiveFlowDao {
   Map<Integer, Pair<ExecutionReference, ExecutableFlow>> fetchUnfinishedFlows()
       throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchActiveExecutableFlows.FETCH_UNFINISHED_EXECUTABLE_FLOWS,
-          new FetchActiveExecutableFlows());
+      final FetchActiveExecutableFlows flowHandler = new FetchActiveExecutableFlows();
+      final Map<Integer, Pair<ExecutionReference, ExecutableFlow>> flows = this.dbOperator
+          .query(FetchActiveExecutableFlows.FETCH_UNFINISHED_EXECUTABLE_FLOWS, flowHandler);
+      ExecutionFlowDao.applyFlowDeltas(this.dbOperator, flowHandler.flowsWithDeltas);
+      return flows;
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching unfinished flows", e);
     }
@@ -136,6 +145,25 @@ public class FetchActiveFlowDao {
     }
   }
 
+  /**
+   * Fetch the metadata, excluding flow data, of the flows updated at or after the given time, in
+   * any status. Used to refresh a cached view of the unfinished flows incrementally: finished flows
+   * in the result are the ones to drop from it.
+   *
+   * @return flows metadata list
+   * @throws ExecutorManagerException the executor manager exception
+   */
+  List<Pair<ExecutionReference, ExecutableFlow>> fetchFlowsMetadataUpdatedSince(
+      final long updateTime) throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(FetchFlowsMetadataUpdatedSince.FETCH_FLOWS_METADATA_UPDATED_SINCE,
+          new FetchFlowsMetadataUpdatedSince(), updateTime);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching flows metadata updated since "
+          + updateTime, e);
+    }
+  }
+
   /**
    * Fetch flows that are dispatched and not yet finished.
    *
@@ -145,8 +173,11 @@ public class FetchActiveFlowDao {
   Map<Integer, Pair<ExecutionReference, ExecutableFlow>> fetchActiveFlows()
       throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchActiveExecutableFlows.FETCH_ACTIVE_EXECUTABLE_FLOWS,
-          new FetchActiveExecutableFlows());
+      final FetchActiveExecutableFlows flowHandler = new FetchActiveExecutableFlows();
+      final Map<Integer, Pair<ExecutionReference, ExecutableFlow>> flows = this.dbOperator
+          .query(FetchActiveExecutableFlows.FETCH_ACTIVE_EXECUTABLE_FLOWS, flowHandler);
+      ExecutionFlowDao.applyFlowDeltas(this.dbOperator, flowHandler.flowsWithDeltas);
+      return flows;
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching active flows", e);
     }
@@ -161,9 +192,11 @@ public class FetchActiveFlowDao {
   Pair<ExecutionReference, ExecutableFlow> fetchActiveFlowByExecId(final int execId)
       throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchActiveExecutableFlow
-              .FETCH_ACTIVE_EXECUTABLE_FLOW_BY_EXEC_ID,
-          new FetchActiveExecutableFlow(), execId);
+      final FetchActiveExecutableFlow flowHandler = new FetchActiveExecutableFlow();
+      final Pair<ExecutionReference, ExecutableFlow> flow = this.dbOperator.query(
+          FetchActiveExecutableFlow.FETCH_ACTIVE_EXECUTABLE_FLOW_BY_EXEC_ID, flowHandler, execId);
+      ExecutionFlowDao.applyFlowDeltas(this.dbOperator, flowHandler.flowsWithDeltas);
+      return flow;
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching active flow by exec id" + execId, e);
     }
@@ -175,8 +208,9 @@ public class FetchActiveFlowDao {
 
     // Select flows that are not in finished status
     private static final String FETCH_UNFINISHED_EXECUTABLE_FLOWS =
-        "SELECT ex.exec_id exec_id, ex.enc_type enc_type, ex.flow_data flow_data, et.host host, "
-            + "et.port port, ex.executor_id executorId, et.active executorStatus"
+        "SELECT ex.exec_id exec_id, ex.enc_type enc_type, ex.flow_data flow_data, "
+            + "ex.has_deltas has_deltas, et.host host, et.port port, ex.executor_id executorId, "
+            + "et.active executorStatus"
             + " FROM execution_flows ex"
             + " LEFT JOIN "
             + " executors et ON ex.executor_id = et.id"
@@ -187,8 +221,9 @@ public class FetchActiveFlowDao {
 
     // Select flows that are dispatched and not in finished status
     private static final String FETCH_ACTIVE_EXECUTABLE_FLOWS =
-        "SELECT ex.exec_id exec_id, ex.enc_type enc_type, ex.flow_data flow_data, et.host host, "
-            + "et.port port, ex.executor_id executorId, et.active executorStatus"
+        "SELECT ex.exec_id exec_id, ex.enc_type enc_type, ex.flow_data flow_data, "
+            + "ex.has_deltas has_deltas, et.host host, et.port port, ex.executor_id executorId, "
+            + "et.active executorStatus"
             + " FROM execution_flows ex"
             + " LEFT JOIN "
             + " executors et ON ex.executor_id = et.id"
@@ -203,6 +238,8 @@ public class FetchActiveFlowDao {
             + "   AND ex.status = " + Status.PREPARING.getNumVal()
             + " )";
 
+    private final List<ExecutableFlow> flowsWithDeltas = new ArrayList<>();
+
     @Override
     public Map<Integer, Pair<ExecutionReference, ExecutableFlow>> handle(
         final ResultSet rs) throws SQLException {
@@ -213,7 +250,8 @@ public class FetchActiveFlowDao {
       final Map<Integer, Pair<ExecutionReference, ExecutableFlow>> execFlows =
           new HashMap<>();
       do {
-        final Pair<ExecutionReference, ExecutableFlow> exFlow = getExecutableFlowHelper(rs);
+        final Pair<ExecutionReference, ExecutableFlow> exFlow =
+            getExecutableFlowHelper(rs, this.flowsWithDeltas);
         if (exFlow != null) {
           execFlows.put(rs.getInt("exec_id"), exFlow);
         }
@@ -232,7 +270,8 @@ public class FetchActiveFlowDao {
         "SELECT ex.exec_id exec_id, ex.project_id project_id, ex.version version, "
             + "ex.flow_id flow_id, et.host host, et.port port, ex.executor_id executorId, "
             + "ex.status status, ex.submit_time submit_time, ex.start_time start_time, "
-            + "ex.end_time end_time, ex.submit_user submit_user, et.active executorStatus"
+            + "ex.end_time end_time, ex.update_time update_time, ex.submit_user submit_user, "
+            + "et.active executorStatus"
             + " FROM execution_flows ex"
             + " LEFT JOIN "
             + " executors et ON ex.executor_id = et.id"
@@ -261,13 +300,46 @@ public class FetchActiveFlowDao {
     }
   }
 
+  @VisibleForTesting
+  static class FetchFlowsMetadataUpdatedSince implements
+      ResultSetHandler<List<Pair<ExecutionReference, ExecutableFlow>>> {
+
+    // Select flows in any status updated at or after the given time
+    private static final String FETCH_FLOWS_METADATA_UPDATED_SINCE =
+        "SELECT ex.exec_id exec_id, ex.project_id project_id, ex.version version, "
+            + "ex.flow_id flow_id, et.host host, et.port port, ex.executor_id executorId, "
+            + "ex.status status, ex.submit_time submit_time, ex.start_time start_time, "
+            + "ex.end_time end_time, ex.update_time update_time, ex.submit_user submit_user, "
+            + "et.active executorStatus"
+            + " FROM execution_flows ex"
+            + " LEFT JOIN "
+            + " executors et ON ex.executor_id = et.id"
+            + " Where ex.update_time >= ?";
+
+    @Override
+    public List<Pair<ExecutionReference, ExecutableFlow>> handle(
+        final ResultSet rs) throws SQLException {
+      if (!rs.next()) {
+        return Collections.emptyList();
+      }
+
+      final List<Pair<ExecutionReference, ExecutableFlow>> execFlows = new ArrayList<>();
+      do {
+        execFlows.add(getExecutableFlowMetadataHelper(rs));
+      } while (rs.next());
+
+      return execFlows;
+    }
+  }
+
   private static class FetchActiveExecutableFlow implements
       ResultSetHandler<Pair<ExecutionReference, ExecutableFlow>> {
 
     // Select the flow that is dispatched and not in finished status by execution id
     private static final String FETCH_ACTIVE_EXECUTABLE_FLOW_BY_EXEC_ID =
-        "SELECT ex.exec_id exec_id, ex.enc_type enc_type, ex.flow_data flow_data, et.host host, "
-            + "et.port port, ex.executor_id executorId, et.active executorStatus"
+        "SELECT ex.exec_id exec_id, ex.enc_type enc_type, ex.flow_data flow_data, "
+            + "ex.has_deltas has_deltas, et.host host, et.port port, ex.executor_id executorId, "
+            + "et.active executorStatus"
             + " FROM execution_flows ex"
             + " LEFT JOIN "
             + " executors et ON ex.executor_id = et.id"
@@ -282,13 +354,15 @@ public class FetchActiveFlowDao {
             + "   AND ex.status = " + Status.PREPARING.getNumVal()
             + " )";
 
+    private final List<ExecutableFlow> flowsWithDeltas = new ArrayList<>();
+
     @Override
     public Pair<ExecutionReference, ExecutableFlow> handle(
         final ResultSet rs) throws SQLException {
       if (!rs.next()) {
         return null;
       }
-      return getExecutableFlowHelper(rs);
+      return getExecutableFlowHelper(rs, this.flowsWithDeltas);
     }
   }
 
@@ -21,6 +21,7 @@ import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import java.io.File;
+import java.io.OutputStream;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
@@ -73,12 +74,46 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     this.executionFlowDao.updateExecutableFlow(flow);
   }
 
+  @Override
+  public void updateExecutableFlowDelta(final ExecutableFlow flow, final long lastUpdateTime)
+      throws ExecutorManagerException {
+    this.executionFlowDao.updateExecutableFlowDelta(flow, lastUpdateTime);
+  }
+
+  @Override
+  public void updateExecutableFlows(final List<ExecutableFlowUpdate> snapshots)
+      throws ExecutorManagerException {
+    this.executionFlowDao.updateExecutableFlows(snapshots);
+  }
+
+  @Override
+  public void updateExecutableFlowDeltas(final List<ExecutableFlowUpdate> deltas)
+      throws ExecutorManagerException {
+    this.executionFlowDao.updateExecutableFlowDeltas(deltas);
+  }
+
+  @Override
+  public boolean compactExecutableFlowDeltas(final int execId) throws ExecutorManagerException {
+    return this.executionFlowDao.compactExecutableFlowDeltas(execId);
+  }
+
+  @Override
+  public int compactFinishedFlowDeltas() throws ExecutorManagerException {
+    return this.executionFlowDao.compactFinishedFlowDeltas();
+  }
+
   @Override
   public ExecutableFlow fetchExecutableFlow(final int id)
       throws ExecutorManagerException {
     return this.executionFlowDao.fetchExecutableFlow(id);
   }
 
+  @Override
+  public Pair<Status, Long> fetchExecutableFlowStatus(final int execId)
+      throws ExecutorManagerException {
+    return this.executionFlowDao.fetchExecutableFlowStatus(execId);
+  }
+
   @Override
   public List<Pair<ExecutionReference, ExecutableFlow>> fetchQueuedFlows()
       throws ExecutorManagerException {
@@ -112,6 +147,12 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     return this.fetchActiveFlowDao.fetchUnfinishedFlowsMetadata();
   }
 
+  @Override
+  public List<Pair<ExecutionReference, ExecutableFlow>> fetchFlowsMetadataUpdatedSince(
+      final long updateTime) throws ExecutorManagerException {
+    return this.fetchActiveFlowDao.fetchFlowsMetadataUpdatedSince(updateTime);
+  }
+
   @Override
   public Pair<ExecutionReference, ExecutableFlow> fetchActiveFlowByExecId(final int execId)
       throws ExecutorManagerException {
@@ -169,6 +210,27 @@ public class JdbcExecutorLoader implements ExecutorLoader {
         userNameContains, status, startTime, endTime, skip, num);
   }
 
+  @Override
+  public List<ExecutableFlowSummary> fetchFlowHistorySummaries(final int skip, final int num)
+      throws ExecutorManagerException {
+    return this.executionFlowDao.fetchFlowHistorySummaries(skip, num);
+  }
+
+  @Override
+  public List<ExecutableFlowSummary> fetchFlowHistorySummaries(final int projectId,
+      final String flowId, final int skip, final int num) throws ExecutorManagerException {
+    return this.executionFlowDao.fetchFlowHistorySummaries(projectId, flowId, skip, num);
+  }
+
+  @Override
+  public List<ExecutableFlowSummary> fetchFlowHistorySummaries(final String projContain,
+      final String flowContains, final String userNameContains, final int status,
+      final long startTime, final long endTime, final int skip, final int num)
+      throws ExecutorManagerException {
+    return this.executionFlowDao.fetchFlowHistorySummaries(projContain, flowContains,
+        userNameContains, status, startTime, endTime, skip, num);
+  }
+
   @Override
   public void addActiveExecutableReference(final ExecutionReference reference)
       throws ExecutorManagerException {
@@ -205,6 +267,12 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     this.executionJobDao.updateExecutableNode(node);
   }
 
+  @Override
+  public void updateExecutableNodes(final List<ExecutableNodeUpdate> nodes)
+      throws ExecutorManagerException {
+    this.executionJobDao.updateExecutableNodes(nodes);
+  }
+
   @Override
   public List<ExecutableJobInfo> fetchJobInfoAttempts(final int execId, final String jobId)
       throws ExecutorManagerException {
@@ -253,6 +321,13 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     return this.executionLogsDao.fetchLogs(execId, name, attempt, startByte, length);
   }
 
+  @Override
+  public int streamLogs(final int execId, final String name, final int attempt,
+      final int startByte, final int length, final OutputStream out)
+      throws ExecutorManagerException {
+    return this.executionLogsDao.streamLogs(execId, name, attempt, startByte, length, out);
+  }
+
   @Override
   public List<Object> fetchAttachments(final int execId, final String jobId, final int attempt)
       throws ExecutorManagerException {
@@ -352,6 +427,13 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     return this.executionFlowDao.selectAndUpdateExecution(executorId, isActive);
   }
 
+  @Override
+  public List<Integer> selectAndUpdateExecutions(final int executorId, final boolean isActive,
+      final int maxExecutions, final boolean skipLocked) throws ExecutorManagerException {
+    return this.executionFlowDao.selectAndUpdateExecutions(executorId, isActive, maxExecutions,
+        skipLocked);
+  }
+
   @Override
   public void unsetExecutorIdForExecution(final int executionId) throws ExecutorManagerException {
     this.executionFlowDao.unsetExecutorIdForExecution(executionId);
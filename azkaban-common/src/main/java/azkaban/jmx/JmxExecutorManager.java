@@ -30,7 +30,7 @@ public class JmxExecutorManager implements JmxExecutorManagerMBean {
 
   @Override
   public int getNumRunningFlows() {
-    return this.manager.getRunningFlows().size();
+    return this.manager.getRunningFlowCount();
   }
 
   @Override
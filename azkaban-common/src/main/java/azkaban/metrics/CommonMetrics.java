@@ -19,6 +19,8 @@ package azkaban.metrics;
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -39,6 +41,9 @@ public class CommonMetrics {
   public static final String SUBMIT_FLOW_SKIP_METER_NAME = "submit-flow-skip-meter";
   public static final String OOM_WAITING_JOB_COUNT_NAME = "OOM-waiting-job-count";
   public static final String QUEUE_WAIT_HISTOGRAM_NAME = "queue-wait-histogram";
+  public static final String TRIGGER_UPDATE_FLUSH_TIMER_NAME = "trigger-update-flush-timer";
+  public static final String TRIGGER_UPDATE_BATCH_SIZE_HISTOGRAM_NAME =
+      "trigger-update-batch-size-histogram";
 
   private Counter OOMWaitingJobCount;
   private final MetricsManager metricsManager;
@@ -51,6 +56,8 @@ public class CommonMetrics {
   private Meter submitFlowFailMeter;
   private Meter submitFlowSkipMeter;
   private Histogram queueWaitMeter;
+  private Timer triggerUpdateFlushTimer;
+  private Histogram triggerUpdateBatchSize;
 
   @Inject
   public CommonMetrics(final MetricsManager metricsManager) {
@@ -69,6 +76,9 @@ public class CommonMetrics {
     this.submitFlowSkipMeter = this.metricsManager.addMeter(SUBMIT_FLOW_SKIP_METER_NAME);
     this.OOMWaitingJobCount = this.metricsManager.addCounter(OOM_WAITING_JOB_COUNT_NAME);
     this.queueWaitMeter = this.metricsManager.addHistogram(QUEUE_WAIT_HISTOGRAM_NAME);
+    this.triggerUpdateFlushTimer = this.metricsManager.addTimer(TRIGGER_UPDATE_FLUSH_TIMER_NAME);
+    this.triggerUpdateBatchSize = this.metricsManager
+        .addHistogram(TRIGGER_UPDATE_BATCH_SIZE_HISTOGRAM_NAME);
   }
 
   /**
@@ -150,4 +160,15 @@ public class CommonMetrics {
   public void addQueueWait(final long time) {
     this.queueWaitMeter.update(time);
   }
+
+  /**
+   * Add the latency and size of a batch of trigger updates written to the DB.
+   *
+   * @param nanos time the batch took to be written.
+   * @param batchSize number of triggers in the batch.
+   */
+  public void addTriggerUpdateFlush(final long nanos, final int batchSize) {
+    this.triggerUpdateFlushTimer.update(nanos, TimeUnit.NANOSECONDS);
+    this.triggerUpdateBatchSize.update(batchSize);
+  }
 }
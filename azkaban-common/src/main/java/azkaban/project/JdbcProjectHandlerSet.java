@@ -25,11 +25,16 @@ import azkaban.utils.Props;
 import azkaban.utils.PropsUtils;
 import azkaban.utils.Triple;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.apache.commons.dbutils.ResultSetHandler;
 
 
@@ -158,23 +163,8 @@ class JdbcProjectHandlerSet {
           continue;
         }
 
-        final EncodingType encType = EncodingType.fromInteger(encodingType);
-
-        Object flowObj = null;
         try {
-          // Convoluted way to inflate strings. Should find common package or
-          // helper function.
-          if (encType == EncodingType.GZIP) {
-            // Decompress the sucker.
-            final String jsonString = GZIPUtils.unGzipString(dataBytes, "UTF-8");
-            flowObj = JSONUtils.parseJSONFromString(jsonString);
-          } else {
-            final String jsonString = new String(dataBytes, "UTF-8");
-            flowObj = JSONUtils.parseJSONFromString(jsonString);
-          }
-
-          final Flow flow = Flow.flowFromObject(flowObj);
-          flows.add(flow);
+          flows.add(parseFlow(encodingType, dataBytes));
         } catch (final IOException e) {
           throw new SQLException("Error retrieving flow data " + flowId, e);
         }
@@ -182,6 +172,68 @@ class JdbcProjectHandlerSet {
 
       return flows;
     }
+
+    static Flow parseFlow(final int encodingType, final byte[] dataBytes) throws IOException {
+      final EncodingType encType = EncodingType.fromInteger(encodingType);
+
+      Object flowObj = null;
+      // Convoluted way to inflate strings. Should find common package or
+      // helper function.
+      if (encType == EncodingType.GZIP) {
+        // Decompress the sucker.
+        final String jsonString = GZIPUtils.unGzipString(dataBytes, "UTF-8");
+        flowObj = JSONUtils.parseJSONFromString(jsonString);
+      } else {
+        final String jsonString = new String(dataBytes, "UTF-8");
+        flowObj = JSONUtils.parseJSONFromString(jsonString);
+      }
+
+      return Flow.flowFromObject(flowObj);
+    }
+  }
+
+  /**
+   * Reads the flows of the current versions of all active projects and hands each one to the
+   * executor to be parsed, so that they are parsed while the rest are read.
+   */
+  public static class ActiveProjectFlowsResultHandler implements
+      ResultSetHandler<Map<Integer, List<CompletableFuture<Flow>>>> {
+
+    public static String SELECT_ALL_ACTIVE_PROJECT_FLOWS =
+        "SELECT pf.project_id, pf.flow_id, pf.encoding_type, pf.json FROM project_flows pf "
+            + "JOIN projects p ON pf.project_id=p.id AND pf.version=p.version WHERE p.active=true";
+
+    private final Executor parsingExecutor;
+
+    public ActiveProjectFlowsResultHandler(final Executor parsingExecutor) {
+      this.parsingExecutor = parsingExecutor;
+    }
+
+    @Override
+    public Map<Integer, List<CompletableFuture<Flow>>> handle(final ResultSet rs)
+        throws SQLException {
+      final Map<Integer, List<CompletableFuture<Flow>>> flows = new HashMap<>();
+      while (rs.next()) {
+        final int projectId = rs.getInt(1);
+        final String flowId = rs.getString(2);
+        final int encodingType = rs.getInt(3);
+        final byte[] dataBytes = rs.getBytes(4);
+
+        if (dataBytes == null) {
+          continue;
+        }
+
+        flows.computeIfAbsent(projectId, id -> new ArrayList<>())
+            .add(CompletableFuture.supplyAsync(() -> {
+              try {
+                return ProjectFlowsResultHandler.parseFlow(encodingType, dataBytes);
+              } catch (final IOException e) {
+                throw new UncheckedIOException("Error retrieving flow data " + flowId, e);
+              }
+            }, this.parsingExecutor));
+      }
+      return flows;
+    }
   }
 
   public static class ProjectPropertiesResultsHandler implements
@@ -15,8 +15,8 @@
  */
 package azkaban.project;
 
+import static azkaban.project.JdbcProjectHandlerSet.ActiveProjectFlowsResultHandler;
 import static azkaban.project.JdbcProjectHandlerSet.IntHandler;
-import static azkaban.project.JdbcProjectHandlerSet.ProjectFileChunkResultHandler;
 import static azkaban.project.JdbcProjectHandlerSet.ProjectFlowsResultHandler;
 import static azkaban.project.JdbcProjectHandlerSet.ProjectLogsResultHandler;
 import static azkaban.project.JdbcProjectHandlerSet.ProjectPermissionsResultHandler;
@@ -37,23 +37,36 @@ import azkaban.user.User;
 import azkaban.utils.GZIPUtils;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Md5Hasher;
+import azkaban.utils.Md5VerifyingInputStream;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import azkaban.utils.PropsUtils;
 import azkaban.utils.Triple;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -77,6 +90,10 @@ public class JdbcProjectImpl implements ProjectLoader {
   private final DatabaseOperator dbOperator;
   private final File tempDir;
   private final EncodingType defaultEncodingType = EncodingType.GZIP;
+  // Read the chunks of uploads ahead of their inserts
+  private final ExecutorService chunkReaders = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("azk-project-chunk-reader-%d").setDaemon(true)
+          .build());
 
   @Inject
   public JdbcProjectImpl(final Props props, final DatabaseOperator databaseOperator) {
@@ -260,16 +277,18 @@ public class JdbcProjectImpl implements ProjectLoader {
      */
     final SQLTransaction<Integer> uploadProjectFileTransaction = transOperator -> {
 
-      /* Step 1: Update DB with new project info */
-      addProjectToProjectVersions(transOperator, projectId, version, localFile, uploader,
-          computeHash(localFile), null);
+      /* Step 1: Update DB with new project info. The hash is computed while uploading. */
+      addProjectToProjectVersions(transOperator, projectId, version, localFile, uploader, null,
+          null);
       transOperator.getConnection().commit();
 
       /* Step 2: Upload File in chunks to DB */
-      final int chunks = uploadFileInChunks(transOperator, projectId, version, localFile);
+      final Pair<Integer, byte[]> chunksAndHash = uploadFileInChunks(transOperator, projectId,
+          version, localFile);
 
-      /* Step 3: Update number of chunks in DB */
-      updateChunksInProjectVersions(transOperator, projectId, version, chunks);
+      /* Step 3: Update number of chunks and hash in DB */
+      updateChunksInProjectVersions(transOperator, projectId, version,
+          chunksAndHash.getFirst(), chunksAndHash.getSecond());
       return 1;
     };
 
@@ -287,19 +306,6 @@ public class JdbcProjectImpl implements ProjectLoader {
   }
 
 
-  private byte[] computeHash(final File localFile) {
-    logger.info("Creating message digest for upload " + localFile.getName());
-    final byte[] md5;
-    try {
-      md5 = Md5Hasher.md5Hash(localFile);
-    } catch (final IOException e) {
-      throw new ProjectManagerException("Error getting md5 hash.", e);
-    }
-
-    logger.info("Md5 hash created");
-    return md5;
-  }
-
   @Override
   public void addProjectVersion(
       final int projectId,
@@ -369,29 +375,35 @@ public class JdbcProjectImpl implements ProjectLoader {
     }
   }
 
-  private int uploadFileInChunks(final DatabaseTransOperator transOperator, final int projectId,
-      final int version, final File localFile)
+  /**
+   * Uploads the file in chunks, each committed on its own. The next chunk is read and hashed by
+   * chunkReaders while the current one is inserted, so that reading the file overlaps with the
+   * inserts instead of adding to them.
+   *
+   * @return the number of chunks and the MD5 hash of the file
+   */
+  private Pair<Integer, byte[]> uploadFileInChunks(final DatabaseTransOperator transOperator,
+      final int projectId, final int version, final File localFile)
       throws ProjectManagerException {
 
-    // Really... I doubt we'll get a > 2gig file. So int casting it is!
-    final byte[] buffer = new byte[CHUCK_SIZE];
     final String INSERT_PROJECT_FILES =
         "INSERT INTO project_files (project_id, version, chunk, size, file) values (?,?,?,?,?)";
 
-    BufferedInputStream bufferedStream = null;
+    final MessageDigest digest = Md5Hasher.getMd5Digest();
+    // Chunks are read into one buffer while the other one is inserted
+    final byte[][] buffers = {new byte[CHUCK_SIZE], new byte[CHUCK_SIZE]};
+    Future<byte[]> nextChunk = null;
     int chunk = 0;
-    try {
-      bufferedStream = new BufferedInputStream(new FileInputStream(localFile));
-      int size = bufferedStream.read(buffer);
-      while (size >= 0) {
-        logger.info("Read bytes for " + localFile.getName() + " size:" + size);
-        byte[] buf = buffer;
-        if (size < buffer.length) {
-          buf = Arrays.copyOfRange(buffer, 0, size);
-        }
+    try (InputStream stream = new FileInputStream(localFile)) {
+      nextChunk = this.chunkReaders.submit(() -> readChunk(stream, buffers[0], digest));
+      byte[] data;
+      while ((data = nextChunk.get()) != null) {
+        final byte[] nextBuffer = buffers[(chunk + 1) % 2];
+        nextChunk = this.chunkReaders.submit(() -> readChunk(stream, nextBuffer, digest));
         try {
           logger.info("Running update for " + localFile.getName() + " chunk " + chunk);
-          transOperator.update(INSERT_PROJECT_FILES, projectId, version, chunk, size, buf);
+          transOperator.update(INSERT_PROJECT_FILES, projectId, version, chunk, data.length,
+              data);
 
           /*
            * We enforce az committing to db when uploading every single chunk,
@@ -406,31 +418,50 @@ public class JdbcProjectImpl implements ProjectLoader {
           throw new ProjectManagerException("Error Chunking during uploading files to db...");
         }
         ++chunk;
-        size = bufferedStream.read(buffer);
       }
-    } catch (final IOException e) {
+    } catch (final IOException | ExecutionException e) {
       throw new ProjectManagerException(
           String.format(
               "Error chunking file. projectId: %d, version: %d, file:%s[%d bytes], chunk: %d",
               projectId,
-              version, localFile.getName(), localFile.length(), chunk));
+              version, localFile.getName(), localFile.length(), chunk), e);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProjectManagerException("Interrupted while uploading " + localFile.getName(), e);
     } finally {
-      IOUtils.closeQuietly(bufferedStream);
+      if (nextChunk != null) {
+        nextChunk.cancel(true);
+      }
+    }
+    return new Pair<>(chunk, digest.digest());
+  }
+
+  /**
+   * Reads the next chunk of the stream and adds it to the digest.
+   *
+   * @return the chunk, null at the end of the stream
+   */
+  private static byte[] readChunk(final InputStream stream, final byte[] buffer,
+      final MessageDigest digest) throws IOException {
+    final int size = IOUtils.read(stream, buffer);
+    if (size == 0) {
+      return null;
     }
-    return chunk;
+    digest.update(buffer, 0, size);
+    return size < buffer.length ? Arrays.copyOf(buffer, size) : buffer;
   }
 
   /**
-   * we update num_chunks's actual number to db here.
+   * we update num_chunks's actual number and the md5 hash to db here.
    */
   private void updateChunksInProjectVersions(final DatabaseTransOperator transOperator,
-      final int projectId, final int version, final int chunk)
+      final int projectId, final int version, final int chunk, final byte[] md5)
       throws ProjectManagerException {
 
     final String UPDATE_PROJECT_NUM_CHUNKS =
-        "UPDATE project_versions SET num_chunks=? WHERE project_id=? AND version=?";
+        "UPDATE project_versions SET num_chunks=?, md5=? WHERE project_id=? AND version=?";
     try {
-      transOperator.update(UPDATE_PROJECT_NUM_CHUNKS, chunk, projectId, version);
+      transOperator.update(UPDATE_PROJECT_NUM_CHUNKS, chunk, md5, projectId, version);
       transOperator.getConnection().commit();
     } catch (final SQLException e) {
       logger.error("Error updating project " + projectId + " : chunk_num " + chunk, e);
@@ -465,80 +496,50 @@ public class JdbcProjectImpl implements ProjectLoader {
     if (projHandler == null) {
       return null;
     }
-    final int numChunks = projHandler.getNumChunks();
-    if (numChunks <= 0) {
-      throw new ProjectManagerException(String.format("Got numChunks=%s for version %s of project "
-              + "%s - seems like this version has been cleaned up already, because enough newer "
-              + "versions have been uploaded. To increase the retention of project versions, set "
-              + "%s", numChunks, version, projectId,
-          ConfigurationKeys.PROJECT_VERSION_RETENTION));
-    }
-    BufferedOutputStream bStream = null;
-    File file;
+    final InputStream stream = getUploadedFileStream(projHandler);
+    final File file;
     try {
-      try {
-        file = File
-            .createTempFile(projHandler.getFileName(), String.valueOf(version), this.tempDir);
-        bStream = new BufferedOutputStream(new FileOutputStream(file));
-      } catch (final IOException e) {
-        throw new ProjectManagerException("Error creating temp file for stream.");
-      }
-
-      final int collect = 5;
-      int fromChunk = 0;
-      int toChunk = collect;
-      do {
-        final ProjectFileChunkResultHandler chunkHandler = new ProjectFileChunkResultHandler();
-        List<byte[]> data = null;
-        try {
-          data = this.dbOperator
-              .query(ProjectFileChunkResultHandler.SELECT_PROJECT_CHUNKS_FILE, chunkHandler,
-                  projectId,
-                  version, fromChunk, toChunk);
-        } catch (final SQLException e) {
-          logger.error(e);
-          throw new ProjectManagerException("Query for uploaded file for " + projectId + " failed.",
-              e);
-        }
-
-        try {
-          for (final byte[] d : data) {
-            bStream.write(d);
-          }
-        } catch (final IOException e) {
-          throw new ProjectManagerException("Error writing file", e);
-        }
-
-        // Add all the bytes to the stream.
-        fromChunk += collect;
-        toChunk += collect;
-      } while (fromChunk <= numChunks);
-    } finally {
-      IOUtils.closeQuietly(bStream);
-    }
-
-    // Check md5.
-    final byte[] md5;
-    try {
-      md5 = Md5Hasher.md5Hash(file);
+      file = File
+          .createTempFile(projHandler.getFileName(), String.valueOf(version), this.tempDir);
     } catch (final IOException e) {
-      throw new ProjectManagerException("Error getting md5 hash.", e);
+      IOUtils.closeQuietly(stream);
+      throw new ProjectManagerException("Error creating temp file for stream.");
     }
 
-    if (Arrays.equals(projHandler.getMd5Hash(), md5)) {
-      logger.info("Md5 Hash is valid");
-    } else {
-      throw new ProjectManagerException(
-          String.format("Md5 Hash failed on project %s version %s retrieval of file %s. "
-                  + "Expected hash: %s , got hash: %s",
-              projHandler.getProjectId(), projHandler.getVersion(), file.getAbsolutePath(),
-              Arrays.toString(projHandler.getMd5Hash()), Arrays.toString(md5)));
+    // The hash is checked as the last chunk is read
+    try (InputStream in = stream;
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+      IOUtils.copy(in, out);
+    } catch (final IOException e) {
+      file.delete();
+      throw new ProjectManagerException(String.format(
+          "Error retrieving file of project %s version %s", projectId, version), e);
     }
+    logger.info("Md5 Hash is valid");
 
     projHandler.setLocalFile(file);
     return projHandler;
   }
 
+  @Override
+  public InputStream getUploadedFileStream(final ProjectFileHandler projectFile)
+      throws ProjectManagerException {
+    final int numChunks = projectFile.getNumChunks();
+    if (numChunks <= 0) {
+      throw new ProjectManagerException(String.format("Got numChunks=%s for version %s of project "
+              + "%s - seems like this version has been cleaned up already, because enough newer "
+              + "versions have been uploaded. To increase the retention of project versions, set "
+              + "%s", numChunks, projectFile.getVersion(), projectFile.getProjectId(),
+          ConfigurationKeys.PROJECT_VERSION_RETENTION));
+    }
+    return new Md5VerifyingInputStream(
+        new ProjectFileChunkInputStream(this.dbOperator, projectFile.getProjectId(),
+            projectFile.getVersion(), numChunks),
+        projectFile.getMd5Hash(),
+        String.format("project %s version %s file %s", projectFile.getProjectId(),
+            projectFile.getVersion(), projectFile.getFileName()));
+  }
+
   @Override
   public void changeProjectVersion(final Project project, final int version, final String user)
       throws ProjectManagerException {
@@ -827,6 +828,33 @@ public class JdbcProjectImpl implements ProjectLoader {
     return flows;
   }
 
+  @Override
+  public Map<Integer, List<Flow>> fetchAllActiveProjectFlows(final Executor parsingExecutor)
+      throws ProjectManagerException {
+    final Map<Integer, List<CompletableFuture<Flow>>> parsing;
+    try {
+      parsing = this.dbOperator
+          .query(ActiveProjectFlowsResultHandler.SELECT_ALL_ACTIVE_PROJECT_FLOWS,
+              new ActiveProjectFlowsResultHandler(parsingExecutor));
+    } catch (final SQLException e) {
+      throw new ProjectManagerException("Error fetching flows of active projects", e);
+    }
+
+    final Map<Integer, List<Flow>> flows = new HashMap<>();
+    try {
+      for (final Map.Entry<Integer, List<CompletableFuture<Flow>>> entry : parsing.entrySet()) {
+        final List<Flow> projectFlows = new ArrayList<>(entry.getValue().size());
+        for (final CompletableFuture<Flow> flow : entry.getValue()) {
+          projectFlows.add(flow.join());
+        }
+        flows.put(entry.getKey(), projectFlows);
+      }
+    } catch (final CompletionException e) {
+      throw new ProjectManagerException("Error parsing flows of active projects", e.getCause());
+    }
+    return flows;
+  }
+
   @Override
   public void uploadProjectProperties(final Project project, final List<Props> properties)
       throws ProjectManagerException {
@@ -48,6 +48,8 @@ public class Project {
   private String lastModifiedUser;
   private String source;
   private Map<String, Flow> flows = new HashMap<>();
+  // Set when the flows are loaded on access instead of being kept in the project
+  private volatile ProjectFlowCache flowCache = null;
   private Map<String, Object> metadata = new HashMap<>();
 
   public Project(final int id, final String name) {
@@ -107,21 +109,24 @@ public class Project {
   }
 
   public Flow getFlow(final String flowId) {
-    if (this.flows == null) {
+    final Map<String, Flow> flows = getFlowMap();
+    if (flows == null) {
       return null;
     }
 
-    return this.flows.get(flowId);
+    return flows.get(flowId);
   }
 
   public Map<String, Flow> getFlowMap() {
-    return this.flows;
+    final ProjectFlowCache cache = this.flowCache;
+    return cache == null ? this.flows : cache.getFlows(this);
   }
 
   public List<Flow> getFlows() {
+    final Map<String, Flow> flows = getFlowMap();
     List<Flow> retFlow = null;
-    if (this.flows != null) {
-      retFlow = new ArrayList<>(this.flows.values());
+    if (flows != null) {
+      retFlow = new ArrayList<>(flows.values());
     } else {
       retFlow = new ArrayList<>();
     }
@@ -129,7 +134,20 @@ public class Project {
   }
 
   public void setFlows(final Map<String, Flow> flows) {
-    this.flows = ImmutableMap.copyOf(flows);
+    final ProjectFlowCache cache = this.flowCache;
+    if (cache == null) {
+      this.flows = ImmutableMap.copyOf(flows);
+    } else {
+      cache.putFlows(this, ImmutableMap.copyOf(flows));
+    }
+  }
+
+  /**
+   * Loads the flows of this project from the cache, on first access, instead of keeping them.
+   */
+  public void setFlowCache(final ProjectFlowCache flowCache) {
+    this.flowCache = flowCache;
+    this.flows = null;
   }
 
   public Permission getCollectivePermission(final User user) {
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.project;
+
+import static azkaban.project.JdbcProjectHandlerSet.ProjectFileChunkResultHandler;
+
+import azkaban.db.DatabaseOperator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reads an uploaded project file from its chunks in project_files, fetching one chunk at a time
+ * as the previous one is consumed. Only one chunk is held in memory.
+ */
+class ProjectFileChunkInputStream extends InputStream {
+
+  private final DatabaseOperator dbOperator;
+  private final int projectId;
+  private final int version;
+  private final int numChunks;
+
+  private int nextChunk = 0;
+  private byte[] data = new byte[0];
+  private int pos = 0;
+
+  ProjectFileChunkInputStream(final DatabaseOperator dbOperator, final int projectId,
+      final int version, final int numChunks) {
+    this.dbOperator = dbOperator;
+    this.projectId = projectId;
+    this.version = version;
+    this.numChunks = numChunks;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!fill()) {
+      return -1;
+    }
+    return this.data[this.pos++] & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!fill()) {
+      return -1;
+    }
+    final int n = Math.min(len, this.data.length - this.pos);
+    System.arraycopy(this.data, this.pos, b, off, n);
+    this.pos += n;
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return this.data.length - this.pos;
+  }
+
+  @Override
+  public void close() {
+    this.data = new byte[0];
+    this.pos = 0;
+    this.nextChunk = this.numChunks;
+  }
+
+  /**
+   * @return false at the end of the file, else true with at least one byte left in data
+   */
+  private boolean fill() throws IOException {
+    while (this.pos == this.data.length) {
+      if (this.nextChunk >= this.numChunks) {
+        return false;
+      }
+      final List<byte[]> chunks;
+      try {
+        chunks = this.dbOperator.query(ProjectFileChunkResultHandler.SELECT_PROJECT_CHUNKS_FILE,
+            new ProjectFileChunkResultHandler(), this.projectId, this.version, this.nextChunk,
+            this.nextChunk + 1);
+      } catch (final SQLException e) {
+        throw new IOException(String.format("Failed to fetch chunk %d of project %d version %d",
+            this.nextChunk, this.projectId, this.version), e);
+      }
+      if (chunks.isEmpty()) {
+        throw new IOException(String.format("Chunk %d of project %d version %d is missing",
+            this.nextChunk, this.projectId, this.version));
+      }
+      this.data = chunks.get(0);
+      this.pos = 0;
+      this.nextChunk++;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.project;
+
+import azkaban.flow.Flow;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Flows of the projects whose flows are loaded on first access instead of at startup, so that the
+ * heap holds the flows of the projects in use rather than of all the projects.
+ *
+ * <p>The cache is bounded by the total number of nodes of the cached flows, since that's what
+ * their size grows with. Least recently used projects are evicted first. Cached flows are
+ * reloaded when the version of their project changes.
+ */
+public class ProjectFlowCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(ProjectFlowCache.class);
+
+  private final ProjectLoader projectLoader;
+  private final Cache<Integer, VersionedFlows> cache;
+
+  public ProjectFlowCache(final ProjectLoader projectLoader, final long maxNodes) {
+    this.projectLoader = projectLoader;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxNodes)
+        .weigher((final Integer projectId, final VersionedFlows flows) -> flows.numNodes)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * @return the flows of the current version of the project, loaded if they aren't cached
+   */
+  Map<String, Flow> getFlows(final Project project) {
+    try {
+      VersionedFlows flows = this.cache.get(project.getId(), () -> load(project));
+      if (flows.version != project.getVersion()) {
+        // Uploaded since, or the project was loaded before the upload
+        this.cache.asMap().remove(project.getId(), flows);
+        flows = this.cache.get(project.getId(), () -> load(project));
+      }
+      return flows.flows;
+    } catch (final ExecutionException | UncheckedExecutionException e) {
+      throw new RuntimeException("Could not load flows of project " + project.getName(),
+          e.getCause());
+    }
+  }
+
+  /**
+   * Caches the flows of a new version of the project, e.g. after an upload.
+   */
+  void putFlows(final Project project, final Map<String, Flow> flows) {
+    this.cache.put(project.getId(), new VersionedFlows(project.getVersion(), flows));
+  }
+
+  public CacheStats getStats() {
+    return this.cache.stats();
+  }
+
+  public long size() {
+    return this.cache.size();
+  }
+
+  private VersionedFlows load(final Project project) throws ProjectManagerException {
+    final int version = project.getVersion();
+    final List<Flow> flows = this.projectLoader.fetchAllProjectFlows(project);
+    final Map<String, Flow> flowMap = new HashMap<>();
+    for (final Flow flow : flows) {
+      flowMap.put(flow.getId(), flow);
+    }
+    logger.debug("Loaded {} flows of project {} version {}.", flows.size(), project.getName(),
+        version);
+    return new VersionedFlows(version, ImmutableMap.copyOf(flowMap));
+  }
+
+  private static class VersionedFlows {
+
+    private final int version;
+    private final Map<String, Flow> flows;
+    private final int numNodes;
+
+    private VersionedFlows(final int version, final Map<String, Flow> flows) {
+      this.version = version;
+      this.flows = flows;
+      int numNodes = 1;
+      for (final Flow flow : flows.values()) {
+        numNodes += flow.getNodes().size();
+      }
+      this.numNodes = numNodes;
+    }
+  }
+}
@@ -24,9 +24,11 @@ import azkaban.utils.Props;
 import azkaban.utils.Triple;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 public interface ProjectLoader {
 
@@ -122,6 +124,15 @@ public interface ProjectLoader {
   ProjectFileHandler getUploadedFile(int projectId, int version)
       throws ProjectManagerException;
 
+  /**
+   * Streams an uploaded file without storing it locally. The stream verifies the MD5 hash of the
+   * file once it's read to its end.
+   *
+   * @param projectFile the metadata of the file, see {@link #fetchProjectMetaData(int, int)}
+   */
+  InputStream getUploadedFileStream(ProjectFileHandler projectFile)
+      throws ProjectManagerException;
+
   /**
    * Changes and commits different project version.
    */
@@ -155,6 +166,15 @@ public interface ProjectLoader {
   List<Flow> fetchAllProjectFlows(Project project)
       throws ProjectManagerException;
 
+  /**
+   * Fetches the flows of the current versions of all active projects in one query. The flows are
+   * parsed on the executor.
+   *
+   * @return the flows by project id
+   */
+  Map<Integer, List<Flow>> fetchAllActiveProjectFlows(Executor parsingExecutor)
+      throws ProjectManagerException;
+
   /**
    * Gets the latest upload version.
    */
@@ -19,6 +19,7 @@ package azkaban.project;
 import static java.util.Objects.requireNonNull;
 
 import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.flow.Flow;
 import azkaban.project.ProjectLogEvent.EventType;
@@ -27,20 +28,26 @@ import azkaban.project.validator.ValidatorConfigs;
 import azkaban.project.validator.XmlValidatorManager;
 import azkaban.storage.StorageManager;
 import azkaban.user.Permission;
-import azkaban.user.Permission.Type;
 import azkaban.user.User;
 import azkaban.utils.CaseInsensitiveConcurrentHashMap;
 import azkaban.utils.Props;
 import azkaban.utils.PropsUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import javax.inject.Inject;
@@ -57,13 +64,18 @@ public class ProjectManager {
   private final ProjectLoader projectLoader;
   private final Props props;
   private final boolean creatorDefaultPermissions;
+  // Set when flows are loaded on first access instead of at startup
+  private final ProjectFlowCache flowCache;
   // Both projectsById and projectsByName cache need to be thread safe since they are accessed
   // from multiple threads concurrently without external synchronization for performance.
   private final ConcurrentHashMap<Integer, Project> projectsById =
       new ConcurrentHashMap<>();
   private final CaseInsensitiveConcurrentHashMap<Project> projectsByName =
       new CaseInsensitiveConcurrentHashMap<>();
-
+  // Projects readable by each user and group, updated along with the permissions
+  private final ProjectPermissionIndex permissionIndex = new ProjectPermissionIndex();
+  private final Cache<String, Pattern> patternCache =
+      CacheBuilder.newBuilder().maximumSize(1000).build();
 
   @Inject
   public ProjectManager(final AzkabanProjectLoader azkabanProjectLoader,
@@ -76,6 +88,13 @@ public class ProjectManager {
 
     this.creatorDefaultPermissions =
         props.getBoolean("creator.default.proxy", true);
+    if (props.getBoolean(ConfigurationKeys.PROJECT_FLOWS_LAZY_LOAD, false)) {
+      this.flowCache = new ProjectFlowCache(loader, props.getLong(
+          ConfigurationKeys.PROJECT_FLOWS_CACHE_MAX_NODES,
+          Constants.DEFAULT_PROJECT_FLOWS_CACHE_MAX_NODES));
+    } else {
+      this.flowCache = null;
+    }
 
     // The prop passed to XmlValidatorManager is used to initialize all the
     // validators
@@ -129,26 +148,50 @@ public class ProjectManager {
     for (final Project proj : projects) {
       this.projectsByName.put(proj.getName(), proj);
       this.projectsById.put(proj.getId(), proj);
+      this.permissionIndex.addProject(proj);
     }
 
-    logger.info("Loading flows from active projects.");
-    for (final Project proj : projects) {
-      loadAllProjectFlows(proj);
+    if (this.flowCache != null) {
+      logger.info("Flows of active projects will be loaded on first access.");
+      for (final Project proj : projects) {
+        proj.setFlowCache(this.flowCache);
+      }
+      return;
     }
-  }
 
-  private void loadAllProjectFlows(final Project project) {
+    logger.info("Loading flows from active projects.");
+    final long start = System.currentTimeMillis();
+    final ExecutorService parsingExecutor = Executors.newFixedThreadPool(
+        this.props.getInt(ConfigurationKeys.PROJECT_FLOWS_LOAD_THREADS,
+            Constants.DEFAULT_PROJECT_FLOWS_LOAD_THREADS),
+        new ThreadFactoryBuilder().setNameFormat("azk-project-flow-loader-%d").setDaemon(true)
+            .build());
     try {
-      final List<Flow> flows = this.projectLoader.fetchAllProjectFlows(project);
-      final Map<String, Flow> flowMap = new HashMap<>();
-      for (final Flow flow : flows) {
-        flowMap.put(flow.getId(), flow);
+      final Map<Integer, List<Flow>> flowsByProject =
+          this.projectLoader.fetchAllActiveProjectFlows(parsingExecutor);
+      for (final Project proj : projects) {
+        final Map<String, Flow> flowMap = new HashMap<>();
+        for (final Flow flow : flowsByProject.getOrDefault(proj.getId(),
+            Collections.emptyList())) {
+          flowMap.put(flow.getId(), flow);
+        }
+        proj.setFlows(flowMap);
       }
-
-      project.setFlows(flowMap);
     } catch (final ProjectManagerException e) {
       throw new RuntimeException("Could not load projects flows from store.", e);
+    } finally {
+      parsingExecutor.shutdown();
     }
+    logger.info("Loaded flows of {} active projects in {} ms.", projects.size(),
+        System.currentTimeMillis() - start);
+  }
+
+  /**
+   * @return the cache of flows when they are loaded on first access, empty when the flows of all
+   * projects are loaded at startup
+   */
+  public Optional<ProjectFlowCache> getFlowCache() {
+    return Optional.ofNullable(this.flowCache);
   }
 
   public Props getProps() {
@@ -156,51 +199,79 @@ public class ProjectManager {
   }
 
   public List<Project> getUserProjects(final User user) {
-    final ArrayList<Project> array = new ArrayList<>();
-    for (final Project project : this.projectsById.values()) {
-      final Permission perm = project.getUserPermission(user);
-
-      if (perm != null
-          && (perm.isPermissionSet(Type.ADMIN) || perm
-          .isPermissionSet(Type.READ))) {
-        array.add(project);
-      }
-    }
-    return array;
+    return getUserProjects(user, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return a page of the projects the user can read through a user permission, ordered by id
+   */
+  public List<Project> getUserProjects(final User user, final int offset, final int limit) {
+    return getProjectsPage(this.permissionIndex.getUserProjectIds(user.getUserId()), null,
+        offset, limit);
   }
 
   public List<Project> getGroupProjects(final User user) {
-    final List<Project> array = new ArrayList<>();
-    for (final Project project : this.projectsById.values()) {
-      if (project.hasGroupPermission(user, Type.READ)) {
-        array.add(project);
-      }
-    }
-    return array;
+    return getGroupProjects(user, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return a page of the projects any group of the user can read, ordered by id
+   */
+  public List<Project> getGroupProjects(final User user, final int offset, final int limit) {
+    return getProjectsPage(this.permissionIndex.getGroupProjectIds(user.getGroups()), null,
+        offset, limit);
   }
 
   public List<Project> getUserProjectsByRegex(final User user, final String regexPattern) {
-    final List<Project> array = new ArrayList<>();
+    return getUserProjectsByRegex(user, regexPattern, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return a page of the projects the user can read through a user permission and whose name
+   * matches the pattern, ordered by id
+   */
+  public List<Project> getUserProjectsByRegex(final User user, final String regexPattern,
+      final int offset, final int limit) {
     final Pattern pattern;
     try {
-      pattern = Pattern.compile(regexPattern, Pattern.CASE_INSENSITIVE);
+      pattern = getPattern(regexPattern);
     } catch (final PatternSyntaxException e) {
       logger.error("Bad regex pattern {}", regexPattern);
-      return array;
+      return new ArrayList<>();
     }
+    return getProjectsPage(this.permissionIndex.getUserProjectIds(user.getUserId()), pattern,
+        offset, limit);
+  }
 
-    for (final Project project : this.projectsById.values()) {
-      final Permission perm = project.getUserPermission(user);
-
-      if (perm != null
-          && (perm.isPermissionSet(Type.ADMIN) || perm
-          .isPermissionSet(Type.READ))) {
-        if (pattern.matcher(project.getName()).find()) {
-          array.add(project);
-        }
+  private List<Project> getProjectsPage(final Collection<Integer> projectIds,
+      final Pattern namePattern, final int offset, final int limit) {
+    final List<Project> page = new ArrayList<>(Math.min(limit, projectIds.size()));
+    int skipped = 0;
+    for (final Integer id : projectIds) {
+      if (page.size() >= limit) {
+        break;
+      }
+      final Project project = this.projectsById.get(id);
+      if (project == null
+          || (namePattern != null && !namePattern.matcher(project.getName()).find())) {
+        continue;
+      }
+      if (skipped < offset) {
+        skipped++;
+      } else {
+        page.add(project);
       }
     }
-    return array;
+    return page;
+  }
+
+  private Pattern getPattern(final String regexPattern) {
+    Pattern pattern = this.patternCache.getIfPresent(regexPattern);
+    if (pattern == null) {
+      pattern = Pattern.compile(regexPattern, Pattern.CASE_INSENSITIVE);
+      this.patternCache.put(regexPattern, pattern);
+    }
+    return pattern;
   }
 
   public List<Project> getProjects() {
@@ -211,7 +282,7 @@ public class ProjectManager {
     final List<Project> allProjects = new ArrayList<>();
     final Pattern pattern;
     try {
-      pattern = Pattern.compile(regexPattern, Pattern.CASE_INSENSITIVE);
+      pattern = getPattern(regexPattern);
     } catch (final PatternSyntaxException e) {
       logger.error("Bad regex pattern {}", regexPattern);
       return allProjects;
@@ -287,14 +358,20 @@ public class ProjectManager {
 
       logger.info("Trying to create {} by user {}", projectName, creator.getUserId());
       newProject = this.projectLoader.createNewProject(projectName, description, creator);
+      if (this.flowCache != null) {
+        newProject.setFlowCache(this.flowCache);
+      }
       this.projectsByName.put(newProject.getName(), newProject);
       this.projectsById.put(newProject.getId(), newProject);
     }
 
     if (this.creatorDefaultPermissions) {
       // Add permission to project
-      this.projectLoader.updatePermission(newProject, creator.getUserId(),
-          new Permission(Permission.Type.ADMIN), false);
+      final Permission creatorPermission = new Permission(Permission.Type.ADMIN);
+      this.projectLoader.updatePermission(newProject, creator.getUserId(), creatorPermission,
+          false);
+      this.permissionIndex.updatePermission(newProject.getId(), creator.getUserId(),
+          creatorPermission, false);
 
       // Add proxy user
       newProject.addProxyUser(creator.getUserId());
@@ -334,6 +411,7 @@ public class ProjectManager {
 
     this.projectsByName.remove(project.getName());
     this.projectsById.remove(project.getId());
+    this.permissionIndex.removeProject(project);
 
     return project;
   }
@@ -466,6 +544,7 @@ public class ProjectManager {
     logger.info("User {} updating permissions for project {} for {} {}", modifier.getUserId(),
         project.getName(), name, perm.toString());
     this.projectLoader.updatePermission(project, name, perm, group);
+    this.permissionIndex.updatePermission(project.getId(), name, perm, group);
     if (group) {
       this.projectLoader.postEvent(project, EventType.GROUP_PERMISSION,
           modifier.getUserId(), "Permission for group " + name + " set to "
@@ -482,6 +561,7 @@ public class ProjectManager {
     logger.info("User {} removing permissions for project {} for {}", modifier.getUserId(),
         project.getName(), name);
     this.projectLoader.removePermission(project, name, group);
+    this.permissionIndex.removePermission(project.getId(), name, group);
     if (group) {
       this.projectLoader.postEvent(project, EventType.GROUP_PERMISSION,
           modifier.getUserId(), "Permission for group " + name + " removed.");
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.project;
+
+import azkaban.user.Permission;
+import azkaban.user.Permission.Type;
+import azkaban.utils.Pair;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Ids of the projects each user and each group can read, so that listing the projects of a user
+ * doesn't check the permissions of every project.
+ *
+ * <p>A project is indexed under a user or a group whose permission on it has READ or ADMIN set,
+ * like {@link Project#hasUserPermission} and {@link Project#hasGroupPermission} check. Ids are
+ * sorted, so that pages of a listing are stable. Thread safe.
+ */
+class ProjectPermissionIndex {
+
+  private final ConcurrentHashMap<String, NavigableSet<Integer>> projectsByUser =
+      new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, NavigableSet<Integer>> projectsByGroup =
+      new ConcurrentHashMap<>();
+
+  private static boolean canRead(final Permission perm) {
+    return perm != null && (perm.isPermissionSet(Type.ADMIN) || perm.isPermissionSet(Type.READ));
+  }
+
+  /**
+   * Indexes all the user and group permissions of the project.
+   */
+  void addProject(final Project project) {
+    for (final Pair<String, Permission> perm : project.getUserPermissions()) {
+      updatePermission(project.getId(), perm.getFirst(), perm.getSecond(), false);
+    }
+    for (final Pair<String, Permission> perm : project.getGroupPermissions()) {
+      updatePermission(project.getId(), perm.getFirst(), perm.getSecond(), true);
+    }
+  }
+
+  void removeProject(final Project project) {
+    for (final Pair<String, Permission> perm : project.getUserPermissions()) {
+      removePermission(project.getId(), perm.getFirst(), false);
+    }
+    for (final Pair<String, Permission> perm : project.getGroupPermissions()) {
+      removePermission(project.getId(), perm.getFirst(), true);
+    }
+  }
+
+  void updatePermission(final int projectId, final String name, final Permission perm,
+      final boolean group) {
+    if (!canRead(perm)) {
+      removePermission(projectId, name, group);
+      return;
+    }
+    getIndex(group).compute(name, (key, ids) -> {
+      final NavigableSet<Integer> projectIds = ids == null ? new ConcurrentSkipListSet<>() : ids;
+      projectIds.add(projectId);
+      return projectIds;
+    });
+  }
+
+  void removePermission(final int projectId, final String name, final boolean group) {
+    getIndex(group).computeIfPresent(name, (key, ids) -> {
+      ids.remove(projectId);
+      return ids.isEmpty() ? null : ids;
+    });
+  }
+
+  /**
+   * @return the ids of the projects the user can read through a user permission, in ascending
+   * order
+   */
+  NavigableSet<Integer> getUserProjectIds(final String userId) {
+    final NavigableSet<Integer> ids = this.projectsByUser.get(userId);
+    return ids == null ? Collections.emptyNavigableSet()
+        : Collections.unmodifiableNavigableSet(ids);
+  }
+
+  /**
+   * @return the ids of the projects any of the groups can read, in ascending order
+   */
+  NavigableSet<Integer> getGroupProjectIds(final Collection<String> groups) {
+    final NavigableSet<Integer> ids = new TreeSet<>();
+    for (final String group : groups) {
+      final NavigableSet<Integer> groupIds = this.projectsByGroup.get(group);
+      if (groupIds != null) {
+        ids.addAll(groupIds);
+      }
+    }
+    return ids;
+  }
+
+  private ConcurrentHashMap<String, NavigableSet<Integer>> getIndex(final boolean group) {
+    return group ? this.projectsByGroup : this.projectsByUser;
+  }
+}
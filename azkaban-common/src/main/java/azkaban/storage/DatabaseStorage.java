@@ -53,6 +53,10 @@ public class DatabaseStorage implements Storage {
     return this.projectLoader.getUploadedFile(projectId, version);
   }
 
+  public InputStream getStream(final ProjectFileHandler projectFile) {
+    return this.projectLoader.getUploadedFileStream(projectFile);
+  }
+
   @Override
   public String put(final StorageMetadata metadata, final File localFile) {
     this.projectLoader.uploadProjectFile(
@@ -29,12 +29,15 @@ import azkaban.spi.StorageException;
 import azkaban.spi.StorageMetadata;
 import azkaban.user.User;
 import azkaban.utils.Md5Hasher;
+import azkaban.utils.Md5VerifyingInputStream;
 import azkaban.utils.Props;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Arrays;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -167,13 +170,14 @@ public class StorageManager {
     try (InputStream is = this.storage.get(resourceId)) {
       final File file = createTempOutputFile(pfh);
 
-      /* Copy from storage to output stream */
+      /* Copy from storage to output stream, hashing the bytes on the way */
+      final MessageDigest digest = Md5Hasher.getMd5Digest();
       try (FileOutputStream fos = new FileOutputStream(file)) {
-        IOUtils.copy(is, fos);
+        IOUtils.copy(new DigestInputStream(is, digest), fos);
       }
 
       /* Validate checksum */
-      validateChecksum(file, pfh);
+      validateChecksum(digest.digest(), pfh);
 
       /* Attach file to handler */
       pfh.setLocalFile(file);
@@ -184,8 +188,36 @@ public class StorageManager {
     }
   }
 
-  private void validateChecksum(final File file, final ProjectFileHandler pfh) throws IOException {
-    final byte[] hash = Md5Hasher.md5Hash(file);
+  /**
+   * Stream a project file from storage without storing it locally. The stream verifies the MD5
+   * hash of the file once it's read to its end, the caller closes it.
+   *
+   * @param pfh the metadata of the file, see {@link #getProjectMetaData(int, int)}
+   */
+  public InputStream getProjectFileStream(final ProjectFileHandler pfh) {
+    log.info(String.format("Streaming project file. project ID: %d version: %d",
+        pfh.getProjectId(), pfh.getVersion()));
+    if (this.storage instanceof DatabaseStorage) {
+      return ((DatabaseStorage) this.storage).getStream(pfh);
+    }
+
+    final String resourceId = requireNonNull(pfh.getResourceId(),
+        String.format("URI is null. project ID: %d version: %d",
+            pfh.getProjectId(), pfh.getVersion()));
+    return new Md5VerifyingInputStream(this.storage.get(resourceId), pfh.getMd5Hash(),
+        String.format("project ID: %d version: %d", pfh.getProjectId(), pfh.getVersion()));
+  }
+
+  /**
+   * Fetch the metadata of a project file, such as its MD5 hash, without fetching the file.
+   *
+   * @return the metadata, null if the project version doesn't exist
+   */
+  public ProjectFileHandler getProjectMetaData(final int projectId, final int version) {
+    return this.projectLoader.fetchProjectMetaData(projectId, version);
+  }
+
+  private void validateChecksum(final byte[] hash, final ProjectFileHandler pfh) {
     checkState(Arrays.equals(pfh.getMd5Hash(), hash),
         String.format("MD5 HASH Failed. project ID: %d version: %d Expected: %s Actual: %s",
             pfh.getProjectId(), pfh.getVersion(),
@@ -114,6 +114,15 @@ public class Condition {
     this.nextCheckTime = time;
   }
 
+  /**
+   * @return true if all the checkers are time based, i.e. the condition can't be met before its
+   * next check time
+   */
+  public boolean isTimeBased() {
+    return !this.checkers.isEmpty()
+        && this.checkers.values().stream().allMatch(ConditionChecker::isTimeBased);
+  }
+
   public void resetCheckers() {
     for (final ConditionChecker checker : this.checkers.values()) {
       checker.reset();
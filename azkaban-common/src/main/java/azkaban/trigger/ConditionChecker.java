@@ -39,4 +39,12 @@ public interface ConditionChecker {
   void setContext(Map<String, Object> context);
 
   long getNextCheckTime();
+
+  /**
+   * @return true if the checker can only be met once its next check time has passed, so that it
+   * doesn't need to be evaluated before then
+   */
+  default boolean isTimeBased() {
+    return false;
+  }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.trigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Triggers ordered by the time they are due to be checked, so that a scan only visits the due
+ * ones instead of all of them.
+ *
+ * <p>A polled trigger is in flight until it's rescheduled by whoever checked it. Triggers removed
+ * or re-added while in flight aren't rescheduled. Removed triggers are left in the heap and
+ * dropped when they reach its head, so that removing one doesn't search the heap.
+ *
+ * <p>Not thread safe.
+ */
+class DueTriggerQueue {
+
+  // How many removed entries the heap keeps at most, beyond the pending ones, before it's rebuilt
+  private static final int MAX_REMOVED_ENTRIES = 1024;
+
+  private final PriorityQueue<Entry> heap = new PriorityQueue<>();
+  // The pending entry of every trigger in the heap, by identity since triggers don't define
+  // equals
+  private final Map<Trigger, Entry> pending = new IdentityHashMap<>();
+  private final Set<Trigger> inFlight = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /**
+   * Adds a trigger to be checked once the due time has passed, replacing any pending or in
+   * flight check of it.
+   */
+  void add(final Trigger trigger, final long dueTime) {
+    this.inFlight.remove(trigger);
+    final Entry entry = new Entry(trigger, dueTime);
+    this.pending.put(trigger, entry);
+    this.heap.add(entry);
+    if (this.heap.size() > 2 * this.pending.size() + MAX_REMOVED_ENTRIES) {
+      // Triggers updated again and again before they're due
+      this.heap.clear();
+      this.heap.addAll(this.pending.values());
+    }
+  }
+
+  /**
+   * Reschedules a trigger returned by {@link #pollDue(long)}, unless it was removed or re-added
+   * since.
+   *
+   * @return true if it was rescheduled
+   */
+  boolean reschedule(final Trigger trigger, final long dueTime) {
+    if (!this.inFlight.contains(trigger)) {
+      return false;
+    }
+    add(trigger, dueTime);
+    return true;
+  }
+
+  void remove(final Trigger trigger) {
+    this.inFlight.remove(trigger);
+    this.pending.remove(trigger);
+  }
+
+  /**
+   * @return the triggers whose due time is before now, in due time order. They are in flight
+   * until they are rescheduled.
+   */
+  List<Trigger> pollDue(final long now) {
+    final List<Trigger> due = new ArrayList<>();
+    Entry head;
+    while ((head = this.heap.peek()) != null && head.dueTime < now) {
+      this.heap.poll();
+      if (this.pending.get(head.trigger) == head) {
+        this.pending.remove(head.trigger);
+        this.inFlight.add(head.trigger);
+        due.add(head.trigger);
+      }
+    }
+    return due;
+  }
+
+  /**
+   * @return the earliest due time of the pending triggers, Long.MAX_VALUE if there are none
+   */
+  long getNextDueTime() {
+    Entry head;
+    while ((head = this.heap.peek()) != null && this.pending.get(head.trigger) != head) {
+      // Removed or re-added
+      this.heap.poll();
+    }
+    return head == null ? Long.MAX_VALUE : head.dueTime;
+  }
+
+  /**
+   * @return the number of pending and in flight triggers
+   */
+  int size() {
+    return this.pending.size() + this.inFlight.size();
+  }
+
+  private static class Entry implements Comparable<Entry> {
+
+    private final Trigger trigger;
+    private final long dueTime;
+
+    private Entry(final Trigger trigger, final long dueTime) {
+      this.trigger = trigger;
+      this.dueTime = dueTime;
+    }
+
+    @Override
+    public int compareTo(final Entry o) {
+      return Long.compare(this.dueTime, o.dueTime);
+    }
+  }
+}
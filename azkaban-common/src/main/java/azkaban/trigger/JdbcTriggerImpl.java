@@ -140,9 +140,58 @@ public class JdbcTriggerImpl implements TriggerLoader {
     updateTrigger(t, this.defaultEncodingType);
   }
 
+  /**
+   * Writes the triggers in one JDBC batch. Triggers which were removed meanwhile are skipped.
+   */
+  @Override
+  public void updateTriggers(final List<Trigger> triggers) throws TriggerLoaderException {
+    if (triggers.isEmpty()) {
+      return;
+    }
+    logger.info("Updating " + triggers.size() + " triggers into db.");
+    final long now = System.currentTimeMillis();
+    final Object[][] params = new Object[triggers.size()][];
+    for (int i = 0; i < triggers.size(); i++) {
+      final Trigger t = triggers.get(i);
+      t.setLastModifyTime(now);
+      params[i] = new Object[]{t.getSource(), t.getLastModifyTime(),
+          this.defaultEncodingType.getNumVal(), encodeTrigger(t, this.defaultEncodingType),
+          t.getTriggerId()};
+    }
+
+    try {
+      final int[] updates = this.dbOperator.batch(UPDATE_TRIGGER, params);
+      for (int i = 0; i < updates.length; i++) {
+        if (updates[i] == 0) {
+          logger.warn("Trigger " + triggers.get(i).getTriggerId()
+              + " wasn't updated, it was probably removed.");
+        }
+      }
+    } catch (final SQLException ex) {
+      logger.error("Updating " + triggers.size() + " triggers failed.");
+      throw new TriggerLoaderException("DB Trigger batch update failed. ", ex);
+    }
+  }
+
   private void updateTrigger(final Trigger t, final EncodingType encType)
       throws TriggerLoaderException {
+    final byte[] data = encodeTrigger(t, encType);
 
+    try {
+      final int updates = this.dbOperator
+          .update(UPDATE_TRIGGER, t.getSource(), t.getLastModifyTime(), encType.getNumVal(), data,
+              t.getTriggerId());
+      if (updates == 0) {
+        throw new TriggerLoaderException("No trigger has been updated.");
+      }
+    } catch (final SQLException ex) {
+      logger.error("Updating Trigger " + t.getTriggerId() + " failed.");
+      throw new TriggerLoaderException("DB Trigger update failed. ", ex);
+    }
+  }
+
+  private byte[] encodeTrigger(final Trigger t, final EncodingType encType)
+      throws TriggerLoaderException {
     final String json = JSONUtils.toJSON(t.toJson());
     byte[] data = null;
     try {
@@ -158,18 +207,7 @@ public class JdbcTriggerImpl implements TriggerLoader {
       logger.error("Trigger encoding fails", e);
       throw new TriggerLoaderException("Error encoding the trigger " + t.toString(), e);
     }
-
-    try {
-      final int updates = this.dbOperator
-          .update(UPDATE_TRIGGER, t.getSource(), t.getLastModifyTime(), encType.getNumVal(), data,
-              t.getTriggerId());
-      if (updates == 0) {
-        throw new TriggerLoaderException("No trigger has been updated.");
-      }
-    } catch (final SQLException ex) {
-      logger.error("Updating Trigger " + t.getTriggerId() + " failed.");
-      throw new TriggerLoaderException("DB Trigger update failed. ", ex);
-    }
+    return data;
   }
 
   @Override
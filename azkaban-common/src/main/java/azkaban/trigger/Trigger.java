@@ -284,6 +284,14 @@ public class Trigger {
     return this.expireCondition.isMet();
   }
 
+  /**
+   * @return true if the trigger can neither fire nor expire before its next check time
+   */
+  public boolean isTimeBased() {
+    return this.triggerCondition.isTimeBased()
+        && (this.expireCondition == null || this.expireCondition.isTimeBased());
+  }
+
   public void resetTriggerConditions() {
     this.triggerCondition.resetCheckers();
     updateNextCheckTime();
@@ -26,6 +26,16 @@ public interface TriggerLoader {
 
   public void updateTrigger(Trigger t) throws TriggerLoaderException;
 
+  /**
+   * Updates several triggers at once, e.g. in one DB batch.
+   */
+  public default void updateTriggers(final List<Trigger> triggers)
+      throws TriggerLoaderException {
+    for (final Trigger t : triggers) {
+      updateTrigger(t);
+    }
+  }
+
   public List<Trigger> loadTriggers() throws TriggerLoaderException;
 
   public Trigger loadTrigger(int triggerId) throws TriggerLoaderException;
@@ -21,17 +21,20 @@ import static java.util.Objects.requireNonNull;
 import azkaban.event.EventHandler;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
+import azkaban.metrics.CommonMetrics;
 import azkaban.utils.Props;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.log4j.Logger;
@@ -41,15 +44,23 @@ public class TriggerManager extends EventHandler implements
     TriggerManagerAdapter {
 
   public static final long DEFAULT_SCANNER_INTERVAL_MS = 60000;
+  public static final int DEFAULT_WORKER_THREADS = 8;
+  public static final int DEFAULT_UPDATE_BATCH_SIZE = 500;
+  public static final long DEFAULT_UPDATE_MAX_DELAY_MS = 100;
+  private static final long SHUTDOWN_TIMEOUT_MS = 10 * 1000L;
   private static final Logger logger = Logger.getLogger(TriggerManager.class);
   private static final Map<Integer, Trigger> triggerIdMap =
       new ConcurrentHashMap<>();
 
   private final TriggerScannerThread runnerThread;
+  // Checks the due triggers and runs their actions
+  private final ExecutorService triggerWorkers;
   private final Object syncObj = new Object();
   private final CheckerTypeLoader checkerTypeLoader;
   private final ActionTypeLoader actionTypeLoader;
   private final TriggerLoader triggerLoader;
+  // Writes the state of fired triggers
+  private final TriggerUpdateBatcher updateBatcher;
   private final LocalTriggerJMX jmxStats = new LocalTriggerJMX();
   private long lastRunnerThreadCheckTime = -1;
   private long runnerThreadIdleTime = -1;
@@ -57,7 +68,8 @@ public class TriggerManager extends EventHandler implements
 
   @Inject
   public TriggerManager(final Props props, final TriggerLoader triggerLoader,
-      final ExecutorManagerAdapter executorManagerAdapter) throws TriggerManagerException {
+      final ExecutorManagerAdapter executorManagerAdapter, final CommonMetrics commonMetrics)
+      throws TriggerManagerException {
 
     requireNonNull(props);
     requireNonNull(executorManagerAdapter);
@@ -66,6 +78,13 @@ public class TriggerManager extends EventHandler implements
     final long scannerInterval =
         props.getLong("trigger.scan.interval", DEFAULT_SCANNER_INTERVAL_MS);
     this.runnerThread = new TriggerScannerThread(scannerInterval);
+    this.triggerWorkers = Executors.newFixedThreadPool(
+        props.getInt("trigger.worker.threads", DEFAULT_WORKER_THREADS),
+        new ThreadFactoryBuilder().setNameFormat("azk-trigger-worker-%d").setDaemon(true)
+            .build());
+    this.updateBatcher = new TriggerUpdateBatcher(triggerLoader, requireNonNull(commonMetrics),
+        props.getInt("trigger.update.batch.size", DEFAULT_UPDATE_BATCH_SIZE),
+        props.getLong("trigger.update.max.delay.ms", DEFAULT_UPDATE_MAX_DELAY_MS));
 
     this.checkerTypeLoader = new CheckerTypeLoader();
     this.actionTypeLoader = new ActionTypeLoader();
@@ -232,9 +251,29 @@ public class TriggerManager extends EventHandler implements
     updateTrigger(t);
   }
 
+  /**
+   * Stops the scanner, writes the state of the fired triggers, which hands their actions to the
+   * workers, then lets the workers finish what was submitted.
+   */
   @Override
   public void shutdown() {
     this.runnerThread.shutdown();
+    try {
+      this.runnerThread.join(SHUTDOWN_TIMEOUT_MS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    this.updateBatcher.shutdown();
+    this.triggerWorkers.shutdown();
+    try {
+      if (!this.triggerWorkers.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        logger.error("Timed out waiting for the trigger workers to finish.");
+        this.triggerWorkers.shutdownNow();
+      }
+    } catch (final InterruptedException e) {
+      this.triggerWorkers.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
   }
 
   @Override
@@ -254,14 +293,24 @@ public class TriggerManager extends EventHandler implements
     this.actionTypeLoader.registerActionType(name, action);
   }
 
+  /**
+   * Keeps the triggers ordered by the time they are due to be checked and hands the due ones to
+   * the trigger workers, so that a scan doesn't visit the triggers which aren't due.
+   *
+   * <p>Time based triggers, e.g. schedules, are due at their next check time. Other triggers,
+   * e.g. SLA checks, and triggers which aren't ready may change at any time, so they are due
+   * every scanner interval. A trigger isn't due again until the worker checking it is done.
+   */
   private class TriggerScannerThread extends Thread {
 
     private final long scannerInterval;
-    private final BlockingQueue<Trigger> triggers;
+    // Guarded by syncObj
+    private final DueTriggerQueue triggers = new DueTriggerQueue();
+    // Guarded by syncObj
+    private long nextWakeUpTime = Long.MAX_VALUE;
     private boolean shutdown = false;
 
     public TriggerScannerThread(final long scannerInterval) {
-      this.triggers = new PriorityBlockingQueue<>(1, new TriggerComparator());
       this.setName("TriggerRunnerManager-Trigger-Scanner-Thread");
       this.scannerInterval = scannerInterval;
     }
@@ -275,12 +324,35 @@ public class TriggerManager extends EventHandler implements
     public void addTrigger(final Trigger t) {
       synchronized (TriggerManager.this.syncObj) {
         t.updateNextCheckTime();
-        this.triggers.add(t);
+        schedule(t, false);
       }
     }
 
     public void deleteTrigger(final Trigger t) {
-      this.triggers.remove(t);
+      synchronized (TriggerManager.this.syncObj) {
+        this.triggers.remove(t);
+      }
+    }
+
+    // Must be called with syncObj held
+    private void schedule(final Trigger t, final boolean checked) {
+      final long dueTime;
+      if (t.getStatus().equals(TriggerStatus.READY) && t.isTimeBased()) {
+        dueTime = t.getNextCheckTime();
+      } else {
+        dueTime = System.currentTimeMillis() + (checked ? this.scannerInterval : 0);
+      }
+      if (checked) {
+        if (!this.triggers.reschedule(t, dueTime)) {
+          // Removed or updated while it was checked
+          return;
+        }
+      } else {
+        this.triggers.add(t, dueTime);
+      }
+      if (dueTime < this.nextWakeUpTime) {
+        TriggerManager.this.syncObj.notifyAll();
+      }
     }
 
     @Override
@@ -295,25 +367,24 @@ public class TriggerManager extends EventHandler implements
                     + TriggerManager.this.lastRunnerThreadCheckTime;
 
             try {
-              checkAllTriggers();
-            } catch (final Exception e) {
-              e.printStackTrace();
-              logger.error(e.getMessage());
+              submitDueTriggers();
             } catch (final Throwable t) {
-              t.printStackTrace();
-              logger.error(t.getMessage());
+              logger.error("Failed to submit due triggers", t);
             }
 
-            TriggerManager.this.scannerStage = "Done flipping all triggers.";
+            TriggerManager.this.scannerStage = "Done submitting due triggers.";
 
-            TriggerManager.this.runnerThreadIdleTime =
-                this.scannerInterval
-                    - (System.currentTimeMillis() - TriggerManager.this.lastRunnerThreadCheckTime);
+            // Wake up when the next trigger is due, or after the scanner interval at the latest
+            final long now = System.currentTimeMillis();
+            this.nextWakeUpTime = Math.min(this.triggers.getNextDueTime() + 1,
+                TriggerManager.this.lastRunnerThreadCheckTime + this.scannerInterval);
+            TriggerManager.this.runnerThreadIdleTime = this.nextWakeUpTime - now;
 
-            if (TriggerManager.this.runnerThreadIdleTime < 0) {
+            if (TriggerManager.this.lastRunnerThreadCheckTime + this.scannerInterval < now) {
               logger.error("Trigger manager thread " + this.getName()
                   + " is too busy!");
-            } else {
+            }
+            if (TriggerManager.this.runnerThreadIdleTime > 0) {
               TriggerManager.this.syncObj.wait(TriggerManager.this.runnerThreadIdleTime);
             }
           } catch (final InterruptedException e) {
@@ -323,40 +394,97 @@ public class TriggerManager extends EventHandler implements
       }
     }
 
-    private void checkAllTriggers() throws TriggerManagerException {
-      // sweep through the rest of them
-      for (final Trigger t : this.triggers) {
+    // Must be called with syncObj held
+    private void submitDueTriggers() {
+      final List<Trigger> dueTriggers = this.triggers
+          .pollDue(TriggerManager.this.lastRunnerThreadCheckTime);
+      for (final Trigger t : dueTriggers) {
         try {
-          TriggerManager.this.scannerStage = "Checking for trigger " + t.getTriggerId();
-
-          if (t.getStatus().equals(TriggerStatus.READY)) {
-
-            /**
-             * Prior to this change, expiration condition should never be called though
-             * we have some related code here. ExpireCondition used the same BasicTimeChecker
-             * as triggerCondition do. As a consequence, we need to figure out a way to distinguish
-             * the previous ExpireCondition and this commit's ExpireCondition.
-             */
-            if (t.getExpireCondition().getExpression().contains("EndTimeChecker") && t
-                .expireConditionMet()) {
-              onTriggerPause(t);
-            } else if (t.triggerConditionMet()) {
-              onTriggerTrigger(t);
-            }
-          }
-          if (t.getStatus().equals(TriggerStatus.EXPIRED) && t.getSource().equals("azkaban")) {
-            removeTrigger(t);
-          } else {
-            t.updateNextCheckTime();
+          TriggerManager.this.triggerWorkers.execute(() -> checkTrigger(t));
+        } catch (final RejectedExecutionException e) {
+          logger.warn("Trigger workers are shut down, not checking trigger " + t.getTriggerId());
+          return;
+        }
+      }
+    }
+
+    private void checkTrigger(final Trigger t) {
+      try {
+        if (t.getStatus().equals(TriggerStatus.READY)) {
+
+          /**
+           * Prior to this change, expiration condition should never be called though
+           * we have some related code here. ExpireCondition used the same BasicTimeChecker
+           * as triggerCondition do. As a consequence, we need to figure out a way to distinguish
+           * the previous ExpireCondition and this commit's ExpireCondition.
+           */
+          if (t.getExpireCondition().getExpression().contains("EndTimeChecker") && t
+              .expireConditionMet()) {
+            onTriggerPause(t);
+          } else if (t.triggerConditionMet()) {
+            // The check is finished once the actions are done
+            onTriggerTrigger(t);
+            return;
           }
-        } catch (final Throwable th) {
-          //skip this trigger, moving on to the next one
-          logger.error("Failed to process trigger with id : " + t, th);
         }
+        finishCheck(t);
+      } catch (final Throwable th) {
+        failCheck(t, th);
+      }
+    }
+
+    private void finishCheck(final Trigger t) throws TriggerManagerException {
+      if (t.getStatus().equals(TriggerStatus.EXPIRED) && t.getSource().equals("azkaban")) {
+        removeTrigger(t);
+      } else {
+        t.updateNextCheckTime();
+      }
+      synchronized (TriggerManager.this.syncObj) {
+        schedule(t, true);
       }
     }
 
-    private void onTriggerTrigger(final Trigger t) throws TriggerManagerException {
+    private void failCheck(final Trigger t, final Throwable th) {
+      //skip this trigger, it's checked again after the scanner interval
+      logger.error("Failed to process trigger with id : " + t, th);
+      t.setNextCheckTime(System.currentTimeMillis() + this.scannerInterval);
+      synchronized (TriggerManager.this.syncObj) {
+        schedule(t, true);
+      }
+    }
+
+    /**
+     * Advances the trigger and writes its new state before doing its actions, so that a restart
+     * in between doesn't fire it again. The states of the triggers firing together are written
+     * in one batch.
+     */
+    private void onTriggerTrigger(final Trigger t) {
+      if (t.isResetOnTrigger()) {
+        t.resetTriggerConditions();
+      } else {
+        logger.info("NextCheckTime did not change. Setting status to expired for trigger"
+            + t.getTriggerId());
+        t.setStatus(TriggerStatus.EXPIRED);
+      }
+      TriggerManager.this.updateBatcher.update(t).whenComplete((ignored, e) -> {
+        if (e != null) {
+          // Same as before batching: the actions are done even if the state couldn't be written
+          logger.error("Failed to write the state of trigger " + t.getTriggerId()
+              + " before doing its actions", e);
+        }
+        try {
+          TriggerManager.this.triggerWorkers.execute(() -> doTriggerActions(t));
+        } catch (final RejectedExecutionException re) {
+          // The trigger has fired and its new state may be written, so its actions must not be
+          // dropped
+          logger.warn("Trigger workers are shut down, doing the actions of trigger "
+              + t.getTriggerId() + " on the calling thread");
+          doTriggerActions(t);
+        }
+      });
+    }
+
+    private void doTriggerActions(final Trigger t) {
       final List<TriggerAction> actions = t.getTriggerActions();
       for (final TriggerAction action : actions) {
         try {
@@ -375,17 +503,10 @@ public class TriggerManager extends EventHandler implements
         }
       }
 
-      if (t.isResetOnTrigger()) {
-        t.resetTriggerConditions();
-      } else {
-        logger.info("NextCheckTime did not change. Setting status to expired for trigger"
-            + t.getTriggerId());
-        t.setStatus(TriggerStatus.EXPIRED);
-      }
       try {
-        TriggerManager.this.triggerLoader.updateTrigger(t);
-      } catch (final TriggerLoaderException e) {
-        throw new TriggerManagerException(e);
+        finishCheck(t);
+      } catch (final Throwable th) {
+        failCheck(t, th);
       }
     }
 
@@ -409,22 +530,6 @@ public class TriggerManager extends EventHandler implements
         throw new TriggerManagerException(e);
       }
     }
-
-    private class TriggerComparator implements Comparator<Trigger> {
-
-      @Override
-      public int compare(final Trigger arg0, final Trigger arg1) {
-        final long first = arg1.getNextCheckTime();
-        final long second = arg0.getNextCheckTime();
-
-        if (first == second) {
-          return 0;
-        } else if (first < second) {
-          return 1;
-        }
-        return -1;
-      }
-    }
   }
 
   private class LocalTriggerJMX implements TriggerJMX {
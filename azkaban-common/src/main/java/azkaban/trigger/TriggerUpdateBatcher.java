@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.trigger;
+
+import azkaban.metrics.CommonMetrics;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Writes the state of fired triggers to the DB in batches, so that the triggers firing together,
+ * e.g. the schedules of the top of the hour, don't make one DB round trip each.
+ *
+ * <p>Updates are written at most maxDelayMs after they are added, or as soon as maxBatchSize
+ * triggers are pending. Updates of the same trigger which are pending together are written once,
+ * with its latest state. The future of an update completes once the trigger is written, so a
+ * caller that must not act before its update is durable waits for it.
+ */
+@SuppressWarnings("FutureReturnValueIgnored")
+class TriggerUpdateBatcher {
+
+  private static final Logger logger = Logger.getLogger(TriggerUpdateBatcher.class);
+
+  private final TriggerLoader triggerLoader;
+  private final CommonMetrics commonMetrics;
+  private final int maxBatchSize;
+  private final long maxDelayMs;
+  private final ScheduledThreadPoolExecutor flusher;
+
+  private final Object pendingLock = new Object();
+  // Guarded by pendingLock
+  private Map<Integer, PendingUpdate> pending = new LinkedHashMap<>();
+  // Guarded by pendingLock
+  private boolean flushScheduled = false;
+
+  TriggerUpdateBatcher(final TriggerLoader triggerLoader, final CommonMetrics commonMetrics,
+      final int maxBatchSize, final long maxDelayMs) {
+    this.triggerLoader = triggerLoader;
+    this.commonMetrics = commonMetrics;
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelayMs = maxDelayMs;
+    // One thread, so that batches are written in order
+    this.flusher = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactoryBuilder().setNameFormat("azk-trigger-update-flusher").setDaemon(true)
+            .build());
+    // The last flush on shutdown writes everything, the scheduled ones aren't waited for
+    this.flusher.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+  }
+
+  /**
+   * Adds the current state of the trigger to the next batch.
+   *
+   * @return a future which completes once the trigger is written, or exceptionally if writing it
+   * failed. It's completed on the flushing thread, so dependent actions that take long should be
+   * handed off.
+   */
+  CompletableFuture<Void> update(final Trigger t) {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      synchronized (this.pendingLock) {
+        PendingUpdate update = this.pending.get(t.getTriggerId());
+        if (update == null) {
+          update = new PendingUpdate();
+          this.pending.put(t.getTriggerId(), update);
+        }
+        update.trigger = t;
+        update.futures.add(future);
+
+        if (this.pending.size() == this.maxBatchSize) {
+          this.flusher.execute(this::flush);
+        } else if (!this.flushScheduled) {
+          this.flusher.schedule(this::flush, this.maxDelayMs, TimeUnit.MILLISECONDS);
+          this.flushScheduled = true;
+        }
+      }
+    } catch (final RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Writes the pending updates and stops flushing.
+   */
+  void shutdown() {
+    try {
+      this.flusher.execute(this::flush);
+    } catch (final RejectedExecutionException e) {
+      // Already shut down
+    }
+    this.flusher.shutdown();
+    try {
+      if (!this.flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+        logger.error("Timed out writing the pending trigger updates.");
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void flush() {
+    final List<PendingUpdate> updates;
+    synchronized (this.pendingLock) {
+      this.flushScheduled = false;
+      if (this.pending.isEmpty()) {
+        return;
+      }
+      updates = new ArrayList<>(this.pending.values());
+      this.pending = new LinkedHashMap<>();
+    }
+
+    for (int from = 0; from < updates.size(); from += this.maxBatchSize) {
+      flushBatch(updates.subList(from, Math.min(from + this.maxBatchSize, updates.size())));
+    }
+  }
+
+  private void flushBatch(final List<PendingUpdate> batch) {
+    final List<Trigger> triggers = new ArrayList<>(batch.size());
+    for (final PendingUpdate update : batch) {
+      triggers.add(update.trigger);
+    }
+
+    final long start = System.nanoTime();
+    Throwable error = null;
+    try {
+      this.triggerLoader.updateTriggers(triggers);
+    } catch (final Throwable t) {
+      logger.error("Failed to write " + triggers.size() + " trigger updates", t);
+      error = t;
+    }
+    this.commonMetrics.addTriggerUpdateFlush(System.nanoTime() - start, triggers.size());
+
+    for (final PendingUpdate update : batch) {
+      for (final CompletableFuture<Void> future : update.futures) {
+        if (error == null) {
+          future.complete(null);
+        } else {
+          future.completeExceptionally(error);
+        }
+      }
+    }
+  }
+
+  private static class PendingUpdate {
+
+    private final List<CompletableFuture<Void>> futures = new ArrayList<>(1);
+    private Trigger trigger;
+  }
+}
@@ -136,6 +136,11 @@ public class BasicTimeChecker implements ConditionChecker {
     return this.nextCheckTime < DateTimeUtils.currentTimeMillis();
   }
 
+  @Override
+  public boolean isTimeBased() {
+    return true;
+  }
+
   @Override
   public void reset() {
     this.nextCheckTime = calculateNextCheckTime();
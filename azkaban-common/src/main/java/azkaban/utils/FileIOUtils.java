@@ -29,10 +29,14 @@ import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -53,6 +57,8 @@ import org.slf4j.LoggerFactory;
 public class FileIOUtils {
 
   private static final Logger log = LoggerFactory.getLogger(FileIOUtils.class);
+  private static final int UTF8_START_SCAN_BYTES = 6;
+  private static final int UTF8_END_SCAN_BYTES = 11;
 
   /**
    * Check if a directory is writable
@@ -238,6 +244,53 @@ public class FileIOUtils {
     return linkCount;
   }
 
+  /**
+   * Hard link files and recurse into directories, like {@link #createDeepHardlink(File, File)},
+   * except that the directories named in symlinkedDirNames are symlinked as a whole instead of
+   * being recreated file by file. Those subtrees are shared with the source dir, so they must
+   * not be written to through the destination dir.
+   *
+   * @return the number of hard links and the number of symlinks created
+   */
+  public static Pair<Integer, Integer> createDeepLinks(final File sourceDir, final File destDir,
+      final Set<String> symlinkedDirNames) throws IOException {
+    if (!sourceDir.isDirectory()) {
+      throw new IOException("Source directory " + sourceDir.getPath()
+          + " doesn't exist or is not a directory");
+    } else if (!destDir.isDirectory()) {
+      throw new IOException("Destination directory " + destDir.getPath()
+          + " doesn't exist or is not a directory");
+    }
+
+    final int[] linkCounts = new int[2];
+    createLinks(sourceDir.getAbsoluteFile(), destDir, symlinkedDirNames, linkCounts);
+    return new Pair<>(linkCounts[0], linkCounts[1]);
+  }
+
+  private static void createLinks(final File sourceDir, final File destDir,
+      final Set<String> symlinkedDirNames, final int[] linkCounts) throws IOException {
+    final File[] srcList = sourceDir.listFiles();
+    if (srcList == null) {
+      throw new IOException("Failed to list directory " + sourceDir.getPath());
+    }
+
+    for (final File file : srcList) {
+      final File dest = new File(destDir, file.getName());
+      if (file.isDirectory()) {
+        if (symlinkedDirNames.contains(file.getName())) {
+          Files.createSymbolicLink(dest.toPath(), file.toPath());
+          linkCounts[1]++;
+        } else {
+          Files.createDirectory(dest.toPath());
+          createLinks(file, dest, symlinkedDirNames, linkCounts);
+        }
+      } else if (file.isFile()) {
+        Files.createLink(dest.toPath(), file.toPath());
+        linkCounts[0]++;
+      }
+    }
+  }
+
   private static void createDirsFindFiles(final File baseDir, final File sourceDir,
       final File destDir, final Set<String> paths) {
     final File[] srcList = sourceDir.listFiles();
@@ -286,22 +339,16 @@ public class FileIOUtils {
 
   public static LogData readUtf8File(final File file, final int fileOffset, final int length)
       throws IOException {
-    final byte[] buffer = new byte[length];
-    final FileInputStream fileStream = new FileInputStream(file);
-
-    final long skipped = fileStream.skip(fileOffset);
-    if (skipped < fileOffset) {
-      fileStream.close();
-      return new LogData(fileOffset, 0, "");
-    }
-
-    BufferedInputStream inputStream = null;
-    int read = 0;
-    try {
-      inputStream = new BufferedInputStream(fileStream);
-      read = inputStream.read(buffer);
-    } finally {
-      IOUtils.closeQuietly(inputStream);
+    final byte[] buffer;
+    final int read;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      // Only allocate what's left in the file, the UI asks for large windows near the end.
+      final long available = channel.size() - fileOffset;
+      if (available <= 0 || length <= 0) {
+        return new LogData(fileOffset, 0, "");
+      }
+      buffer = new byte[(int) Math.min(length, available)];
+      read = readFully(channel, ByteBuffer.wrap(buffer), fileOffset);
     }
 
     if (read <= 0) {
@@ -315,6 +362,81 @@ public class FileIOUtils {
         utf8Range.getSecond(), outputString);
   }
 
+  /**
+   * Transfers [offset, offset + length) of the file, moved to UTF-8 character boundaries, to the
+   * target channel. See {@link #transferUtf8Range(FileChannel, int, int, WritableByteChannel)}.
+   *
+   * @return the offset and length of the range that was transferred
+   */
+  public static Pair<Integer, Integer> transferUtf8Range(final File file, final int offset,
+      final int length, final WritableByteChannel target) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return transferUtf8Range(channel, offset, length, target);
+    }
+  }
+
+  /**
+   * Transfers [offset, offset + length) of the channel's file, moved to UTF-8 character
+   * boundaries, to the target channel. Only the few bytes at both ends of the range are read into
+   * the heap to find the boundaries, the range itself is handed to {@link FileChannel#transferTo}.
+   * That avoids copies only when the target is a file or socket channel, a channel wrapping an
+   * output stream still copies the range through a small buffer. The channel isn't closed.
+   *
+   * @return the offset and length of the range that was transferred
+   */
+  public static Pair<Integer, Integer> transferUtf8Range(final FileChannel channel,
+      final int offset, final int length, final WritableByteChannel target) throws IOException {
+    final long available = channel.size() - offset;
+    if (available <= 0 || length <= 0) {
+      return new Pair<>(offset, 0);
+    }
+    final int rangeLength = (int) Math.min(length, available);
+
+    // Same windows as getUtf8Range scans: the next 6 bytes for the start, and the previous 11
+    // bytes for the end.
+    final byte[] head = new byte[Math.min(UTF8_START_SCAN_BYTES, rangeLength)];
+    readFully(channel, ByteBuffer.wrap(head), offset);
+    final byte[] tail = new byte[Math.min(UTF8_END_SCAN_BYTES, rangeLength)];
+    final int tailOffset = offset + rangeLength - tail.length;
+    readFully(channel, ByteBuffer.wrap(tail), tailOffset);
+
+    final int start = offset + getUtf8ByteStart(head, 0);
+    final int end = tailOffset + getUtf8ByteEnd(tail, tail.length - 1);
+    if (end < start) {
+      return new Pair<>(offset, 0);
+    }
+
+    long position = start;
+    final long endPosition = end + 1L;
+    while (position < endPosition) {
+      final long transferred = channel.transferTo(position, endPosition - position, target);
+      if (transferred <= 0) {
+        break;
+      }
+      position += transferred;
+    }
+    return new Pair<>(start, (int) (position - start));
+  }
+
+  /**
+   * Reads from the given position of the channel until the buffer is full or the end of the
+   * channel is reached.
+   *
+   * @return the number of bytes read
+   */
+  private static int readFully(final FileChannel channel, final ByteBuffer buffer,
+      final long position) throws IOException {
+    int total = 0;
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, position + total);
+      if (read < 0) {
+        break;
+      }
+      total += read;
+    }
+    return total;
+  }
+
   public static JobMetaData readUtf8MetaDataFile(final File file, final int fileOffset,
       final int length) throws IOException {
     final byte[] buffer = new byte[length];
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import com.google.common.io.BaseEncoding;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Hashes the bytes read through it and checks the MD5 hash once the end of the stream is reached,
+ * so that a file is verified while it's consumed rather than stored and hashed again.
+ *
+ * <p>A mismatch fails the read which reaches the end of the stream with an IOException. The bytes
+ * returned before are unverified, so consumers must drop what they made of them when a read
+ * fails, and must read to the end of the stream for it to be verified at all.
+ */
+public class Md5VerifyingInputStream extends FilterInputStream {
+
+  private final byte[] expectedHash;
+  private final String name;
+  private final MessageDigest digest = Md5Hasher.getMd5Digest();
+  private boolean verified = false;
+
+  /**
+   * @param name describes the stream in the error message of a mismatch
+   */
+  public Md5VerifyingInputStream(final InputStream in, final byte[] expectedHash,
+      final String name) {
+    super(in);
+    this.expectedHash = expectedHash;
+    this.name = name;
+  }
+
+  @Override
+  public int read() throws IOException {
+    final int b = super.read();
+    if (b < 0) {
+      verify();
+    } else {
+      this.digest.update((byte) b);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    final int n = super.read(b, off, len);
+    if (n < 0) {
+      verify();
+    } else {
+      this.digest.update(b, off, n);
+    }
+    return n;
+  }
+
+  @Override
+  public long skip(final long n) throws IOException {
+    // Skipped bytes are hashed too
+    final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+    long skipped = 0;
+    while (skipped < n) {
+      final int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+      if (read < 0) {
+        break;
+      }
+      skipped += read;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public synchronized void mark(final int readlimit) {
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+
+  private void verify() throws IOException {
+    if (this.verified) {
+      return;
+    }
+    this.verified = true;
+    final byte[] hash = this.digest.digest();
+    if (!Arrays.equals(this.expectedHash, hash)) {
+      final BaseEncoding hex = BaseEncoding.base16().lowerCase();
+      throw new IOException(String.format("MD5 hash of %s failed. Expected: %s Actual: %s",
+          this.name, this.expectedHash == null ? null : hex.encode(this.expectedHash),
+          hex.encode(hash)));
+    }
+  }
+}
@@ -17,6 +17,8 @@
 package azkaban.utils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -25,7 +27,10 @@ import java.util.stream.Collectors;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
@@ -33,6 +38,7 @@ import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 
 /**
@@ -47,6 +53,7 @@ import org.apache.log4j.Logger;
 public abstract class RestfulApiClient<T> {
 
   protected static Logger logger = Logger.getLogger(RestfulApiClient.class);
+  private static final int STREAM_BUFFER_SIZE = 8 * 1024;
 
   /**
    * helper function to build a valid URI.
@@ -125,6 +132,45 @@ public abstract class RestfulApiClient<T> {
     return this.sendAndReturn(completeRequest(post, params));
   }
 
+  /**
+   * function to perform a Post http request and copy the response body to the output stream as it
+   * arrives, flushing after every read so that a streamed response is passed on without delay.
+   *
+   * @param uri the URI of the request.
+   * @param params the form params to be posted, optional.
+   * @param out the stream the response body is copied to.
+   * @return the number of bytes copied.
+   * @throws HttpResponseException if the response status isn't a success.
+   */
+  public long httpPostStream(final URI uri, final List<Pair<String, String>> params,
+      final OutputStream out) throws IOException {
+    final HttpPost post = new HttpPost(uri);
+    try (CloseableHttpClient client = HttpClients.createDefault();
+        CloseableHttpResponse response = client.execute(completeRequest(post, params))) {
+      final StatusLine statusLine = response.getStatusLine();
+      final HttpEntity entity = response.getEntity();
+      if (statusLine.getStatusCode() >= 300) {
+        throw new HttpResponseException(statusLine.getStatusCode(),
+            entity != null ? EntityUtils.toString(entity) : statusLine.getReasonPhrase());
+      }
+      if (entity == null) {
+        return 0;
+      }
+
+      long copied = 0;
+      final byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+      try (InputStream in = entity.getContent()) {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
+          out.flush();
+          copied += read;
+        }
+      }
+      return copied;
+    }
+  }
+
   /**
    * function to dispatch the request and pass back the response.
    */
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.executor.ActiveExecutions.Snapshot;
+import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import azkaban.utils.TestUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ActiveExecutionsTest {
+
+  private final Executor executor = new Executor(1, "localhost", 12345, true);
+  private ExecutorLoader loader;
+  private Props props;
+  private ExecutableFlow queuedFlow;
+  private ExecutableFlow runningFlow;
+
+  @Before
+  public void setUp() throws Exception {
+    this.loader = mock(ExecutorLoader.class);
+    this.props = new Props();
+
+    this.queuedFlow = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    this.queuedFlow.setExecutionId(1);
+    this.queuedFlow.setStatus(Status.PREPARING);
+    this.queuedFlow.setUpdateTime(1000);
+    this.runningFlow = TestUtils.createTestExecutableFlow("exectest1", "exec2");
+    this.runningFlow.setExecutionId(2);
+    this.runningFlow.setStatus(Status.RUNNING);
+    this.runningFlow.setUpdateTime(1000);
+
+    when(this.loader.fetchUnfinishedFlowsMetadata()).thenReturn(ImmutableMap.of(
+        1, new Pair<>(new ExecutionReference(1, null), this.queuedFlow),
+        2, new Pair<>(new ExecutionReference(2, this.executor), this.runningFlow)));
+  }
+
+  @Test
+  public void testLoadOnFirstUse() throws Exception {
+    final Snapshot snapshot = new ActiveExecutions(this.props, this.loader).getSnapshot();
+
+    assertThat(snapshot.getVersion()).isEqualTo(1);
+    assertThat(snapshot.getExecIds()).containsExactly(1, 2);
+    assertThat(snapshot.getQueuedExecIds()).containsExactly(1);
+    assertThat(snapshot.getExecIds(1, this.runningFlow.getFlowId())).containsExactly(2);
+    assertThat(snapshot.isFlowRunning(1, this.queuedFlow.getFlowId())).isTrue();
+    assertThat(snapshot.isFlowRunning(1, "unknown")).isFalse();
+    assertThat(snapshot.isFlowRunning(2, this.queuedFlow.getFlowId())).isFalse();
+  }
+
+  @Test
+  public void testIncrementalRefresh() throws Exception {
+    final ActiveExecutions activeExecutions = new ActiveExecutions(this.props, this.loader);
+    activeExecutions.getSnapshot();
+
+    // The queued flow is dispatched, the running flow finishes and a new flow is queued
+    this.queuedFlow.setStatus(Status.RUNNING);
+    this.queuedFlow.setUpdateTime(2000);
+    this.runningFlow.setStatus(Status.SUCCEEDED);
+    this.runningFlow.setUpdateTime(2000);
+    final ExecutableFlow newFlow = TestUtils.createTestExecutableFlow("exectest1", "exec2");
+    newFlow.setExecutionId(3);
+    newFlow.setStatus(Status.PREPARING);
+    newFlow.setUpdateTime(2000);
+    when(this.loader.fetchFlowsMetadataUpdatedSince(anyLong())).thenReturn(ImmutableList.of(
+        new Pair<>(new ExecutionReference(1, this.executor), this.queuedFlow),
+        new Pair<>(new ExecutionReference(2, this.executor), this.runningFlow),
+        new Pair<>(new ExecutionReference(3, null), newFlow)));
+
+    activeExecutions.refresh();
+    final Snapshot snapshot = activeExecutions.getSnapshot();
+    assertThat(snapshot.getVersion()).isEqualTo(2);
+    assertThat(snapshot.getExecIds()).containsExactly(1, 3);
+    assertThat(snapshot.getQueuedExecIds()).containsExactly(3);
+    assertThat(snapshot.getExecIds(1, newFlow.getFlowId())).containsExactly(3);
+
+    // Rows that are read again within the overlap don't make a new version
+    activeExecutions.refresh();
+    assertThat(activeExecutions.getSnapshot()).isSameAs(snapshot);
+    verify(this.loader, times(1)).fetchUnfinishedFlowsMetadata();
+  }
+
+  @Test
+  public void testLocalChangesAreNotOverwrittenByOlderRows() throws Exception {
+    final ActiveExecutions activeExecutions = new ActiveExecutions(this.props, this.loader);
+    activeExecutions.getSnapshot();
+
+    final ExecutableFlow submitted = TestUtils.createTestExecutableFlow("exectest1", "exec2");
+    submitted.setExecutionId(3);
+    submitted.setStatus(Status.PREPARING);
+    submitted.setUpdateTime(3000);
+    activeExecutions.add(submitted);
+    activeExecutions.remove(1);
+    assertThat(activeExecutions.getSnapshot().getExecIds()).containsExactly(2, 3);
+    assertThat(activeExecutions.getSnapshot().getVersion()).isEqualTo(3);
+
+    final ExecutableFlow staleRow = TestUtils.createTestExecutableFlow("exectest1", "exec2");
+    staleRow.setExecutionId(3);
+    staleRow.setStatus(Status.READY);
+    staleRow.setUpdateTime(2000);
+    when(this.loader.fetchFlowsMetadataUpdatedSince(anyLong())).thenReturn(ImmutableList.of(
+        new Pair<>(new ExecutionReference(3, null), staleRow)));
+    activeExecutions.refresh();
+    assertThat(activeExecutions.getSnapshot().getQueuedExecIds()).containsExactly(3);
+    assertThat(activeExecutions.getSnapshot().getVersion()).isEqualTo(3);
+  }
+
+  @Test
+  public void testFullReload() throws Exception {
+    this.props.put(ConfigurationKeys.ACTIVE_EXECUTIONS_FULL_RELOAD_INTERVAL_MS, 0);
+    final ActiveExecutions activeExecutions = new ActiveExecutions(this.props, this.loader);
+    activeExecutions.getSnapshot();
+
+    when(this.loader.fetchUnfinishedFlowsMetadata()).thenReturn(ImmutableMap.of(
+        2, new Pair<>(new ExecutionReference(2, this.executor), this.runningFlow)));
+    activeExecutions.refresh();
+
+    assertThat(activeExecutions.getSnapshot().getExecIds()).containsExactly(2);
+    assertThat(activeExecutions.getSnapshot().getQueuedExecIds()).isEmpty();
+    verify(this.loader, times(2)).fetchUnfinishedFlowsMetadata();
+  }
+}
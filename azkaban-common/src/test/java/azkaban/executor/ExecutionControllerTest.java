@@ -20,6 +20,8 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -82,7 +84,8 @@ public class ExecutionControllerTest {
     this.alertHolder = mock(AlerterHolder.class);
     this.executorHealthChecker = mock(ExecutorHealthChecker.class);
     this.controller = new ExecutionController(this.props, this.loader, this.commonMetrics,
-        this.apiGateway, this.alertHolder, this.executorHealthChecker);
+        this.apiGateway, this.alertHolder, this.executorHealthChecker,
+        new ActiveExecutions(this.props, this.loader));
 
     final Executor executor1 = new Executor(1, "localhost", 12345, true);
     final Executor executor2 = new Executor(2, "localhost", 12346, true);
@@ -99,6 +102,7 @@ public class ExecutionControllerTest {
     this.flow2.setExecutionId(2);
     this.flow3.setExecutionId(3);
     this.flow4.setExecutionId(4);
+    this.flow1.setStatus(Status.PREPARING);
     this.ref1 = new ExecutionReference(this.flow1.getExecutionId(), null);
     this.ref2 = new ExecutionReference(this.flow2.getExecutionId(), executor2);
     this.ref3 = new ExecutionReference(this.flow3.getExecutionId(), executor3);
@@ -109,6 +113,8 @@ public class ExecutionControllerTest {
     when(this.loader.fetchActiveFlows()).thenReturn(this.activeFlows);
     this.queuedFlows = ImmutableList.of(new Pair<>(this.ref1, this.flow1));
     when(this.loader.fetchQueuedFlows()).thenReturn(this.queuedFlows);
+    when(this.loader.fetchUnfinishedFlowsMetadata())
+        .thenReturn(ImmutableMap.of(this.flow1.getExecutionId(), this.queuedFlows.get(0)));
   }
 
   @Test
@@ -159,8 +165,16 @@ public class ExecutionControllerTest {
         .contains(new Pair<>(pair.getSecond(), pair.getFirst().getExecutor()))).isTrue());
   }
 
+  @Test
+  public void testFetchRunningFlowCount() throws Exception {
+    initializeUnfinishedFlows();
+    assertThat(this.controller.getRunningFlowCount()).isEqualTo(this.unfinishedFlows.size());
+    verify(this.loader, never()).fetchUnfinishedFlows();
+  }
+
   @Test
   public void testFetchAllActiveExecutorServerHosts() throws Exception {
+    initializeUnfinishedFlows();
     final Set<String> activeExecutorServerHosts = this.controller.getAllActiveExecutorServerHosts();
     assertThat(activeExecutorServerHosts.size()).isEqualTo(3);
     this.allExecutors.forEach(executor -> assertThat(
@@ -174,6 +188,33 @@ public class ExecutionControllerTest {
     verify(this.loader).uploadExecutableFlow(this.flow1);
   }
 
+  @Test
+  public void testSubmitFlowNudgesExecutors() throws Exception {
+    this.props.put(ConfigurationKeys.AZKABAN_POLLING_NUDGE_ENABLED, true);
+    this.controller = new ExecutionController(this.props, this.loader, this.commonMetrics,
+        this.apiGateway, this.alertHolder, this.executorHealthChecker,
+        new ActiveExecutions(this.props, this.loader));
+    this.controller.submitExecutableFlow(this.flow1, this.user.getUserId());
+    for (final Executor executor : this.activeExecutors) {
+      verify(this.apiGateway, timeout(5000)).nudgeExecutor(executor);
+    }
+  }
+
+  @Test
+  public void testSubmitFlowNudgesOnlyUseExecutor() throws Exception {
+    this.props.put(ConfigurationKeys.AZKABAN_POLLING_NUDGE_ENABLED, true);
+    this.controller = new ExecutionController(this.props, this.loader, this.commonMetrics,
+        this.apiGateway, this.alertHolder, this.executorHealthChecker,
+        new ActiveExecutions(this.props, this.loader));
+    final Executor executor2 = this.activeExecutors.get(1);
+    when(this.loader.fetchExecutor(executor2.getId())).thenReturn(executor2);
+    this.flow1.getExecutionOptions().getFlowParameters()
+        .put(ExecutionOptions.USE_EXECUTOR, String.valueOf(executor2.getId()));
+    this.controller.submitExecutableFlow(this.flow1, this.user.getUserId());
+    verify(this.apiGateway, timeout(5000)).nudgeExecutor(executor2);
+    verify(this.apiGateway, never()).nudgeExecutor(this.activeExecutors.get(0));
+  }
+
   @Test
   public void testSubmitFlowsExceedingMaxConcurrentRuns() throws Exception {
     this.props.put(ConfigurationKeys.CONCURRENT_RUNS_ONEFLOW_WHITELIST, "exectest1,"
@@ -315,5 +356,6 @@ public class ExecutionControllerTest {
             this.flow2.getExecutionId(), new Pair<>(this.ref2, this.flow2),
             this.flow3.getExecutionId(), new Pair<>(this.ref3, this.flow3));
     when(this.loader.fetchUnfinishedFlows()).thenReturn(this.unfinishedFlows);
+    when(this.loader.fetchUnfinishedFlowsMetadata()).thenReturn(this.unfinishedFlows);
   }
 }
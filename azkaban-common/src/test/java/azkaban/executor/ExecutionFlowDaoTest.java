@@ -45,6 +45,7 @@ import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 
 public class ExecutionFlowDaoTest {
@@ -89,6 +90,7 @@ public class ExecutionFlowDaoTest {
   public void clearDB() {
     try {
       dbOperator.update("DELETE FROM execution_flows");
+      dbOperator.update("DELETE FROM execution_flow_deltas");
       dbOperator.update("DELETE FROM executors");
       dbOperator.update("DELETE FROM projects");
     } catch (final SQLException e) {
@@ -142,6 +144,137 @@ public class ExecutionFlowDaoTest {
     assertTwoFlowSame(fetchFlow, fetchFlow2);
   }
 
+  @Test
+  public void testFetchExecutableFlowStatus() throws Exception {
+    final ExecutableFlow flow = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(flow);
+
+    flow.setStatus(Status.RUNNING);
+    flow.setUpdateTime(flow.getUpdateTime() + 1);
+    this.executionFlowDao.updateExecutableFlowDelta(flow, flow.getUpdateTime() - 1);
+
+    final Pair<Status, Long> status =
+        this.executionFlowDao.fetchExecutableFlowStatus(flow.getExecutionId());
+    assertThat(status.getFirst()).isEqualTo(Status.RUNNING);
+    assertThat(status.getSecond()).isEqualTo(flow.getUpdateTime());
+    assertThat(this.executionFlowDao.fetchExecutableFlowStatus(-1)).isNull();
+  }
+
+  @Test
+  public void testUpdateExecutableFlowDelta() throws Exception {
+    final ExecutableFlow flow = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(flow);
+    final long snapshotTime = flow.getUpdateTime();
+
+    final ExecutableNode node = flow.getExecutableNodes().get(0);
+    node.setStatus(Status.SUCCEEDED);
+    node.setUpdateTime(snapshotTime + 1);
+    flow.setStatus(Status.RUNNING);
+    flow.setUpdateTime(snapshotTime + 1);
+    this.executionFlowDao.updateExecutableFlowDelta(flow, snapshotTime);
+
+    final ExecutableFlow fetchFlow =
+        this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId());
+    assertTwoFlowSame(flow, fetchFlow);
+    assertThat(fetchFlow.getExecutableNode(node.getId()).getStatus())
+        .isEqualTo(Status.SUCCEEDED);
+
+    // Rewriting the snapshot compacts the deltas.
+    flow.setStatus(Status.SUCCEEDED);
+    this.executionFlowDao.updateExecutableFlow(flow);
+    assertThat(countFlowDeltas()).isEqualTo(0L);
+    final ExecutableFlow fetchFlow2 =
+        this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId());
+    assertTwoFlowSame(flow, fetchFlow2);
+    assertThat(fetchFlow2.getExecutableNode(node.getId()).getStatus())
+        .isEqualTo(Status.SUCCEEDED);
+  }
+
+  @Test
+  public void testFlowDeltasAppliedToFlowLists() throws Exception {
+    final ExecutableFlow flow = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(flow);
+    final Executor executor = this.executorDao.addExecutor("test", 1);
+    this.assignExecutor.assignExecutor(executor.getId(), flow.getExecutionId());
+    final long snapshotTime = flow.getUpdateTime();
+
+    final ExecutableNode node = flow.getExecutableNodes().get(0);
+    node.setStatus(Status.SUCCEEDED);
+    node.setUpdateTime(snapshotTime + 1);
+    flow.setStatus(Status.RUNNING);
+    flow.setUpdateTime(snapshotTime + 1);
+    this.executionFlowDao.updateExecutableFlowDeltas(
+        ImmutableList.of(ExecutableFlowUpdate.delta(flow, snapshotTime)));
+    assertThat(countFlowDeltas()).isEqualTo(1L);
+
+    final ExecutableFlow historyFlow = this.executionFlowDao.fetchFlowHistory(0, 1).get(0);
+    assertThat(historyFlow.getExecutableNode(node.getId()).getStatus())
+        .isEqualTo(Status.SUCCEEDED);
+    final ExecutableFlow activeFlow = this.fetchActiveFlowDao.fetchActiveFlows()
+        .get(flow.getExecutionId()).getSecond();
+    assertThat(activeFlow.getExecutableNode(node.getId()).getStatus())
+        .isEqualTo(Status.SUCCEEDED);
+
+    // The batched snapshot write compacts the deltas too.
+    this.executionFlowDao.updateExecutableFlows(
+        ImmutableList.of(ExecutableFlowUpdate.snapshot(flow)));
+    assertThat(countFlowDeltas()).isEqualTo(0L);
+    assertThat(this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId())
+        .getExecutableNode(node.getId()).getStatus()).isEqualTo(Status.SUCCEEDED);
+  }
+
+  @Test
+  public void testCompactFlowDeltasOfLostExecution() throws Exception {
+    final ExecutableFlow flow = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(flow);
+    final long snapshotTime = flow.getUpdateTime();
+
+    // The executor died after writing the final state as a delta, before compacting it.
+    final ExecutableNode node = flow.getExecutableNodes().get(0);
+    node.setStatus(Status.FAILED);
+    node.setUpdateTime(snapshotTime + 1);
+    flow.setStatus(Status.FAILED);
+    flow.setUpdateTime(snapshotTime + 1);
+    this.executionFlowDao.updateExecutableFlowDelta(flow, snapshotTime);
+    assertThat(countFlowDeltas()).isEqualTo(1L);
+
+    assertThat(this.executionFlowDao.compactExecutableFlowDeltas(flow.getExecutionId())).isTrue();
+    assertThat(countFlowDeltas()).isEqualTo(0L);
+    final ExecutableFlow fetchFlow =
+        this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId());
+    assertTwoFlowSame(flow, fetchFlow);
+    assertThat(fetchFlow.getExecutableNode(node.getId()).getStatus()).isEqualTo(Status.FAILED);
+    assertThat(this.executionFlowDao.compactExecutableFlowDeltas(flow.getExecutionId()))
+        .isFalse();
+  }
+
+  @Test
+  public void testCompactFinishedFlowDeltas() throws Exception {
+    final ExecutableFlow runningFlow = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(runningFlow);
+    runningFlow.setStatus(Status.RUNNING);
+    runningFlow.setUpdateTime(runningFlow.getUpdateTime() + 1);
+    this.executionFlowDao.updateExecutableFlowDelta(runningFlow, runningFlow.getUpdateTime() - 1);
+
+    final ExecutableFlow finishedFlow = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(finishedFlow);
+    finishedFlow.setStatus(Status.KILLED);
+    finishedFlow.setUpdateTime(finishedFlow.getUpdateTime() + 1);
+    this.executionFlowDao.updateExecutableFlowDelta(finishedFlow,
+        finishedFlow.getUpdateTime() - 1);
+
+    // Only the deltas of the finished flow are compacted, the running one is still being written.
+    assertThat(this.executionFlowDao.compactFinishedFlowDeltas()).isEqualTo(1);
+    assertThat(countFlowDeltas()).isEqualTo(1L);
+    assertThat(this.executionFlowDao.fetchExecutableFlow(finishedFlow.getExecutionId())
+        .getStatus()).isEqualTo(Status.KILLED);
+  }
+
+  private long countFlowDeltas() throws SQLException {
+    return dbOperator.query("SELECT COUNT(*) FROM execution_flow_deltas",
+        rs -> rs.next() ? rs.getLong(1) : 0L);
+  }
+
   @Test
   public void fetchFlowHistory() throws Exception {
     final ExecutableFlow flow = createTestFlow();
@@ -215,6 +348,63 @@ public class ExecutionFlowDaoTest {
     assertTwoFlowSame(flowList1.get(0), fetchFlow);
   }
 
+  @Test
+  public void testFetchFlowHistorySummaries() throws Exception {
+    createTestProject();
+    for (int i = 0; i < 3; i++) {
+      final ExecutableFlow flow = createTestFlow();
+      flow.setSubmitUser("testUser" + i);
+      flow.setSubmitTime(System.currentTimeMillis());
+      this.executionFlowDao.uploadExecutableFlow(flow);
+      flow.setStatus(Status.RUNNING);
+      flow.setStartTime(System.currentTimeMillis());
+      this.executionFlowDao.updateExecutableFlow(flow);
+    }
+    final ExecutableFlow flow = this.executionFlowDao.fetchFlowHistory(0, 1).get(0);
+
+    assertSummariesSame(this.executionFlowDao.fetchFlowHistorySummaries(0, 2),
+        this.executionFlowDao.fetchFlowHistory(0, 2));
+    assertSummariesSame(this.executionFlowDao.fetchFlowHistorySummaries(1, 16),
+        this.executionFlowDao.fetchFlowHistory(1, 16));
+    assertSummariesSame(this.executionFlowDao
+            .fetchFlowHistorySummaries(flow.getProjectId(), flow.getFlowId(), 0, 16),
+        this.executionFlowDao.fetchFlowHistory(flow.getProjectId(), flow.getFlowId(), 0, 16));
+    assertSummariesSame(this.executionFlowDao
+            .fetchFlowHistorySummaries("exectest1", "", "testUser1", 0, -1, -1, 0, 16),
+        this.executionFlowDao.fetchFlowHistory("exectest1", "", "testUser1", 0, -1, -1, 0, 16));
+    assertThat(this.executionFlowDao
+        .fetchFlowHistorySummaries("exectest1", "", "testUser1", 0, -1, -1, 0, 16)).hasSize(1);
+  }
+
+  /**
+   * Compares reading a 10k row history page with and without the flow data.
+   */
+  @Ignore("Benchmark, run manually")
+  @Test
+  public void benchmarkFlowHistoryPage() throws Exception {
+    final int numExecutions = 10000;
+    for (int i = 0; i < numExecutions; i++) {
+      final ExecutableFlow flow = createTestFlow();
+      flow.setSubmitTime(System.currentTimeMillis());
+      this.executionFlowDao.uploadExecutableFlow(flow);
+    }
+
+    for (int round = 0; round < 3; round++) {
+      long startNs = System.nanoTime();
+      final int numFlows = this.executionFlowDao.fetchFlowHistory(0, numExecutions).size();
+      final long fullMs = (System.nanoTime() - startNs) / 1000000;
+
+      startNs = System.nanoTime();
+      final int numSummaries =
+          this.executionFlowDao.fetchFlowHistorySummaries(0, numExecutions).size();
+      final long summaryMs = (System.nanoTime() - startNs) / 1000000;
+
+      assertThat(numSummaries).isEqualTo(numFlows);
+      System.out.println("Round " + round + ": history page of " + numFlows
+          + " executions, with flow data " + fullMs + " ms, summaries " + summaryMs + " ms");
+    }
+  }
+
   @Test
   public void testFetchRecentlyFinishedFlows() throws Exception {
     final ExecutableFlow flow1 = createTestFlow();
@@ -358,6 +548,30 @@ public class ExecutionFlowDaoTest {
         false);
   }
 
+  @Test
+  public void testFetchFlowsMetadataUpdatedSince() throws Exception {
+    final ExecutableFlow oldFlow = createExecution(Status.RUNNING);
+    oldFlow.setUpdateTime(1000);
+    this.executionFlowDao.updateExecutableFlow(oldFlow);
+    final ExecutableFlow newFlow = createExecution(Status.RUNNING);
+    newFlow.setUpdateTime(3000);
+    this.executionFlowDao.updateExecutableFlow(newFlow);
+    final ExecutableFlow finishedFlow = createExecution(Status.SUCCEEDED);
+    finishedFlow.setUpdateTime(2000);
+    this.executionFlowDao.updateExecutableFlow(finishedFlow);
+
+    final List<Pair<ExecutionReference, ExecutableFlow>> updatedFlows =
+        this.fetchActiveFlowDao.fetchFlowsMetadataUpdatedSince(2000);
+    assertThat(updatedFlows.stream().map(pair -> pair.getSecond().getExecutionId()))
+        .containsExactlyInAnyOrder(newFlow.getExecutionId(), finishedFlow.getExecutionId());
+    for (final Pair<ExecutionReference, ExecutableFlow> pair : updatedFlows) {
+      final ExecutableFlow expected =
+          pair.getSecond().getExecutionId() == newFlow.getExecutionId() ? newFlow : finishedFlow;
+      assertTwoFlowSame(pair.getSecond(), expected, false);
+      assertThat(pair.getSecond().getUpdateTime()).isEqualTo(expected.getUpdateTime());
+    }
+  }
+
   @Test
   public void testFetchActiveFlowByExecId() throws Exception {
     final List<ExecutableFlow> flows = createExecutions();
@@ -586,6 +800,36 @@ public class ExecutionFlowDaoTest {
         .isEqualTo(-1);
   }
 
+  @Test
+  public void testSelectAndUpdateExecutions() throws Exception {
+    final Executor executor = this.executorDao.addExecutor("localhost", 12345);
+    assertThat(this.executionFlowDao.selectAndUpdateExecutions(executor.getId(), true, 2, false))
+        .as("Expected no execution selected")
+        .isEmpty();
+
+    final long currentTime = System.currentTimeMillis();
+    final ExecutableFlow lowPriorityFlow = submitNewFlow("exectest1", "exec1", currentTime,
+        ExecutionOptions.DEFAULT_FLOW_PRIORITY);
+    final ExecutableFlow highPriorityFlow = submitNewFlow("exectest1", "exec1", currentTime + 5,
+        ExecutionOptions.DEFAULT_FLOW_PRIORITY + 5);
+    final ExecutableFlow midPriorityFlow = submitNewFlow("exectest1", "exec1", currentTime + 10,
+        ExecutionOptions.DEFAULT_FLOW_PRIORITY + 3);
+
+    assertThat(this.executionFlowDao.selectAndUpdateExecutions(executor.getId(), true, 2, false))
+        .as("Expected the two flows with highest priority")
+        .containsExactly(highPriorityFlow.getExecutionId(), midPriorityFlow.getExecutionId());
+    assertThat(this.executorDao.fetchExecutorByExecutionId(highPriorityFlow.getExecutionId()))
+        .isEqualTo(executor);
+    assertThat(this.executorDao.fetchExecutorByExecutionId(midPriorityFlow.getExecutionId()))
+        .isEqualTo(executor);
+
+    assertThat(this.executionFlowDao.selectAndUpdateExecutions(executor.getId(), true, 2, false))
+        .as("Expected the remaining flow")
+        .containsExactly(lowPriorityFlow.getExecutionId());
+    assertThat(this.executionFlowDao.selectAndUpdateExecutions(executor.getId(), true, 2, false))
+        .isEmpty();
+  }
+
   private ExecutableFlow submitNewFlow(final String projectName, final String flowName,
       final long submitTime, final int flowPriority) throws IOException, ExecutorManagerException {
     final ExecutableFlow flow = TestUtils.createTestExecutableFlow(projectName, flowName);
@@ -597,6 +841,24 @@ public class ExecutionFlowDaoTest {
     return flow;
   }
 
+  private void assertSummariesSame(final List<ExecutableFlowSummary> summaries,
+      final List<ExecutableFlow> flows) {
+    assertThat(summaries).hasSize(flows.size());
+    for (int i = 0; i < flows.size(); i++) {
+      final ExecutableFlowSummary summary = summaries.get(i);
+      final ExecutableFlow flow = flows.get(i);
+      assertThat(summary.getExecutionId()).isEqualTo(flow.getExecutionId());
+      assertThat(summary.getProjectId()).isEqualTo(flow.getProjectId());
+      assertThat(summary.getVersion()).isEqualTo(flow.getVersion());
+      assertThat(summary.getFlowId()).isEqualTo(flow.getFlowId());
+      assertThat(summary.getStatus()).isEqualTo(flow.getStatus());
+      assertThat(summary.getSubmitUser()).isEqualTo(flow.getSubmitUser());
+      assertThat(summary.getSubmitTime()).isEqualTo(flow.getSubmitTime());
+      assertThat(summary.getStartTime()).isEqualTo(flow.getStartTime());
+      assertThat(summary.getEndTime()).isEqualTo(flow.getEndTime());
+    }
+  }
+
   private void assertTwoFlowSame(final ExecutableFlow flow1, final ExecutableFlow flow2) {
     assertTwoFlowSame(flow1, flow2, true);
   }
@@ -22,7 +22,9 @@ import azkaban.db.DatabaseOperator;
 import azkaban.test.Utils;
 import azkaban.test.executions.ExecutionsTestUtil;
 import azkaban.utils.FileIOUtils.LogData;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -109,4 +111,30 @@ public class ExecutionLogsDaoTest {
     assertThat(logsResult3).isNotNull();
     assertThat(logsResult3.getLength()).isEqualTo(185493);
   }
+
+  @Test
+  public void testStreamLogs() throws ExecutorManagerException {
+    final File logDir = ExecutionsTestUtil.getFlowDir(LOG_TEST_DIR_NAME);
+    final File[] largelog =
+        {new File(logDir, "largeLog1.log"), new File(logDir, "largeLog2.log"),
+            new File(logDir, "largeLog3.log")};
+
+    this.executionLogsDao.uploadLogFile(1, "largeFiles", 0, largelog);
+
+    // Starts in the middle of a chunk and spans several chunk boundaries
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final int written = this.executionLogsDao.streamLogs(1, "largeFiles", 0, 60000, 120000, out);
+    assertThat(written).isEqualTo(120000);
+    final LogData logsResult = this.executionLogsDao.fetchLogs(1, "largeFiles", 0, 60000, 120000);
+    assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+        .isEqualTo(logsResult.getData());
+
+    // Past the end of the log
+    final ByteArrayOutputStream tail = new ByteArrayOutputStream();
+    assertThat(this.executionLogsDao.streamLogs(1, "largeFiles", 0, 300000, 100000, tail))
+        .isEqualTo(35493);
+    assertThat(this.executionLogsDao.streamLogs(1, "largeFiles", 0, 400000, 100000, tail))
+        .isEqualTo(0);
+    assertThat(this.executionLogsDao.fetchLogs(1, "largeFiles", 0, 400000, 100000)).isNull();
+  }
 }
@@ -24,8 +24,10 @@ import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -73,6 +75,13 @@ public class MockExecutorLoader implements ExecutorLoader {
     return ExecutableFlow.createExecutableFlowFromObject(flow.toObject());
   }
 
+  @Override
+  public Pair<Status, Long> fetchExecutableFlowStatus(final int execId)
+      throws ExecutorManagerException {
+    final ExecutableFlow flow = this.flows.get(execId);
+    return flow == null ? null : new Pair<>(flow.getStatus(), flow.getUpdateTime());
+  }
+
   @Override
   public Map<Integer, Pair<ExecutionReference, ExecutableFlow>> fetchActiveFlows()
       throws ExecutorManagerException {
@@ -95,6 +104,15 @@ public class MockExecutorLoader implements ExecutorLoader {
         }));
   }
 
+  @Override
+  public List<Pair<ExecutionReference, ExecutableFlow>> fetchFlowsMetadataUpdatedSince(
+      final long updateTime) throws ExecutorManagerException {
+    return this.activeFlows.values().stream()
+        .filter(pair -> pair.getSecond().getUpdateTime() >= updateTime)
+        .map(pair -> new Pair<>(pair.getFirst(), getExecutableFlowMetadata(pair.getSecond())))
+        .collect(Collectors.toList());
+  }
+
   private ExecutableFlow getExecutableFlowMetadata(
       final ExecutableFlow fullExFlow) {
     final Flow flow = new Flow(fullExFlow.getId());
@@ -107,6 +125,7 @@ public class MockExecutorLoader implements ExecutorLoader {
     metadata.setSubmitTime(fullExFlow.getSubmitTime());
     metadata.setStartTime(fullExFlow.getStartTime());
     metadata.setEndTime(fullExFlow.getEndTime());
+    metadata.setUpdateTime(fullExFlow.getUpdateTime());
     metadata.setSubmitUser(fullExFlow.getSubmitUser());
     return metadata;
   }
@@ -157,6 +176,45 @@ public class MockExecutorLoader implements ExecutorLoader {
     this.flowUpdateCount++;
   }
 
+  @Override
+  public void updateExecutableFlowDelta(final ExecutableFlow flow, final long lastUpdateTime)
+      throws ExecutorManagerException {
+    final ExecutableFlow toUpdate = this.flows.get(flow.getExecutionId());
+
+    toUpdate.applyUpdateObject(flow.toUpdateObject(lastUpdateTime));
+    this.flowUpdateCount++;
+  }
+
+  @Override
+  public void updateExecutableFlows(final List<ExecutableFlowUpdate> snapshots)
+      throws ExecutorManagerException {
+    for (final ExecutableFlowUpdate snapshot : snapshots) {
+      this.flows.put(snapshot.getExecutionId(),
+          ExecutableFlow.createExecutableFlowFromObject(snapshot.getFlowData()));
+      this.flowUpdateCount++;
+    }
+  }
+
+  @Override
+  public void updateExecutableFlowDeltas(final List<ExecutableFlowUpdate> deltas)
+      throws ExecutorManagerException {
+    for (final ExecutableFlowUpdate delta : deltas) {
+      this.flows.get(delta.getExecutionId()).applyUpdateObject(delta.getFlowData());
+      this.flowUpdateCount++;
+    }
+  }
+
+  @Override
+  public boolean compactExecutableFlowDeltas(final int execId) throws ExecutorManagerException {
+    // Deltas are applied as they are written.
+    return false;
+  }
+
+  @Override
+  public int compactFinishedFlowDeltas() throws ExecutorManagerException {
+    return 0;
+  }
+
   @Override
   public void uploadExecutableNode(final ExecutableNode node, final Props inputParams)
       throws ExecutorManagerException {
@@ -190,6 +248,24 @@ public class MockExecutorLoader implements ExecutorLoader {
     this.flowUpdateCount++;
   }
 
+  @Override
+  public void updateExecutableNodes(final List<ExecutableNodeUpdate> nodes)
+      throws ExecutorManagerException {
+    for (final ExecutableNodeUpdate node : nodes) {
+      final ExecutableNode foundNode = this.nodes.get(node.getJobId());
+      foundNode.setEndTime(node.getEndTime());
+      foundNode.setStartTime(node.getStartTime());
+      foundNode.setStatus(node.getStatus());
+
+      final Integer value = this.jobUpdateCount.get(node.getJobId());
+      if (value == null) {
+        throw new ExecutorManagerException("The node has not been uploaded");
+      }
+      this.jobUpdateCount.put(node.getJobId(), value + 1);
+      this.flowUpdateCount++;
+    }
+  }
+
   @Override
   public int fetchNumExecutableFlows(final int projectId, final String flowId)
       throws ExecutorManagerException {
@@ -228,6 +304,13 @@ public class MockExecutorLoader implements ExecutorLoader {
     return null;
   }
 
+  @Override
+  public int streamLogs(final int execId, final String name, final int attempt,
+      final int startByte, final int length, final OutputStream out)
+      throws ExecutorManagerException {
+    return 0;
+  }
+
   @Override
   public List<ExecutableFlow> fetchFlowHistory(final int skip, final int num)
       throws ExecutorManagerException {
@@ -250,6 +333,26 @@ public class MockExecutorLoader implements ExecutorLoader {
     return new ArrayList<>();
   }
 
+  @Override
+  public List<ExecutableFlowSummary> fetchFlowHistorySummaries(final int skip, final int num)
+      throws ExecutorManagerException {
+    return new ArrayList<>();
+  }
+
+  @Override
+  public List<ExecutableFlowSummary> fetchFlowHistorySummaries(final int projectId,
+      final String flowId, final int skip, final int num) throws ExecutorManagerException {
+    return new ArrayList<>();
+  }
+
+  @Override
+  public List<ExecutableFlowSummary> fetchFlowHistorySummaries(final String projContain,
+      final String flowContains, final String userNameContains, final int status,
+      final long startData, final long endData, final int skip, final int num)
+      throws ExecutorManagerException {
+    return new ArrayList<>();
+  }
+
   @Override
   public List<ExecutableJobInfo> fetchJobHistory(final int projectId, final String jobId,
       final int skip, final int size) throws ExecutorManagerException {
@@ -457,6 +560,12 @@ public class MockExecutorLoader implements ExecutorLoader {
     return 1;
   }
 
+  @Override
+  public List<Integer> selectAndUpdateExecutions(final int executorId, final boolean isActive,
+      final int maxExecutions, final boolean skipLocked) throws ExecutorManagerException {
+    return maxExecutions > 0 ? Collections.singletonList(1) : Collections.emptyList();
+  }
+
   @Override
   public void unsetExecutorIdForExecution(final int executionId) {
   }
@@ -29,14 +29,17 @@ import azkaban.utils.Md5Hasher;
 import azkaban.utils.Props;
 import azkaban.utils.Triple;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -158,6 +161,40 @@ public class JdbcProjectImplTest {
     Assert.assertEquals(fileHandler.getUploader(), "uploadUser1");
   }
 
+  @Test
+  public void testUploadedFileStream() throws Exception {
+    createThreeProjects();
+    final Project project = this.loader.fetchProjectByName("mytestProject");
+    final File testFile = new File(getClass().getClassLoader().getResource(SAMPLE_FILE).getFile());
+    final int newVersion = this.loader.getLatestProjectVersion(project) + 1;
+    this.loader.uploadProjectFile(project.getId(), newVersion, testFile, "uploadUser1");
+
+    final ProjectFileHandler pfh = this.loader.fetchProjectMetaData(project.getId(), newVersion);
+    // The hash is computed while uploading
+    assertThat(pfh.getMd5Hash()).isEqualTo(computeHash(testFile));
+    try (InputStream stream = this.loader.getUploadedFileStream(pfh)) {
+      assertThat(IOUtils.toByteArray(stream)).isEqualTo(FileUtils.readFileToByteArray(testFile));
+    }
+  }
+
+  @Test
+  public void testUploadedFileStreamWithWrongHash() throws Exception {
+    createThreeProjects();
+    final Project project = this.loader.fetchProjectByName("mytestProject");
+    final File testFile = new File(getClass().getClassLoader().getResource(SAMPLE_FILE).getFile());
+    final int newVersion = this.loader.getLatestProjectVersion(project) + 1;
+    this.loader.uploadProjectFile(project.getId(), newVersion, testFile, "uploadUser1");
+
+    final ProjectFileHandler pfh = this.loader.fetchProjectMetaData(project.getId(), newVersion);
+    final ProjectFileHandler wrongHash = new ProjectFileHandler(pfh.getProjectId(),
+        pfh.getVersion(), pfh.getUploadTime(), pfh.getUploader(), pfh.getFileType(),
+        pfh.getFileName(), pfh.getNumChunks(), new byte[16], pfh.getResourceId());
+    try (InputStream stream = this.loader.getUploadedFileStream(wrongHash)) {
+      assertThatThrownBy(() -> IOUtils.toByteArray(stream)).isInstanceOf(IOException.class)
+          .hasMessageContaining("MD5 hash");
+    }
+  }
+
   @Test(expected = ProjectManagerException.class)
   public void testDuplicateUploadProjectFile() throws Exception {
     createThreeProjects();
@@ -291,6 +328,28 @@ public class JdbcProjectImplTest {
     Assert.assertEquals(flowList2.size(), 2);
   }
 
+  @Test
+  public void testFetchAllActiveProjectFlows() throws Exception {
+    createThreeProjects();
+    final Project project = this.loader.fetchProjectByName("mytestProject");
+    final Project project2 = this.loader.fetchProjectByName("mytestProject2");
+    final Project removed = this.loader.fetchProjectByName("mytestProject3");
+    this.loader.uploadFlows(project, project.getVersion(),
+        Arrays.asList(new Flow("flow1"), new Flow("flow2")));
+    // Not the current version
+    this.loader.uploadFlows(project2, project2.getVersion() + 1,
+        Collections.singletonList(new Flow("flow3")));
+    this.loader.uploadFlows(removed, removed.getVersion(),
+        Collections.singletonList(new Flow("flow4")));
+    this.loader.removeProject(removed, "testUser1");
+
+    final Map<Integer, List<Flow>> flows =
+        this.loader.fetchAllActiveProjectFlows(MoreExecutors.directExecutor());
+    assertThat(flows).containsOnlyKeys(project.getId());
+    assertThat(flows.get(project.getId())).extracting(Flow::getId)
+        .containsExactlyInAnyOrder("flow1", "flow2");
+  }
+
   @Test
   public void testUpdateFlow() throws Exception {
     final Flow flow1 = new Flow("flow1");
@@ -15,14 +15,25 @@
 */
 package azkaban.project;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.executor.ExecutorLoader;
+import azkaban.flow.Flow;
 import azkaban.storage.StorageManager;
+import azkaban.user.Permission;
 import azkaban.user.User;
 import azkaban.utils.Props;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collections;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -66,4 +77,109 @@ public class ProjectManagerTest {
         .hasMessageContaining(
             "Project already exists.");
   }
+
+  @Test
+  public void testLoadingFlowsOfAllProjects() throws Exception {
+    final Project project = new Project(1, "project1");
+    final Project project2 = new Project(2, "project2");
+    when(this.projectLoader.fetchAllActiveProjects())
+        .thenReturn(Arrays.asList(project, project2));
+    when(this.projectLoader.fetchAllActiveProjectFlows(any()))
+        .thenReturn(ImmutableMap.of(1, Arrays.asList(new Flow("flow1"), new Flow("flow2"))));
+
+    final ProjectManager manager = new ProjectManager(this.azkabanProjectLoader,
+        this.projectLoader, this.storageManager, this.props);
+    assertThat(manager.getProject(1).getFlowMap()).containsOnlyKeys("flow1", "flow2");
+    assertThat(manager.getProject(2).getFlows()).isEmpty();
+    assertThat(manager.getFlowCache()).isEmpty();
+    verify(this.projectLoader, never()).fetchAllProjectFlows(any());
+  }
+
+  @Test
+  public void testLoadingFlowsLazily() throws Exception {
+    this.props.put(ConfigurationKeys.PROJECT_FLOWS_LAZY_LOAD, "true");
+    final Project project = new Project(1, "project1");
+    project.setVersion(1);
+    when(this.projectLoader.fetchAllActiveProjects())
+        .thenReturn(Collections.singletonList(project));
+    when(this.projectLoader.fetchAllProjectFlows(project))
+        .thenReturn(Collections.singletonList(new Flow("flow1")))
+        .thenReturn(Collections.singletonList(new Flow("flow2")));
+
+    final ProjectManager manager = new ProjectManager(this.azkabanProjectLoader,
+        this.projectLoader, this.storageManager, this.props);
+    verify(this.projectLoader, never()).fetchAllActiveProjectFlows(any());
+    verify(this.projectLoader, never()).fetchAllProjectFlows(any());
+
+    assertThat(manager.getProject(1).getFlow("flow1")).isNotNull();
+    assertThat(manager.getProject(1).getFlows()).hasSize(1);
+    verify(this.projectLoader, times(1)).fetchAllProjectFlows(project);
+
+    // Reloaded once the project has a new version
+    project.setVersion(2);
+    assertThat(manager.getProject(1).getFlowMap()).containsOnlyKeys("flow2");
+    verify(this.projectLoader, times(2)).fetchAllProjectFlows(project);
+  }
+
+  @Test
+  public void testLazilyLoadedFlowsAreEvicted() throws Exception {
+    final ProjectLoader loader = mock(ProjectLoader.class);
+    final ProjectFlowCache cache = new ProjectFlowCache(loader, 1);
+    final Project project = new Project(1, "project1");
+    final Project project2 = new Project(2, "project2");
+    project.setFlowCache(cache);
+    project2.setFlowCache(cache);
+    when(loader.fetchAllProjectFlows(any()))
+        .thenAnswer(invocation -> Collections.singletonList(new Flow("flow1")));
+
+    project.getFlows();
+    project2.getFlows();
+    // One flow without nodes weighs 1, so only one project fits
+    assertThat(cache.size()).isEqualTo(1);
+    project.getFlows();
+    verify(loader, times(2)).fetchAllProjectFlows(project);
+  }
+
+  @Test
+  public void testListingProjectsFromPermissionIndex() throws Exception {
+    final Project project = new Project(1, "alpha");
+    project.setUserPermission("user1", new Permission(Permission.Type.READ));
+    final Project project2 = new Project(2, "beta");
+    project2.setUserPermission("user1", new Permission(Permission.Type.ADMIN));
+    project2.setGroupPermission("group1", new Permission(Permission.Type.READ));
+    final Project project3 = new Project(3, "alphabet");
+    project3.setUserPermission("user1", new Permission(Permission.Type.EXECUTE));
+    when(this.projectLoader.fetchAllActiveProjects())
+        .thenReturn(Arrays.asList(project3, project2, project));
+    final ProjectManager manager = new ProjectManager(this.azkabanProjectLoader,
+        this.projectLoader, this.storageManager, this.props);
+    final User user = new User("user1");
+    final User groupUser = new User("user2");
+    groupUser.addGroup("group1");
+    groupUser.addGroup("group2");
+    final User modifier = new User("admin");
+
+    assertThat(manager.getUserProjects(user)).containsExactly(project, project2);
+    assertThat(manager.getUserProjects(user, 1, 10)).containsExactly(project2);
+    assertThat(manager.getUserProjects(user, 0, 1)).containsExactly(project);
+    assertThat(manager.getUserProjectsByRegex(user, "ALPHA")).containsExactly(project);
+    assertThat(manager.getUserProjectsByRegex(user, "[")).isEmpty();
+    assertThat(manager.getUserProjects(groupUser)).isEmpty();
+    assertThat(manager.getGroupProjects(groupUser)).containsExactly(project2);
+
+    manager.updateProjectPermission(project3, "user1", new Permission(Permission.Type.READ),
+        false, modifier);
+    manager.updateProjectPermission(project, "group2", new Permission(Permission.Type.ADMIN),
+        true, modifier);
+    manager.updateProjectPermission(project2, "group1", new Permission(Permission.Type.EXECUTE),
+        true, modifier);
+    manager.removeProjectPermission(project, "user1", false, modifier);
+    assertThat(manager.getUserProjects(user)).containsExactly(project2, project3);
+    assertThat(manager.getUserProjectsByRegex(user, "ALPHA")).containsExactly(project3);
+    assertThat(manager.getGroupProjects(groupUser)).containsExactly(project);
+    assertThat(manager.getGroupProjects(groupUser, 1, 10)).isEmpty();
+
+    manager.removeProject(project2, modifier);
+    assertThat(manager.getUserProjects(user)).containsExactly(project3);
+  }
 }
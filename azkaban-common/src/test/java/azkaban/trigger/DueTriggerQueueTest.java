@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.trigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.trigger.builtin.BasicTimeChecker;
+import azkaban.utils.TimeUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTimeZone;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class DueTriggerQueueTest {
+
+  private static final long END_TIME = 2536871155000L;
+
+  private static Trigger createTimeTrigger(final long nextCheckTime) {
+    final ConditionChecker triggerChecker = new BasicTimeChecker("BasicTimeChecker_1", 111L,
+        DateTimeZone.UTC, nextCheckTime, true, false, TimeUtils.parsePeriodString("1d"), null);
+    final ConditionChecker endTimeChecker = new BasicTimeChecker("EndTimeChecker_1", 111L,
+        DateTimeZone.UTC, END_TIME, false, false, null, null);
+    return new Trigger.TriggerBuilder("azkaban", "test",
+        new Condition(ImmutableMap.of(triggerChecker.getId(), triggerChecker),
+            triggerChecker.getId() + ".eval()"),
+        new Condition(ImmutableMap.of(endTimeChecker.getId(), endTimeChecker),
+            endTimeChecker.getId() + ".eval()"),
+        ImmutableList.of(new DummyTriggerAction("test"))).build();
+  }
+
+  @Test
+  public void testPollDueInDueTimeOrder() {
+    final DueTriggerQueue queue = new DueTriggerQueue();
+    final Trigger t1 = createTimeTrigger(100);
+    final Trigger t2 = createTimeTrigger(200);
+    final Trigger t3 = createTimeTrigger(300);
+    queue.add(t3, 300);
+    queue.add(t1, 100);
+    queue.add(t2, 200);
+
+    assertThat(queue.getNextDueTime()).isEqualTo(100);
+    assertThat(queue.pollDue(100)).isEmpty();
+    assertThat(queue.pollDue(150)).containsExactly(t1);
+    assertThat(queue.pollDue(1000)).containsExactly(t2, t3);
+    assertThat(queue.getNextDueTime()).isEqualTo(Long.MAX_VALUE);
+    assertThat(queue.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void testRemovedAndReaddedTriggers() {
+    final DueTriggerQueue queue = new DueTriggerQueue();
+    final Trigger t1 = createTimeTrigger(100);
+    final Trigger t2 = createTimeTrigger(100);
+    queue.add(t1, 100);
+    queue.add(t2, 100);
+
+    // Updated to a later due time and removed
+    queue.add(t1, 500);
+    queue.remove(t2);
+    assertThat(queue.size()).isEqualTo(1);
+    assertThat(queue.pollDue(200)).isEmpty();
+    assertThat(queue.getNextDueTime()).isEqualTo(500);
+    assertThat(queue.pollDue(1000)).containsExactly(t1);
+  }
+
+  @Test
+  public void testRescheduleInFlightTriggers() {
+    final DueTriggerQueue queue = new DueTriggerQueue();
+    final Trigger t1 = createTimeTrigger(100);
+    final Trigger t2 = createTimeTrigger(100);
+    final Trigger t3 = createTimeTrigger(100);
+    queue.add(t1, 100);
+    queue.add(t2, 100);
+    queue.add(t3, 100);
+    assertThat(queue.pollDue(200)).containsExactlyInAnyOrder(t1, t2, t3);
+
+    // Removed or updated while in flight
+    queue.remove(t2);
+    queue.add(t3, 400);
+
+    assertThat(queue.reschedule(t1, 300)).isTrue();
+    assertThat(queue.reschedule(t2, 300)).isFalse();
+    assertThat(queue.reschedule(t3, 300)).isFalse();
+    assertThat(queue.size()).isEqualTo(2);
+    assertThat(queue.pollDue(350)).containsExactly(t1);
+    assertThat(queue.pollDue(450)).containsExactly(t3);
+  }
+
+  @Test
+  public void testTimeBasedTriggers() {
+    assertThat(createTimeTrigger(100).isTimeBased()).isTrue();
+
+    final ConditionChecker thresholdChecker = new ThresholdChecker("ThresholdChecker_1", 10);
+    final Trigger thresholdTrigger = new Trigger.TriggerBuilder("azkaban", "test",
+        new Condition(ImmutableMap.of(thresholdChecker.getId(), thresholdChecker),
+            thresholdChecker.getId() + ".eval()"),
+        createTimeTrigger(100).getExpireCondition(),
+        ImmutableList.of(new DummyTriggerAction("test"))).build();
+    assertThat(thresholdTrigger.isTimeBased()).isFalse();
+  }
+
+  /**
+   * Compares checking 100k schedules by sweeping all of them, like the trigger scanner used to
+   * on every scan, to polling the due ones.
+   */
+  @Ignore("Benchmark - run manually")
+  @Test
+  public void benchmarkCheckingDueTriggers() {
+    final int numTriggers = 100000;
+    final int numScans = 20;
+    final long now = System.currentTimeMillis();
+    final List<Trigger> triggers = new ArrayList<>();
+    final DueTriggerQueue queue = new DueTriggerQueue();
+    for (int i = 0; i < numTriggers; i++) {
+      // Spread over a day, one scan interval (a minute) apart per 70 triggers
+      final long nextCheckTime = now + TimeUnit.MINUTES.toMillis(i / 70);
+      final Trigger t = createTimeTrigger(nextCheckTime);
+      t.updateNextCheckTime();
+      triggers.add(t);
+      queue.add(t, t.getNextCheckTime());
+    }
+
+    long start = System.nanoTime();
+    int met = 0;
+    for (int scan = 0; scan < numScans; scan++) {
+      for (final Trigger t : triggers) {
+        if (t.triggerConditionMet()) {
+          met++;
+        }
+      }
+    }
+    final long sweepNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    int due = 0;
+    for (int scan = 0; scan < numScans; scan++) {
+      for (final Trigger t : queue.pollDue(now + TimeUnit.MINUTES.toMillis(scan) + 1)) {
+        if (t.triggerConditionMet()) {
+          due++;
+        }
+      }
+    }
+    final long dueNanos = System.nanoTime() - start;
+
+    System.out.printf("Full sweep: %d ms per scan (%d met), due triggers: %.3f ms per scan "
+            + "(%d due)%n", TimeUnit.NANOSECONDS.toMillis(sweepNanos) / numScans, met,
+        dueNanos / 1e6 / numScans, due);
+  }
+}
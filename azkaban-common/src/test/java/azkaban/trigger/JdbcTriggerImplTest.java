@@ -25,6 +25,7 @@ import azkaban.trigger.builtin.ExecuteFlowAction;
 import azkaban.utils.TimeUtils;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -127,6 +128,28 @@ public class JdbcTriggerImplTest {
     assertTrue(ts.get(0).isResetOnExpire() == false);
   }
 
+  @Test
+  public void testUpdateTriggers() throws Exception {
+    final Trigger t1 = createTrigger("testProj1", "testFlow1", "source1");
+    final Trigger t2 = createTrigger("testProj2", "testFlow2", "source2");
+    final Trigger removed = createTrigger("testProj3", "testFlow3", "source3");
+    this.loader.addTrigger(t1);
+    this.loader.addTrigger(t2);
+    this.loader.addTrigger(removed);
+    this.loader.removeTrigger(removed);
+
+    t1.setStatus(TriggerStatus.PAUSED);
+    t2.setStatus(TriggerStatus.EXPIRED);
+    this.loader.updateTriggers(Arrays.asList(t1, t2, removed));
+
+    final List<Trigger> ts = this.loader.loadTriggers();
+    assertTrue(ts.size() == 2);
+    for (final Trigger t : ts) {
+      assertTrue(t.getStatus() == (t.getTriggerId() == t1.getTriggerId() ? TriggerStatus.PAUSED
+          : TriggerStatus.EXPIRED));
+    }
+  }
+
   private Trigger createTrigger(final String projName, final String flowName, final String source) {
     final DateTime now = DateTime.now();
     final ConditionChecker checker1 =
@@ -72,7 +72,8 @@ public class TriggerManagerDeadlockTest {
         this.updaterStage, this.alertHolder, this.runningExecutions);
     this.commonMetrics = new CommonMetrics(new MetricsManager(new MetricRegistry()));
     final ExecutorManager executorManager = getExecutorManager(props);
-    this.triggerManager = new TriggerManager(props, this.loader, executorManager);
+    this.triggerManager = new TriggerManager(props, this.loader, executorManager,
+        this.commonMetrics);
   }
 
   private ExecutorManager getExecutorManager(final Props props) throws ExecutorManagerException {
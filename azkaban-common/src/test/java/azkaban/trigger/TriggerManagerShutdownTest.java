@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.trigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import azkaban.executor.ExecutorManagerAdapter;
+import azkaban.metrics.CommonMetrics;
+import azkaban.metrics.MetricsManager;
+import azkaban.trigger.TriggerManagerDeadlockTest.AlwaysOnChecker;
+import azkaban.utils.Props;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TriggerManagerShutdownTest {
+
+  private final CountDownLatch checked = new CountDownLatch(1);
+  private final AtomicInteger actionsDone = new AtomicInteger();
+  private TriggerManager triggerManager;
+
+  @Before
+  public void setUp() throws Exception {
+    final Props props = new Props();
+    props.put("trigger.scan.interval", 60000);
+    // The state of a fired trigger is only written by the flush on shutdown
+    props.put("trigger.update.max.delay.ms", 60000);
+    this.triggerManager = new TriggerManager(props, new MockTriggerLoader(),
+        mock(ExecutorManagerAdapter.class),
+        new CommonMetrics(new MetricsManager(new MetricRegistry())));
+    this.triggerManager.start();
+  }
+
+  @Test
+  public void testTriggerFiredBeforeShutdownDoesItsActions() throws Exception {
+    this.triggerManager.insertTrigger(createTrigger());
+    assertThat(this.checked.await(10, TimeUnit.SECONDS)).isTrue();
+
+    this.triggerManager.shutdown();
+    assertThat(this.actionsDone.get()).isEqualTo(1);
+  }
+
+  private Trigger createTrigger() {
+    final ConditionChecker triggerChecker = new SignalingChecker(this.checked);
+    final Condition triggerCond = new Condition(
+        ImmutableMap.of(triggerChecker.getId(), triggerChecker),
+        triggerChecker.getId() + ".eval()");
+    final ConditionChecker expireChecker = new AlwaysOnChecker("alwaysOff", Boolean.FALSE);
+    final Condition expireCond = new Condition(
+        ImmutableMap.of(expireChecker.getId(), expireChecker),
+        expireChecker.getId() + ".eval()");
+    return new Trigger.TriggerBuilder("azkaban", "azkabanTest", triggerCond, expireCond,
+        ImmutableList.<TriggerAction>of(new CountingAction())).build();
+  }
+
+  // Public so that the condition expression can call it
+  public static class SignalingChecker extends AlwaysOnChecker {
+
+    private final CountDownLatch checked;
+
+    public SignalingChecker(final CountDownLatch checked) {
+      super("alwaysOn", Boolean.TRUE);
+      this.checked = checked;
+    }
+
+    @Override
+    public Object eval() {
+      this.checked.countDown();
+      return super.eval();
+    }
+  }
+
+  private class CountingAction implements TriggerAction {
+
+    @Override
+    public String getId() {
+      return "countingAction";
+    }
+
+    @Override
+    public String getType() {
+      return "CountingAction";
+    }
+
+    @Override
+    public TriggerAction fromJson(final Object obj) {
+      return null;
+    }
+
+    @Override
+    public Object toJson() {
+      return null;
+    }
+
+    @Override
+    public void doAction() {
+      TriggerManagerShutdownTest.this.actionsDone.incrementAndGet();
+    }
+
+    @Override
+    public void setContext(final Map<String, Object> context) {
+    }
+
+    @Override
+    public String getDescription() {
+      return "counts the times it is done";
+    }
+  }
+}
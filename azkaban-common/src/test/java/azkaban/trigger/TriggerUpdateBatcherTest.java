@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.trigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import azkaban.metrics.CommonMetrics;
+import azkaban.metrics.MetricsManager;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TriggerUpdateBatcherTest {
+
+  private final List<List<Integer>> batches = new ArrayList<>();
+  private MetricRegistry metricRegistry;
+  private TriggerLoader loader;
+  private TriggerUpdateBatcher batcher;
+
+  @Before
+  public void setUp() {
+    this.metricRegistry = new MetricRegistry();
+    this.loader = new MockTriggerLoader() {
+      @Override
+      public void updateTriggers(final List<Trigger> triggers) throws TriggerLoaderException {
+        final List<Integer> ids = new ArrayList<>();
+        for (final Trigger t : triggers) {
+          ids.add(t.getTriggerId());
+        }
+        synchronized (TriggerUpdateBatcherTest.this.batches) {
+          TriggerUpdateBatcherTest.this.batches.add(ids);
+        }
+        super.updateTriggers(triggers);
+      }
+    };
+  }
+
+  @After
+  public void tearDown() {
+    if (this.batcher != null) {
+      this.batcher.shutdown();
+    }
+  }
+
+  private TriggerUpdateBatcher createBatcher(final TriggerLoader loader, final int maxBatchSize,
+      final long maxDelayMs) {
+    this.batcher = new TriggerUpdateBatcher(loader,
+        new CommonMetrics(new MetricsManager(this.metricRegistry)), maxBatchSize, maxDelayMs);
+    return this.batcher;
+  }
+
+  private Trigger createTrigger(final int id) {
+    final Trigger t = new Trigger.TriggerBuilder("azkaban", "test",
+        new Condition(ImmutableMap.of(), "true"),
+        new Condition(ImmutableMap.of(), "false"),
+        ImmutableList.of(new DummyTriggerAction("test"))).build();
+    t.setTriggerId(id);
+    return t;
+  }
+
+  @Test
+  public void testUpdatesAreCoalescedUntilTheDeadline() throws Exception {
+    createBatcher(this.loader, 100, 200);
+    final Trigger t1 = createTrigger(1);
+    final Trigger t2 = createTrigger(2);
+    final CompletableFuture<Void> f1 = this.batcher.update(t1);
+    final CompletableFuture<Void> f2 = this.batcher.update(t2);
+    final CompletableFuture<Void> f3 = this.batcher.update(t1);
+    assertThat(f1).isNotDone();
+
+    CompletableFuture.allOf(f1, f2, f3).get(5, TimeUnit.SECONDS);
+    assertThat(this.batches).containsExactly(ImmutableList.of(1, 2));
+    assertThat(this.loader.loadTrigger(1)).isSameAs(t1);
+    assertThat(this.metricRegistry.timer(CommonMetrics.TRIGGER_UPDATE_FLUSH_TIMER_NAME)
+        .getCount()).isEqualTo(1);
+    assertThat(this.metricRegistry
+        .histogram(CommonMetrics.TRIGGER_UPDATE_BATCH_SIZE_HISTOGRAM_NAME).getSnapshot()
+        .getMax()).isEqualTo(2);
+  }
+
+  @Test
+  public void testFullBatchIsWrittenBeforeTheDeadline() throws Exception {
+    createBatcher(this.loader, 2, TimeUnit.HOURS.toMillis(1));
+    final CompletableFuture<Void> f1 = this.batcher.update(createTrigger(1));
+    final CompletableFuture<Void> f2 = this.batcher.update(createTrigger(2));
+
+    CompletableFuture.allOf(f1, f2).get(5, TimeUnit.SECONDS);
+    assertThat(this.batches).containsExactly(ImmutableList.of(1, 2));
+  }
+
+  @Test
+  public void testPendingUpdatesAreWrittenOnShutdown() throws Exception {
+    createBatcher(this.loader, 100, TimeUnit.HOURS.toMillis(1));
+    final CompletableFuture<Void> f1 = this.batcher.update(createTrigger(1));
+    this.batcher.shutdown();
+
+    assertThat(f1).isDone();
+    assertThat(this.batches).containsExactly(ImmutableList.of(1));
+    assertThat(this.batcher.update(createTrigger(2))).isCompletedExceptionally();
+  }
+
+  @Test
+  public void testFailedWriteCompletesFuturesExceptionally() throws Exception {
+    final TriggerLoader failingLoader = mock(TriggerLoader.class);
+    doThrow(new TriggerLoaderException("DB is down")).when(failingLoader).updateTriggers(any());
+    createBatcher(failingLoader, 100, 10);
+    final CompletableFuture<Void> f1 = this.batcher.update(createTrigger(1));
+
+    try {
+      f1.get(5, TimeUnit.SECONDS);
+    } catch (final ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(TriggerLoaderException.class);
+    }
+    assertThat(f1).isCompletedExceptionally();
+    verify(failingLoader, times(1)).updateTriggers(any());
+  }
+}
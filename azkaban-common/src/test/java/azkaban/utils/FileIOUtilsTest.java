@@ -20,16 +20,28 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
 
+import azkaban.utils.FileIOUtils.LogData;
+import com.google.common.collect.ImmutableSet;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Random;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.comparator.NameFileComparator;
+import org.apache.commons.io.output.NullOutputStream;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -143,6 +155,22 @@ public class FileIOUtilsTest {
     assertThat(areDirsEqual(this.baseDir, this.sourceDir, true)).isTrue();
   }
 
+  @Test
+  public void testDeepLinksWithSymlinkedDir() throws IOException {
+    final Pair<Integer, Integer> linkCounts = FileIOUtils.createDeepLinks(this.sourceDir,
+        this.destDir, ImmutableSet.of("testdir"));
+    assertThat(areDirsEqual(this.sourceDir, this.destDir, true)).isTrue();
+    assertThat(linkCounts.getFirst()).isEqualTo(1);
+    assertThat(linkCounts.getSecond()).isEqualTo(1);
+    assertThat(Files.isSymbolicLink(Paths.get(this.destDir.getPath(), "testdir"))).isTrue();
+    assertThat(Files.isSymbolicLink(Paths.get(this.destDir.getPath(), "testdir", "testdir")))
+        .isFalse();
+
+    // Deleting the dest dir must not follow the symlinks into the source dir
+    FileUtils.deleteDirectory(this.destDir);
+    assertThat(areDirsEqual(this.baseDir, this.sourceDir, true)).isTrue();
+  }
+
   @Ignore("Slow test (over 30s) - run manually if need to touch createDeepHardlink()")
   @Test
   public void testHardlinkCopyOfBigDir() throws IOException {
@@ -263,6 +291,91 @@ public class FileIOUtilsTest {
     assertEquals(correctString.length(), mixedText.length() - 3);
   }
 
+  @Test
+  public void testTransferUtf8RangeMatchesReadUtf8File() throws IOException {
+    final String mixedText = "abc안녕하세요, 제 이름은 박병호입니다 xyz 𝄞 end";
+    final byte[] mixedBytes = createUTF8ByteArray(mixedText);
+    final File file = this.temp.newFile("mixed.log");
+    FileUtils.writeByteArrayToFile(file, mixedBytes);
+
+    for (int offset = 0; offset <= mixedBytes.length; offset++) {
+      for (final int length : new int[]{1, 2, 5, 17, mixedBytes.length}) {
+        final LogData logData = FileIOUtils.readUtf8File(file, offset, length);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Pair<Integer, Integer> range =
+            FileIOUtils.transferUtf8Range(file, offset, length, Channels.newChannel(out));
+
+        final String context = "offset " + offset + " length " + length;
+        assertEquals(context, logData.getOffset(), range.getFirst().intValue());
+        assertEquals(context, logData.getLength(), range.getSecond().intValue());
+        assertEquals(context, logData.getData(),
+            new String(out.toByteArray(), StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  @Test
+  public void testTransferUtf8RangeFromOpenChannelOfDeletedFile() throws IOException {
+    final File file = this.temp.newFile("deleted.log");
+    FileUtils.writeByteArrayToFile(file, createUTF8ByteArray("log line 𝄞\n"));
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      assertThat(file.delete()).isTrue();
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final Pair<Integer, Integer> range =
+          FileIOUtils.transferUtf8Range(channel, 0, 100, Channels.newChannel(out));
+
+      assertEquals(new Pair<>(0, 14), range);
+      assertEquals("log line 𝄞\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Compares reading log windows into strings with the range transfer to a channel.
+   */
+  @Ignore("Microbenchmark, run manually")
+  @Test
+  public void benchmarkLogWindowReads() throws IOException {
+    final int fileSize = 64 * 1024 * 1024;
+    final int windowSize = 1024 * 1024;
+    final int numReads = 2000;
+    final File file = this.temp.newFile("large.log");
+    final byte[] line = createUTF8ByteArray("2018/01/01 00:00:00 INFO - 안녕하세요 log line\n");
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+      for (int written = 0; written < fileSize; written += line.length) {
+        out.write(line);
+      }
+    }
+
+    final Random random = new Random(0);
+    final int[] offsets = new int[numReads];
+    for (int i = 0; i < numReads; i++) {
+      offsets[i] = random.nextInt(fileSize - windowSize);
+    }
+
+    for (int round = 0; round < 3; round++) {
+      long bytes = 0;
+      long startNs = System.nanoTime();
+      for (final int offset : offsets) {
+        bytes += FileIOUtils.readUtf8File(file, offset, windowSize).getLength();
+      }
+      final long readUtf8FileMs = (System.nanoTime() - startNs) / 1000000;
+
+      final WritableByteChannel sink = Channels.newChannel(new NullOutputStream());
+      startNs = System.nanoTime();
+      for (final int offset : offsets) {
+        bytes -= FileIOUtils.transferUtf8Range(file, offset, windowSize, sink).getSecond();
+      }
+      final long transferUtf8RangeMs = (System.nanoTime() - startNs) / 1000000;
+
+      assertEquals(0, bytes);
+      System.out.println("Round " + round + ": " + numReads + " windows of " + windowSize
+          + " bytes, readUtf8File " + readUtf8FileMs + " ms, transferUtf8Range "
+          + transferUtf8RangeMs + " ms");
+    }
+  }
+
   private byte[] createUTF8ByteArray(final String text) {
     byte[] textBytes = null;
     try {
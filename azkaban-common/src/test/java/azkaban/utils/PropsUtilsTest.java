@@ -17,8 +17,12 @@
 package azkaban.utils;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
 
 public class PropsUtilsTest {
@@ -105,6 +109,61 @@ public class PropsUtilsTest {
     Assert.assertEquals("8", resolved.get("expression9"));
   }
 
+  @Test
+  public void testSharedAndNestedVariables() throws IOException {
+    final Props parent = Props.of("base", "/data", "env", "prod", "dir", "${base}/${env}");
+    final Props props = new Props(parent);
+    for (int i = 0; i < 10; i++) {
+      props.put("path" + i, "${dir}/" + i);
+    }
+    props.put("literal", "${${env}} $${env}$ ${} ${env");
+
+    final Props resolved = PropsUtils.resolveProps(props);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals("/data/prod/" + i, resolved.get("path" + i));
+    }
+    Assert.assertEquals("/data/prod", resolved.get("dir"));
+    Assert.assertEquals("${prod} $prod$ ${} ${env", resolved.get("literal"));
+  }
+
+  /**
+   * Resolves the props of a flow of 2000 jobs, each with a few props of its own on top of a
+   * chain of shared props, like the executor does when it runs the jobs of a flow.
+   */
+  @Ignore("Benchmark - run manually")
+  @Test
+  public void benchmarkResolveProps() {
+    Props shared = new Props();
+    for (int level = 0; level < 5; level++) {
+      shared = new Props(shared);
+      for (int i = 0; i < 40; i++) {
+        shared.put("level" + level + ".key" + i, "value-" + level + "-" + i);
+      }
+      shared.put("level" + level + ".dir", level == 0 ? "/data" : "${level" + (level - 1)
+          + ".dir}/" + level);
+    }
+    shared.put("retries", "$(1 + 2)");
+
+    final List<Props> jobProps = new ArrayList<>();
+    for (int job = 0; job < 2000; job++) {
+      final Props props = new Props(shared);
+      props.put("type", "command");
+      props.put("command", "run.sh --in ${level4.dir}/in --out ${level4.dir}/out-" + job);
+      props.put("memory", "$(512 * 4)");
+      props.put("dependencies", "job" + (job - 1));
+      jobProps.add(props);
+    }
+
+    for (int run = 0; run < 5; run++) {
+      final long start = System.nanoTime();
+      for (final Props props : jobProps) {
+        PropsUtils.resolveProps(props);
+      }
+      System.out.printf("Resolved the props of %d jobs in %d ms%n", jobProps.size(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+  }
+
   @Test
   public void testMalformedExpressionProps() throws IOException {
     // unclosed
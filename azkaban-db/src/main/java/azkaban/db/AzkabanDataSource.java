@@ -17,9 +17,27 @@ package azkaban.db;
 
 import org.apache.commons.dbcp2.BasicDataSource;
 
+/**
+ * The connection pool of the Azkaban DB, along with the settings of the statements run through
+ * {@link DatabaseOperator}.
+ */
 public abstract class AzkabanDataSource extends BasicDataSource {
 
+  private volatile long slowQueryThresholdMs = -1;
+
   public abstract String getDBType();
 
   public abstract boolean allowsOnDuplicateKey();
+
+  /**
+   * @return the duration in ms from which a statement is logged as slow, 0 or less if slow
+   * statements aren't logged
+   */
+  public long getSlowQueryThresholdMs() {
+    return this.slowQueryThresholdMs;
+  }
+
+  public void setSlowQueryThresholdMs(final long slowQueryThresholdMs) {
+    this.slowQueryThresholdMs = slowQueryThresholdMs;
+  }
 }
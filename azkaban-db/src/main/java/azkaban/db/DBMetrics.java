@@ -17,8 +17,15 @@
 package azkaban.db;
 
 import azkaban.metrics.MetricsManager;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -28,13 +35,21 @@ import javax.inject.Singleton;
 @Singleton
 public class DBMetrics {
 
+  private static final Pattern TABLE_PATTERN =
+      Pattern.compile("\\b(?:FROM|INTO|UPDATE)\\s+`?(\\w+)", Pattern.CASE_INSENSITIVE);
+
   private final AtomicLong dbConnectionTime = new AtomicLong(0L);
   private final MetricsManager metricsManager;
+  private final ConcurrentHashMap<String, OperationMetrics> operationMetrics =
+      new ConcurrentHashMap<>();
   private Meter dbConnectionMeter;
   private Meter dbConnectionFailMeter;
   private Meter queryFailMeter;
   private Meter updateFailMeter;
   private Meter transactionFailMeter;
+  private Meter connectionTimeoutMeter;
+  private Meter slowQueryMeter;
+  private Histogram connectionWaitHistogram;
 
   @Inject
   public DBMetrics(final MetricsManager metricsManager) {
@@ -48,9 +63,36 @@ public class DBMetrics {
     this.queryFailMeter = this.metricsManager.addMeter("DB-Fail-Query-meter");
     this.updateFailMeter = this.metricsManager.addMeter("DB-Fail-Update-meter");
     this.transactionFailMeter = this.metricsManager.addMeter("DB-Fail-Transaction-meter");
+    this.connectionTimeoutMeter = this.metricsManager.addMeter("DB-Timeout-Connection-meter");
+    this.slowQueryMeter = this.metricsManager.addMeter("DB-Slow-Query-meter");
+    this.connectionWaitHistogram = this.metricsManager
+        .addHistogram("DB-Connection-Wait-ms-histogram");
     this.metricsManager.addGauge("dbConnectionTime", this.dbConnectionTime::get);
   }
 
+  /**
+   * Name of the metrics of a SQL statement: its verb and first table, e.g. select-projects.
+   */
+  static String getOperationName(final String sql) {
+    final String trimmed = sql.trim();
+    int verbEnd = 0;
+    while (verbEnd < trimmed.length() && Character.isLetter(trimmed.charAt(verbEnd))) {
+      verbEnd++;
+    }
+    final String verb = verbEnd == 0 ? "other" : trimmed.substring(0, verbEnd)
+        .toLowerCase(Locale.ROOT);
+    final Matcher matcher = TABLE_PATTERN.matcher(trimmed);
+    return matcher.find() ? verb + "-" + matcher.group(1).toLowerCase(Locale.ROOT) : verb;
+  }
+
+  /**
+   * Adds gauges of the number of active and idle connections of the pool.
+   */
+  void addPoolGauges(final AzkabanDataSource dataSource) {
+    this.metricsManager.addGauge("DB-Pool-Active-Connections", dataSource::getNumActive);
+    this.metricsManager.addGauge("DB-Pool-Idle-Connections", dataSource::getNumIdle);
+  }
+
   /**
    * Mark the occurrence of an DB query event.
    */
@@ -93,8 +135,46 @@ public class DBMetrics {
     this.dbConnectionFailMeter.mark();
   }
 
+  /**
+   * Mark the occurrence when no pooled DB connection became available in time.
+   */
+  void markDBConnectionTimeout() {
+    this.connectionTimeoutMeter.mark();
+  }
+
+  void markSlowQuery() {
+    this.slowQueryMeter.mark();
+  }
 
   void setDBConnectionTime(final long milliseconds) {
     this.dbConnectionTime.set(milliseconds);
   }
+
+  /**
+   * Records an operation run on a pooled connection, e.g. a statement named by
+   * {@link #getOperationName(String)} or a transaction.
+   *
+   * <p>The wait time is added to DB-Connection-Wait-ms-histogram and to
+   * DB-[name]-Wait-ms-histogram, the run time to DB-[name]-timer.
+   */
+  void recordOperation(final String name, final long waitNanos, final long runNanos) {
+    final long waitMs = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+    this.connectionWaitHistogram.update(waitMs);
+    final OperationMetrics metrics = this.operationMetrics.computeIfAbsent(name,
+        key -> new OperationMetrics(this.metricsManager.addHistogram("DB-" + key
+            + "-Wait-ms-histogram"), this.metricsManager.addTimer("DB-" + key + "-timer")));
+    metrics.waitHistogram.update(waitMs);
+    metrics.timer.update(runNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private static class OperationMetrics {
+
+    private final Histogram waitHistogram;
+    private final Timer timer;
+
+    private OperationMetrics(final Histogram waitHistogram, final Timer timer) {
+      this.waitHistogram = waitHistogram;
+      this.timer = timer;
+    }
+  }
 }
@@ -20,6 +20,7 @@ import static java.util.Objects.requireNonNull;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.dbutils.QueryRunner;
@@ -64,8 +65,14 @@ public class DatabaseOperator {
   public <T> T query(final String baseQuery, final ResultSetHandler<T> resultHandler,
       final Object... params)
       throws SQLException {
+    final long start = System.nanoTime();
+    Connection conn = null;
     try {
-      return this.queryRunner.query(baseQuery, resultHandler, params);
+      conn = this.queryRunner.getDataSource().getConnection();
+      final long acquired = System.nanoTime();
+      final T result = this.queryRunner.query(conn, baseQuery, resultHandler, params);
+      recordQuery(baseQuery, start, acquired);
+      return result;
     } catch (final SQLException ex) {
       // todo kunkun-tang: Retry logics should be implemented here.
       logger.error("query failed", ex);
@@ -73,6 +80,8 @@ public class DatabaseOperator {
         this.dbMetrics.markDBFailQuery();
       }
       throw ex;
+    } finally {
+      DbUtils.closeQuietly(conn);
     }
   }
 
@@ -86,14 +95,17 @@ public class DatabaseOperator {
    * @return T The object returned by the SQL statement, expected by the caller
    */
   public <T> T transaction(final SQLTransaction<T> operations) throws SQLException {
+    final long start = System.nanoTime();
     Connection conn = null;
     try {
       conn = this.queryRunner.getDataSource().getConnection();
+      final long acquired = System.nanoTime();
       conn.setAutoCommit(false);
       final DatabaseTransOperator transOperator = new DatabaseTransOperator(this.queryRunner,
           conn);
       final T res = operations.execute(transOperator);
       conn.commit();
+      recordOperation("transaction", "transaction", start, acquired);
       return res;
     } catch (final SQLException ex) {
       // todo kunkun-tang: Retry logics should be implemented here.
@@ -117,8 +129,14 @@ public class DatabaseOperator {
    * @return The number of rows updated.
    */
   public int update(final String updateClause, final Object... params) throws SQLException {
+    final long start = System.nanoTime();
+    Connection conn = null;
     try {
-      return this.queryRunner.update(updateClause, params);
+      conn = this.queryRunner.getDataSource().getConnection();
+      final long acquired = System.nanoTime();
+      final int updated = this.queryRunner.update(conn, updateClause, params);
+      recordQuery(updateClause, start, acquired);
+      return updated;
     } catch (final SQLException ex) {
       // todo kunkun-tang: Retry logics should be implemented here.
       logger.error("update failed", ex);
@@ -126,6 +144,63 @@ public class DatabaseOperator {
         this.dbMetrics.markDBFailUpdate();
       }
       throw ex;
+    } finally {
+      DbUtils.closeQuietly(conn);
+    }
+  }
+
+  /**
+   * Executes the given AZ related INSERT, UPDATE, or DELETE SQL statement once per row of
+   * parameters as a single JDBC batch.
+   *
+   * @param updateClause sql statement to execute
+   * @param params one array of PreparedStatement IN parameters per statement in the batch
+   * @return The number of rows updated per statement.
+   */
+  public int[] batch(final String updateClause, final Object[][] params) throws SQLException {
+    final long start = System.nanoTime();
+    Connection conn = null;
+    try {
+      conn = this.queryRunner.getDataSource().getConnection();
+      final long acquired = System.nanoTime();
+      final int[] updated = this.queryRunner.batch(conn, updateClause, params);
+      recordQuery(updateClause, start, acquired);
+      return updated;
+    } catch (final SQLException ex) {
+      logger.error("batch update failed", ex);
+      if (this.dbMetrics != null) {
+        this.dbMetrics.markDBFailUpdate();
+      }
+      throw ex;
+    } finally {
+      DbUtils.closeQuietly(conn);
+    }
+  }
+
+  private void recordQuery(final String sql, final long start, final long acquired) {
+    recordOperation(DBMetrics.getOperationName(sql), sql, start, acquired);
+  }
+
+  /**
+   * Records the wait and run time of an operation which started at start and got its connection at
+   * acquired, and logs it if it's slow.
+   */
+  private void recordOperation(final String name, final String description, final long start,
+      final long acquired) {
+    final long end = System.nanoTime();
+    if (this.dbMetrics != null) {
+      this.dbMetrics.recordOperation(name, acquired - start, end - acquired);
+    }
+
+    final long slowQueryThresholdMs = getDataSource().getSlowQueryThresholdMs();
+    final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(end - start);
+    if (slowQueryThresholdMs > 0 && elapsedMs >= slowQueryThresholdMs) {
+      logger.warn("Slow DB operation took " + elapsedMs + " ms, "
+          + TimeUnit.NANOSECONDS.toMillis(acquired - start)
+          + " ms of which waiting for a connection: " + description);
+      if (this.dbMetrics != null) {
+        this.dbMetrics.markSlowQuery();
+      }
     }
   }
 
@@ -107,6 +107,19 @@ public class DatabaseTransOperator {
     }
   }
 
+  /**
+   * Executes the statement once per row of parameters as a single JDBC batch on the transaction's
+   * connection.
+   *
+   * @param updateClause
+   * @param params
+   * @return the number of rows updated per statement
+   * @throws SQLException
+   */
+  public int[] batch(final String updateClause, final Object[][] params) throws SQLException {
+    return this.queryRunner.batch(this.conn, updateClause, params);
+  }
+
   /**
    * @return the JDBC connection associated with this operator.
    */
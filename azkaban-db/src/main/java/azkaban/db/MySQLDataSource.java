@@ -20,6 +20,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.NoSuchElementException;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.dbcp2.BasicDataSource;
@@ -29,6 +30,11 @@ import org.apache.log4j.Logger;
 public class MySQLDataSource extends AzkabanDataSource {
 
   private static final Logger logger = Logger.getLogger(MySQLDataSource.class);
+  private static final long DEFAULT_MAX_WAIT_MS = 60 * 1000L;
+  // Off by default: each cached statement stays open on the server, and MySQL caps the total
+  // across all clients with max_prepared_stmt_count.
+  private static final int DEFAULT_STATEMENT_CACHE_SIZE = 0;
+  private static final long DEFAULT_SLOW_QUERY_THRESHOLD_MS = 1000L;
   private final DBMetrics dbMetrics;
 
   @Inject
@@ -42,10 +48,21 @@ public class MySQLDataSource extends AzkabanDataSource {
     final String user = props.getString("mysql.user");
     final String password = props.getString("mysql.password");
     final int numConnections = props.getInt("mysql.numconnections");
+    final long maxWaitMs = props.getLong("mysql.max.wait.ms", DEFAULT_MAX_WAIT_MS);
+    final int statementCacheSize = props
+        .getInt("mysql.stmt.cache.size", DEFAULT_STATEMENT_CACHE_SIZE);
 
     final String url = "jdbc:mysql://" + (host + ":" + port + "/" + dbName);
     addConnectionProperty("useUnicode", "yes");
     addConnectionProperty("characterEncoding", "UTF-8");
+    if (statementCacheSize > 0) {
+      // Prepare statements on the server once per connection instead of sending the full SQL
+      // text for every execution
+      addConnectionProperty("useServerPrepStmts", "true");
+      addConnectionProperty("cachePrepStmts", "true");
+      addConnectionProperty("prepStmtCacheSize", String.valueOf(statementCacheSize));
+      addConnectionProperty("prepStmtCacheSqlLimit", "4096");
+    }
     setDriverClassName("com.mysql.jdbc.Driver");
     setUsername(user);
     setPassword(password);
@@ -53,6 +70,11 @@ public class MySQLDataSource extends AzkabanDataSource {
     setMaxTotal(numConnections);
     setValidationQuery("/* ping */ select 1");
     setTestOnBorrow(true);
+    // Callers fail instead of waiting forever when all the connections are in use
+    setMaxWaitMillis(maxWaitMs);
+    setSlowQueryThresholdMs(
+        props.getLong("mysql.slow.query.ms", DEFAULT_SLOW_QUERY_THRESHOLD_MS));
+    this.dbMetrics.addPoolGauges(this);
   }
   /**
    * This method overrides {@link BasicDataSource#getConnection()}, in order to have retry logics.
@@ -89,6 +111,13 @@ public class MySQLDataSource extends AzkabanDataSource {
           return connection;
         }
       } catch (final SQLException ex) {
+        if (ex.getCause() instanceof NoSuchElementException) {
+          // The pool is exhausted, the DB is fine. Retrying would only make callers wait longer.
+          this.dbMetrics.markDBConnectionTimeout();
+          logger.error("Timed out waiting for a DB connection. Active connections = "
+              + getNumActive() + ", max = " + getMaxTotal());
+          throw ex;
+        }
 
         /**
          * invalidate connection and reconstruct it later. if remote IP address is not reachable,
@@ -114,11 +143,12 @@ public class MySQLDataSource extends AzkabanDataSource {
   }
 
   private boolean isReadOnly(final Connection conn) throws SQLException {
-    final Statement stmt = conn.createStatement();
-    final ResultSet rs = stmt.executeQuery("SELECT @@global.read_only");
-    if (rs.next()) {
-      final int value = rs.getInt(1);
-      return value != 0;
+    try (final Statement stmt = conn.createStatement();
+        final ResultSet rs = stmt.executeQuery("SELECT @@global.read_only")) {
+      if (rs.next()) {
+        final int value = rs.getInt(1);
+        return value != 0;
+      }
     }
     throw new SQLException("can not fetch read only value from DB");
   }
@@ -0,0 +1,15 @@
+-- Per-execution log of flow state deltas. Each row holds the nodes that changed since the
+-- previous write, encoded the same way as execution_flows.flow_data. Rows are applied in
+-- delta_id order on top of the flow_data snapshot and are removed when the snapshot is rewritten.
+
+CREATE TABLE execution_flow_deltas (
+  delta_id    BIGINT NOT NULL AUTO_INCREMENT,
+  exec_id     INT    NOT NULL,
+  update_time BIGINT,
+  enc_type    TINYINT,
+  delta_data  LONGBLOB,
+  PRIMARY KEY (delta_id)
+);
+
+CREATE INDEX ex_flow_deltas_exec_id
+  ON execution_flow_deltas (exec_id);
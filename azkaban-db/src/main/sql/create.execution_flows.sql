@@ -14,6 +14,7 @@ CREATE TABLE execution_flows (
   executor_id INT                   DEFAULT NULL,
   use_executor INT                  DEFAULT NULL,
   flow_priority TINYINT    NOT NULL DEFAULT 5,
+  has_deltas  TINYINT      NOT NULL DEFAULT 0,
   PRIMARY KEY (exec_id)
 );
 
@@ -29,3 +30,5 @@ CREATE INDEX executor_id
   ON execution_flows (executor_id);
 CREATE INDEX ex_flows_staus
   ON execution_flows (status);
+CREATE INDEX ex_flows_update_time
+  ON execution_flows (update_time);
@@ -0,0 +1,24 @@
+-- DB Migration from release 3.77.0 to 3.78.0
+-- Adds the execution_flow_deltas table used when azkaban.server.flow.delta_persistence.enabled
+-- is set on executors. Only the changed nodes of a flow are appended there on each status change
+-- and compacted into execution_flows.flow_data periodically and when the flow finishes.
+--
+CREATE TABLE execution_flow_deltas (
+  delta_id    BIGINT NOT NULL AUTO_INCREMENT,
+  exec_id     INT    NOT NULL,
+  update_time BIGINT,
+  enc_type    TINYINT,
+  delta_data  LONGBLOB,
+  PRIMARY KEY (delta_id)
+);
+
+CREATE INDEX ex_flow_deltas_exec_id
+  ON execution_flow_deltas (exec_id);
+
+-- Set while an execution has deltas not yet compacted into flow_data, so that flows without
+-- deltas are read and written without touching execution_flow_deltas.
+ALTER TABLE execution_flows ADD COLUMN has_deltas TINYINT NOT NULL DEFAULT 0;
+
+-- Used by web servers to refresh their cached snapshot of active executions incrementally.
+CREATE INDEX ex_flows_update_time
+  ON execution_flows (update_time);
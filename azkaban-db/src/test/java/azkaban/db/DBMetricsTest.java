@@ -5,6 +5,7 @@ import static org.junit.Assert.assertEquals;
 import azkaban.metrics.MetricsManager;
 import azkaban.metrics.MetricsTestUtility;
 import com.codahale.metrics.MetricRegistry;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -24,4 +25,31 @@ public class DBMetricsTest {
     this.metrics.setDBConnectionTime(14);
     assertEquals(14, this.testUtil.getGaugeValue("dbConnectionTime"));
   }
+
+  @Test
+  public void testOperationName() {
+    assertEquals("select-execution_flows", DBMetrics
+        .getOperationName("SELECT exec_id FROM execution_flows WHERE status = ?"));
+    assertEquals("insert-project_files",
+        DBMetrics.getOperationName(" INSERT INTO project_files (project_id) values (?)"));
+    assertEquals("update-triggers",
+        DBMetrics.getOperationName("UPDATE triggers SET trigger_source=? WHERE trigger_id=?"));
+    assertEquals("select", DBMetrics.getOperationName("SELECT LAST_INSERT_ID();"));
+  }
+
+  @Test
+  public void testOperationMetrics() {
+    this.metrics.recordOperation("select-projects", TimeUnit.MILLISECONDS.toNanos(3),
+        TimeUnit.MILLISECONDS.toNanos(20));
+    this.metrics.recordOperation("select-projects", TimeUnit.MILLISECONDS.toNanos(5),
+        TimeUnit.MILLISECONDS.toNanos(10));
+    this.metrics.recordOperation("transaction", 0, TimeUnit.MILLISECONDS.toNanos(1));
+
+    assertEquals(2, this.testUtil.getTimerCount("DB-select-projects-timer"));
+    assertEquals(5,
+        this.testUtil.getHistogramSnapshot("DB-select-projects-Wait-ms-histogram").getMax());
+    assertEquals(3,
+        this.testUtil.getHistogramSnapshot("DB-Connection-Wait-ms-histogram").size());
+    assertEquals(1, this.testUtil.getTimerCount("DB-transaction-timer"));
+  }
 }
@@ -66,28 +66,29 @@ public class DatabaseOperatorTest {
     list.add(index_2);
 
     // valid query returns correct value
-    when(this.queryRunner.query("select * from blah where ? = ?", this.handler, "id", 2))
+    when(this.queryRunner.query(this.conn, "select * from blah where ? = ?", this.handler, "id", 2))
         .thenReturn(index_2);
 
     // If select an non-existing entry, handler returns 0.
-    when(this.queryRunner.query("select * from blah where ? = ?", this.handler, "id", 3))
+    when(this.queryRunner.query(this.conn, "select * from blah where ? = ?", this.handler, "id", 3))
         .thenReturn(0);
 
     //If typos, throw Exceptions.
     doThrow(SQLException.class).when(this.queryRunner)
-        .query("sele * from blah where ? = ?", this.handler, "id", 2);
+        .query(this.conn, "sele * from blah where ? = ?", this.handler, "id", 2);
 
     doAnswer(invocation -> {
       index_1 = 26;
       return 1;
-    }).when(this.queryRunner).update("update blah set ? = ?", "1", 26);
+    }).when(this.queryRunner).update(this.conn, "update blah set ? = ?", "1", 26);
   }
 
   @Test
   public void testValidQuery() throws Exception {
     final int res = this.dbOperator.query("select * from blah where ? = ?", this.handler, "id", 2);
     Assert.assertEquals(15, res);
-    verify(this.queryRunner).query("select * from blah where ? = ?", this.handler, "id", 2);
+    verify(this.queryRunner)
+        .query(this.conn, "select * from blah where ? = ?", this.handler, "id", 2);
   }
 
   @Test
@@ -124,7 +125,7 @@ public class DatabaseOperatorTest {
     // 1 row is affected
     Assert.assertEquals(1, res);
     Assert.assertEquals(26, index_1);
-    verify(this.queryRunner).update("update blah set ? = ?", "1", 26);
+    verify(this.queryRunner).update(this.conn, "update blah set ? = ?", "1", 26);
   }
 
   @Test
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.spi.AzkabanEvent;
+import azkaban.spi.AzkabanEventReporter;
+import azkaban.spi.EventType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+
+/**
+ * Asynchronous stage in front of an {@link AzkabanEventReporter}, so that reporting an event from
+ * a flow or job thread doesn't wait for the reporter, e.g. a Kafka producer.
+ *
+ * <p>Events are queued in a bounded queue and handed to {@link
+ * AzkabanEventReporter#reportBatch(List)} in batches by one delivery thread, in the order they
+ * were reported. When the queue is full, an event is dropped, after waiting for room up to the
+ * full queue timeout. Events which the reporter fails to report are counted, not retried.
+ */
+public class AsyncEventReporter implements AzkabanEventReporter {
+
+  private static final Logger logger = Logger.getLogger(AsyncEventReporter.class);
+  private static final long POLL_INTERVAL_MS = 1000;
+  private static final long SHUTDOWN_TIMEOUT_MS = 30 * 1000;
+  private static final int DROP_LOG_INTERVAL = 1000;
+
+  private final AzkabanEventReporter reporter;
+  private final BlockingQueue<AzkabanEvent> queue;
+  private final int batchSize;
+  private final long fullQueueTimeoutMs;
+  private final Thread deliveryThread;
+  private final AtomicLong numDroppedEvents = new AtomicLong();
+  private final AtomicLong numFailedEvents = new AtomicLong();
+  private volatile boolean shutdown = false;
+
+  /**
+   * @param fullQueueTimeoutMs how long reporting an event waits for room in a full queue before
+   * the event is dropped, 0 to drop it right away
+   */
+  public AsyncEventReporter(final AzkabanEventReporter reporter, final int queueSize,
+      final int batchSize, final long fullQueueTimeoutMs) {
+    this.reporter = reporter;
+    this.queue = new ArrayBlockingQueue<>(queueSize);
+    this.batchSize = batchSize;
+    this.fullQueueTimeoutMs = fullQueueTimeoutMs;
+    this.deliveryThread = new Thread(this::deliver, "azk-event-reporter");
+    this.deliveryThread.setDaemon(true);
+  }
+
+  public void start() {
+    this.deliveryThread.start();
+  }
+
+  /**
+   * Delivers the events still queued and stops the delivery thread. Events reported afterwards
+   * are dropped.
+   */
+  public void shutdown() {
+    this.shutdown = true;
+    try {
+      this.deliveryThread.join(SHUTDOWN_TIMEOUT_MS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (this.deliveryThread.isAlive()) {
+      logger.warn("Timed out delivering " + getQueueDepth() + " queued events.");
+    }
+  }
+
+  /**
+   * Queues the event.
+   *
+   * @return false if the event was dropped
+   */
+  @Override
+  public boolean report(final EventType eventType, final Map<String, String> metadata) {
+    final AzkabanEvent event = new AzkabanEvent(eventType, metadata);
+    boolean queued = false;
+    if (!this.shutdown) {
+      try {
+        queued = this.fullQueueTimeoutMs > 0
+            ? this.queue.offer(event, this.fullQueueTimeoutMs, TimeUnit.MILLISECONDS)
+            : this.queue.offer(event);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (!queued) {
+      final long numDropped = this.numDroppedEvents.incrementAndGet();
+      if (numDropped % DROP_LOG_INTERVAL == 1) {
+        logger.warn("Dropped " + eventType + " event, " + numDropped + " event(s) dropped so "
+            + "far. The event queue is full or shut down.");
+      }
+    }
+    return queued;
+  }
+
+  public int getQueueDepth() {
+    return this.queue.size();
+  }
+
+  public long getNumDroppedEvents() {
+    return this.numDroppedEvents.get();
+  }
+
+  public long getNumFailedEvents() {
+    return this.numFailedEvents.get();
+  }
+
+  private void deliver() {
+    final List<AzkabanEvent> batch = new ArrayList<>(this.batchSize);
+    while (!this.shutdown || !this.queue.isEmpty()) {
+      try {
+        final AzkabanEvent first = this.queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+      } catch (final InterruptedException e) {
+        logger.warn("Event delivery thread interrupted, events left in the queue are dropped.");
+        return;
+      }
+      this.queue.drainTo(batch, this.batchSize - 1);
+      try {
+        if (!this.reporter.reportBatch(batch)) {
+          this.numFailedEvents.addAndGet(batch.size());
+        }
+      } catch (final RuntimeException e) {
+        logger.error("Failed to report " + batch.size() + " event(s).", e);
+        this.numFailedEvents.addAndGet(batch.size());
+      }
+      batch.clear();
+    }
+  }
+}
@@ -30,10 +30,28 @@ public class ExecMetrics {
   public static final String NUM_RUNNING_FLOWS_NAME = "EXEC-NumRunningFlows";
   public static final String NUM_QUEUED_FLOWS_NAME = "EXEC-NumQueuedFlows";
   public static final String PROJECT_DIR_CACHE_HIT_RATIO_NAME = "EXEC-ProjectDirCacheHitRatio";
+  public static final String PROJECT_DIR_CACHE_HITS_NAME = "EXEC-ProjectDirCacheHits";
+  public static final String PROJECT_DIR_CACHE_MISSES_NAME = "EXEC-ProjectDirCacheMisses";
+  public static final String PROJECT_DIR_CACHE_EVICTIONS_NAME = "EXEC-ProjectDirCacheEvictions";
+  public static final String PROJECT_DIR_CACHE_SIZE_NAME = "EXEC-ProjectDirCacheSizeInBytes";
+  public static final String PROJECT_DIR_CACHE_NUM_PROJECTS_NAME =
+      "EXEC-ProjectDirCacheNumProjects";
   public static final String FLOW_SETUP_TIMER_NAME = "EXEC-flow-setup-timer";
+  public static final String EXECUTION_DIR_SETUP_TIMER_NAME = "EXEC-execution-dir-setup-timer";
+  public static final String WRITE_BEHIND_QUEUE_DEPTH_NAME = "EXEC-WriteBehindQueueDepth";
+  public static final String WRITE_BEHIND_FLUSH_TIMER_NAME = "EXEC-write-behind-flush-timer";
+  public static final String SHARED_JOB_POOL_MAX_THREADS_NAME = "EXEC-SharedJobPoolMaxThreads";
+  public static final String SHARED_JOB_POOL_RUNNING_JOBS_NAME = "EXEC-SharedJobPoolRunningJobs";
+  public static final String SHARED_JOB_POOL_QUEUED_JOBS_NAME = "EXEC-SharedJobPoolQueuedJobs";
+  public static final String EVENT_REPORTER_QUEUE_DEPTH_NAME = "EXEC-EventReporterQueueDepth";
+  public static final String EVENT_REPORTER_DROPPED_EVENTS_NAME =
+      "EXEC-EventReporterDroppedEvents";
+  public static final String EVENT_REPORTER_FAILED_EVENTS_NAME = "EXEC-EventReporterFailedEvents";
 
   private final MetricsManager metricsManager;
   private Timer flowSetupTimer;
+  private final Timer executionDirSetupTimer;
+  private final Timer writeBehindFlushTimer;
   private final ProjectCacheHitRatio projectCacheHitRatio;
 
   @Inject
@@ -43,13 +61,25 @@ public class ExecMetrics {
     this.projectCacheHitRatio = new ProjectCacheHitRatio();
     metricsManager.addGauge("EXEC-ProjectDirCacheHitRatio",
         this.projectCacheHitRatio::getRatio);
+    metricsManager.addGauge(PROJECT_DIR_CACHE_HITS_NAME, this.projectCacheHitRatio::getHitCount);
+    metricsManager.addGauge(PROJECT_DIR_CACHE_MISSES_NAME,
+        this.projectCacheHitRatio::getMissCount);
     this.flowSetupTimer = this.metricsManager.addTimer(FLOW_SETUP_TIMER_NAME);
+    this.executionDirSetupTimer = this.metricsManager.addTimer(EXECUTION_DIR_SETUP_TIMER_NAME);
+    this.writeBehindFlushTimer = this.metricsManager.addTimer(WRITE_BEHIND_FLUSH_TIMER_NAME);
   }
 
   ProjectCacheHitRatio getProjectCacheHitRatio() {
     return this.projectCacheHitRatio;
   }
 
+  /**
+   * @return the timer of linking the project files into execution dirs, one sample per execution
+   */
+  Timer getExecutionDirSetupTimer() {
+    return this.executionDirSetupTimer;
+  }
+
   public void addFlowRunnerManagerMetrics(final FlowRunnerManager flowRunnerManager) {
     this.metricsManager
         .addGauge(NUM_RUNNING_FLOWS_NAME, flowRunnerManager::getNumRunningFlows);
@@ -57,8 +87,39 @@ public class ExecMetrics {
         .addGauge(NUM_QUEUED_FLOWS_NAME, flowRunnerManager::getNumQueuedFlows);
   }
 
+  void addProjectCacheCleanerMetrics(final ProjectCacheCleaner cleaner) {
+    this.metricsManager
+        .addGauge(PROJECT_DIR_CACHE_EVICTIONS_NAME, cleaner::getNumEvictedProjects);
+    this.metricsManager.addGauge(PROJECT_DIR_CACHE_SIZE_NAME, cleaner::getTotalSizeInBytes);
+    this.metricsManager.addGauge(PROJECT_DIR_CACHE_NUM_PROJECTS_NAME, cleaner::getNumProjects);
+  }
+
+  public void addSharedJobThreadPoolMetrics(final SharedJobThreadPool pool) {
+    this.metricsManager.addGauge(SHARED_JOB_POOL_MAX_THREADS_NAME, pool::getMaxThreads);
+    this.metricsManager.addGauge(SHARED_JOB_POOL_RUNNING_JOBS_NAME, pool::getNumRunningJobs);
+    this.metricsManager.addGauge(SHARED_JOB_POOL_QUEUED_JOBS_NAME, pool::getNumQueuedJobs);
+  }
+
+  public void addWriteBehindMetrics(final WriteBehindExecutionUpdater updater) {
+    this.metricsManager.addGauge(WRITE_BEHIND_QUEUE_DEPTH_NAME, updater::getQueueDepth);
+  }
+
+  public void addAsyncEventReporterMetrics(final AsyncEventReporter reporter) {
+    this.metricsManager.addGauge(EVENT_REPORTER_QUEUE_DEPTH_NAME, reporter::getQueueDepth);
+    this.metricsManager
+        .addGauge(EVENT_REPORTER_DROPPED_EVENTS_NAME, reporter::getNumDroppedEvents);
+    this.metricsManager.addGauge(EVENT_REPORTER_FAILED_EVENTS_NAME, reporter::getNumFailedEvents);
+  }
+
   /**
    * @return the {@link Timer.Context} for the timer.
    */
   public Timer.Context getFlowSetupTimerContext() { return this.flowSetupTimer.time(); }
+
+  /**
+   * @return the {@link Timer.Context} for the write-behind flush latency timer.
+   */
+  public Timer.Context getWriteBehindFlushTimerContext() {
+    return this.writeBehindFlushTimer.time();
+  }
 }
@@ -95,6 +95,14 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
 
   public void handleRequest(final HttpServletRequest req, final HttpServletResponse resp)
       throws IOException {
+    // Log streams are sent as plain text rather than answered with JSON.
+    final String streamAction = getParam(req, ConnectorParams.ACTION_PARAM, null);
+    if (ConnectorParams.LOG_TAIL_ACTION.equals(streamAction)
+        || ConnectorParams.LOG_STREAM_ACTION.equals(streamAction)) {
+      handleLogStreamEvent(req, resp, ConnectorParams.LOG_TAIL_ACTION.equals(streamAction));
+      return;
+    }
+
     final HashMap<String, Object> respMap = new HashMap<>();
     try {
       if (!hasParam(req, ConnectorParams.ACTION_PARAM)) {
@@ -106,6 +114,9 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
           handleAjaxUpdateRequest(req, respMap);
         } else if (action.equals(ConnectorParams.PING_ACTION)) {
           respMap.put(ConnectorParams.STATUS_PARAM, ConnectorParams.RESPONSE_ALIVE);
+        } else if (action.equals(ConnectorParams.POLL_ACTION)) {
+          this.flowRunnerManager.nudgePolling();
+          respMap.put(ConnectorParams.STATUS_PARAM, ConnectorParams.RESPONSE_SUCCESS);
         } else if (action.equals(ConnectorParams.RELOAD_JOBTYPE_PLUGINS_ACTION)) {
           logger.info("Reloading Jobtype plugins");
           handleReloadJobTypePlugins(respMap);
@@ -213,6 +224,43 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
     }
   }
 
+  /**
+   * Sends a log as plain text. With tail set, the bytes appended to the log from the given offset
+   * are flushed as they are written, until the flow or job finishes or the tail times out. A tail
+   * past the limit of concurrent tails is answered with 503, so that the client fetches instead.
+   * Otherwise the requested range is copied from the log file to the response without decoding it.
+   * Errors found before anything is written are sent as an HTTP error status.
+   */
+  private void handleLogStreamEvent(final HttpServletRequest req, final HttpServletResponse resp,
+      final boolean tail) throws IOException {
+    try {
+      final int execId = getIntParam(req, ConnectorParams.EXECID_PARAM);
+      final String type = getParam(req, "type");
+      final int offset = getIntParam(req, "offset");
+      final String jobId = type.equals("flow") ? null : getParam(req, "jobId");
+      final int attempt = getIntParam(req, "attempt", 0);
+
+      resp.setContentType("text/plain");
+      resp.setCharacterEncoding("utf-8");
+      if (tail) {
+        if (this.flowRunnerManager.tailLogs(execId, jobId, attempt, offset,
+            resp.getOutputStream()) < 0) {
+          resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+              "Too many logs are tailed, fetch the log instead.");
+        }
+      } else {
+        final int length = getIntParam(req, "length");
+        this.flowRunnerManager
+            .transferLogs(execId, jobId, attempt, offset, length, resp.getOutputStream());
+      }
+    } catch (final ServletException | ExecutorManagerException e) {
+      logger.error(e.getMessage(), e);
+      if (!resp.isCommitted()) {
+        resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      }
+    }
+  }
+
   private void handleFetchAttachmentsEvent(final int execId, final HttpServletRequest req,
       final HttpServletResponse resp, final Map<String, Object> respMap)
       throws ServletException {
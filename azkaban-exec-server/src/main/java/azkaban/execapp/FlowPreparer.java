@@ -20,22 +20,42 @@ package azkaban.execapp;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
+import azkaban.Constants;
 import azkaban.execapp.metric.ProjectCacheHitRatio;
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.project.ProjectFileHandler;
 import azkaban.storage.StorageManager;
 import azkaban.utils.FileIOUtils;
+import azkaban.utils.Pair;
 import azkaban.utils.Utils;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.zip.ZipFile;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
@@ -46,8 +66,11 @@ class FlowPreparer {
 
   // Name of the file which keeps project directory size
   static final String PROJECT_DIR_SIZE_FILE_NAME = "___azkaban_project_dir_size_in_bytes___";
+  // Name of the file which keeps the hex MD5 of the project zip the directory was unzipped from
+  static final String PROJECT_MD5_FILE_NAME = "___azkaban_project_md5___";
 
   private static final Logger log = LoggerFactory.getLogger(FlowPreparer.class);
+  private static final int PROJECT_LOCK_STRIPES = 256;
 
   // TODO spyne: move to config class
   private final File executionsDir;
@@ -57,23 +80,74 @@ class FlowPreparer {
   // Null if cache clean-up is disabled
   private final Optional<ProjectCacheCleaner> projectCacheCleaner;
   private final ProjectCacheHitRatio projectCacheHitRatio;
+  // Only one thread downloads, installs or links a given project version at a time. Different
+  // project versions are prepared in parallel.
+  private final Striped<Lock> projectLocks = Striped.lazyWeakLock(PROJECT_LOCK_STRIPES);
+  // Installing a project, which may clean up other project dirs, takes the write lock. Reading
+  // from a project dir takes the read lock so that the dir isn't deleted meanwhile.
+  private final ReadWriteLock cacheLock = new ReentrantReadWriteLock();
+  // Installed project dirs by the MD5 of their zip, so that a version whose zip is the same as an
+  // installed one is linked instead of downloaded
+  private final Map<String, File> installedDirsByMd5 = new ConcurrentHashMap<>();
+  private final ExecutorService unzipService;
+  // Whether project zips are unzipped as they're streamed from storage, without a temp file
+  private final boolean streamingUnzip;
+  // Names of the project dirs that are symlinked into execution dirs instead of hard linked
+  private final Set<String> symlinkedDirNames;
+  // Installed project dirs that running executions have symlinks into, by execution id. The
+  // cache clean-up skips them, since deleting them would break the symlinks, unlike hard links.
+  private final Map<Integer, File> symlinkedInstalledDirs = new ConcurrentHashMap<>();
+  private final Timer executionDirSetupTimer;
 
   FlowPreparer(final StorageManager storageManager, final File executionsDir,
       final File projectsDir, final ProjectCacheCleaner cleaner,
       final ProjectCacheHitRatio projectCacheHitRatio) {
+    this(storageManager, executionsDir, projectsDir, cleaner, projectCacheHitRatio,
+        Constants.DEFAULT_PROJECT_UNZIP_THREADS);
+  }
+
+  FlowPreparer(final StorageManager storageManager, final File executionsDir,
+      final File projectsDir, final ProjectCacheCleaner cleaner,
+      final ProjectCacheHitRatio projectCacheHitRatio, final int unzipThreads) {
+    this(storageManager, executionsDir, projectsDir, cleaner, projectCacheHitRatio, unzipThreads,
+        ImmutableSet.of(), new Timer());
+  }
+
+  FlowPreparer(final StorageManager storageManager, final File executionsDir,
+      final File projectsDir, final ProjectCacheCleaner cleaner,
+      final ProjectCacheHitRatio projectCacheHitRatio, final int unzipThreads,
+      final Set<String> symlinkedDirNames, final Timer executionDirSetupTimer) {
+    this(storageManager, executionsDir, projectsDir, cleaner, projectCacheHitRatio, unzipThreads,
+        false, symlinkedDirNames, executionDirSetupTimer);
+  }
+
+  FlowPreparer(final StorageManager storageManager, final File executionsDir,
+      final File projectsDir, final ProjectCacheCleaner cleaner,
+      final ProjectCacheHitRatio projectCacheHitRatio, final int unzipThreads,
+      final boolean streamingUnzip, final Set<String> symlinkedDirNames,
+      final Timer executionDirSetupTimer) {
     Preconditions.checkNotNull(storageManager);
     Preconditions.checkNotNull(executionsDir);
     Preconditions.checkNotNull(projectsDir);
     Preconditions.checkNotNull(projectCacheHitRatio);
+    Preconditions.checkNotNull(symlinkedDirNames);
+    Preconditions.checkNotNull(executionDirSetupTimer);
 
     Preconditions.checkArgument(projectsDir.exists());
     Preconditions.checkArgument(executionsDir.exists());
+    Preconditions.checkArgument(unzipThreads > 0);
 
     this.storageManager = storageManager;
     this.executionsDir = executionsDir;
     this.projectCacheDir = projectsDir;
     this.projectCacheCleaner = Optional.ofNullable(cleaner);
     this.projectCacheHitRatio = projectCacheHitRatio;
+    this.symlinkedDirNames = ImmutableSet.copyOf(symlinkedDirNames);
+    this.executionDirSetupTimer = executionDirSetupTimer;
+    this.streamingUnzip = streamingUnzip;
+    this.unzipService = Executors.newFixedThreadPool(unzipThreads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-project-unzip-%d").build());
+    loadInstalledDirsByMd5();
   }
 
   /**
@@ -100,7 +174,6 @@ class FlowPreparer {
    * @param flow Executable Flow instance.
    */
   void setup(final ExecutableFlow flow) throws ExecutorManagerException {
-    final ProjectFileHandler projectFileHandler = null;
     File tempDir = null;
     try {
       final ProjectDirectoryMetadata project = new ProjectDirectoryMetadata(
@@ -109,35 +182,64 @@ class FlowPreparer {
 
       final long flowPrepStartTime = System.currentTimeMillis();
 
-
-      tempDir = downloadProjectIfNotExists(project, flow.getExecutionId());
-
-
-      // With synchronization, only one thread is allowed to proceed to avoid complicated race
-      // conditions which could arise when multiple threads are downloading/deleting/hard-linking
-      // the same project. But it doesn't prevent multiple executor processes interfering with each
-      // other triggering race conditions. So it's important to operationally make sure that only
-      // one executor process is setting up flow execution against the shared project directory.
+      // The project lock only serializes the preparations of the same project version, e.g. so
+      // that it's downloaded once. The cache lock keeps the clean-up from deleting a project dir
+      // that is being linked. But it doesn't prevent multiple executor processes interfering with
+      // each other triggering race conditions. So it's important to operationally make sure that
+      // only one executor process is setting up flow execution against the shared project
+      // directory.
       long criticalSectionStartTime = -1;
       File execDir = null;
 
-      synchronized (this) {
-        criticalSectionStartTime = System.currentTimeMillis();
-        if (!project.getInstalledDir().exists() && tempDir != null) {
-          // If new project is downloaded and project dir cache clean-up feature is enabled, then
-          // perform clean-up if size of all project dirs exceeds the cache size.
-          if (this.projectCacheCleaner.isPresent()) {
-            this.projectCacheCleaner.get()
-                .deleteProjectDirsIfNecessary(project.getDirSizeInByte());
+      final Lock projectLock = this.projectLocks.get(generateProjectDirName(project));
+      projectLock.lock();
+      try {
+        this.cacheLock.readLock().lock();
+        try {
+          if (useCachedProject(project, flow.getExecutionId())) {
+            criticalSectionStartTime = System.currentTimeMillis();
+            execDir = setupExecutionDir(project.getInstalledDir(), flow);
           }
-          // Rename temp dir to a proper project directory name.
-          Files.move(tempDir.toPath(), project.getInstalledDir().toPath());
+        } finally {
+          this.cacheLock.readLock().unlock();
         }
 
-        final long start = System.currentTimeMillis();
-        execDir = setupExecutionDir(project.getInstalledDir(), flow);
-        final long end = System.currentTimeMillis();
-        log.info("Setting up execution dir {} took {} sec(s)", execDir, (end - start) / 1000);
+        if (execDir == null) {
+          tempDir = downloadProjectIfNotExists(project, flow.getExecutionId());
+
+          this.cacheLock.writeLock().lock();
+          try {
+            criticalSectionStartTime = System.currentTimeMillis();
+            if (!project.getInstalledDir().exists() && tempDir != null) {
+              // If new project is downloaded and project dir cache clean-up feature is enabled,
+              // then perform clean-up if size of all project dirs exceeds the cache size.
+              if (this.projectCacheCleaner.isPresent()) {
+                this.projectCacheCleaner.get().deleteProjectDirsIfNecessary(
+                    project.getDirSizeInByte(), getSymlinkedInstalledDirs());
+              }
+              // Rename temp dir to a proper project directory name.
+              Files.move(tempDir.toPath(), project.getInstalledDir().toPath());
+              tempDir = null;
+              if (this.projectCacheCleaner.isPresent()) {
+                this.projectCacheCleaner.get().addProjectDir(project);
+              }
+              if (project.getMd5Hex() != null) {
+                this.installedDirsByMd5.put(project.getMd5Hex(), project.getInstalledDir());
+              }
+            }
+            // Downgrade so that the installed dir can't be cleaned up before it's linked
+            this.cacheLock.readLock().lock();
+          } finally {
+            this.cacheLock.writeLock().unlock();
+          }
+          try {
+            execDir = setupExecutionDir(project.getInstalledDir(), flow);
+          } finally {
+            this.cacheLock.readLock().unlock();
+          }
+        }
+      } finally {
+        projectLock.unlock();
       }
 
       final long flowPrepCompletionTime = System.currentTimeMillis();
@@ -147,30 +249,67 @@ class FlowPreparer {
           (flowPrepCompletionTime - criticalSectionStartTime) / 1000,
           flow.getExecutionId(), execDir.getPath());
     } catch (final Exception ex) {
-      FileIOUtils.deleteDirectorySilently(tempDir);
       log.error("Error in preparing flow execution {}", flow.getExecutionId(), ex);
       throw new ExecutorManagerException(ex);
     } finally {
-      if (projectFileHandler != null) {
-        projectFileHandler.deleteLocalFile();
-      }
+      // Set unless the downloaded project was installed
+      FileIOUtils.deleteDirectorySilently(tempDir);
     }
   }
 
+  // Must be called with the cache read lock held, so that the installed dir isn't cleaned up
+  // before it's pinned
   private File setupExecutionDir(final File installedDir, final ExecutableFlow flow)
       throws IOException {
     File execDir = null;
     try {
+      final long start = System.nanoTime();
       execDir = createExecDir(flow);
-      // Create hardlinks from the project
-      FileIOUtils.createDeepHardlink(installedDir, execDir);
+      final int hardlinkCount;
+      final int symlinkCount;
+      if (this.symlinkedDirNames.isEmpty()) {
+        hardlinkCount = FileIOUtils.createDeepHardlink(installedDir, execDir);
+        symlinkCount = 0;
+      } else {
+        // Pin first, the clean-up can't run until the read lock is released anyway
+        this.symlinkedInstalledDirs.put(flow.getExecutionId(), installedDir);
+        final Pair<Integer, Integer> linkCounts = FileIOUtils
+            .createDeepLinks(installedDir, execDir, this.symlinkedDirNames);
+        hardlinkCount = linkCounts.getFirst();
+        symlinkCount = linkCounts.getSecond();
+        if (symlinkCount == 0) {
+          this.symlinkedInstalledDirs.remove(flow.getExecutionId());
+        }
+      }
+      final long elapsedNanos = System.nanoTime() - start;
+      this.executionDirSetupTimer.update(elapsedNanos, TimeUnit.NANOSECONDS);
+      log.info("Setting up execution dir {} took {} ms, created {} hard link(s) and {} "
+              + "symlink(s). [execid: {}]", execDir, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+          hardlinkCount, symlinkCount, flow.getExecutionId());
       return execDir;
     } catch (final Exception ex) {
+      this.symlinkedInstalledDirs.remove(flow.getExecutionId());
       FileIOUtils.deleteDirectorySilently(execDir);
       throw ex;
     }
   }
 
+  /**
+   * Releases the installed project dir of an execution whose execution dir was deleted, so that
+   * the cache clean-up may delete it again.
+   */
+  void releaseExecutionDir(final int execId) {
+    this.symlinkedInstalledDirs.remove(execId);
+  }
+
+  /**
+   * @return the installed project dirs that execution dirs have symlinks into
+   */
+  @VisibleForTesting
+  Set<File> getSymlinkedInstalledDirs() {
+    return new HashSet<>(this.symlinkedInstalledDirs.values());
+  }
+
   /**
    * Update last modified time of the file if it exists.
    *
@@ -202,19 +341,130 @@ class FlowPreparer {
 
   private void downloadAndUnzipProject(final ProjectDirectoryMetadata proj, final File dest)
       throws IOException {
-    final ProjectFileHandler projectFileHandler = requireNonNull(this.storageManager
-        .getProjectFile(proj.getProjectId(), proj.getVersion()));
+    final ProjectFileHandler metadata = this.storageManager
+        .getProjectMetaData(proj.getProjectId(), proj.getVersion());
+    if (metadata != null && metadata.getMd5Hash() != null) {
+      proj.setMd5Hex(BaseEncoding.base16().lowerCase().encode(metadata.getMd5Hash()));
+    }
+
+    if (!linkInstalledDirWithSameMd5(proj, dest)) {
+      if (this.streamingUnzip) {
+        requireNonNull(metadata, "No project file for " + proj);
+        checkState("zip".equals(metadata.getFileType()));
+        // The stream checks the MD5 hash at its end, which unzip reads to
+        try (InputStream zipStream = new BufferedInputStream(
+            this.storageManager.getProjectFileStream(metadata))) {
+          Utils.unzip(zipStream, dest);
+        }
+      } else {
+        final ProjectFileHandler projectFileHandler = requireNonNull(this.storageManager
+            .getProjectFile(proj.getProjectId(), proj.getVersion()));
+        try {
+          checkState("zip".equals(projectFileHandler.getFileType()));
+          final File zipFile = requireNonNull(projectFileHandler.getLocalFile());
+          try (ZipFile zip = new ZipFile(zipFile)) {
+            Utils.unzip(zip, dest, this.unzipService);
+          }
+        } finally {
+          projectFileHandler.deleteLocalFile();
+        }
+      }
+    }
+
+    if (proj.getMd5Hex() != null) {
+      Files.write(Paths.get(dest.getPath(), PROJECT_MD5_FILE_NAME),
+          proj.getMd5Hex().getBytes(StandardCharsets.UTF_8));
+    }
+    proj.setDirSizeInByte(calculateDirSizeAndSave(dest));
+  }
+
+  /**
+   * Links the files of an installed project dir unzipped from the same zip, e.g. when the same
+   * artifact was uploaded as a new version.
+   *
+   * @return true if the files were linked, false if the project has to be downloaded
+   */
+  private boolean linkInstalledDirWithSameMd5(final ProjectDirectoryMetadata proj,
+      final File dest) throws IOException {
+    if (proj.getMd5Hex() == null) {
+      return false;
+    }
+    this.cacheLock.readLock().lock();
     try {
-      checkState("zip".equals(projectFileHandler.getFileType()));
-      final File zipFile = requireNonNull(projectFileHandler.getLocalFile());
-      final ZipFile zip = new ZipFile(zipFile);
-      Utils.unzip(zip, dest);
-      proj.setDirSizeInByte(calculateDirSizeAndSave(dest));
+      final File installedDir = this.installedDirsByMd5.get(proj.getMd5Hex());
+      if (installedDir == null) {
+        return false;
+      }
+      if (!proj.getMd5Hex().equals(readMd5(installedDir))) {
+        // Cleaned up since
+        this.installedDirsByMd5.remove(proj.getMd5Hex(), installedDir);
+        return false;
+      }
+      FileIOUtils.createDeepHardlink(installedDir, dest);
+      // The size file of the new dir is updated on its own accesses
+      Files.deleteIfExists(Paths.get(dest.getPath(), PROJECT_DIR_SIZE_FILE_NAME));
+      Files.deleteIfExists(Paths.get(dest.getPath(), PROJECT_MD5_FILE_NAME));
+      log.info("Project {} has the same zip as {}, linked its files instead of downloading it",
+          proj, installedDir);
+      return true;
     } finally {
-      projectFileHandler.deleteLocalFile();
+      this.cacheLock.readLock().unlock();
+    }
+  }
+
+  private static String readMd5(final File projectDir) {
+    final Path path = Paths.get(projectDir.getPath(), PROJECT_MD5_FILE_NAME);
+    try {
+      return Files.exists(path) ? new String(Files.readAllBytes(path), StandardCharsets.UTF_8)
+          : null;
+    } catch (final IOException ex) {
+      log.warn("Error when reading {}", path, ex);
+      return null;
+    }
+  }
+
+  private void loadInstalledDirsByMd5() {
+    final File[] projectDirs = this.projectCacheDir
+        .listFiles(file -> file.isDirectory() && file.getName().matches("[0-9]+\\.[0-9]+"));
+    if (projectDirs == null) {
+      return;
+    }
+    for (final File projectDir : projectDirs) {
+      final String md5Hex = readMd5(projectDir);
+      if (md5Hex != null) {
+        this.installedDirsByMd5.put(md5Hex, projectDir);
+      }
     }
   }
 
+  /**
+   * Uses the project from the local cache if it's installed.
+   *
+   * @return true if the project is installed
+   */
+  private boolean useCachedProject(final ProjectDirectoryMetadata proj, final int execId) {
+    if (proj.getInstalledDir() == null) {
+      proj.setInstalledDir(new File(this.projectCacheDir, generateProjectDirName(proj)));
+    }
+
+    // If directory exists, assume it's prepared and skip.
+    if (!proj.getInstalledDir().exists()) {
+      return false;
+    }
+    log.info("Project {} already cached. Skipping download. ExecId: {}", proj, execId);
+    // Hit the local cache.
+    this.projectCacheHitRatio.markHit();
+    // Update last modified time of the file keeping project dir size when the project is
+    // accessed. This last modified time will be used to determined least recently used
+    // projects when performing project directory clean-up.
+    updateLastModifiedTime(
+        Paths.get(proj.getInstalledDir().getPath(), PROJECT_DIR_SIZE_FILE_NAME));
+    if (this.projectCacheCleaner.isPresent()) {
+      this.projectCacheCleaner.get().markAccessed(proj.getInstalledDir());
+    }
+    return true;
+  }
+
   /**
    * Download project zip and unzip it if not exists locally.
    *
@@ -225,21 +475,7 @@ class FlowPreparer {
   @VisibleForTesting
   File downloadProjectIfNotExists(final ProjectDirectoryMetadata proj, final int execId)
       throws IOException {
-    final String projectDir = generateProjectDirName(proj);
-    if (proj.getInstalledDir() == null) {
-      proj.setInstalledDir(new File(this.projectCacheDir, projectDir));
-    }
-
-    // If directory exists, assume it's prepared and skip.
-    if (proj.getInstalledDir().exists()) {
-      log.info("Project {} already cached. Skipping download. ExecId: {}", proj, execId);
-      // Hit the local cache.
-      this.projectCacheHitRatio.markHit();
-      // Update last modified time of the file keeping project dir size when the project is
-      // accessed. This last modified time will be used to determined least recently used
-      // projects when performing project directory clean-up.
-      updateLastModifiedTime(
-          Paths.get(proj.getInstalledDir().getPath(), PROJECT_DIR_SIZE_FILE_NAME));
+    if (useCachedProject(proj, execId)) {
       return null;
     }
 
@@ -249,7 +485,12 @@ class FlowPreparer {
 
     // Download project to a temp dir if not exists in local cache.
     final File tempDir = createTempDir(proj);
-    downloadAndUnzipProject(proj, tempDir);
+    try {
+      downloadAndUnzipProject(proj, tempDir);
+    } catch (final IOException | RuntimeException ex) {
+      FileIOUtils.deleteDirectorySilently(tempDir);
+      throw ex;
+    }
 
     log.info("Downloading zip file for project {} when preparing execution [execid {}] "
             + "completed in {} second(s)", proj, execId,
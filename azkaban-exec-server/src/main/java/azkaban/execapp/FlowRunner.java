@@ -107,8 +107,8 @@ public class FlowRunner extends EventHandler implements Runnable {
 
   private static final Layout DEFAULT_LAYOUT = new PatternLayout(
       "%d{dd-MM-yyyy HH:mm:ss z} %c{1} %p - %m\n");
-  // We check update every 5 minutes, just in case things get stuck. But for the
-  // most part, we'll be idling.
+  // The main loop is woken up by job events. We still check every 5 minutes, just in case
+  // things get stuck.
   private static final long CHECK_WAIT_MS = 5 * 60 * 1000;
   private final ExecutableFlow flow;
   // Sync object for queuing
@@ -129,8 +129,25 @@ public class FlowRunner extends EventHandler implements Runnable {
       .newSetFromMap(new ConcurrentHashMap<>());
   // Thread safe swap queue for finishedExecutions.
   private final SwapQueue<ExecutableNode> finishedNodes;
+  // Number of dependencies that haven't released each node yet, keyed by nested id. Only accessed
+  // from the main loop, so that a finished node finds its ready out-nodes without rescanning
+  // their in-nodes.
+  private final Map<String, Integer> pendingDependencyCounts = new HashMap<>();
+  // Nested ids of the finished nodes whose out-nodes have been released
+  private final Set<String> releasedNodes = new HashSet<>();
+  // Main loop statistics, only accessed from the main loop
+  private int numMainLoopWakeUps = 0;
+  private int numMainLoopTimeouts = 0;
+  private long numDependencyChecks = 0;
   private final AzkabanEventReporter azkabanEventReporter;
   private final AlerterHolder alerterHolder;
+  // Flow state delta persistence
+  private final boolean deltaPersistenceEnabled;
+  private final int deltaCompactionMaxDeltas;
+  private final long deltaCompactionIntervalMs;
+  private long lastPersistedUpdateTime = -1;
+  private long lastCompactionTime = -1;
+  private int numDeltasSinceCompaction = 0;
   private Logger logger;
   private Appender flowAppender;
   private File logFile;
@@ -142,6 +159,8 @@ public class FlowRunner extends EventHandler implements Runnable {
   private Integer pipelineExecId = null;
   // Watches external flows for execution.
   private FlowWatcher watcher = null;
+  // Coalesces and batches status updates when set, otherwise they are written synchronously.
+  private WriteBehindExecutionUpdater writeBehindUpdater = null;
   private Set<String> proxyUsers = null;
   private boolean validateUserProxy;
   private String jobLogFileSize = "5MB";
@@ -150,6 +169,8 @@ public class FlowRunner extends EventHandler implements Runnable {
   private volatile boolean flowFailed = false;
   private volatile boolean flowFinished = false;
   private volatile boolean flowKilled = false;
+  // Set when an event wakes up the main loop, guarded by mainSyncObj
+  private boolean wakeUpRequested = false;
 
   // The following is state that will trigger a retry of all failed jobs
   private volatile boolean retryFailedJobs = false;
@@ -190,6 +211,14 @@ public class FlowRunner extends EventHandler implements Runnable {
     this.finishedNodes = new SwapQueue<>();
     this.azkabanProps = azkabanProps;
     this.alerterHolder = alerterHolder;
+    this.deltaPersistenceEnabled = azkabanProps
+        .getBoolean(ConfigurationKeys.AZKABAN_FLOW_DELTA_PERSISTENCE_ENABLED, false);
+    this.deltaCompactionMaxDeltas = azkabanProps
+        .getInt(ConfigurationKeys.AZKABAN_FLOW_DELTA_COMPACTION_MAX_DELTAS,
+            Constants.DEFAULT_FLOW_DELTA_COMPACTION_MAX_DELTAS);
+    this.deltaCompactionIntervalMs = azkabanProps
+        .getLong(ConfigurationKeys.AZKABAN_FLOW_DELTA_COMPACTION_INTERVAL_MS,
+            Constants.DEFAULT_FLOW_DELTA_COMPACTION_INTERVAL_MS);
 
     // Add the flow listener only if a non-null eventReporter is available.
     if (azkabanEventReporter != null) {
@@ -207,6 +236,11 @@ public class FlowRunner extends EventHandler implements Runnable {
     return this;
   }
 
+  public FlowRunner setWriteBehindUpdater(final WriteBehindExecutionUpdater writeBehindUpdater) {
+    this.writeBehindUpdater = writeBehindUpdater;
+    return this;
+  }
+
   public FlowRunner setNumJobThreads(final int jobs) {
     this.numJobThreads = jobs;
     return this;
@@ -335,7 +369,7 @@ public class FlowRunner extends EventHandler implements Runnable {
           + ". Pipelining level " + this.pipelineLevel);
     }
 
-    // The current thread is used for interrupting blocks
+    // The current thread is used to tell whether the runner is still alive
     this.flowRunnerThread = Thread.currentThread();
     this.flowRunnerThread.setName("FlowRunner-exec-" + this.flow.getExecutionId());
   }
@@ -347,12 +381,44 @@ public class FlowRunner extends EventHandler implements Runnable {
   private synchronized void updateFlow(final long time) {
     try {
       this.flow.setUpdateTime(time);
-      this.executorLoader.updateExecutableFlow(this.flow);
+      if (shouldAppendFlowDelta(time)) {
+        // Nodes updated in the same millisecond as the previous write may have changed after it
+        // was serialized, so the window overlaps by one ms. Re-applying a node is harmless.
+        final long lastUpdateTime = this.lastPersistedUpdateTime - 1;
+        if (this.writeBehindUpdater != null) {
+          this.writeBehindUpdater.updateExecutableFlowDelta(this.flow, lastUpdateTime);
+        } else {
+          this.executorLoader.updateExecutableFlowDelta(this.flow, lastUpdateTime);
+        }
+        this.numDeltasSinceCompaction++;
+      } else {
+        if (this.writeBehindUpdater != null) {
+          this.writeBehindUpdater.updateExecutableFlow(this.flow);
+        } else {
+          this.executorLoader.updateExecutableFlow(this.flow);
+        }
+        this.lastCompactionTime = time;
+        this.numDeltasSinceCompaction = 0;
+      }
+      this.lastPersistedUpdateTime = time;
     } catch (final ExecutorManagerException e) {
       this.logger.error("Error updating flow.", e);
     }
   }
 
+  /**
+   * A delta is only written once a full snapshot exists, and the snapshot is rewritten when the
+   * flow finishes or the compaction thresholds are reached.
+   */
+  private boolean shouldAppendFlowDelta(final long time) {
+    return this.deltaPersistenceEnabled
+        && this.lastPersistedUpdateTime > 0
+        && !this.flowFinished
+        && !Status.isStatusFinished(this.flow.getStatus())
+        && this.numDeltasSinceCompaction < this.deltaCompactionMaxDeltas
+        && time - this.lastCompactionTime < this.deltaCompactionIntervalMs;
+  }
+
   /**
    * setup logger and execution dir for the flowId
    */
@@ -432,10 +498,7 @@ public class FlowRunner extends EventHandler implements Runnable {
           if (this.retryFailedJobs) {
             retryAllFailures();
           } else if (!progressGraph()) {
-            try {
-              this.mainSyncObj.wait(CHECK_WAIT_MS);
-            } catch (final InterruptedException e) {
-            }
+            waitForEvent();
           }
         }
       }
@@ -448,6 +511,21 @@ public class FlowRunner extends EventHandler implements Runnable {
     this.logger.info("Finished Flow");
   }
 
+  // Must be called with mainSyncObj held
+  private void waitForEvent() {
+    if (!this.wakeUpRequested) {
+      try {
+        this.mainSyncObj.wait(CHECK_WAIT_MS);
+      } catch (final InterruptedException e) {
+      }
+      if (!this.wakeUpRequested) {
+        this.numMainLoopTimeouts++;
+      }
+    }
+    this.wakeUpRequested = false;
+    this.numMainLoopWakeUps++;
+  }
+
   private void retryAllFailures() throws IOException {
     this.logger.info("Restarting all failed jobs");
 
@@ -485,6 +563,7 @@ public class FlowRunner extends EventHandler implements Runnable {
     for (final ExecutableNode node : this.finishedNodes) {
       Set<String> outNodeIds = node.getOutNodes();
       ExecutableFlowBase parentFlow = node.getParentFlow();
+      ExecutableNode releasedNode = node;
 
       // If a job is seen as failed or killed due to failing SLA, then we set the parent flow to
       // FAILED_FINISHING
@@ -509,17 +588,20 @@ public class FlowRunner extends EventHandler implements Runnable {
 
         // If the parent has a parent, then we process
         if (!(parentFlow instanceof ExecutableFlow)) {
+          releasedNode = parentFlow;
           outNodeIds = parentFlow.getOutNodes();
           parentFlow = parentFlow.getParentFlow();
         }
       }
 
-      // Add all out nodes from the finished job. We'll check against this set
-      // to
-      // see if any are candidates for running.
+      // Add the out nodes from the finished job that have no other unfinished dependencies.
+      // We'll check against this set to see if any are candidates for running.
+      releaseOutNodes(releasedNode);
       for (final String nodeId : outNodeIds) {
         final ExecutableNode outNode = parentFlow.getExecutableNode(nodeId);
-        nodesToCheck.add(outNode);
+        if (getPendingDependencyCount(outNode) == 0) {
+          nodesToCheck.add(outNode);
+        }
       }
     }
 
@@ -569,6 +651,65 @@ public class FlowRunner extends EventHandler implements Runnable {
     }
   }
 
+  /**
+   * Returns the number of dependencies of the node that haven't released it yet. The count is
+   * computed once from the released set and then kept up to date as dependencies finish or are
+   * reset.
+   */
+  private int getPendingDependencyCount(final ExecutableNode node) {
+    final Integer count = this.pendingDependencyCounts.get(node.getNestedId());
+    if (count != null) {
+      return count;
+    }
+
+    int pending = 0;
+    final ExecutableFlowBase parentFlow = node.getParentFlow();
+    for (final String inNodeId : node.getInNodes()) {
+      this.numDependencyChecks++;
+      if (!this.releasedNodes.contains(parentFlow.getExecutableNode(inNodeId).getNestedId())) {
+        pending++;
+      }
+    }
+    this.pendingDependencyCounts.put(node.getNestedId(), pending);
+    return pending;
+  }
+
+  /**
+   * Marks a finished node as released, decrementing the pending dependency counts of its out
+   * nodes. A node that finishes several times (e.g. a sub flow) is only released once.
+   */
+  private void releaseOutNodes(final ExecutableNode node) {
+    if (this.releasedNodes.add(node.getNestedId())) {
+      adjustPendingDependencyCounts(node, -1);
+    }
+  }
+
+  /**
+   * Undoes {@link #releaseOutNodes(ExecutableNode)} for a node that is reset to run again.
+   */
+  private void unreleaseOutNodes(final ExecutableNode node) {
+    if (this.releasedNodes.remove(node.getNestedId())) {
+      adjustPendingDependencyCounts(node, 1);
+    }
+  }
+
+  private void adjustPendingDependencyCounts(final ExecutableNode node, final int delta) {
+    final ExecutableFlowBase parentFlow = node.getParentFlow();
+    if (parentFlow == null) {
+      return;
+    }
+
+    for (final String outNodeId : node.getOutNodes()) {
+      this.numDependencyChecks++;
+      final String nestedId = parentFlow.getExecutableNode(outNodeId).getNestedId();
+      final Integer count = this.pendingDependencyCounts.get(nestedId);
+      // Counts that were never computed will be computed from the released set.
+      if (count != null) {
+        this.pendingDependencyCounts.put(nestedId, count + delta);
+      }
+    }
+  }
+
   private boolean notReadyToRun(final Status status) {
     return Status.isStatusFinished(status)
         || Status.isStatusRunning(status)
@@ -1059,6 +1200,9 @@ public class FlowRunner extends EventHandler implements Runnable {
     if (this.watcher != null) {
       jobRunner.setPipeline(this.watcher, this.pipelineLevel);
     }
+    if (this.writeBehindUpdater != null) {
+      jobRunner.setWriteBehindUpdater(this.writeBehindUpdater);
+    }
     if (this.validateUserProxy) {
       jobRunner.setValidatedProxyUsers(this.proxyUsers);
     }
@@ -1200,6 +1344,7 @@ public class FlowRunner extends EventHandler implements Runnable {
       } else if (node.getStatus() == Status.KILLING) {
         continue;
       } else if (node.getStatus() == Status.SKIPPED) {
+        unreleaseOutNodes(node);
         node.setStatus(Status.DISABLED);
         node.setEndTime(-1);
         node.setStartTime(-1);
@@ -1208,6 +1353,7 @@ public class FlowRunner extends EventHandler implements Runnable {
         final ExecutableFlowBase base = (ExecutableFlowBase) node;
         switch (base.getStatus()) {
           case CANCELLED:
+            unreleaseOutNodes(node);
             node.setStatus(Status.READY);
             node.setEndTime(-1);
             node.setStartTime(-1);
@@ -1228,12 +1374,14 @@ public class FlowRunner extends EventHandler implements Runnable {
         }
       } else if (node.getStatus() == Status.CANCELLED) {
         // Not a flow, but killed
+        unreleaseOutNodes(node);
         node.setStatus(Status.READY);
         node.setStartTime(-1);
         node.setEndTime(-1);
         node.setUpdateTime(currentTime);
       } else if (node.getStatus() == Status.FAILED
           || node.getStatus() == Status.KILLED) {
+        unreleaseOutNodes(node);
         node.resetForRetry();
         nodesToRetry.add(node);
       }
@@ -1251,6 +1399,7 @@ public class FlowRunner extends EventHandler implements Runnable {
     }
 
     // At this point, the following code will reset the flow
+    unreleaseOutNodes(flow);
     final Status oldFlowState = flow.getStatus();
     if (maxStartTime == -1) {
       // Nothing has run inside the flow, so we assume the flow hasn't even
@@ -1275,8 +1424,40 @@ public class FlowRunner extends EventHandler implements Runnable {
         + oldFlowState + " to " + flow.getStatus());
   }
 
+  /**
+   * Wakes up the main loop so that it handles a new event right away instead of waiting up to
+   * {@link #CHECK_WAIT_MS}. Unlike interrupting the flow runner thread, this can't abort a DB
+   * update that the main loop is in the middle of.
+   */
   private void interrupt() {
-    this.flowRunnerThread.interrupt();
+    synchronized (this.mainSyncObj) {
+      this.wakeUpRequested = true;
+      this.mainSyncObj.notifyAll();
+    }
+  }
+
+  /**
+   * @return the number of times the main loop woke up after waiting for an event
+   */
+  @VisibleForTesting
+  int getNumMainLoopWakeUps() {
+    return this.numMainLoopWakeUps;
+  }
+
+  /**
+   * @return the number of times the main loop woke up on the periodic check instead of an event
+   */
+  @VisibleForTesting
+  int getNumMainLoopTimeouts() {
+    return this.numMainLoopTimeouts;
+  }
+
+  /**
+   * @return the number of dependencies visited to find the nodes ready to run
+   */
+  @VisibleForTesting
+  long getNumDependencyChecks() {
+    return this.numDependencyChecks;
   }
 
   public boolean isKilled() {
@@ -29,6 +29,7 @@ import azkaban.execapp.event.RemoteFlowWatcher;
 import azkaban.execapp.metric.NumFailedFlowMetric;
 import azkaban.executor.AlerterHolder;
 import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableNode;
 import azkaban.executor.ExecutionOptions;
 import azkaban.executor.Executor;
 import azkaban.executor.ExecutorLoader;
@@ -50,6 +51,7 @@ import azkaban.utils.FileIOUtils.JobMetaData;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.OsCpuUtil;
+import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import azkaban.utils.SystemMemoryInfo;
 import azkaban.utils.ThreadPoolExecutingListener;
@@ -57,11 +59,16 @@ import azkaban.utils.TrackingThreadPool;
 import azkaban.utils.UndefinedPropertyException;
 import com.codahale.metrics.Timer;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.Thread.State;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -71,13 +78,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -112,12 +121,28 @@ public class FlowRunnerManager implements EventListener,
   private static final String EXECUTOR_THREADPOOL_WORKQUEUE_SIZE = "executor.threadpool.workqueue.size";
   private static final String EXECUTOR_FLOW_THREADS = "executor.flow.threads";
   private static final String FLOW_NUM_JOB_THREADS = "flow.num.job.threads";
+  // Size of the job thread pool shared by all flows. If not set or <= 0, every flow creates its
+  // own pool of flow.num.job.threads threads.
+  private static final String EXECUTOR_SHARED_JOB_THREADS = "executor.shared.job.threads";
+  // How often a log tail checks for new bytes, and how long one tail request may last before the
+  // client has to reconnect.
+  private static final String EXECUTOR_LOG_TAIL_POLL_INTERVAL_MS =
+      "executor.log.tail.poll.interval.ms";
+  private static final String EXECUTOR_LOG_TAIL_MAX_DURATION_MS =
+      "executor.log.tail.max.duration.ms";
+  // How many log tails may be open at once. Each one holds a Jetty thread while it's open, so
+  // tails past the limit are refused and the client falls back to fetching the log.
+  private static final String EXECUTOR_LOG_TAIL_MAX_CONCURRENT =
+      "executor.log.tail.max.concurrent";
 
   // recently finished secs to clean up. 1 minute
   private static final int RECENTLY_FINISHED_TIME_TO_LIVE = 60 * 1000;
 
   private static final int DEFAULT_NUM_EXECUTING_FLOWS = 30;
   private static final int DEFAULT_FLOW_NUM_JOB_TREADS = 10;
+  private static final long DEFAULT_LOG_TAIL_POLL_INTERVAL_MS = 500;
+  private static final long DEFAULT_LOG_TAIL_MAX_DURATION_MS = 30 * 1000;
+  private static final int DEFAULT_LOG_TAIL_MAX_CONCURRENT = 8;
 
   // this map is used to store the flows that have been submitted to
   // the executor service. Once a flow has been submitted, it is either
@@ -142,15 +167,23 @@ public class FlowRunnerManager implements EventListener,
   private final Object executionDirDeletionSync = new Object();
   private final CommonMetrics commonMetrics;
   private final ExecMetrics execMetrics;
+  private final LogTailer logTailer;
+  private final Semaphore logTailPermits;
 
   private final int numThreads;
   private final int numJobThreadPerFlow;
+  // How often the status of an upstream pipelined execution on another executor is checked
+  private final long pipelineStatusCheckIntervalMs;
   // We want to limit the log sizes to about 20 megs
   private final String jobLogChunkSize;
   private final int jobLogNumFiles;
   // If true, jobs will validate proxy user against a list of valid proxy users.
   private final boolean validateProxyUser;
   private PollingService pollingService;
+  private WriteBehindExecutionUpdater writeBehindUpdater;
+  // Null unless events are reported asynchronously, then it's also the azkabanEventReporter
+  private AsyncEventReporter asyncEventReporter;
+  private SharedJobThreadPool sharedJobThreadPool;
   private int threadPoolQueueSize = -1;
   private Props globalProps;
   private long lastCleanerThreadCheckTime = -1;
@@ -171,7 +204,22 @@ public class FlowRunnerManager implements EventListener,
       @Nullable final AzkabanEventReporter azkabanEventReporter) throws IOException {
     this.azkabanProps = props;
 
-    this.azkabanEventReporter = azkabanEventReporter;
+    if (azkabanEventReporter != null && props
+        .getBoolean(ConfigurationKeys.AZKABAN_EVENT_REPORTING_ASYNC_ENABLED, false)) {
+      logger.info("Starting async event reporter.");
+      this.asyncEventReporter = new AsyncEventReporter(azkabanEventReporter,
+          props.getInt(ConfigurationKeys.AZKABAN_EVENT_REPORTING_ASYNC_QUEUE_SIZE,
+              Constants.DEFAULT_EVENT_REPORTING_ASYNC_QUEUE_SIZE),
+          props.getInt(ConfigurationKeys.AZKABAN_EVENT_REPORTING_ASYNC_BATCH_SIZE,
+              Constants.DEFAULT_EVENT_REPORTING_ASYNC_BATCH_SIZE),
+          props.getLong(ConfigurationKeys.AZKABAN_EVENT_REPORTING_ASYNC_FULL_QUEUE_TIMEOUT_MS,
+              0));
+      execMetrics.addAsyncEventReporterMetrics(this.asyncEventReporter);
+      this.asyncEventReporter.start();
+      this.azkabanEventReporter = this.asyncEventReporter;
+    } else {
+      this.azkabanEventReporter = azkabanEventReporter;
+    }
 
     this.executionDirectory = new File(props.getString("azkaban.execution.dir", "executions"));
     if (!this.executionDirectory.exists()) {
@@ -186,6 +234,9 @@ public class FlowRunnerManager implements EventListener,
     // azkaban.temp.dir
     this.numThreads = props.getInt(EXECUTOR_FLOW_THREADS, DEFAULT_NUM_EXECUTING_FLOWS);
     this.numJobThreadPerFlow = props.getInt(FLOW_NUM_JOB_THREADS, DEFAULT_FLOW_NUM_JOB_TREADS);
+    this.pipelineStatusCheckIntervalMs = props.getLong(
+        ConfigurationKeys.PIPELINE_STATUS_CHECK_INTERVAL_MS,
+        RemoteFlowWatcher.STATUS_CHECK_INTERVAL_MS);
     this.executorService = createExecutorService(this.numThreads);
 
     this.executorLoader = executorLoader;
@@ -200,6 +251,12 @@ public class FlowRunnerManager implements EventListener,
 
     this.validateProxyUser = this.azkabanProps.getBoolean("proxy.user.lock.down", false);
 
+    this.logTailer = new LogTailer(
+        props.getLong(EXECUTOR_LOG_TAIL_POLL_INTERVAL_MS, DEFAULT_LOG_TAIL_POLL_INTERVAL_MS),
+        props.getLong(EXECUTOR_LOG_TAIL_MAX_DURATION_MS, DEFAULT_LOG_TAIL_MAX_DURATION_MS));
+    this.logTailPermits = new Semaphore(
+        props.getInt(EXECUTOR_LOG_TAIL_MAX_CONCURRENT, DEFAULT_LOG_TAIL_MAX_CONCURRENT));
+
     final String globalPropsPath = props.getString("executor.global.properties", null);
     if (globalPropsPath != null) {
       this.globalProps = new Props(null, globalPropsPath);
@@ -216,23 +273,52 @@ public class FlowRunnerManager implements EventListener,
       final double projectCacheSizePercentage =
           props.getDouble(ConfigurationKeys.PROJECT_CACHE_SIZE_PERCENTAGE);
       cleaner = new ProjectCacheCleaner(this.projectDirectory, projectCacheSizePercentage);
+      this.execMetrics.addProjectCacheCleanerMetrics(cleaner);
     } catch (final UndefinedPropertyException ex) {
     }
 
     // Create a flow preparer
     this.flowPreparer = new FlowPreparer(storageManager, this.executionDirectory,
-        this.projectDirectory, cleaner, this.execMetrics.getProjectCacheHitRatio());
+        this.projectDirectory, cleaner, this.execMetrics.getProjectCacheHitRatio(),
+        props.getInt(ConfigurationKeys.PROJECT_UNZIP_THREADS,
+            Constants.DEFAULT_PROJECT_UNZIP_THREADS),
+        props.getBoolean(ConfigurationKeys.PROJECT_UNZIP_STREAMING, false),
+        ImmutableSet.copyOf(props.getStringList(
+            ConfigurationKeys.EXECUTION_DIR_SYMLINKED_DIR_NAMES, Collections.emptyList())),
+        this.execMetrics.getExecutionDirSetupTimer());
 
     this.execMetrics.addFlowRunnerManagerMetrics(this);
 
+    final int numSharedJobThreads = props.getInt(EXECUTOR_SHARED_JOB_THREADS, 0);
+    if (numSharedJobThreads > 0) {
+      logger.info("Using a shared job thread pool of size " + numSharedJobThreads);
+      this.sharedJobThreadPool = new SharedJobThreadPool(numSharedJobThreads);
+      this.execMetrics.addSharedJobThreadPoolMetrics(this.sharedJobThreadPool);
+    }
+
+    if (this.azkabanProps
+        .getBoolean(ConfigurationKeys.AZKABAN_EXECUTOR_WRITE_BEHIND_ENABLED, false)) {
+      logger.info("Starting write-behind execution updater.");
+      this.writeBehindUpdater = new WriteBehindExecutionUpdater(this.executorLoader,
+          this.execMetrics, this.azkabanProps
+          .getLong(ConfigurationKeys.AZKABAN_EXECUTOR_WRITE_BEHIND_FLUSH_INTERVAL_MS,
+              Constants.DEFAULT_EXECUTOR_WRITE_BEHIND_FLUSH_INTERVAL_MS));
+      this.execMetrics.addWriteBehindMetrics(this.writeBehindUpdater);
+      this.writeBehindUpdater.start();
+    }
+
     this.cleanerThread = new CleanerThread();
     this.cleanerThread.start();
 
     if (this.azkabanProps.getBoolean(ConfigurationKeys.AZKABAN_POLL_MODEL, false)) {
       this.logger.info("Starting polling service.");
-      this.pollingService = new PollingService(this.azkabanProps
+      final long pollingIntervalMs = this.azkabanProps
           .getLong(ConfigurationKeys.AZKABAN_POLLING_INTERVAL_MS,
-              Constants.DEFAULT_AZKABAN_POLLING_INTERVAL_MS),
+              Constants.DEFAULT_AZKABAN_POLLING_INTERVAL_MS);
+      this.pollingService = new PollingService(pollingIntervalMs,
+          Math.max(pollingIntervalMs, this.azkabanProps
+              .getLong(ConfigurationKeys.AZKABAN_POLLING_MAX_INTERVAL_MS,
+                  Constants.DEFAULT_AZKABAN_POLLING_MAX_INTERVAL_MS)),
           new PollingCriteria(this.azkabanProps));
       this.pollingService.start();
     }
@@ -414,7 +500,8 @@ public class FlowRunnerManager implements EventListener,
       } else {
         // also ends up here if execute is called with pipelineExecId that's not running any more
         // (it could have just finished, for example)
-        watcher = new RemoteFlowWatcher(pipelineExecId, this.executorLoader);
+        watcher = new RemoteFlowWatcher(pipelineExecId, this.executorLoader,
+            RemoteFlowWatcher.CHECK_INTERVAL_MS, this.pipelineStatusCheckIntervalMs);
       }
     }
 
@@ -437,10 +524,16 @@ public class FlowRunnerManager implements EventListener,
       }
     }
 
+    // Pipelined jobs block their thread until the watched flow catches up, so those flows keep a
+    // private pool rather than tying up (and possibly deadlocking on) the shared threads.
+    final ExecutorService jobExecutor =
+        this.sharedJobThreadPool != null && watcher == null ?
+            this.sharedJobThreadPool.createFlowExecutor(numJobThreads) : null;
     final FlowRunner runner =
         new FlowRunner(flow, this.executorLoader, this.projectLoader, this.jobtypeManager,
-            this.azkabanProps, this.azkabanEventReporter, this.alerterHolder);
+            jobExecutor, this.azkabanProps, this.azkabanEventReporter, this.alerterHolder);
     runner.setFlowWatcher(watcher)
+        .setWriteBehindUpdater(this.writeBehindUpdater)
         .setJobLogSettings(this.jobLogChunkSize, this.jobLogNumFiles)
         .setValidateProxyUser(this.validateProxyUser)
         .setNumJobThreads(numJobThreads).addListener(this);
@@ -573,6 +666,7 @@ public class FlowRunnerManager implements EventListener,
       } catch (final IOException e) {
         logger.warn("Error when deleting directory " + flowExecutionDir.toAbsolutePath() + ".", e);
       }
+      this.flowPreparer.releaseExecutionDir(executionId);
     }
   }
 
@@ -662,6 +756,104 @@ public class FlowRunnerManager implements EventListener,
         "Error reading file. Log directory doesn't exist.");
   }
 
+  /**
+   * Streams a running flow's log, or one of its job's logs if jobId isn't null, from the given
+   * offset as it's written. Returns when the flow or job attempt is finished or the tail reaches
+   * its max duration.
+   *
+   * @return the offset following the last byte written, -1 without writing anything if too many
+   * logs are tailed already
+   */
+  public long tailLogs(final int execId, final String jobId, final int attempt,
+      final long offset, final OutputStream out) throws ExecutorManagerException, IOException {
+    final FlowRunner runner = this.runningFlows.get(execId);
+    if (runner == null) {
+      throw new ExecutorManagerException("Running flow " + execId
+          + " not found.");
+    }
+
+    final File logFile;
+    final BooleanSupplier writerDone;
+    synchronized (this.executionDirDeletionSync) {
+      logFile = getLogFile(runner, jobId, attempt);
+      if (jobId == null) {
+        writerDone = () -> Status.isStatusFinished(runner.getExecutableFlow().getStatus());
+      } else {
+        final ExecutableNode node = runner.getExecutableFlow().getExecutableNodePath(jobId);
+        writerDone = () -> node.getAttempt() > attempt
+            || Status.isStatusFinished(node.getStatus());
+      }
+    }
+
+    if (!this.logTailPermits.tryAcquire()) {
+      return -1;
+    }
+    try {
+      // The file stays readable even if the execution dir is deleted while it's tailed.
+      return this.logTailer.tail(logFile, offset, out, writerDone);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorManagerException(e);
+    } finally {
+      this.logTailPermits.release();
+    }
+  }
+
+  /**
+   * Transfers a range of a running flow's log, or of one of its job's logs if jobId isn't null,
+   * moved to UTF-8 character boundaries, from the file to the output stream without decoding it.
+   *
+   * @return the offset and length of the range that was transferred
+   */
+  public Pair<Integer, Integer> transferLogs(final int execId, final String jobId,
+      final int attempt, final int startByte, final int length, final OutputStream out)
+      throws ExecutorManagerException, IOException {
+    final FlowRunner runner = this.runningFlows.get(execId);
+    if (runner == null) {
+      throw new ExecutorManagerException("Running flow " + execId
+          + " not found.");
+    }
+
+    // Only the file is opened under the lock, an open channel stays readable even if the
+    // execution dir is deleted while the range is transferred.
+    final FileChannel channel;
+    synchronized (this.executionDirDeletionSync) {
+      final File logFile = getLogFile(runner, jobId, attempt);
+      channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ);
+    }
+    try {
+      return FileIOUtils.transferUtf8Range(channel, startByte, length, Channels.newChannel(out));
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Must be called with executionDirDeletionSync held.
+   */
+  private File getLogFile(final FlowRunner runner, final String jobId, final int attempt)
+      throws ExecutorManagerException {
+    final File dir = runner.getExecutionDir();
+    if (dir == null || !dir.exists()) {
+      throw new ExecutorManagerException(
+          "Error reading file. Log directory doesn't exist.");
+    }
+
+    final File logFile;
+    if (jobId == null) {
+      logFile = runner.getFlowLogFile();
+    } else {
+      if (runner.getExecutableFlow().getExecutableNodePath(jobId) == null) {
+        throw new ExecutorManagerException("Job " + jobId + " not found.");
+      }
+      logFile = runner.getJobLogFile(jobId, attempt);
+    }
+    if (logFile == null || !logFile.exists()) {
+      throw new ExecutorManagerException("Log file doesn't exist.");
+    }
+    return logFile;
+  }
+
   public List<Object> readJobAttachments(final int execId, final String jobId, final int attempt)
       throws ExecutorManagerException {
     final FlowRunner runner = this.runningFlows.get(execId);
@@ -819,6 +1011,16 @@ public class FlowRunnerManager implements EventListener,
     this.submittedFlows.remove(r);
   }
 
+  /**
+   * Makes the polling service poll for queued executions right away. Does nothing if the executor
+   * doesn't use the polling model.
+   */
+  public void nudgePolling() {
+    if (this.pollingService != null) {
+      this.pollingService.nudge();
+    }
+  }
+
   /**
    * This shuts down the flow runner. The call is blocking and awaits execution of all jobs.
    */
@@ -837,6 +1039,15 @@ public class FlowRunnerManager implements EventListener,
         logger.error(e);
       }
     }
+    if (this.sharedJobThreadPool != null) {
+      this.sharedJobThreadPool.shutdown();
+    }
+    if (this.writeBehindUpdater != null) {
+      this.writeBehindUpdater.shutdown();
+    }
+    if (this.asyncEventReporter != null) {
+      this.asyncEventReporter.shutdown();
+    }
     logger.warn("Shutdown FlowRunnerManager complete.");
   }
 
@@ -851,6 +1062,15 @@ public class FlowRunnerManager implements EventListener,
     }
     this.executorService.shutdownNow();
     this.triggerManager.shutdown();
+    if (this.sharedJobThreadPool != null) {
+      this.sharedJobThreadPool.shutdownNow();
+    }
+    if (this.writeBehindUpdater != null) {
+      this.writeBehindUpdater.shutdown();
+    }
+    if (this.asyncEventReporter != null) {
+      this.asyncEventReporter.shutdown();
+    }
   }
 
   /**
@@ -964,25 +1184,91 @@ public class FlowRunnerManager implements EventListener,
 
   /**
    * Polls new executions from DB periodically and submits the executions to run on the executor.
+   *
+   * <p>The executor polls every polling interval. While the queue is empty the wait doubles up to
+   * the max polling interval. A nudge from the web server, sent when it queues an execution, wakes
+   * the poller up right away and resets the wait, so polling is only the fallback for missed
+   * nudges.
    */
   @SuppressWarnings("FutureReturnValueIgnored")
   private class PollingService {
 
-    private final ScheduledExecutorService scheduler;
+    private final ExecutorService scheduler;
     private final PollingCriteria pollingCriteria;
     private final long pollingIntervalMs;
+    private final long maxPollingIntervalMs;
+    private final boolean skipLocked;
+    private final Object wakeUpLock = new Object();
     private int executorId = -1;
     private int numRetries = 0;
+    // Guarded by wakeUpLock
+    private long currentIntervalMs;
+    private boolean nudged = false;
 
-    public PollingService(final long pollingIntervalMs, final PollingCriteria pollingCriteria) {
+    public PollingService(final long pollingIntervalMs, final long maxPollingIntervalMs,
+        final PollingCriteria pollingCriteria) {
       this.pollingIntervalMs = pollingIntervalMs;
-      this.scheduler = Executors.newSingleThreadScheduledExecutor();
+      this.maxPollingIntervalMs = maxPollingIntervalMs;
+      this.currentIntervalMs = pollingIntervalMs;
+      this.skipLocked = FlowRunnerManager.this.azkabanProps
+          .getBoolean(ConfigurationKeys.AZKABAN_POLLING_SKIP_LOCKED, false);
+      this.scheduler = Executors.newSingleThreadExecutor();
       this.pollingCriteria = pollingCriteria;
     }
 
     public void start() {
-      this.scheduler.scheduleAtFixedRate(() -> pollExecution(), 0L, this.pollingIntervalMs,
-          TimeUnit.MILLISECONDS);
+      this.scheduler.submit(() -> {
+        while (!Thread.currentThread().isInterrupted()) {
+          try {
+            pollExecution();
+            waitForNextPoll();
+          } catch (final InterruptedException e) {
+            FlowRunnerManager.logger.info("Polling service interrupted. Probably to shut down.");
+            return;
+          } catch (final Throwable t) {
+            FlowRunnerManager.logger.error("Uncaught throwable in polling service", t);
+          }
+        }
+      });
+    }
+
+    /**
+     * Polls right away, or right after the poll in progress.
+     */
+    public void nudge() {
+      synchronized (this.wakeUpLock) {
+        this.nudged = true;
+        this.currentIntervalMs = this.pollingIntervalMs;
+        this.wakeUpLock.notifyAll();
+      }
+    }
+
+    private void waitForNextPoll() throws InterruptedException {
+      synchronized (this.wakeUpLock) {
+        final long deadline = System.currentTimeMillis() + this.currentIntervalMs;
+        long remaining = this.currentIntervalMs;
+        while (!this.nudged && remaining > 0) {
+          this.wakeUpLock.wait(remaining);
+          remaining = deadline - System.currentTimeMillis();
+        }
+        this.nudged = false;
+      }
+    }
+
+    // The queue was empty, so wait longer before the next poll, unless nudged meanwhile
+    private void backOffOnEmptyQueue() {
+      synchronized (this.wakeUpLock) {
+        if (!this.nudged) {
+          this.currentIntervalMs = Math.min(this.currentIntervalMs * 2,
+              this.maxPollingIntervalMs);
+        }
+      }
+    }
+
+    private void resetInterval() {
+      synchronized (this.wakeUpLock) {
+        this.currentIntervalMs = this.pollingIntervalMs;
+      }
     }
 
     private void pollExecution() {
@@ -997,40 +1283,72 @@ public class FlowRunnerManager implements EventListener,
             FlowRunnerManager.logger.error("Failed to fetch executor ", e);
           }
         }
-      } else if (this.pollingCriteria.shouldPoll()) {
+      } else {
+        final int maxExecutions = this.pollingCriteria.getMaxExecutionsToClaim();
+        if (maxExecutions <= 0) {
+          return;
+        }
         try {
-          final int execId = FlowRunnerManager.this.executorLoader
-              .selectAndUpdateExecution(this.executorId, FlowRunnerManager.this.active);
-          if (execId != -1) {
+          final List<Integer> execIds = FlowRunnerManager.this.executorLoader
+              .selectAndUpdateExecutions(this.executorId, FlowRunnerManager.this.active,
+                  maxExecutions, this.skipLocked);
+          boolean failed = false;
+          for (final int execId : execIds) {
             FlowRunnerManager.logger.info("Submitting flow " + execId);
             try {
               submitFlow(execId);
               FlowRunnerManager.this.commonMetrics.markDispatchSuccess();
-              this.numRetries = 0;
-            } catch (final ExecutorManagerException e) {
+            } catch (final Exception e) {
               // If the flow fails to be submitted, then unset its executor id in DB so that other
-              // executors can pick up this flow and submit again.
-              FlowRunnerManager.this.executorLoader.unsetExecutorIdForExecution(execId);
-              throw new ExecutorManagerException(
-                  "Unset executor id " + this.executorId + " for execution " + execId, e);
+              // executors can pick up this flow and submit again. The rest of the claimed flows
+              // are still submitted.
+              FlowRunnerManager.logger.error("Failed to submit flow " + execId
+                  + ", unsetting executor id " + this.executorId, e);
+              FlowRunnerManager.this.commonMetrics.markDispatchFail();
+              failed = true;
+              unsetExecutorIdQuietly(execId);
             }
           }
+          if (execIds.isEmpty()) {
+            backOffOnEmptyQueue();
+          } else {
+            resetInterval();
+          }
+          if (failed) {
+            backOff();
+          } else if (!execIds.isEmpty()) {
+            this.numRetries = 0;
+          }
         } catch (final Exception e) {
-          FlowRunnerManager.logger.error("Failed to submit flow ", e);
+          FlowRunnerManager.logger.error("Failed to claim flows ", e);
           FlowRunnerManager.this.commonMetrics.markDispatchFail();
-          this.numRetries = this.numRetries + 1;
-          try {
-            // Implement exponential backoff retries when flow submission fails,
-            // i.e., sleep 1s, 2s, 4s, 8s ... before next retries.
-            Thread.sleep((long) (Math.pow(2, this.numRetries) * 1000));
-          } catch (final InterruptedException ie) {
-            FlowRunnerManager.logger
-                .warn("Sleep after flow submission failure was interrupted - ignoring");
-          }
+          backOff();
         }
       }
     }
 
+    private void unsetExecutorIdQuietly(final int execId) {
+      try {
+        FlowRunnerManager.this.executorLoader.unsetExecutorIdForExecution(execId);
+      } catch (final ExecutorManagerException e) {
+        FlowRunnerManager.logger.error("Failed to unset executor id for execution " + execId, e);
+      }
+    }
+
+    private void backOff() {
+      this.numRetries = this.numRetries + 1;
+      try {
+        // Implement exponential backoff retries when flow submission fails,
+        // i.e., sleep 1s, 2s, 4s, 8s ... before next retries.
+        Thread.sleep((long) (Math.pow(2, this.numRetries) * 1000));
+      } catch (final InterruptedException ie) {
+        FlowRunnerManager.logger
+            .warn("Sleep after flow submission failure was interrupted - ignoring");
+        // Keep the flag so that the polling loop stops on shutdown
+        Thread.currentThread().interrupt();
+      }
+    }
+
     public void shutdown() {
       this.scheduler.shutdown();
       this.scheduler.shutdownNow();
@@ -1051,6 +1369,33 @@ public class FlowRunnerManager implements EventListener,
       this.azkabanProps = azkabanProps;
     }
 
+    /**
+     * @return how many executions to claim in this poll, 0 if the executor shouldn't poll. Bounded
+     * by the batch size and the free flow threads. Only one is claimed while free memory is less
+     * than twice the configured minimum, since each flow takes some of it.
+     */
+    public int getMaxExecutionsToClaim() {
+      if (!shouldPoll()) {
+        return 0;
+      }
+      int maxExecutions = Math.max(1, this.azkabanProps.getInt(
+          ConfigurationKeys.AZKABAN_POLLING_MAX_BATCH_SIZE,
+          Constants.DEFAULT_AZKABAN_POLLING_MAX_BATCH_SIZE));
+      if (this.azkabanProps.getBoolean(
+          ConfigurationKeys.AZKABAN_POLLING_CRITERIA_FLOW_THREADS_AVAILABLE, false)) {
+        maxExecutions = Math.min(maxExecutions, Math.max(1,
+            FlowRunnerManager.this.getMaxNumRunningFlows()
+                - FlowRunnerManager.this.getNumRunningFlows()));
+      }
+      final int minFreeMemoryConfigGb = this.azkabanProps.
+          getInt(ConfigurationKeys.AZKABAN_POLLING_CRITERIA_MIN_FREE_MEMORY_GB, 0);
+      if (minFreeMemoryConfigGb > 0 && maxExecutions > 1
+          && !this.memInfo.isFreePhysicalMemoryAbove(2L * minFreeMemoryConfigGb * 1024 * 1024)) {
+        maxExecutions = 1;
+      }
+      return maxExecutions;
+    }
+
     public boolean shouldPoll() {
       if (satisfiesFlowThreadsAvailableCriteria() && satisfiesFreeMemoryCriteria()
           && satisfiesCpuUtilizationCriteria()) {
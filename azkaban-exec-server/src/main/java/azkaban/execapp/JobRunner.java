@@ -89,6 +89,8 @@ public class JobRunner extends EventHandler implements Runnable {
   private Integer pipelineLevel = null;
   private FlowWatcher watcher = null;
   private Set<String> proxyUsers = null;
+  // Coalesces and batches status updates when set, otherwise they are written synchronously.
+  private WriteBehindExecutionUpdater writeBehindUpdater = null;
 
   private String jobLogChunkSize;
   private int jobLogBackupIndex;
@@ -163,6 +165,10 @@ public class JobRunner extends EventHandler implements Runnable {
         + ".attach" : "_job." + executionId + "." + jobId + ".attach";
   }
 
+  public void setWriteBehindUpdater(final WriteBehindExecutionUpdater writeBehindUpdater) {
+    this.writeBehindUpdater = writeBehindUpdater;
+  }
+
   public void setValidatedProxyUsers(final Set<String> proxyUsers) {
     this.proxyUsers = proxyUsers;
   }
@@ -393,7 +399,11 @@ public class JobRunner extends EventHandler implements Runnable {
   private void writeStatus() {
     try {
       this.node.setUpdateTime(System.currentTimeMillis());
-      this.loader.updateExecutableNode(this.node);
+      if (this.writeBehindUpdater != null) {
+        this.writeBehindUpdater.updateExecutableNode(this.node);
+      } else {
+        this.loader.updateExecutableNode(this.node);
+      }
     } catch (final ExecutorManagerException e) {
       this.flowLogger.error("Could not update job properties in db for "
           + this.jobId, e);
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Streams the bytes appended to a log file to an output stream as they are written.
+ *
+ * <p>The position of the end of the file is checked every poll interval, which is a local stat
+ * rather than a request from the client. New bytes are flushed right away so that they reach the
+ * client as one HTTP chunk. Tailing stops once the writer is done and everything it wrote has been
+ * sent, or after the max duration, in which case the client reconnects from the returned
+ * position.
+ */
+public class LogTailer {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final long pollIntervalMs;
+  private final long maxDurationMs;
+
+  public LogTailer(final long pollIntervalMs, final long maxDurationMs) {
+    this.pollIntervalMs = pollIntervalMs;
+    this.maxDurationMs = maxDurationMs;
+  }
+
+  /**
+   * @param file the log file
+   * @param offset the position to start from
+   * @param out where to write the appended bytes
+   * @param writerDone tells whether the writer of the file is done
+   * @return the position following the last byte written
+   */
+  public long tail(final File file, final long offset, final OutputStream out,
+      final BooleanSupplier writerDone) throws IOException, InterruptedException {
+    final long deadline = System.currentTimeMillis() + this.maxDurationMs;
+    final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    long position = offset;
+
+    try (FileChannel channel = new FileInputStream(file).getChannel()) {
+      while (true) {
+        // Checked before reading, so that whatever was written before the writer was done is sent
+        final boolean done = writerDone.getAsBoolean();
+        final long size = channel.size();
+        if (size > position) {
+          while (position < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if (read <= 0) {
+              break;
+            }
+            out.write(buffer.array(), 0, read);
+            position += read;
+          }
+          out.flush();
+        } else if (done) {
+          return position;
+        }
+
+        if (System.currentTimeMillis() >= deadline) {
+          return position;
+        }
+        Thread.sleep(this.pollIntervalMs);
+      }
+    }
+  }
+}
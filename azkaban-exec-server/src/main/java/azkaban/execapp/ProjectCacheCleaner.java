@@ -16,68 +16,80 @@
 
 package azkaban.execapp;
 
-import azkaban.utils.ExecutorServiceUtils;
 import azkaban.utils.FileIOUtils;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
-import java.io.FilenameFilter;
+import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.Duration;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This class is responsible for deleting least recently accessed projects in the shared project
  * cache when there's no room to accommodate a new project.
+ *
+ * <p>The project dirs are kept in an in-memory index in least recently accessed order, which is
+ * loaded from the cache dir on first use and then updated when a project is installed or used by
+ * an execution. So a clean-up only visits the dirs it evicts. The index is persisted by the size
+ * file of every project dir, whose last modified time is the last access time of the project.
+ *
+ * <p>Evicted dirs are renamed out of the way right away, so that they can't be used anymore, and
+ * deleted in the background.
  */
+@SuppressWarnings("FutureReturnValueIgnored")
 class ProjectCacheCleaner {
 
+  // Prefix of the evicted project dirs which are being deleted
+  static final String DELETED_DIR_PREFIX = "_deleted.";
+  private static final String PROJECT_DIR_PATTERN = "[0-9]+\\.[0-9]+";
+  private static final int DELETION_THREADS = 4;
+
   private final File projectCacheDir;
 
   // cache size in percentage of disk partition where {@link projectCacheDir} belongs to
   private final double percentageOfDisk;
 
+  private final ExecutorService deletionService;
+
+  // Installed project dirs in least recently accessed first order. Null until loaded.
+  private LinkedHashMap<File, ProjectDirectoryMetadata> projectDirs = null;
+  private volatile long totalSizeInBytes = 0;
+  private volatile int numProjects = 0;
+  private final AtomicLong numEvictedProjects = new AtomicLong();
+
   private static final Logger log = LoggerFactory.getLogger(ProjectCacheCleaner.class);
 
   ProjectCacheCleaner(final File projectCacheDir, final double percentageOfDisk) {
+    this(projectCacheDir, percentageOfDisk, Executors.newFixedThreadPool(DELETION_THREADS,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-project-cache-cleaner-%d")
+            .build()));
+  }
+
+  @VisibleForTesting
+  ProjectCacheCleaner(final File projectCacheDir, final double percentageOfDisk,
+      final ExecutorService deletionService) {
     Preconditions.checkNotNull(projectCacheDir);
     Preconditions.checkArgument(projectCacheDir.exists());
     Preconditions.checkArgument(percentageOfDisk > 0 && percentageOfDisk <= 1);
+    Preconditions.checkNotNull(deletionService);
     this.projectCacheDir = projectCacheDir;
     this.percentageOfDisk = percentageOfDisk;
-  }
-
-  /**
-   * @return a list of project directories.
-   */
-  private List<Path> loadAllProjectDirs() {
-    final List<Path> projects = new ArrayList<>();
-    for (final File project : this.projectCacheDir.listFiles(new FilenameFilter() {
-
-      String pattern = "[0-9]+\\.[0-9]+";
-
-      @Override
-      public boolean accept(final File dir, final String name) {
-        return name.matches(this.pattern);
-      }
-    })) {
-      if (project.exists() && project.isDirectory()) {
-        projects.add(project.toPath());
-      } else {
-        log.debug("Project {} doesn't exist or is non-dir.", project.getName());
-      }
-    }
-    return projects;
+    this.deletionService = deletionService;
   }
 
   /**
@@ -85,14 +97,31 @@ class ProjectCacheCleaner {
    */
   private List<ProjectDirectoryMetadata> loadAllProjects() {
     final List<ProjectDirectoryMetadata> allProjects = new ArrayList<>();
-    for (final Path project : this.loadAllProjectDirs()) {
+    final File[] files = this.projectCacheDir.listFiles();
+    if (files == null) {
+      log.warn("Failed to list project cache dir {}", this.projectCacheDir);
+      return allProjects;
+    }
+    for (final File project : files) {
+      final String fileName = project.getName();
+      if (fileName.startsWith(DELETED_DIR_PREFIX)) {
+        // Left over by a restart during deletion
+        deleteInBackground(project);
+        continue;
+      }
+      if (!fileName.matches(PROJECT_DIR_PATTERN)) {
+        continue;
+      }
+      if (!project.isDirectory()) {
+        log.debug("Project {} doesn't exist or is non-dir.", fileName);
+        continue;
+      }
       try {
-        final String fileName = project.getFileName().toString();
         final int projectId = Integer.parseInt(fileName.split("\\.")[0]);
         final int versionNum = Integer.parseInt(fileName.split("\\.")[1]);
 
         final ProjectDirectoryMetadata projectDirMetadata =
-            new ProjectDirectoryMetadata(projectId, versionNum, project.toFile());
+            new ProjectDirectoryMetadata(projectId, versionNum, project);
 
         projectDirMetadata.setDirSizeInByte(
             FlowPreparer.calculateDirSizeAndSave(projectDirMetadata.getInstalledDir()));
@@ -101,79 +130,108 @@ class ProjectCacheCleaner {
                 FlowPreparer.PROJECT_DIR_SIZE_FILE_NAME)));
         allProjects.add(projectDirMetadata);
       } catch (final Exception e) {
-        log.warn("Error while loading project dir metadata for project {}",
-            project.getFileName(), e);
+        log.warn("Error while loading project dir metadata for project {}", fileName, e);
       }
     }
     return allProjects;
   }
 
-  /**
-   * @return sum of the size of all project dirs
-   */
-  private long getProjectDirsTotalSizeInBytes(final List<ProjectDirectoryMetadata> allProjects) {
-    final long totalSizeInBytes = allProjects.stream()
-        .mapToLong(ProjectDirectoryMetadata::getDirSizeInByte).sum();
-    return totalSizeInBytes;
+  // Must be called while synchronized on this
+  private Map<File, ProjectDirectoryMetadata> getProjectDirs() {
+    if (this.projectDirs == null) {
+      final long start = System.currentTimeMillis();
+      final List<ProjectDirectoryMetadata> allProjects = loadAllProjects();
+      // Sort projects by last reference time in ascending order
+      allProjects.sort(Comparator.comparing(ProjectDirectoryMetadata::getLastAccessTime));
+      this.projectDirs = new LinkedHashMap<>(16, 0.75f, true);
+      this.totalSizeInBytes = 0;
+      for (final ProjectDirectoryMetadata proj : allProjects) {
+        this.projectDirs.put(proj.getInstalledDir(), proj);
+        this.totalSizeInBytes += proj.getDirSizeInByte();
+      }
+      this.numProjects = this.projectDirs.size();
+      log.info("Loading {} project dirs metadata completed in {} sec(s)",
+          allProjects.size(), (System.currentTimeMillis() - start) / 1000);
+    }
+    return this.projectDirs;
   }
 
   /**
-   * Delete all the files in parallel
-   *
-   * @param projectDirsToDelete a set of project dirs to delete
+   * Adds a project dir which was just installed to the index.
    */
-  @SuppressWarnings("FutureReturnValueIgnored")
-  private void deleteProjectDirsInParallel(final ImmutableSet<File> projectDirsToDelete) {
-    final int CLEANING_SERVICE_THREAD_NUM = 8;
-    final ExecutorService deletionService = Executors
-        .newFixedThreadPool(CLEANING_SERVICE_THREAD_NUM);
-
-    for (final File toDelete : projectDirsToDelete) {
-      deletionService.submit(() -> {
-        log.info("Deleting project dir {} from project cache to free up space", toDelete);
-        FileIOUtils.deleteDirectorySilently(toDelete);
-      });
+  synchronized void addProjectDir(final ProjectDirectoryMetadata proj) {
+    Preconditions.checkNotNull(proj.getInstalledDir());
+    Preconditions.checkNotNull(proj.getDirSizeInByte());
+    final Map<File, ProjectDirectoryMetadata> projectDirs = getProjectDirs();
+    if (proj.getLastAccessTime() == null) {
+      proj.setLastAccessTime(FileTime.fromMillis(System.currentTimeMillis()));
     }
+    final ProjectDirectoryMetadata previous = projectDirs.put(proj.getInstalledDir(), proj);
+    if (previous != null) {
+      this.totalSizeInBytes -= previous.getDirSizeInByte();
+    }
+    this.totalSizeInBytes += proj.getDirSizeInByte();
+    this.numProjects = projectDirs.size();
+  }
 
-    try {
-      new ExecutorServiceUtils().gracefulShutdown(deletionService, Duration.ofDays(1));
-    } catch (final InterruptedException e) {
-      log.warn("Error when deleting files", e);
+  /**
+   * Marks a project dir as the most recently accessed one.
+   */
+  synchronized void markAccessed(final File installedDir) {
+    final ProjectDirectoryMetadata proj = getProjectDirs().get(installedDir);
+    if (proj != null) {
+      proj.setLastAccessTime(FileTime.fromMillis(System.currentTimeMillis()));
     }
   }
 
   /**
-   * Delete least recently used projects to free up space
+   * Evicts least recently used projects to free up space
    *
    * @param sizeToFreeInBytes space to free up
-   * @param projectDirMetadataList a list of candidate files to delete
+   * @param projectDirsInUse project dirs which must not be deleted
    */
   private void deleteLeastRecentlyUsedProjects(long sizeToFreeInBytes,
-      final List<ProjectDirectoryMetadata> projectDirMetadataList) {
-    // Sort projects by last reference time in ascending order
-    projectDirMetadataList.sort(Comparator.comparing(ProjectDirectoryMetadata::getLastAccessTime));
-    final Set<File> projectDirsToDelete = new HashSet<>();
-
-    for (final ProjectDirectoryMetadata proj : projectDirMetadataList) {
-      if (sizeToFreeInBytes > 0) {
-        // Delete the project directory even if flow within is running. It's OK to
-        // delete the directory since execution dir is HARD linked to project dir. Note that even
-        // if project is deleted, disk space will be freed up only when all associated execution
-        // dirs are deleted.
-        if (proj.getInstalledDir() != null) {
-          projectDirsToDelete.add(proj.getInstalledDir());
-          sizeToFreeInBytes -= proj.getDirSizeInByte();
-        }
-      } else {
-        break;
+      final Set<File> projectDirsInUse) {
+    final List<File> evicted = new ArrayList<>();
+    final Iterator<ProjectDirectoryMetadata> it = this.projectDirs.values().iterator();
+    while (sizeToFreeInBytes > 0 && it.hasNext()) {
+      final ProjectDirectoryMetadata proj = it.next();
+      // Delete the project directory even if flow within is running. It's OK to
+      // delete the directory since execution dir is HARD linked to project dir. Note that even
+      // if project is deleted, disk space will be freed up only when all associated execution
+      // dirs are deleted. Project dirs which execution dirs have symlinks into are skipped.
+      if (projectDirsInUse.contains(proj.getInstalledDir())) {
+        continue;
       }
+      it.remove();
+      this.totalSizeInBytes -= proj.getDirSizeInByte();
+      sizeToFreeInBytes -= proj.getDirSizeInByte();
+      evicted.add(proj.getInstalledDir());
     }
+    this.numProjects = this.projectDirs.size();
+    this.numEvictedProjects.addAndGet(evicted.size());
 
-    final long start = System.currentTimeMillis();
-    deleteProjectDirsInParallel(ImmutableSet.copyOf(projectDirsToDelete));
-    final long end = System.currentTimeMillis();
-    log.info("Deleting {} project dir(s) took {} sec(s)", projectDirsToDelete.size(),
-        (end - start) / 1000);
+    for (final File toDelete : evicted) {
+      final File renamed = new File(this.projectCacheDir,
+          DELETED_DIR_PREFIX + toDelete.getName() + "." + System.currentTimeMillis());
+      try {
+        Files.move(toDelete.toPath(), renamed.toPath());
+        deleteInBackground(renamed);
+      } catch (final IOException e) {
+        log.warn("Error when renaming project dir {}, deleting it in place", toDelete, e);
+        FileIOUtils.deleteDirectorySilently(toDelete);
+      }
+    }
+    log.info("Evicted {} project dir(s) from project cache", evicted.size());
+  }
+
+  private void deleteInBackground(final File toDelete) {
+    this.deletionService.submit(() -> {
+      final long start = System.currentTimeMillis();
+      FileIOUtils.deleteDirectorySilently(toDelete);
+      log.info("Deleting project dir {} from project cache took {} sec(s)", toDelete,
+          (System.currentTimeMillis() - start) / 1000);
+    });
   }
 
   private long bytesToMB(final long bytes) {
@@ -184,15 +242,19 @@ class ProjectCacheCleaner {
    * Deleting least recently accessed project dirs when there's no room to accommodate new project
    */
   void deleteProjectDirsIfNecessary(final long newProjectSizeInBytes) {
+    deleteProjectDirsIfNecessary(newProjectSizeInBytes, ImmutableSet.of());
+  }
+
+  /**
+   * Same as {@link #deleteProjectDirsIfNecessary(long)}, but never deletes the given project dirs
+   */
+  synchronized void deleteProjectDirsIfNecessary(final long newProjectSizeInBytes,
+      final Set<File> projectDirsInUse) {
     final long projectCacheMaxSizeInByte =
         (long) (this.projectCacheDir.getTotalSpace() * this.percentageOfDisk);
 
-    final long start = System.currentTimeMillis();
-    final List<ProjectDirectoryMetadata> allProjects = loadAllProjects();
-    log.info("Loading {} project dirs metadata completed in {} sec(s)",
-        allProjects.size(), (System.currentTimeMillis() - start) / 1000);
-
-    final long currentSpaceInBytes = getProjectDirsTotalSizeInBytes(allProjects);
+    getProjectDirs();
+    final long currentSpaceInBytes = this.totalSizeInBytes;
     final long spaceToUseInBytes = currentSpaceInBytes + newProjectSizeInBytes;
     if (spaceToUseInBytes >= projectCacheMaxSizeInByte) {
       log.info(
@@ -201,7 +263,8 @@ class ProjectCacheCleaner {
           bytesToMB(projectCacheMaxSizeInByte));
 
       final long freeCacheSpaceInBytes = projectCacheMaxSizeInByte - currentSpaceInBytes;
-      deleteLeastRecentlyUsedProjects(newProjectSizeInBytes - freeCacheSpaceInBytes, allProjects);
+      deleteLeastRecentlyUsedProjects(newProjectSizeInBytes - freeCacheSpaceInBytes,
+          projectDirsInUse);
     } else {
       log.info(
           "Project cache usage[{} MB] < cache limit[{} MB], no need to delete any project dir",
@@ -209,4 +272,22 @@ class ProjectCacheCleaner {
           bytesToMB(projectCacheMaxSizeInByte));
     }
   }
+
+  /**
+   * @return the total size of the cached project dirs, as of the last load or update
+   */
+  long getTotalSizeInBytes() {
+    return this.totalSizeInBytes;
+  }
+
+  int getNumProjects() {
+    return this.numProjects;
+  }
+
+  /**
+   * @return the number of project dirs evicted since start-up
+   */
+  long getNumEvictedProjects() {
+    return this.numEvictedProjects.get();
+  }
 }
@@ -28,6 +28,8 @@ class ProjectDirectoryMetadata {
   private File installedDir;
   private Long dirSizeInByte;
   private FileTime lastAccessTime;
+  // Hex MD5 of the project zip, null if unknown
+  private String md5Hex;
 
   ProjectDirectoryMetadata(final int projectId, final int version) {
     checkArgument(projectId > 0);
@@ -66,6 +68,14 @@ class ProjectDirectoryMetadata {
     this.installedDir = installedDir;
   }
 
+  String getMd5Hex() {
+    return this.md5Hex;
+  }
+
+  void setMd5Hex(final String md5Hex) {
+    this.md5Hex = md5Hex;
+  }
+
   @Override
   public String toString() {
     return "ProjectVersion{" +
@@ -73,6 +83,7 @@ class ProjectDirectoryMetadata {
         ", version=" + this.version +
         ", installedDir=" + this.installedDir +
         ", dirSizeInByte=" + this.dirSizeInByte +
+        ", md5Hex=" + this.md5Hex +
         ", lastAccessTime=" + this.lastAccessTime +
         '}';
   }
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Executor-wide, bounded pool of job threads shared by all {@link FlowRunner}s.
+ *
+ * <p>Each flow gets its own {@link FlowJobExecutor} through {@link #createFlowExecutor(int)}.
+ * Jobs are queued per flow and handed to the shared worker threads round-robin across the flows
+ * that have queued jobs, so a wide flow can't starve the others, and no flow runs more jobs at a
+ * time than its own cap. Idle worker threads time out, so an idle executor holds no job threads.
+ */
+public class SharedJobThreadPool {
+
+  private static final Logger logger = Logger.getLogger(SharedJobThreadPool.class);
+
+  private static final long IDLE_THREAD_KEEP_ALIVE_SECS = 60;
+
+  private final int maxThreads;
+  private final ThreadPoolExecutor workers;
+  // Flows with queued jobs that are below their cap, in the order they get the next free thread
+  private final Deque<FlowJobExecutor> readyFlows = new ArrayDeque<>();
+  // Flows with jobs handed to the shared threads
+  private final Set<FlowJobExecutor> busyFlows = new HashSet<>();
+  private int numRunningJobs = 0;
+  private int numQueuedJobs = 0;
+
+  public SharedJobThreadPool(final int maxThreads) {
+    this.maxThreads = maxThreads;
+    // Jobs are only handed over when a thread is free, so the work queue stays empty.
+    this.workers = new ThreadPoolExecutor(maxThreads, maxThreads, IDLE_THREAD_KEEP_ALIVE_SECS,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder().setNameFormat("azk-shared-job-%d").setDaemon(true).build());
+    this.workers.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * @param maxConcurrentJobs max number of jobs of the flow that may run at the same time
+   * @return an executor for one flow's jobs, backed by the shared threads
+   */
+  public FlowJobExecutor createFlowExecutor(final int maxConcurrentJobs) {
+    return new FlowJobExecutor(maxConcurrentJobs);
+  }
+
+  public int getMaxThreads() {
+    return this.maxThreads;
+  }
+
+  public synchronized int getNumRunningJobs() {
+    return this.numRunningJobs;
+  }
+
+  public synchronized int getNumQueuedJobs() {
+    return this.numQueuedJobs;
+  }
+
+  public void shutdown() {
+    this.workers.shutdown();
+  }
+
+  /**
+   * Stops taking jobs, cancels the queued jobs and interrupts the running ones, so that their
+   * flows can terminate. The shared threads themselves are only shut down: a job handed to one
+   * but not started yet still runs through the bookkeeping, as a cancelled no-op.
+   */
+  public void shutdownNow() {
+    this.workers.shutdown();
+    synchronized (this) {
+      cancelQueuedJobs();
+      for (final FlowJobExecutor flow : this.busyFlows) {
+        flow.pendingJobs.forEach(SharedJobThreadPool::cancel);
+        this.numQueuedJobs -= flow.pendingJobs.size();
+        flow.pendingJobs.clear();
+        flow.runningJobs.forEach(RunningJob::interrupt);
+      }
+    }
+  }
+
+  /**
+   * Hands queued jobs to free threads, one job per flow per turn.
+   */
+  private synchronized void dispatch() {
+    while (this.numRunningJobs < this.maxThreads && !this.readyFlows.isEmpty()) {
+      final FlowJobExecutor flow = this.readyFlows.pollFirst();
+      flow.inReadyQueue = false;
+      if (!flow.canRunMore()) {
+        continue;
+      }
+
+      final RunningJob job = new RunningJob(flow.pendingJobs.poll());
+      flow.addRunningJob(job);
+      this.numRunningJobs++;
+      this.numQueuedJobs--;
+      try {
+        this.workers.execute(() -> runJob(flow, job));
+      } catch (final RejectedExecutionException e) {
+        logger.error("Shared job thread pool is shut down, cancelling the queued jobs.", e);
+        flow.removeRunningJob(job);
+        this.numRunningJobs--;
+        cancel(job.job);
+        cancelQueuedJobs();
+        return;
+      }
+
+      if (flow.canRunMore()) {
+        flow.inReadyQueue = true;
+        this.readyFlows.addLast(flow);
+      }
+    }
+  }
+
+  /**
+   * Cancels the jobs of the flows waiting for a thread once the shared threads are shut down, so
+   * that the flows' executors can terminate. The jobs of flows at their cap are cancelled when
+   * their running jobs finish and dispatch is rejected again. Must be called with the monitor
+   * held.
+   */
+  private void cancelQueuedJobs() {
+    for (final FlowJobExecutor flow : this.readyFlows) {
+      flow.inReadyQueue = false;
+      flow.pendingJobs.forEach(SharedJobThreadPool::cancel);
+      this.numQueuedJobs -= flow.pendingJobs.size();
+      flow.pendingJobs.clear();
+    }
+    this.readyFlows.clear();
+    notifyAll();
+  }
+
+  // Jobs given to submit() are futures, cancelling them fails whoever waits for their result.
+  private static void cancel(final Runnable job) {
+    if (job instanceof Future) {
+      ((Future<?>) job).cancel(false);
+    }
+  }
+
+  private void runJob(final FlowJobExecutor flow, final RunningJob job) {
+    synchronized (this) {
+      job.thread = Thread.currentThread();
+    }
+    try {
+      job.job.run();
+    } catch (final Throwable t) {
+      logger.error("Job threw an uncaught exception.", t);
+    } finally {
+      synchronized (this) {
+        flow.removeRunningJob(job);
+        this.numRunningJobs--;
+        flow.markReadyIfPossible();
+        notifyAll();
+      }
+      dispatch();
+    }
+  }
+
+  /**
+   * A job handed to a shared thread. Guarded by the pool's monitor.
+   */
+  private static class RunningJob {
+
+    private final Runnable job;
+    // Set once the job has started
+    private Thread thread = null;
+
+    private RunningJob(final Runnable job) {
+      this.job = job;
+    }
+
+    // Jobs given to submit() are futures, cancelling them interrupts the thread running them and
+    // fails whoever waits for their result.
+    private void interrupt() {
+      if (this.job instanceof Future) {
+        ((Future<?>) this.job).cancel(true);
+      } else if (this.thread != null) {
+        this.thread.interrupt();
+      }
+    }
+  }
+
+  /**
+   * The {@link java.util.concurrent.ExecutorService} view of the shared pool given to one flow.
+   * Shutting it down only stops the flow from submitting new jobs, jobs that were already
+   * submitted still run, like for a {@link ThreadPoolExecutor}. Shutting it down now also
+   * interrupts its running jobs.
+   */
+  public class FlowJobExecutor extends AbstractExecutorService {
+
+    private final int maxConcurrentJobs;
+    private final Queue<Runnable> pendingJobs = new ArrayDeque<>();
+    private final Set<RunningJob> runningJobs = new HashSet<>();
+    private boolean inReadyQueue = false;
+    private boolean shutdown = false;
+
+    private FlowJobExecutor(final int maxConcurrentJobs) {
+      this.maxConcurrentJobs = Math.max(1, maxConcurrentJobs);
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+      synchronized (SharedJobThreadPool.this) {
+        if (this.shutdown) {
+          throw new RejectedExecutionException("The flow's job executor is shut down.");
+        }
+        if (SharedJobThreadPool.this.workers.isShutdown()) {
+          throw new RejectedExecutionException("The shared job thread pool is shut down.");
+        }
+        this.pendingJobs.add(command);
+        SharedJobThreadPool.this.numQueuedJobs++;
+        markReadyIfPossible();
+      }
+      dispatch();
+    }
+
+    private boolean canRunMore() {
+      return !this.pendingJobs.isEmpty() && this.runningJobs.size() < this.maxConcurrentJobs;
+    }
+
+    // Must be called with the pool's monitor held
+    private void addRunningJob(final RunningJob job) {
+      this.runningJobs.add(job);
+      SharedJobThreadPool.this.busyFlows.add(this);
+    }
+
+    // Must be called with the pool's monitor held
+    private void removeRunningJob(final RunningJob job) {
+      this.runningJobs.remove(job);
+      if (this.runningJobs.isEmpty()) {
+        SharedJobThreadPool.this.busyFlows.remove(this);
+      }
+    }
+
+    // Must be called with the pool's monitor held
+    private void markReadyIfPossible() {
+      if (!this.inReadyQueue && canRunMore()) {
+        this.inReadyQueue = true;
+        SharedJobThreadPool.this.readyFlows.addLast(this);
+      }
+    }
+
+    @Override
+    public void shutdown() {
+      synchronized (SharedJobThreadPool.this) {
+        this.shutdown = true;
+        SharedJobThreadPool.this.notifyAll();
+      }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      synchronized (SharedJobThreadPool.this) {
+        this.shutdown = true;
+        final List<Runnable> dropped = new ArrayList<>(this.pendingJobs);
+        SharedJobThreadPool.this.numQueuedJobs -= dropped.size();
+        this.pendingJobs.clear();
+        this.runningJobs.forEach(RunningJob::interrupt);
+        SharedJobThreadPool.this.notifyAll();
+        return dropped;
+      }
+    }
+
+    @Override
+    public boolean isShutdown() {
+      synchronized (SharedJobThreadPool.this) {
+        return this.shutdown;
+      }
+    }
+
+    @Override
+    public boolean isTerminated() {
+      synchronized (SharedJobThreadPool.this) {
+        return this.shutdown && this.runningJobs.isEmpty() && this.pendingJobs.isEmpty();
+      }
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit)
+        throws InterruptedException {
+      final long deadline = System.nanoTime() + unit.toNanos(timeout);
+      synchronized (SharedJobThreadPool.this) {
+        while (!isTerminated()) {
+          final long remainingNanos = deadline - System.nanoTime();
+          if (remainingNanos <= 0) {
+            return false;
+          }
+          TimeUnit.NANOSECONDS.timedWait(SharedJobThreadPool.this, remainingNanos);
+        }
+        return true;
+      }
+    }
+  }
+}
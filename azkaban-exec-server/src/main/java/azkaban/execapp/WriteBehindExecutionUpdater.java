@@ -0,0 +1,330 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableFlowUpdate;
+import azkaban.executor.ExecutableNode;
+import azkaban.executor.ExecutableNodeUpdate;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
+import com.codahale.metrics.Timer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+/**
+ * Write-behind stage for the flow and job status updates issued by {@link FlowRunner} and {@link
+ * JobRunner}.
+ *
+ * <p>The state to write is captured by the thread that issues the update, so the flush thread
+ * only ever writes immutable payloads and never reads a flow or node while it is being changed.
+ * Several updates to the same execution or node coalesce into one, and the pending set is written
+ * in JDBC batches every flush interval. Terminal statuses act as a durability barrier: the caller
+ * flushes everything pending before it returns, so a finished flow or job is in the DB before its
+ * finish event is fired. If the flush keeps failing, the terminal state is written on its own, and
+ * the caller gets the exception if that fails too.
+ */
+@SuppressWarnings("FutureReturnValueIgnored")
+public class WriteBehindExecutionUpdater {
+
+  private static final Logger logger = Logger.getLogger(WriteBehindExecutionUpdater.class);
+
+  private static final int TERMINAL_FLUSH_ATTEMPTS = 3;
+  private static final long TERMINAL_FLUSH_RETRY_INTERVAL_MS = 500;
+
+  private final ExecutorLoader executorLoader;
+  private final ExecMetrics execMetrics;
+  private final ScheduledExecutorService scheduler;
+  private final long flushIntervalMs;
+  // Guards the pending maps
+  private final Object pendingLock = new Object();
+  // Serializes flushes so that a newer state of a node is never overwritten by an older batch
+  private final Object flushLock = new Object();
+  // The updates of an execution to write in order. It only holds more than one update when a
+  // failed flush put back updates older than the ones recorded in the meantime.
+  private Map<Integer, Deque<PendingFlowUpdate>> pendingFlows = new LinkedHashMap<>();
+  private Map<ExecutableNode, ExecutableNodeUpdate> pendingNodes = new LinkedHashMap<>();
+
+  public WriteBehindExecutionUpdater(final ExecutorLoader executorLoader,
+      final ExecMetrics execMetrics, final long flushIntervalMs) {
+    this.executorLoader = executorLoader;
+    this.execMetrics = execMetrics;
+    this.flushIntervalMs = flushIntervalMs;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  public void start() {
+    this.scheduler.scheduleWithFixedDelay(this::flushQuietly, this.flushIntervalMs,
+        this.flushIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Flushes whatever is pending and stops the flush thread.
+   */
+  public void shutdown() {
+    this.scheduler.shutdown();
+    flushQuietly();
+  }
+
+  public void updateExecutableFlow(final ExecutableFlow flow) throws ExecutorManagerException {
+    final PendingFlowUpdate update = new PendingFlowUpdate(ExecutableFlowUpdate.snapshot(flow),
+        -1, true);
+    synchronized (this.pendingLock) {
+      // A snapshot supersedes every update still pending for the execution.
+      final Deque<PendingFlowUpdate> updates = new ArrayDeque<>();
+      updates.add(update);
+      this.pendingFlows.put(flow.getExecutionId(), updates);
+    }
+    if (Status.isStatusFinished(flow.getStatus())) {
+      flushTerminalFlow(flow, update);
+    }
+  }
+
+  public void updateExecutableFlowDelta(final ExecutableFlow flow, final long lastUpdateTime)
+      throws ExecutorManagerException {
+    final PendingFlowUpdate last;
+    synchronized (this.pendingLock) {
+      final Deque<PendingFlowUpdate> updates = this.pendingFlows.get(flow.getExecutionId());
+      last = updates == null ? null : updates.peekLast();
+    }
+
+    // The payload is captured outside the lock. Updates of a flow are issued by its flow runner
+    // one at a time, and a flush in between only means the new payload rewrites a few nodes.
+    final PendingFlowUpdate update;
+    if (last == null) {
+      update = new PendingFlowUpdate(ExecutableFlowUpdate.delta(flow, lastUpdateTime),
+          lastUpdateTime, false);
+    } else if (last.fullSnapshot) {
+      update = new PendingFlowUpdate(ExecutableFlowUpdate.snapshot(flow), -1, true);
+    } else {
+      // One delta from the oldest start time covers both.
+      final long since = Math.min(last.lastUpdateTime, lastUpdateTime);
+      update = new PendingFlowUpdate(ExecutableFlowUpdate.delta(flow, since), since, false);
+    }
+
+    synchronized (this.pendingLock) {
+      final Deque<PendingFlowUpdate> updates = this.pendingFlows
+          .computeIfAbsent(flow.getExecutionId(), k -> new ArrayDeque<>());
+      if (update.fullSnapshot) {
+        updates.clear();
+      } else if (!updates.isEmpty() && updates.peekLast() == last) {
+        updates.pollLast();
+      }
+      updates.add(update);
+    }
+    if (Status.isStatusFinished(flow.getStatus())) {
+      flushTerminalFlow(flow, update);
+    }
+  }
+
+  public void updateExecutableNode(final ExecutableNode node) throws ExecutorManagerException {
+    final ExecutableNodeUpdate update = new ExecutableNodeUpdate(node);
+    synchronized (this.pendingLock) {
+      this.pendingNodes.put(node, update);
+    }
+    if (Status.isStatusFinished(node.getStatus())) {
+      flushTerminalNode(node, update);
+    }
+  }
+
+  public int getQueueDepth() {
+    synchronized (this.pendingLock) {
+      return this.pendingFlows.size() + this.pendingNodes.size();
+    }
+  }
+
+  /**
+   * Writes all pending updates. Nodes are written before flows so that a flow never shows a state
+   * newer than its jobs. Updates that fail to be written are put back for the next flush.
+   */
+  public void flush() throws ExecutorManagerException {
+    synchronized (this.flushLock) {
+      final Map<Integer, Deque<PendingFlowUpdate>> flows;
+      Map<ExecutableNode, ExecutableNodeUpdate> nodes;
+      synchronized (this.pendingLock) {
+        if (this.pendingFlows.isEmpty() && this.pendingNodes.isEmpty()) {
+          return;
+        }
+        flows = this.pendingFlows;
+        nodes = this.pendingNodes;
+        this.pendingFlows = new LinkedHashMap<>();
+        this.pendingNodes = new LinkedHashMap<>();
+      }
+
+      final Timer.Context flushTimerContext = this.execMetrics.getWriteBehindFlushTimerContext();
+      try {
+        if (!nodes.isEmpty()) {
+          this.executorLoader.updateExecutableNodes(new ArrayList<>(nodes.values()));
+          nodes = null;
+        }
+        // Each round writes the oldest update left of every execution.
+        while (!flows.isEmpty()) {
+          final List<ExecutableFlowUpdate> snapshots = new ArrayList<>();
+          final List<ExecutableFlowUpdate> deltas = new ArrayList<>();
+          for (final Deque<PendingFlowUpdate> updates : flows.values()) {
+            final PendingFlowUpdate pending = updates.peekFirst();
+            if (pending.fullSnapshot) {
+              snapshots.add(pending.update);
+            } else {
+              deltas.add(pending.update);
+            }
+          }
+          if (!deltas.isEmpty()) {
+            this.executorLoader.updateExecutableFlowDeltas(deltas);
+          }
+          if (!snapshots.isEmpty()) {
+            this.executorLoader.updateExecutableFlows(snapshots);
+          }
+          final Iterator<Deque<PendingFlowUpdate>> it = flows.values().iterator();
+          while (it.hasNext()) {
+            final Deque<PendingFlowUpdate> updates = it.next();
+            updates.pollFirst();
+            if (updates.isEmpty()) {
+              it.remove();
+            }
+          }
+        }
+      } catch (final ExecutorManagerException e) {
+        requeue(flows, nodes);
+        throw e;
+      } finally {
+        flushTimerContext.stop();
+      }
+    }
+  }
+
+  private void flushTerminalFlow(final ExecutableFlow flow, final PendingFlowUpdate update)
+      throws ExecutorManagerException {
+    final String target = "execution " + flow.getExecutionId();
+    if (flushWithRetries(target)) {
+      return;
+    }
+    try {
+      this.executorLoader.updateExecutableFlow(flow);
+    } catch (final ExecutorManagerException e) {
+      logger.error("Status " + flow.getStatus() + " of " + target + " could not be written.", e);
+      throw e;
+    }
+    synchronized (this.pendingLock) {
+      // Drop the pending updates the write made obsolete, unless a newer one was recorded since.
+      final Deque<PendingFlowUpdate> updates = this.pendingFlows.get(flow.getExecutionId());
+      if (updates != null && updates.peekLast() == update) {
+        this.pendingFlows.remove(flow.getExecutionId());
+      }
+    }
+  }
+
+  private void flushTerminalNode(final ExecutableNode node, final ExecutableNodeUpdate update)
+      throws ExecutorManagerException {
+    final String target = "job " + update.getJobId() + " of execution "
+        + update.getExecutionId();
+    if (flushWithRetries(target)) {
+      return;
+    }
+    try {
+      this.executorLoader.updateExecutableNode(node);
+    } catch (final ExecutorManagerException e) {
+      logger.error("Status " + update.getStatus() + " of " + target + " could not be written.", e);
+      throw e;
+    }
+    synchronized (this.pendingLock) {
+      this.pendingNodes.remove(node, update);
+    }
+  }
+
+  /**
+   * @return true if everything pending was written, false if the last attempt failed too
+   */
+  private boolean flushWithRetries(final String target) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        flush();
+        return true;
+      } catch (final ExecutorManagerException e) {
+        if (attempt >= TERMINAL_FLUSH_ATTEMPTS) {
+          logger.error("Failed to flush the terminal status of " + target
+              + ", writing it on its own.", e);
+          return false;
+        }
+        logger.warn("Failed to flush the terminal status of " + target + ", retrying.", e);
+      }
+      try {
+        Thread.sleep(TERMINAL_FLUSH_RETRY_INTERVAL_MS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (final Throwable t) {
+      logger.error("Failed to flush execution updates, will retry on next flush.", t);
+    }
+  }
+
+  /**
+   * Puts back updates that failed to be written, ahead of the updates recorded in the meantime.
+   * Updates superseded by a newer update are dropped.
+   */
+  private void requeue(final Map<Integer, Deque<PendingFlowUpdate>> flows,
+      final Map<ExecutableNode, ExecutableNodeUpdate> nodes) {
+    synchronized (this.pendingLock) {
+      if (nodes != null) {
+        for (final Map.Entry<ExecutableNode, ExecutableNodeUpdate> entry : nodes.entrySet()) {
+          this.pendingNodes.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+      }
+      for (final Map.Entry<Integer, Deque<PendingFlowUpdate>> entry : flows.entrySet()) {
+        final Deque<PendingFlowUpdate> newer = this.pendingFlows.get(entry.getKey());
+        if (newer == null) {
+          this.pendingFlows.put(entry.getKey(), entry.getValue());
+        } else if (!newer.peekFirst().fullSnapshot) {
+          final Deque<PendingFlowUpdate> updates = entry.getValue();
+          updates.addAll(newer);
+          this.pendingFlows.put(entry.getKey(), updates);
+        }
+      }
+    }
+  }
+
+  private static class PendingFlowUpdate {
+
+    private final ExecutableFlowUpdate update;
+    private final long lastUpdateTime;
+    private final boolean fullSnapshot;
+
+    private PendingFlowUpdate(final ExecutableFlowUpdate update, final long lastUpdateTime,
+        final boolean fullSnapshot) {
+      this.update = update;
+      this.lastUpdateTime = lastUpdateTime;
+      this.fullSnapshot = fullSnapshot;
+    }
+  }
+}
@@ -20,13 +20,24 @@ import azkaban.executor.ExecutableNode;
 import azkaban.executor.ExecutorLoader;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.executor.Status;
+import azkaban.utils.Pair;
 import java.util.ArrayList;
 import java.util.Map;
+import org.apache.log4j.Logger;
 
 
+/**
+ * Watches an execution running on another executor through the DB.
+ *
+ * <p>Only the status and update time of the execution are checked every status check interval.
+ * The whole execution, which has to be deserialized, is fetched when they changed, and every
+ * check interval regardless, in case an update was missed.
+ */
 public class RemoteFlowWatcher extends FlowWatcher {
 
-  private final static long CHECK_INTERVAL_MS = 60000; // 60 * 1000
+  public final static long STATUS_CHECK_INTERVAL_MS = 5000;
+  public final static long CHECK_INTERVAL_MS = 60000; // 60 * 1000
+  private static final Logger logger = Logger.getLogger(RemoteFlowWatcher.class);
 
   private int execId;
   private ExecutorLoader loader;
@@ -36,14 +47,26 @@ public class RemoteFlowWatcher extends FlowWatcher {
 
   // Every minute
   private long checkIntervalMs = CHECK_INTERVAL_MS;
+  private long statusCheckIntervalMs = STATUS_CHECK_INTERVAL_MS;
 
   public RemoteFlowWatcher(final int execId, final ExecutorLoader loader) {
     this(execId, loader, CHECK_INTERVAL_MS);
   }
 
   public RemoteFlowWatcher(final int execId, final ExecutorLoader loader, final long interval) {
+    this(execId, loader, interval, Math.min(interval, STATUS_CHECK_INTERVAL_MS));
+  }
+
+  /**
+   * @param interval how often the whole execution is fetched
+   * @param statusInterval how often the status of the execution is checked, the execution is
+   * fetched when it changed
+   */
+  public RemoteFlowWatcher(final int execId, final ExecutorLoader loader, final long interval,
+      final long statusInterval) {
     super(execId);
     this.checkIntervalMs = interval;
+    this.statusCheckIntervalMs = statusInterval;
 
     try {
       this.flow = loader.fetchExecutableFlow(execId);
@@ -79,43 +102,34 @@ public class RemoteFlowWatcher extends FlowWatcher {
 
     @Override
     public void run() {
+      long lastFetchTime = System.currentTimeMillis();
       do {
-        ExecutableFlow updateFlow = null;
         try {
-          updateFlow = RemoteFlowWatcher.this.loader.fetchExecutableFlow(
-              RemoteFlowWatcher.this.execId);
+          if (isFlowChanged()
+              || System.currentTimeMillis() - lastFetchTime >= RemoteFlowWatcher.this
+              .checkIntervalMs) {
+            lastFetchTime = System.currentTimeMillis();
+            final ExecutableFlow updateFlow = RemoteFlowWatcher.this.loader.fetchExecutableFlow(
+                RemoteFlowWatcher.this.execId);
+            if (updateFlow == null) {
+              logger.error("Execution " + RemoteFlowWatcher.this.execId + " no longer exists");
+              RemoteFlowWatcher.this.isShutdown = true;
+            } else {
+              applyUpdate(updateFlow);
+            }
+          }
         } catch (final ExecutorManagerException e) {
-          e.printStackTrace();
+          logger.error("Error fetching execution " + RemoteFlowWatcher.this.execId, e);
           RemoteFlowWatcher.this.isShutdown = true;
         }
 
-        long updateTime = 0;
-        if (RemoteFlowWatcher.this.flow == null) {
-          RemoteFlowWatcher.this.flow = updateFlow;
-        } else {
-          final Map<String, Object> updateData =
-              updateFlow.toUpdateObject(updateTime);
-          final ArrayList<ExecutableNode> updatedNodes =
-              new ArrayList<>();
-          RemoteFlowWatcher.this.flow.applyUpdateObject(updateData, updatedNodes);
-
-          RemoteFlowWatcher.this.flow.setStatus(updateFlow.getStatus());
-          RemoteFlowWatcher.this.flow.setEndTime(updateFlow.getEndTime());
-          RemoteFlowWatcher.this.flow.setUpdateTime(updateFlow.getUpdateTime());
-
-          for (final ExecutableNode node : updatedNodes) {
-            handleJobStatusChange(node.getNestedId(), node.getStatus());
-          }
-
-          updateTime = RemoteFlowWatcher.this.flow.getUpdateTime();
-        }
-
-        if (Status.isStatusFinished(RemoteFlowWatcher.this.flow.getStatus())) {
+        if (RemoteFlowWatcher.this.isShutdown
+            || Status.isStatusFinished(RemoteFlowWatcher.this.flow.getStatus())) {
           RemoteFlowWatcher.this.isShutdown = true;
         } else {
           synchronized (this) {
             try {
-              wait(RemoteFlowWatcher.this.checkIntervalMs);
+              wait(RemoteFlowWatcher.this.statusCheckIntervalMs);
             } catch (final InterruptedException e) {
             }
           }
@@ -123,5 +137,30 @@ public class RemoteFlowWatcher extends FlowWatcher {
       } while (!RemoteFlowWatcher.this.isShutdown);
     }
 
+    /**
+     * @return true if the status or update time of the execution in the DB differ from the
+     * watched one
+     */
+    private boolean isFlowChanged() throws ExecutorManagerException {
+      final Pair<Status, Long> status = RemoteFlowWatcher.this.loader
+          .fetchExecutableFlowStatus(RemoteFlowWatcher.this.execId);
+      return status == null
+          || status.getFirst() != RemoteFlowWatcher.this.flow.getStatus()
+          || status.getSecond() != RemoteFlowWatcher.this.flow.getUpdateTime();
+    }
+
+    private void applyUpdate(final ExecutableFlow updateFlow) {
+      final Map<String, Object> updateData = updateFlow.toUpdateObject(0);
+      final ArrayList<ExecutableNode> updatedNodes = new ArrayList<>();
+      RemoteFlowWatcher.this.flow.applyUpdateObject(updateData, updatedNodes);
+
+      RemoteFlowWatcher.this.flow.setStatus(updateFlow.getStatus());
+      RemoteFlowWatcher.this.flow.setEndTime(updateFlow.getEndTime());
+      RemoteFlowWatcher.this.flow.setUpdateTime(updateFlow.getUpdateTime());
+
+      for (final ExecutableNode node : updatedNodes) {
+        handleJobStatusChange(node.getNestedId(), node.getStatus());
+      }
+    }
   }
 }
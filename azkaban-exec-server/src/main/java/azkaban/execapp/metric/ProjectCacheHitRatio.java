@@ -19,6 +19,7 @@ package azkaban.execapp.metric;
 import com.codahale.metrics.RatioGauge;
 import com.codahale.metrics.SlidingWindowReservoir;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Project cache hit ratio of last 100 cache accesses.
@@ -32,6 +33,9 @@ public class ProjectCacheHitRatio extends RatioGauge {
 
   private final SlidingWindowReservoir hits;
   public static final int WINDOW_SIZE = 100;
+  // Totals since start-up, unlike the ratio
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
 
   public ProjectCacheHitRatio() {
     this.hits = new SlidingWindowReservoir(WINDOW_SIZE);
@@ -39,10 +43,20 @@ public class ProjectCacheHitRatio extends RatioGauge {
 
   public synchronized void markHit() {
     this.hits.update(1);
+    this.hitCount.incrementAndGet();
   }
 
   public synchronized void markMiss() {
     this.hits.update(0);
+    this.missCount.incrementAndGet();
+  }
+
+  public long getHitCount() {
+    return this.hitCount.get();
+  }
+
+  public long getMissCount() {
+    return this.missCount.get();
   }
 
   @Override
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.spi.AzkabanEvent;
+import azkaban.spi.AzkabanEventReporter;
+import azkaban.spi.EventType;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class AsyncEventReporterTest {
+
+  private static Map<String, String> metadata(final int i) {
+    return ImmutableMap.of("executionId", String.valueOf(i));
+  }
+
+  @Test
+  public void testEventsAreReportedInBatchesInOrder() {
+    final BatchRecordingReporter reporter = new BatchRecordingReporter(null);
+    final AsyncEventReporter asyncReporter = new AsyncEventReporter(reporter, 100, 10, 0);
+    for (int i = 0; i < 25; i++) {
+      assertThat(asyncReporter.report(EventType.JOB_STARTED, metadata(i))).isTrue();
+    }
+    // Queued events are delivered on shutdown
+    asyncReporter.start();
+    asyncReporter.shutdown();
+
+    final List<AzkabanEvent> events = new ArrayList<>();
+    for (final List<AzkabanEvent> batch : reporter.batches) {
+      assertThat(batch.size()).isBetween(1, 10);
+      events.addAll(batch);
+    }
+    assertThat(events).hasSize(25);
+    for (int i = 0; i < 25; i++) {
+      assertThat(events.get(i).getMetadata()).isEqualTo(metadata(i));
+    }
+    assertThat(asyncReporter.getNumDroppedEvents()).isEqualTo(0);
+    assertThat(asyncReporter.getNumFailedEvents()).isEqualTo(0);
+  }
+
+  @Test
+  public void testEventsAreDroppedWhenQueueIsFull() throws Exception {
+    final CountDownLatch unblock = new CountDownLatch(1);
+    final BatchRecordingReporter reporter = new BatchRecordingReporter(unblock);
+    final AsyncEventReporter asyncReporter = new AsyncEventReporter(reporter, 2, 10, 0);
+    asyncReporter.start();
+
+    // Taken by the delivery thread, which blocks in the reporter
+    asyncReporter.report(EventType.FLOW_STARTED, metadata(0));
+    assertThat(reporter.reporting.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(asyncReporter.report(EventType.JOB_STARTED, metadata(1))).isTrue();
+    assertThat(asyncReporter.report(EventType.JOB_STARTED, metadata(2))).isTrue();
+    assertThat(asyncReporter.report(EventType.JOB_STARTED, metadata(3))).isFalse();
+    assertThat(asyncReporter.getQueueDepth()).isEqualTo(2);
+    assertThat(asyncReporter.getNumDroppedEvents()).isEqualTo(1);
+
+    unblock.countDown();
+    asyncReporter.shutdown();
+    assertThat(asyncReporter.getQueueDepth()).isEqualTo(0);
+    assertThat(reporter.batches.stream().mapToInt(List::size).sum()).isEqualTo(3);
+  }
+
+  @Test
+  public void testFailedEventsAreCounted() {
+    final AzkabanEventReporter failingReporter = (eventType, metadata) -> {
+      throw new IllegalStateException("reporter is down");
+    };
+    final AsyncEventReporter asyncReporter = new AsyncEventReporter(failingReporter, 100, 10, 0);
+    asyncReporter.report(EventType.JOB_FINISHED, metadata(0));
+    asyncReporter.report(EventType.JOB_FINISHED, metadata(1));
+    asyncReporter.start();
+    asyncReporter.shutdown();
+
+    assertThat(asyncReporter.getNumFailedEvents()).isEqualTo(2);
+  }
+
+  private static class BatchRecordingReporter implements AzkabanEventReporter {
+
+    private final List<List<AzkabanEvent>> batches = new CopyOnWriteArrayList<>();
+    private final CountDownLatch reporting = new CountDownLatch(1);
+    private final CountDownLatch unblock;
+
+    private BatchRecordingReporter(final CountDownLatch unblock) {
+      this.unblock = unblock;
+    }
+
+    @Override
+    public boolean report(final EventType eventType, final Map<String, String> metadata) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean reportBatch(final List<AzkabanEvent> events) {
+      this.reporting.countDown();
+      if (this.unblock != null) {
+        try {
+          this.unblock.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      this.batches.add(new ArrayList<>(events));
+      return true;
+    }
+  }
+}
@@ -26,6 +26,7 @@ import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -35,6 +36,8 @@ import azkaban.executor.ExecutorManagerException;
 import azkaban.project.ProjectFileHandler;
 import azkaban.storage.StorageManager;
 import azkaban.utils.FileIOUtils;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableSet;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -173,6 +176,30 @@ public class FlowPreparerTest {
     }
   }
 
+  @Test
+  public void testLinkingProjectWithSameMd5() throws Exception {
+    final StorageManager storageManager = createMockStorageManager();
+    final ProjectFileHandler metadata = mock(ProjectFileHandler.class);
+    when(metadata.getMd5Hash()).thenReturn(new byte[]{1, 2, 3, (byte) 0xff});
+    when(storageManager.getProjectMetaData(anyInt(), anyInt())).thenReturn(metadata);
+    this.instance = new FlowPreparer(storageManager, this.executionsDir, this.projectsDir, null,
+        new ProjectCacheHitRatio(), 2);
+
+    this.instance.setup(mockExecutableFlow(1, 12, 34));
+    // A new version uploaded with the same zip
+    this.instance.setup(mockExecutableFlow(2, 12, 35));
+
+    verify(storageManager, times(1)).getProjectFile(anyInt(), anyInt());
+    assertTrue(new File(this.executionsDir, "2/" + SAMPLE_FLOW_01).exists());
+    final File installedDir = new File(this.projectsDir, "12.35");
+    assertThat(new String(Files.readAllBytes(
+        Paths.get(installedDir.getPath(), FlowPreparer.PROJECT_MD5_FILE_NAME))))
+        .isEqualTo("010203ff");
+    assertThat(FileIOUtils.readNumberFromFile(
+        Paths.get(installedDir.getPath(), FlowPreparer.PROJECT_DIR_SIZE_FILE_NAME)))
+        .isEqualTo(1048835 + 8);
+  }
+
   @Test
   public void testSetupFlow() throws ExecutorManagerException {
     final ExecutableFlow executableFlow = mock(ExecutableFlow.class);
@@ -186,4 +213,25 @@ public class FlowPreparerTest {
     assertTrue(new File(execDir, SAMPLE_FLOW_01).exists());
   }
 
+
+  @Test
+  public void testSymlinkingDirsIntoExecutionDir() throws Exception {
+    final Timer executionDirSetupTimer = new Timer();
+    this.instance = new FlowPreparer(createMockStorageManager(), this.executionsDir,
+        this.projectsDir, null, new ProjectCacheHitRatio(), 2, ImmutableSet.of(SAMPLE_FLOW_01),
+        executionDirSetupTimer);
+
+    this.instance.setup(mockExecutableFlow(1, 12, 34));
+
+    final File installedDir = new File(this.projectsDir, "12.34");
+    final Path linkedDir = Paths.get(this.executionsDir.getPath(), "1", SAMPLE_FLOW_01);
+    assertThat(Files.isSymbolicLink(linkedDir)).isTrue();
+    assertThat(Files.readSymbolicLink(linkedDir))
+        .isEqualTo(new File(installedDir, SAMPLE_FLOW_01).getAbsoluteFile().toPath());
+    assertThat(executionDirSetupTimer.getCount()).isEqualTo(1);
+    assertThat(this.instance.getSymlinkedInstalledDirs()).containsExactly(installedDir);
+
+    this.instance.releaseExecutionDir(1);
+    assertThat(this.instance.getSymlinkedInstalledDirs()).isEmpty();
+  }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutionOptions;
+import azkaban.executor.Status;
+import azkaban.utils.Props;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Runs a chain and a fan-out/fan-in of {@value #NUM_JOBS} no-op jobs and checks how the main loop
+ * dispatched them: every wake-up must come from a job event, never from the periodic check, and
+ * finding the ready jobs must visit each dependency a bounded number of times instead of
+ * rescanning the in-nodes of a job every time one of them finishes.
+ */
+public class FlowRunnerLargeDagTest extends FlowRunnerTestBase {
+
+  private static final int NUM_JOBS = 1000;
+  // Below the main loop's periodic check, so that a lost wake-up fails the test
+  private static final long FLOW_TIMEOUT_MS = 2 * 60 * 1000;
+
+  @Test
+  public void testChainIsDrivenByJobEvents() throws Exception {
+    final File projectDir = this.temporaryFolder.newFolder("chain");
+    writeJob(projectDir, "chain0");
+    for (int i = 1; i < NUM_JOBS; i++) {
+      writeJob(projectDir, "chain" + i, "chain" + (i - 1));
+    }
+
+    runFlow(projectDir, "chain" + (NUM_JOBS - 1));
+
+    assertDispatch(NUM_JOBS, NUM_JOBS - 1);
+  }
+
+  @Test
+  public void testFanOutFanInIsDrivenByJobEvents() throws Exception {
+    final File projectDir = this.temporaryFolder.newFolder("fan");
+    writeJob(projectDir, "root");
+    final String[] fanJobs = new String[NUM_JOBS];
+    for (int i = 0; i < NUM_JOBS; i++) {
+      fanJobs[i] = "fan" + i;
+      writeJob(projectDir, fanJobs[i], "root");
+    }
+    writeJob(projectDir, "sink", fanJobs);
+
+    runFlow(projectDir, "sink");
+
+    assertDispatch(NUM_JOBS + 2, 2 * NUM_JOBS);
+  }
+
+  private void assertDispatch(final int numJobs, final int numDependencies) {
+    assertThat(this.runner.getNumMainLoopTimeouts()).isEqualTo(0);
+    // Each wake-up handles at least one finished job
+    assertThat(this.runner.getNumMainLoopWakeUps()).isLessThanOrEqualTo(numJobs);
+    // Each dependency is visited once to count it and once to release it
+    assertThat(this.runner.getNumDependencyChecks()).isLessThanOrEqualTo(2L * numDependencies);
+  }
+
+  private void runFlow(final File projectDir, final String flowName) throws Exception {
+    final FlowRunnerTestUtil testUtil = new FlowRunnerTestUtil(projectDir, this.temporaryFolder);
+    this.runner = testUtil.createFromFlowMap(flowName, new ExecutionOptions(), new HashMap<>(),
+        new Props());
+    final Thread thread = FlowRunnerTestUtil.startThread(this.runner);
+    thread.join(FLOW_TIMEOUT_MS);
+
+    final ExecutableFlow flow = this.runner.getExecutableFlow();
+    assertThat(thread.isAlive()).isFalse();
+    assertThat(flow.getStatus()).isEqualTo(Status.SUCCEEDED);
+  }
+
+  private static void writeJob(final File projectDir, final String name,
+      final String... dependencies) throws IOException {
+    final StringBuilder job = new StringBuilder("type=noop\n");
+    if (dependencies.length > 0) {
+      job.append("dependencies=").append(String.join(",", dependencies)).append('\n');
+    }
+    FileUtils.writeStringToFile(new File(projectDir, name + ".job"), job.toString(),
+        StandardCharsets.UTF_8);
+  }
+}
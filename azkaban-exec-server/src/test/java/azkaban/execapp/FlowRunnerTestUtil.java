@@ -65,8 +65,13 @@ public class FlowRunnerTestUtil {
 
   public FlowRunnerTestUtil(final String flowName, final TemporaryFolder temporaryFolder)
       throws Exception {
+    this(ExecutionsTestUtil.getFlowDir(flowName), temporaryFolder);
+  }
+
+  public FlowRunnerTestUtil(final File projectDir, final TemporaryFolder temporaryFolder)
+      throws Exception {
 
-    this.projectDir = ExecutionsTestUtil.getFlowDir(flowName);
+    this.projectDir = projectDir;
     this.workingDir = temporaryFolder.newFolder();
     this.project = new Project(1, "testProject");
 
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogTailerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testTailUntilWriterDone() throws Exception {
+    final File logFile = this.temporaryFolder.newFile("job.log");
+    final AtomicBoolean writerDone = new AtomicBoolean(false);
+    final StringBuilder expected = new StringBuilder();
+
+    final Thread writer = new Thread(() -> {
+      try (OutputStream out = new FileOutputStream(logFile, true)) {
+        for (int i = 0; i < 20; i++) {
+          final String line = "line " + i + "\n";
+          out.write(line.getBytes(StandardCharsets.UTF_8));
+          out.flush();
+          expected.append(line);
+          Thread.sleep(5);
+        }
+      } catch (final Exception e) {
+        throw new RuntimeException(e);
+      } finally {
+        writerDone.set(true);
+      }
+    });
+    writer.start();
+
+    final ByteArrayOutputStream tailed = new ByteArrayOutputStream();
+    final long position = new LogTailer(10, 60 * 1000)
+        .tail(logFile, 0, tailed, writerDone::get);
+    writer.join();
+
+    assertThat(new String(tailed.toByteArray(), StandardCharsets.UTF_8))
+        .isEqualTo(expected.toString());
+    assertThat(position).isEqualTo(logFile.length());
+  }
+
+  @Test
+  public void testTailFromOffsetStopsAtMaxDuration() throws Exception {
+    final File logFile = this.temporaryFolder.newFile("job.log");
+    FileUtils.writeStringToFile(logFile, "0123456789", StandardCharsets.UTF_8);
+
+    final ByteArrayOutputStream tailed = new ByteArrayOutputStream();
+    final long position = new LogTailer(10, 100).tail(logFile, 4, tailed, () -> false);
+
+    assertThat(new String(tailed.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("456789");
+    assertThat(position).isEqualTo(10);
+  }
+}
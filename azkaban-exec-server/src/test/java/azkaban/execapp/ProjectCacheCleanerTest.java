@@ -22,6 +22,8 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 import azkaban.utils.Utils;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -46,6 +48,12 @@ public class ProjectCacheCleanerTest {
     Utils.unzip(zip, dest.toFile());
   }
 
+  private ProjectCacheCleaner createCleaner(final double percentageOfDisk) {
+    // Deletes in the calling thread
+    return new ProjectCacheCleaner(this.cacheDir, percentageOfDisk,
+        MoreExecutors.newDirectExecutorService());
+  }
+
   @Before
   public void setUp() throws Exception {
     this.cacheDir = spy(this.temporaryFolder.newFolder("projects"));
@@ -77,8 +85,7 @@ public class ProjectCacheCleanerTest {
    * There's still space in the cache, no deletion.
    */
   public void testNotDeleting() {
-    final ProjectCacheCleaner cleaner = new ProjectCacheCleaner(this.cacheDir,
-        0.7);
+    final ProjectCacheCleaner cleaner = createCleaner(0.7);
     cleaner.deleteProjectDirsIfNecessary(1);
 
     assertThat(this.cacheDir.list()).hasSize(3);
@@ -89,7 +96,7 @@ public class ProjectCacheCleanerTest {
    * Deleting everything in the cache to accommodate new item.
    */
   public void testDeletingAll() {
-    final ProjectCacheCleaner cleaner = new ProjectCacheCleaner(this.cacheDir, 0.3);
+    final ProjectCacheCleaner cleaner = createCleaner(0.3);
     cleaner.deleteProjectDirsIfNecessary(7000000);
 
     assertThat(this.cacheDir.list()).hasSize(0);
@@ -100,7 +107,7 @@ public class ProjectCacheCleanerTest {
    * Deleting two least recently used items in the cache to accommodate new item.
    */
   public void testDeletingTwoLRUItems() {
-    final ProjectCacheCleaner cleaner = new ProjectCacheCleaner(this.cacheDir, 0.7);
+    final ProjectCacheCleaner cleaner = createCleaner(0.7);
     cleaner.deleteProjectDirsIfNecessary(3000000);
     assertThat(this.cacheDir.list()).hasSize(1);
     assertThat(this.cacheDir.list()).contains("3.1");
@@ -111,10 +118,56 @@ public class ProjectCacheCleanerTest {
    * Deleting the least recently used item in the cache to accommodate new item.
    */
   public void testDeletingOneLRUItem() {
-    final ProjectCacheCleaner cleaner = new ProjectCacheCleaner(this.cacheDir, 0.7);
+    final ProjectCacheCleaner cleaner = createCleaner(0.7);
     cleaner.deleteProjectDirsIfNecessary(2000000);
     assertThat(this.cacheDir.list()).hasSize(2);
     assertThat(this.cacheDir.list()).contains("3.1");
     assertThat(this.cacheDir.list()).contains("2.1");
   }
+
+  @Test
+  /**
+   * A project accessed since the index was loaded is evicted after the ones which weren't.
+   */
+  public void testDeletingLRUItemAfterAccess() {
+    final ProjectCacheCleaner cleaner = createCleaner(0.7);
+    cleaner.markAccessed(new File(this.cacheDir, "1.1"));
+    cleaner.deleteProjectDirsIfNecessary(2000000);
+    assertThat(this.cacheDir.list()).containsOnly("1.1", "3.1");
+    assertThat(cleaner.getNumEvictedProjects()).isEqualTo(1);
+    assertThat(cleaner.getNumProjects()).isEqualTo(2);
+  }
+
+  @Test
+  /**
+   * Project dirs in use are skipped, the next least recently used one is deleted instead.
+   */
+  public void testNotDeletingProjectDirsInUse() {
+    final ProjectCacheCleaner cleaner = createCleaner(0.7);
+    cleaner.deleteProjectDirsIfNecessary(2000000,
+        ImmutableSet.of(new File(this.cacheDir, "1.1")));
+    assertThat(this.cacheDir.list()).containsOnly("1.1", "3.1");
+  }
+
+  @Test
+  /**
+   * Installed projects are added to the index without rescanning the cache dir.
+   */
+  public void testAddingProjectDir() throws Exception {
+    final ProjectCacheCleaner cleaner = createCleaner(0.7);
+    cleaner.deleteProjectDirsIfNecessary(1);
+    final long sizeBefore = cleaner.getTotalSizeInBytes();
+
+    final File installedDir = new File(this.cacheDir, "4.1");
+    assertThat(installedDir.mkdir()).isTrue();
+    final ProjectDirectoryMetadata proj = new ProjectDirectoryMetadata(4, 1, installedDir);
+    proj.setDirSizeInByte(3000000L);
+    cleaner.addProjectDir(proj);
+    assertThat(cleaner.getTotalSizeInBytes()).isEqualTo(sizeBefore + 3000000);
+    assertThat(cleaner.getNumProjects()).isEqualTo(4);
+
+    // The new project is the most recently used one
+    cleaner.deleteProjectDirsIfNecessary(1);
+    assertThat(this.cacheDir.list()).containsOnly("3.1", "4.1");
+  }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import azkaban.execapp.SharedJobThreadPool.FlowJobExecutor;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SharedJobThreadPoolTest {
+
+  private SharedJobThreadPool pool;
+
+  @Before
+  public void setUp() {
+    this.pool = new SharedJobThreadPool(2);
+  }
+
+  @After
+  public void tearDown() {
+    this.pool.shutdownNow();
+  }
+
+  @Test
+  public void testPerFlowCapAndSharing() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch flowBStarted = new CountDownLatch(1);
+    final AtomicInteger maxRunningA = new AtomicInteger();
+    final AtomicInteger runningA = new AtomicInteger();
+
+    final FlowJobExecutor flowA = this.pool.createFlowExecutor(1);
+    final FlowJobExecutor flowB = this.pool.createFlowExecutor(2);
+    for (int i = 0; i < 3; i++) {
+      flowA.submit(() -> {
+        maxRunningA.accumulateAndGet(runningA.incrementAndGet(), Math::max);
+        try {
+          release.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        runningA.decrementAndGet();
+      });
+    }
+    // Flow A is capped at one job, so the second thread is free for flow B.
+    flowB.submit(flowBStarted::countDown);
+    assertThat(flowBStarted.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(this.pool.getNumQueuedJobs()).isEqualTo(2);
+
+    release.countDown();
+    flowA.shutdown();
+    assertThat(flowA.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(maxRunningA.get()).isEqualTo(1);
+    assertThat(this.pool.getNumQueuedJobs()).isEqualTo(0);
+  }
+
+  @Test
+  public void testShutdownFlowRejectsNewJobs() {
+    final FlowJobExecutor flow = this.pool.createFlowExecutor(1);
+    flow.shutdown();
+    assertThat(flow.isShutdown()).isTrue();
+    assertThatThrownBy(() -> flow.execute(() -> {
+    })).isInstanceOf(RejectedExecutionException.class);
+  }
+
+  @Test
+  public void testPoolShutdownCancelsQueuedJobs() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final FlowJobExecutor flow = this.pool.createFlowExecutor(1);
+    flow.submit(() -> {
+      try {
+        release.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    final Future<?> queuedJob = flow.submit(() -> {
+    });
+
+    this.pool.shutdown();
+    assertThatThrownBy(() -> flow.execute(() -> {
+    })).isInstanceOf(RejectedExecutionException.class);
+    release.countDown();
+
+    flow.shutdown();
+    assertThat(flow.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(queuedJob.isCancelled()).isTrue();
+    assertThat(this.pool.getNumQueuedJobs()).isEqualTo(0);
+    assertThat(this.pool.getNumRunningJobs()).isEqualTo(0);
+  }
+
+  @Test
+  public void testPoolShutdownNowInterruptsRunningJobs() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    final FlowJobExecutor flow = this.pool.createFlowExecutor(1);
+    final Future<?> runningJob = flow.submit(() -> {
+      started.countDown();
+      try {
+        new CountDownLatch(1).await();
+      } catch (final InterruptedException e) {
+        interrupted.countDown();
+      }
+    });
+    final Future<?> queuedJob = flow.submit(() -> {
+    });
+    assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    this.pool.shutdownNow();
+    assertThat(interrupted.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(runningJob.isCancelled()).isTrue();
+    assertThat(queuedJob.isCancelled()).isTrue();
+
+    flow.shutdown();
+    assertThat(flow.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(this.pool.getNumQueuedJobs()).isEqualTo(0);
+    assertThat(this.pool.getNumRunningJobs()).isEqualTo(0);
+  }
+}
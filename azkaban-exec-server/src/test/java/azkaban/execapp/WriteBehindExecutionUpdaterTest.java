@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableFlowUpdate;
+import azkaban.executor.ExecutableNode;
+import azkaban.executor.ExecutableNodeUpdate;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
+import azkaban.metrics.MetricsManager;
+import azkaban.metrics.MetricsTestUtility;
+import azkaban.utils.TestUtils;
+import com.codahale.metrics.MetricRegistry;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.MockitoAnnotations;
+
+public class WriteBehindExecutionUpdaterTest {
+
+  @Captor
+  ArgumentCaptor<List<ExecutableFlowUpdate>> flowUpdates;
+  @Captor
+  ArgumentCaptor<List<ExecutableNodeUpdate>> nodeUpdates;
+  private ExecutorLoader loader;
+  private MetricsTestUtility testUtil;
+  private WriteBehindExecutionUpdater updater;
+  private ExecutableFlow flow;
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    final MetricRegistry metricRegistry = new MetricRegistry();
+    this.testUtil = new MetricsTestUtility(metricRegistry);
+    this.loader = mock(ExecutorLoader.class);
+    // The flush thread is not started, flushes are driven by the test.
+    this.updater = new WriteBehindExecutionUpdater(this.loader,
+        new ExecMetrics(new MetricsManager(metricRegistry)), 1000L);
+    this.flow = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    this.flow.setExecutionId(1);
+    this.flow.setStatus(Status.RUNNING);
+  }
+
+  @Test
+  public void testUpdatesAreCoalesced() throws Exception {
+    final ExecutableNode node = this.flow.getExecutableNode("job1");
+    node.setStatus(Status.RUNNING);
+
+    this.updater.updateExecutableFlow(this.flow);
+    this.updater.updateExecutableFlow(this.flow);
+    this.updater.updateExecutableNode(node);
+    this.updater.updateExecutableNode(node);
+    assertThat(this.updater.getQueueDepth()).isEqualTo(2);
+    verify(this.loader, never()).updateExecutableFlows(any());
+    verify(this.loader, never()).updateExecutableNodes(any());
+
+    this.updater.flush();
+    assertThat(this.updater.getQueueDepth()).isEqualTo(0);
+    verify(this.loader).updateExecutableNodes(this.nodeUpdates.capture());
+    assertThat(this.nodeUpdates.getValue()).hasSize(1);
+    assertThat(this.nodeUpdates.getValue().get(0).getJobId()).isEqualTo("job1");
+    verify(this.loader).updateExecutableFlows(this.flowUpdates.capture());
+    assertThat(this.flowUpdates.getValue()).hasSize(1);
+    assertThat(this.flowUpdates.getValue().get(0).getExecutionId()).isEqualTo(1);
+    assertThat(this.testUtil.getTimerCount(ExecMetrics.WRITE_BEHIND_FLUSH_TIMER_NAME))
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testStateIsCapturedWhenUpdateIsIssued() throws Exception {
+    final ExecutableNode node = this.flow.getExecutableNode("job1");
+    node.setStatus(Status.RUNNING);
+    this.updater.updateExecutableNode(node);
+    this.updater.updateExecutableFlow(this.flow);
+
+    // Changes made after the updates were issued are not written by the flush.
+    node.setStatus(Status.SUCCEEDED);
+    this.flow.setStatus(Status.SUCCEEDED);
+    this.updater.flush();
+
+    verify(this.loader).updateExecutableNodes(this.nodeUpdates.capture());
+    assertThat(this.nodeUpdates.getValue().get(0).getStatus()).isEqualTo(Status.RUNNING);
+    verify(this.loader).updateExecutableFlows(this.flowUpdates.capture());
+    assertThat(this.flowUpdates.getValue().get(0).getStatus()).isEqualTo(Status.RUNNING);
+  }
+
+  @Test
+  public void testTerminalStatusIsWrittenThrough() throws Exception {
+    this.updater.updateExecutableFlow(this.flow);
+
+    final ExecutableNode node = this.flow.getExecutableNode("job1");
+    node.setStatus(Status.SUCCEEDED);
+    this.updater.updateExecutableNode(node);
+
+    assertThat(this.updater.getQueueDepth()).isEqualTo(0);
+    verify(this.loader).updateExecutableNodes(any());
+    verify(this.loader).updateExecutableFlows(any());
+  }
+
+  @Test
+  public void testFailedFlushIsRequeued() throws Exception {
+    doThrow(new ExecutorManagerException("DB down")).when(this.loader)
+        .updateExecutableFlows(any());
+
+    this.updater.updateExecutableFlow(this.flow);
+    assertThatThrownBy(() -> this.updater.flush())
+        .isInstanceOf(ExecutorManagerException.class);
+    assertThat(this.updater.getQueueDepth()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFailedTerminalFlushFallsBackToWritingTheFlow() throws Exception {
+    doThrow(new ExecutorManagerException("DB down")).when(this.loader)
+        .updateExecutableFlows(any());
+
+    this.flow.setStatus(Status.SUCCEEDED);
+    this.updater.updateExecutableFlow(this.flow);
+    verify(this.loader, times(3)).updateExecutableFlows(any());
+    verify(this.loader).updateExecutableFlow(this.flow);
+    assertThat(this.updater.getQueueDepth()).isEqualTo(0);
+  }
+
+  @Test
+  public void testTerminalStatusThatCannotBeWrittenFails() throws Exception {
+    doThrow(new ExecutorManagerException("DB down")).when(this.loader)
+        .updateExecutableNodes(any());
+    doThrow(new ExecutorManagerException("DB down")).when(this.loader)
+        .updateExecutableNode(any());
+
+    final ExecutableNode node = this.flow.getExecutableNode("job1");
+    node.setStatus(Status.FAILED);
+    assertThatThrownBy(() -> this.updater.updateExecutableNode(node))
+        .isInstanceOf(ExecutorManagerException.class);
+    // Still pending, so the flush thread keeps trying
+    assertThat(this.updater.getQueueDepth()).isEqualTo(1);
+  }
+}
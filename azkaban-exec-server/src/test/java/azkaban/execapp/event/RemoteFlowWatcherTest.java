@@ -90,6 +90,16 @@ public class RemoteFlowWatcherTest {
     FlowWatcherTestUtil.assertPipelineLevel2(runner1, runner2, false);
   }
 
+  @Test
+  public void testRemoteFlowWatcherFetchesChangedStatus() throws Exception {
+    final FlowRunner runner1 = this.testUtil.createFromFlowFile("exec1");
+    // Only the status checks can pick up the changes before the test times out
+    final RemoteFlowWatcher watcher = new RemoteFlowWatcher(runner1.getExecutionId(),
+        this.testUtil.getExecutorLoader(), Long.MAX_VALUE, 10);
+    final FlowRunner runner2 = this.testUtil.createFromFlowFile("exec1", watcher, 2);
+    FlowWatcherTestUtil.assertPipelineLevel2(runner1, runner2, false);
+  }
+
   private RemoteFlowWatcher watcher(final FlowRunner previousRunner) {
     return new RemoteFlowWatcher(previousRunner.getExecutionId(),
         this.testUtil.getExecutorLoader(), 10);
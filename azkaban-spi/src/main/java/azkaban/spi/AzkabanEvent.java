@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package azkaban.spi;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+
+/**
+ * An event passed to {@link AzkabanEventReporter#reportBatch(java.util.List)}: its type and the
+ * metadata it would be reported with by {@link AzkabanEventReporter#report(EventType, Map)}.
+ */
+public class AzkabanEvent {
+
+  private final EventType eventType;
+  private final Map<String, String> metadata;
+
+  public AzkabanEvent(final EventType eventType, final Map<String, String> metadata) {
+    this.eventType = requireNonNull(eventType);
+    this.metadata = requireNonNull(metadata);
+  }
+
+  public EventType getEventType() {
+    return this.eventType;
+  }
+
+  public Map<String, String> getMetadata() {
+    return this.metadata;
+  }
+
+  @Override
+  public String toString() {
+    return "AzkabanEvent{" + "eventType=" + this.eventType + ", metadata=" + this.metadata + '}';
+  }
+}
@@ -1,5 +1,6 @@
 package azkaban.spi;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -12,8 +13,27 @@ import java.util.Map;
  * The constructor will be called with a {@code azkaban.utils.Props} object passed as
  * the only parameter. If such a constructor doesn't exist, then the AzkabanEventReporter
  * instantiation will fail.
+ * <br><br>
+ * When {@code AZKABAN_EVENT_REPORTING_ASYNC_ENABLED} is set, events are queued and handed to
+ * {@link #reportBatch(List)} by a background thread instead of being reported on the flow and job
+ * threads. Implementations which can send several events at once, e.g. in one producer request,
+ * should override it.
  */
 public interface AzkabanEventReporter {
 
   boolean report(EventType eventType, Map<String, String> metadata);
+
+  /**
+   * Reports several events, in order. The default reports them one by one with {@link
+   * #report(EventType, Map)}.
+   *
+   * @return true if all the events were reported
+   */
+  default boolean reportBatch(final List<AzkabanEvent> events) {
+    boolean reported = true;
+    for (final AzkabanEvent event : events) {
+      reported &= report(event.getEventType(), event.getMetadata());
+    }
+    return reported;
+  }
 }
@@ -506,14 +506,14 @@ public class AzkabanWebServer extends AzkabanServer implements IMBeanRegistrable
     this.metricsManager
         .addGauge("WEB-NumQueuedFlows", this.executorManagerAdapter::getQueuedFlowSize);
     /*
-     * TODO: Currently {@link ExecutorManager#getRunningFlows()} includes both running and non-dispatched flows.
-     * Originally we would like to do a subtraction between getRunningFlows and {@link ExecutorManager#getQueuedFlowSize()},
+     * TODO: Currently {@link ExecutorManager#getRunningFlowCount()} includes both running and non-dispatched flows.
+     * Originally we would like to do a subtraction between getRunningFlowCount and {@link ExecutorManager#getQueuedFlowSize()},
      * in order to have the correct runnable flows.
-     * However, both getRunningFlows and getQueuedFlowSize are not synchronized, such that we can not make
+     * However, both getRunningFlowCount and getQueuedFlowSize are not synchronized, such that we can not make
      * a thread safe subtraction. We need to fix this in the future.
      */
     this.metricsManager.addGauge("WEB-NumRunningFlows",
-        () -> (this.executorManagerAdapter.getRunningFlows().size()));
+        this.executorManagerAdapter::getRunningFlowCount);
 
     this.metricsManager.addGauge("session-count", this.sessionCache::getSessionCount);
 
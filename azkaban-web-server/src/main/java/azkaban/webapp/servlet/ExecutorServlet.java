@@ -22,6 +22,7 @@ import azkaban.executor.ConnectorParams;
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutableFlowBase;
 import azkaban.executor.ExecutableNode;
+import azkaban.executor.ExecutionAttempt;
 import azkaban.executor.ExecutionOptions;
 import azkaban.executor.ExecutionOptions.FailureAction;
 import azkaban.executor.Executor;
@@ -58,11 +59,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Semaphore;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.http.client.HttpResponseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,12 +74,20 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
 
   private static final Logger logger = LoggerFactory.getLogger(ExecutorServlet.class.getName());
   private static final long serialVersionUID = 1L;
+  // How many job logs may be tailed at once. Each tail holds a web server thread while it's
+  // proxied from the executor, so tails past the limit are answered with 503 and the page
+  // fetches the log instead.
+  private static final String LOG_TAIL_MAX_CONCURRENT = "azkaban.log.tail.max.concurrent";
+  // Set on tailed logs, whether the job attempt was finished when the tail started
+  private static final String JOB_FINISHED_HEADER = "Azkaban-Job-Finished";
+  private static final int DEFAULT_LOG_TAIL_MAX_CONCURRENT = 16;
   private WebMetrics webMetrics;
   private ProjectManager projectManager;
   private FlowTriggerService flowTriggerService;
   private ExecutorManagerAdapter executorManagerAdapter;
   private ScheduleManager scheduleManager;
   private UserManager userManager;
+  private Semaphore logTailPermits;
 
   @Override
   public void init(final ServletConfig config) throws ServletException {
@@ -87,6 +98,8 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
     this.executorManagerAdapter = server.getExecutorManager();
     this.scheduleManager = server.getScheduleManager();
     this.flowTriggerService = server.getFlowTriggerService();
+    this.logTailPermits = new Semaphore(server.getServerProps()
+        .getInt(LOG_TAIL_MAX_CONCURRENT, DEFAULT_LOG_TAIL_MAX_CONCURRENT));
     // TODO: reallocf fully guicify
     this.webMetrics = SERVICE_PROVIDER.getInstance(WebMetrics.class);
   }
@@ -144,6 +157,14 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
           ajaxFetchExecFlowLogs(req, resp, ret, session.getUser(), exFlow);
         } else if (ajaxName.equals("fetchExecJobLogs")) {
           ajaxFetchJobLogs(req, resp, ret, session.getUser(), exFlow);
+        } else if (ajaxName.equals("streamExecJobLogs")) {
+          if (ajaxStreamJobLogs(req, resp, ret, session.getUser(), exFlow, false)) {
+            return;
+          }
+        } else if (ajaxName.equals("tailExecJobLogs")) {
+          if (ajaxStreamJobLogs(req, resp, ret, session.getUser(), exFlow, true)) {
+            return;
+          }
         } else if (ajaxName.equals("fetchExecJobStats")) {
           ajaxFetchJobStats(req, resp, ret, session.getUser(), exFlow);
         } else if (ajaxName.equals("retryFailedJobs")) {
@@ -593,6 +614,85 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
     }
   }
 
+  /**
+   * Streams the raw bytes of a job log range as plain text. For finished executions the range is
+   * copied from the DB chunk by chunk, so it's never held in memory as a whole.
+   *
+   * <p>With tail set, the log is streamed from the offset as the job writes it, in a chunked
+   * response proxied from the executor, until the job finishes or the executor ends the tail.
+   * The {@value #JOB_FINISHED_HEADER} header tells whether the attempt was already finished when
+   * the tail started, in which case the tail reads the log to its end. Otherwise the client
+   * reconnects from the offset it has reached. Past the limit of concurrent tails, here or on the
+   * executor, 503 is sent instead.
+   *
+   * @return true if the log was written to the response, false if an error was put in ret
+   */
+  private boolean ajaxStreamJobLogs(final HttpServletRequest req,
+      final HttpServletResponse resp, final HashMap<String, Object> ret, final User user,
+      final ExecutableFlow exFlow, final boolean tail) throws ServletException, IOException {
+    final Project project = getProjectAjaxByPermission(ret, exFlow.getProjectId(), user, Type.READ);
+    if (project == null) {
+      return false;
+    }
+
+    final int offset = this.getIntParam(req, "offset");
+    final int length = tail ? 0 : this.getIntParam(req, "length");
+    final String jobId = this.getParam(req, "jobId");
+
+    final ExecutableNode node = exFlow.getExecutableNodePath(jobId);
+    if (node == null) {
+      ret.put("error", "Job " + jobId + " doesn't exist in " + exFlow.getExecutionId());
+      return false;
+    }
+    final int attempt = this.getIntParam(req, "attempt", node.getAttempt());
+
+    resp.setContentType("text/plain");
+    resp.setCharacterEncoding("utf-8");
+    try {
+      if (tail) {
+        resp.setHeader(JOB_FINISHED_HEADER,
+            String.valueOf(Status.isStatusFinished(getAttemptStatus(node, attempt))));
+        tailJobLog(resp, exFlow, jobId, offset, attempt);
+      } else {
+        this.executorManagerAdapter
+            .streamExecutionJobLog(exFlow, jobId, offset, length, attempt, resp.getOutputStream());
+      }
+    } catch (final ExecutorManagerException e) {
+      throw new ServletException(e);
+    }
+    return true;
+  }
+
+  private static Status getAttemptStatus(final ExecutableNode node, final int attempt) {
+    final List<ExecutionAttempt> pastAttempts = node.getPastAttemptList();
+    if (pastAttempts == null || attempt < 0 || attempt >= pastAttempts.size()) {
+      return node.getStatus();
+    }
+    return pastAttempts.get(attempt).getStatus();
+  }
+
+  private void tailJobLog(final HttpServletResponse resp, final ExecutableFlow exFlow,
+      final String jobId, final int offset, final int attempt)
+      throws IOException, ExecutorManagerException {
+    if (!this.logTailPermits.tryAcquire()) {
+      resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many logs are tailed.");
+      return;
+    }
+    try {
+      this.executorManagerAdapter
+          .tailExecutionJobLog(exFlow, jobId, offset, attempt, resp.getOutputStream());
+    } catch (final HttpResponseException e) {
+      // The executor refused the tail before anything was written
+      if (e.getStatusCode() != HttpServletResponse.SC_SERVICE_UNAVAILABLE
+          || resp.isCommitted()) {
+        throw e;
+      }
+      resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+    } finally {
+      this.logTailPermits.release();
+    }
+  }
+
   private Map<String, Object> appendLogData(final LogData data, final int defaultOffset) {
     final Map<String, Object> parameters = new HashMap<>();
 
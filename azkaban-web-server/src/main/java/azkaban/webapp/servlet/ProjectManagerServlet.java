@@ -19,6 +19,7 @@ package azkaban.webapp.servlet;
 import azkaban.Constants;
 import azkaban.Constants.ConfigurationKeys;
 import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableFlowSummary;
 import azkaban.executor.ExecutableJobInfo;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
@@ -433,11 +434,11 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
     final int from = Integer.valueOf(getParam(req, "start"));
     final int length = Integer.valueOf(getParam(req, "length"));
 
-    final ArrayList<ExecutableFlow> exFlows = new ArrayList<>();
+    final ArrayList<ExecutableFlowSummary> exFlows = new ArrayList<>();
     int total = 0;
     try {
       total =
-          this.executorManagerAdapter.getExecutableFlows(project.getId(), flowId, from,
+          this.executorManagerAdapter.getExecutableFlowSummaries(project.getId(), flowId, from,
               length, exFlows);
     } catch (final ExecutorManagerException e) {
       ret.put(ERROR_PARAM, "Error retrieving executable flows");
@@ -449,7 +450,7 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
     ret.put("length", length);
 
     final ArrayList<Object> history = new ArrayList<>();
-    for (final ExecutableFlow flow : exFlows) {
+    for (final ExecutableFlowSummary flow : exFlows) {
       final HashMap<String, Object> flowInfo = new HashMap<>();
       flowInfo.put("execId", flow.getExecutionId());
       flowInfo.put(FLOW_ID_PARAM, flow.getFlowId());
@@ -128,11 +128,27 @@ public class ProjectServlet extends LoginAbstractAzkabanServlet {
       user = session.getUser();
     }
 
-    final List<Project> projects = manager.getUserProjects(user);
+    final List<Project> projects = manager.getUserProjects(user, getPageOffset(req),
+        getPageSize(req));
     final List<SimplifiedProject> simplifiedProjects = toSimplifiedProjects(projects);
     ret.put("projects", simplifiedProjects);
   }
 
+  /**
+   * @return the requested number of projects per page, all of them if no size is requested
+   */
+  private int getPageSize(final HttpServletRequest req) {
+    return Math.max(1, getIntParam(req, "size", Integer.MAX_VALUE));
+  }
+
+  /**
+   * @return the number of projects before the requested page, which starts at 1
+   */
+  private int getPageOffset(final HttpServletRequest req) {
+    final long pageNum = Math.max(1, getIntParam(req, "page", 1));
+    return (int) Math.min(Integer.MAX_VALUE, (pageNum - 1) * getPageSize(req));
+  }
+
   /**
    * A simple helper method that converts a List<Project> to List<SimplifiedProject>
    */
@@ -168,18 +184,32 @@ public class ProjectServlet extends LoginAbstractAzkabanServlet {
       page.add("viewProjects", "all");
       page.add("projects", projects);
     } else if (hasParam(req, "group")) {
-      final List<Project> projects = manager.getGroupProjects(user);
+      final List<Project> projects = manager.getGroupProjects(user, getPageOffset(req),
+          getPageSize(req));
       page.add("viewProjects", "group");
       page.add("projects", projects);
+      addPageSelection(req, page, projects);
     } else {
-      final List<Project> projects = manager.getUserProjects(user);
+      final List<Project> projects = manager.getUserProjects(user, getPageOffset(req),
+          getPageSize(req));
       page.add("viewProjects", "personal");
       page.add("projects", projects);
+      addPageSelection(req, page, projects);
     }
 
     page.render();
   }
 
+  private void addPageSelection(final HttpServletRequest req, final Page page,
+      final List<Project> projects) {
+    if (hasParam(req, "size")) {
+      final int pageSize = getPageSize(req);
+      page.add("projectPageSize", pageSize);
+      page.add("projectPage", getPageOffset(req) / pageSize + 1);
+      page.add("hasNextProjectPage", projects.size() == pageSize);
+    }
+  }
+
   private void handleDoAction(final HttpServletRequest req, final HttpServletResponse resp,
       final Session session) throws ServletException {
     if (getParam(req, "doaction").equals("search")) {
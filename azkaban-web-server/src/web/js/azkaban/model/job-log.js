@@ -23,6 +23,80 @@ azkaban.JobLogModel = Backbone.Model.extend({
   },
 
   refresh: function () {
+    if (this.tailing) {
+      return;
+    }
+    this.tail();
+  },
+
+  // Streams the log as the job writes it. The executor ends a tail after a while, so it's
+  // reopened from the offset reached until a tail that started after the job finished, which
+  // reads the log to its end. Falls back to fetching the log when the tail is refused, e.g. when
+  // too many logs are tailed, or when the browser can't read a response as it streams.
+  tail: function () {
+    if (!window.fetch || !window.TextDecoder || !window.ReadableStream) {
+      this.fetch();
+      return;
+    }
+    // Kept across tails: a tail may end in the middle of a character, whose first bytes are held
+    // by the decoder until the next tail brings the rest
+    if (!this.decoder) {
+      this.decoder = new TextDecoder("utf-8");
+    }
+
+    var self = this;
+    var requestData = {
+      "execid": execId,
+      "jobId": jobId,
+      "ajax": "tailExecJobLogs",
+      "offset": this.get("offset"),
+      "attempt": attempt
+    };
+    var jobFinished = false;
+    var received = 0;
+
+    var readAll = function (reader) {
+      return reader.read().then(function (result) {
+        if (result.done) {
+          return;
+        }
+        // The offset is in bytes, so it's advanced by the raw bytes received
+        received += result.value.length;
+        self.set("offset", self.get("offset") + result.value.length);
+        var text = self.decoder.decode(result.value, {stream: true});
+        // Fetched logs are escaped by the server, tailed ones are raw
+        self.set("logData", self.get("logData") + $("<div/>").text(text).html());
+        return readAll(reader);
+      });
+    };
+
+    this.tailing = true;
+    window.fetch(contextURL + "/executor?" + $.param(requestData),
+        {credentials: "same-origin"}).then(function (response) {
+      var contentType = response.headers.get("Content-Type") || "";
+      if (response.status != 200 || contentType.indexOf("text/plain") != 0 || !response.body) {
+        throw new Error("tailLogs refused: " + response.status);
+      }
+      jobFinished = response.headers.get("Azkaban-Job-Finished") == "true";
+      return readAll(response.body.getReader());
+    }).then(function () {
+      self.tailing = false;
+      if (jobFinished) {
+        return;
+      }
+      // A tail of a running job waits for new lines, so one that brings nothing ended early,
+      // e.g. because the job just finished: wait a bit for the status to be updated.
+      setTimeout(function () {
+        self.refresh();
+      }, received > 0 ? 0 : 5000);
+    }, function (error) {
+      console.log(error);
+      self.tailing = false;
+      self.fetch();
+    });
+  },
+
+  fetch: function () {
     var requestURL = contextURL + "/executor";
     var finished = false;
 